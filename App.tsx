@@ -20,6 +20,11 @@ import { FileLogger } from 'react-native-file-logger';
 import notifee from '@notifee/react-native';
 import { configure } from 'mobx';
 import { RootStore, RootStoreProvider } from './stores/RootStore';
+import { markStartup } from './services/StartupTrace';
+import { logger } from './services/Logger';
+
+// Before anything else logs, so the whole start up ends up in the log file.
+logger.installLogSink();
 
 LogBox.ignoreLogs([
     'new NativeEventEmitter',
@@ -109,21 +114,32 @@ const App = () => {
     };
 
     useEffect(() => {
+        // First commit of the root component, the last step of the cold start trace.
+        markStartup('appRendered');
         (async () => {
             console.log('Starting initialisation code.');
             nodejs.start('main.js');
             nodejs.channel.addListener('message', (msg) => {
                 if (msg.name === 'log') {
-                    console.log(msg.text);
+                    logger.logNode(msg.text);
                 }
             });
+            // Node writes its logs straight to the native sink once it has the port.
+            const logPort = await logger.getLogPort();
+            if (logPort) {
+                nodejs.channel.send({ name: 'log-port', port: logPort });
+            }
             if (Platform.OS === 'android') {
                 if (UIManager.setLayoutAnimationEnabledExperimental) {
                     console.log('Setting layout animations');
                     UIManager.setLayoutAnimationEnabledExperimental(true);
                 }
             }
-            await FileLogger.configure();
+            // Only used to email the files the native sink writes.
+            await FileLogger.configure({
+                captureConsole: false,
+                logsDirectory: await logger.getLogDirectory(),
+            });
             await notifee.cancelAllNotifications();
             await checkBatteryOptimisations();
         })();
@@ -1,5 +1,16 @@
-import { Platform, PermissionsAndroid } from 'react-native';
-import { NativeModules } from 'react-native';
+import { NativeEventEmitter, Platform, PermissionsAndroid } from 'react-native';
+import FilePathModuleTyped from '../specs/NativeFilePathModule';
+import type {
+    CopyProgress,
+    DeleteProgress,
+    EvictionOptions,
+    EvictionProgress,
+    FileStat,
+    FolderChanges,
+    LibraryFile,
+    TreeEntry,
+    TreePage,
+} from '../specs/NativeFilePathModule';
 
 export async function promiseEach<T>(
     promiseArray: Promise<T>[],
@@ -73,121 +84,408 @@ export const formatSecondsToMinutesSeconds = (s: number) => {
     return (s - (s %= 60)) / 60 + (s > 9 ? ':' : ':0') + s;
 };
 
-interface FilePathModuleInterface {
-    getFolderPathFromUri(
-        contentUri: string,
-        callback: (directoryPath: string) => void,
-    ): void;
-    verifyManageFilesPermission(callback: (granted: boolean) => void): void;
-    fileExists(filePath: string, callback: (fileExists: boolean) => void): void;
-    deleteFileIfExists(
-        filePath: string,
-        callback: (success: boolean) => void,
-    ): void;
-    deleteFolder(
-        folderPath: string,
-        callback: (success: boolean) => void,
-    ): void;
-    openFolder(folderPath: string, callback: (success: boolean) => void): void;
-    ensureFolderExists(
-        folderPath: string,
-        callback: (success: boolean) => void,
-    ): void;
-    readTextFile(filePath: string, callback: (text: string) => void): void;
-    openVideoIntent(
-        filePath: string,
-        callback: (success: boolean) => void,
-    ): void;
-    getOpenPort(callback: (openPortNumber: number) => void): void;
-    isCastingAvailable(callback: (castingAvailable: boolean) => void): void;
-}
+export type {
+    CopyProgress,
+    DeleteProgress,
+    DeleteResult,
+    EvictionOptions,
+    EvictionProgress,
+    EvictionResult,
+    FileStat,
+    FileIoStats,
+    FolderChange,
+    FolderChanges,
+    FolderIndexStats,
+    FolderPathCacheStats,
+    LibraryFile,
+    LibraryScan,
+    PieceVerification,
+    PlaybackPreparation,
+    Preallocation,
+    SubtitleExtraction,
+    TextPage,
+    TreeEntry,
+    TreeListing,
+    TreePage,
+    VideoServerStartup,
+    VttTidyResult,
+} from '../specs/NativeFilePathModule';
+
+const filePathModuleEvents = new NativeEventEmitter(FilePathModuleTyped);
+
+export const getRealPathFromContentUri = async (
+    contentUri: string,
+    callId?: string,
+) => {
+    const directoryPath = await FilePathModuleTyped.getFolderPathFromUri(
+        contentUri,
+        callId ?? null,
+    );
+    if (!directoryPath) {
+        throw `Content Uri ${contentUri} could not be mapped to directory`;
+    }
+    return directoryPath;
+};
+
+let treeListingCount = 0;
+
+/**
+ * Lists a folder picked through the storage access framework, passing each
+ * page of entries to onPage as the provider returns them. Nothing is copied
+ * and no file paths are resolved; pass an entry's uri back in to open a
+ * subfolder.
+ */
+export const listTree = async (
+    uri: string,
+    onPage: (entries: TreeEntry[], last: boolean) => void,
+    pageSize = 100,
+    callId = `listTree-${Date.now()}-${treeListingCount++}`,
+) => {
+    const subscription = filePathModuleEvents.addListener(
+        'FilePathModule.treePage',
+        (page: TreePage) => {
+            if (page.callId === callId) {
+                onPage(page.entries, page.last);
+            }
+        },
+    );
+    try {
+        return await FilePathModuleTyped.listTree(uri, pageSize, callId);
+    } finally {
+        subscription.remove();
+    }
+};
 
-const { FilePathModule } = NativeModules;
-const FilePathModuleTyped = FilePathModule as FilePathModuleInterface;
-export const getRealPathFromContentUri = (contentUri: string) => {
-    return new Promise<string>((resolve, reject) => {
-        FilePathModuleTyped.getFolderPathFromUri(
-            contentUri,
-            (directoryPath) => {
-                if (directoryPath) {
-                    resolve(directoryPath);
-                } else {
-                    reject(
-                        `Content Uri ${contentUri} could not be mapped to directory`,
-                    );
-                }
-            },
-        );
-    });
+/**
+ * Hit/miss counters of the native cache behind getRealPathFromContentUri.
+ */
+export const getFolderPathCacheStats = () => {
+    return FilePathModuleTyped.getFolderPathCacheStats();
+};
+
+export const clearFolderPathCache = () => {
+    return FilePathModuleTyped.clearFolderPathCache();
 };
 
 export const fileExists = (filePath: string) => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.fileExists(filePath, (fileExistsOnDevice) =>
-            resolve(fileExistsOnDevice),
-        );
-    });
+    return FilePathModuleTyped.fileExists(filePath);
+};
+
+/**
+ * Synchronous existence check answered from the native cache filled by
+ * fileExists/statFiles. Returns null when the path has not been seen recently.
+ */
+export const fileExistsCached = (filePath: string) => {
+    return FilePathModuleTyped.fileExistsCached(filePath);
+};
+
+/**
+ * Stats every path in a single native call instead of one fileExists per path.
+ * Results are returned in the same order as filePaths.
+ */
+export const statFiles = (filePaths: string[]) => {
+    if (filePaths.length === 0) {
+        return Promise.resolve([] as FileStat[]);
+    }
+    return FilePathModuleTyped.statMany(filePaths);
+};
+
+/**
+ * Watches exactly these folders for changes made by anyone, e.g. a file
+ * manager. Existence checks on files directly inside them are then answered
+ * from a native index, see addFolderChangeListener for the change feed.
+ */
+export const watchFolders = (folderPaths: string[]) => {
+    return FilePathModuleTyped.watchFolders(folderPaths);
+};
+
+export const getFolderIndexStats = () => {
+    return FilePathModuleTyped.getFolderIndexStats();
 };
 
 export const deleteFileIfExists = (filePath: string) => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.deleteFileIfExists(filePath, (success) =>
-            resolve(success),
-        );
-    });
+    return FilePathModuleTyped.deleteFileIfExists(filePath);
+};
+
+/**
+ * Deletes a file or folder tree off the JS thread. Resolves with what was
+ * freed and any per-file failures; progress is reported through
+ * addDeleteProgressListener.
+ */
+export const deleteFolder = (folderPath: string, callId?: string) => {
+    return FilePathModuleTyped.deleteFolder(folderPath, callId ?? null);
+};
+
+/**
+ * Deletes downloaded episodes, watched and least recently used first, until
+ * every show folder and all of them together fit their byte budgets. Progress
+ * is reported through addEvictionProgressListener.
+ */
+export const evictToBudget = (options: EvictionOptions, callId?: string) => {
+    return FilePathModuleTyped.evictToBudget(options, callId ?? null);
+};
+
+/**
+ * Show name -> episode without leading zeros -> resolution such as '1080p'
+ * ('' when the file name has none) -> newest release of that episode.
+ */
+export type LibraryShows = {
+    [show: string]: {
+        [episode: string]: { [resolution: string]: LibraryFile };
+    };
 };
 
-export const deleteFolder = (folderPath: string) => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.deleteFolder(folderPath, (success) =>
-            resolve(success),
-        );
-    });
+/**
+ * Finds the SubsPlease episode files in the given show folders and their
+ * subfolders. The index is kept natively between scans, so only folders
+ * that changed since the last scan are listed again.
+ */
+export const scanLibrary = async (showFolders: string[], callId?: string) => {
+    const result = await FilePathModuleTyped.scanLibrary(
+        showFolders,
+        callId ?? null,
+    );
+    return { ...result, shows: result.shows as LibraryShows };
 };
 
 export const openFolder = (folderPath: string) => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.openFolder(folderPath, (success) =>
-            resolve(success),
-        );
-    });
+    return FilePathModuleTyped.openFolder(folderPath);
 };
 
 export const ensureFolderExists = (folderPath: string) => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.ensureFolderExists(folderPath, (success) =>
-            resolve(success),
-        );
-    });
+    return FilePathModuleTyped.ensureFolderExists(folderPath);
+};
+
+/**
+ * Reserves the full size of a download up front. Rejects with code
+ * E_NO_SPACE when the volume does not have room for it.
+ */
+export const preallocate = (filePath: string, size: number) => {
+    return FilePathModuleTyped.preallocate(filePath, size);
+};
+
+export const readTextFile = (filePath: string, callId?: string) => {
+    return FilePathModuleTyped.readTextFile(filePath, callId ?? null);
 };
 
-export const readTextFile = (filePath: string) => {
-    return new Promise<string>((resolve) => {
-        FilePathModuleTyped.readTextFile(filePath, (text) => resolve(text));
-    });
+/**
+ * Reads a byte range of a text file. Pass wholeLines when paging backwards so
+ * each page starts on a line that the previous page did not include.
+ */
+export const readTextFilePage = (
+    filePath: string,
+    offset: number,
+    length: number,
+    wholeLines = false,
+    callId?: string,
+) => {
+    return FilePathModuleTyped.readTextFilePage(
+        filePath,
+        offset,
+        length,
+        wholeLines,
+        callId ?? null,
+    );
+};
+
+export const readTextFileTail = (
+    filePath: string,
+    maxBytes: number,
+    callId?: string,
+) => {
+    return FilePathModuleTyped.readTextFileTail(
+        filePath,
+        maxBytes,
+        callId ?? null,
+    );
+};
+
+/**
+ * Returns a file:// URI of a cached JPEG frame of the video, decoded natively
+ * at no more than the given size. Resolves to null when no frame is available.
+ */
+export const getVideoThumbnail = (
+    videoPath: string,
+    maxWidth = 480,
+    maxHeight = 270,
+    callId?: string,
+) => {
+    return FilePathModuleTyped.getVideoThumbnail(
+        videoPath,
+        maxWidth,
+        maxHeight,
+        callId ?? null,
+    );
+};
+
+export const clearThumbnailCache = () => {
+    return FilePathModuleTyped.clearThumbnailCache();
+};
+
+/**
+ * Writes the first text subtitle track of an MKV file as WebVTT, reading only
+ * the subtitle blocks. Resolves to null when the file has no text track the
+ * native extractor understands, e.g. image based PGS subtitles.
+ */
+export const extractMatroskaSubtitles = (
+    mkvPath: string,
+    vttPath: string,
+    callId?: string,
+) => {
+    return FilePathModuleTyped.extractMatroskaSubtitles(
+        mkvPath,
+        vttPath,
+        callId ?? null,
+    );
+};
+
+/**
+ * Removes background boxes, folds repeated cues and marks signs in a VTT
+ * file extracted from ASS subtitles. Rewrites the file in place.
+ */
+export const tidyVtt = (vttPath: string, callId?: string) => {
+    return FilePathModuleTyped.tidyVtt(vttPath, callId ?? null);
+};
+
+/**
+ * Checks a downloaded file against its torrent piece hashes (hex SHA-1) on
+ * every core. Pieces past the end of the file count as bad.
+ */
+export const verifyPieces = (
+    filePath: string,
+    pieceLength: number,
+    sha1s: string[],
+    callId?: string,
+) => {
+    return FilePathModuleTyped.verifyPieces(
+        filePath,
+        pieceLength,
+        sha1s,
+        callId ?? null,
+    );
+};
+
+// Roughly the first minute of a 1080p episode.
+const playbackLeadBytes = 32 * 1024 * 1024;
+
+/**
+ * Reads the header, seek index and first minute of a video into the page
+ * cache so the player's first reads don't hit cold storage. Cancel it with
+ * cancelFileOperation(callId) when the user backs out.
+ */
+export const prepareForPlayback = (filePath: string, callId?: string) => {
+    return FilePathModuleTyped.prepareForPlayback(
+        filePath,
+        playbackLeadBytes,
+        callId ?? null,
+    );
+};
+
+/**
+ * Starts prepareForPlayback and resolves when it finishes or after maxWaitMs,
+ * whichever is first. Warming carries on behind the player after that.
+ */
+export const warmBeforePlayback = async (
+    filePath: string,
+    callId: string,
+    maxWaitMs = 1500,
+) => {
+    const warming = prepareForPlayback(filePath, callId).then(
+        (result) => {
+            console.log(
+                'Warmed',
+                result.bytesWarmed,
+                'bytes for playback in',
+                Math.round(result.durationMs),
+                'ms',
+                result.indexFound ? '' : '(index not found)',
+            );
+        },
+        (ex) => {
+            console.log('Could not prepare playback', ex?.code, ex?.message);
+        },
+    );
+    await Promise.race([
+        warming,
+        new Promise((resolve) => setTimeout(resolve, maxWaitMs)),
+    ]);
 };
 
 export const openVideoIntent = (filePath: string) => {
     console.log('Going to open', filePath);
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.openVideoIntent(filePath, (success) =>
-            resolve(success),
-        );
-    });
+    return FilePathModuleTyped.openVideoIntent(filePath);
 };
 
-export const getOpenPort = () => {
-    return new Promise<number>((resolve) => {
-        FilePathModuleTyped.getOpenPort((port) => resolve(port));
-    });
+/**
+ * Starts the native cast server serving /video and /vtt. Resolves with its
+ * port and how long binding and becoming ready took.
+ */
+export const startVideoServer = () => {
+    return FilePathModuleTyped.startVideoServer();
+};
+
+export const stopVideoServer = () => {
+    return FilePathModuleTyped.stopVideoServer();
 };
 
 export const isCastingAvailable = () => {
-    return new Promise<boolean>((resolve) => {
-        FilePathModuleTyped.isCastingAvailable((castingAvailable) =>
-            resolve(castingAvailable),
-        );
-    });
+    return FilePathModuleTyped.isCastingAvailable();
+};
+
+/**
+ * Cancels a file call that was started with the given callId.
+ * The cancelled call rejects with the E_CANCELLED code.
+ */
+export const cancelFileOperation = (callId: string) => {
+    return FilePathModuleTyped.cancel(callId);
+};
+
+export const getFileIoStats = () => {
+    return FilePathModuleTyped.getIoStats();
+};
+
+/**
+ * Progress of content URI copies started by getRealPathFromContentUri.
+ * Events carry the callId passed to that call.
+ */
+export const addCopyProgressListener = (
+    listener: (progress: CopyProgress) => void,
+) => {
+    return filePathModuleEvents.addListener(
+        'FilePathModule.copyProgress',
+        listener,
+    );
+};
+
+export const addDeleteProgressListener = (
+    listener: (progress: DeleteProgress) => void,
+) => {
+    return filePathModuleEvents.addListener(
+        'FilePathModule.deleteProgress',
+        listener,
+    );
+};
+
+export const addEvictionProgressListener = (
+    listener: (progress: EvictionProgress) => void,
+) => {
+    return filePathModuleEvents.addListener(
+        'FilePathModule.evictionProgress',
+        listener,
+    );
+};
+
+/**
+ * Coalesced batches of files added, deleted or modified in the folders passed
+ * to watchFolders.
+ */
+export const addFolderChangeListener = (
+    listener: (folderChanges: FolderChanges) => void,
+) => {
+    return filePathModuleEvents.addListener(
+        'FilePathModule.folderChanges',
+        listener,
+    );
 };
 
 export const getExtensionlessFilepath = (filePath: string) => {
@@ -203,11 +501,5 @@ export async function requestStoragePermission() {
         return true;
     }
 
-    const checkManageFilesPermission = () => {
-        return new Promise<boolean>((resolve) => {
-            FilePathModuleTyped.verifyManageFilesPermission(resolve);
-        });
-    };
-
-    return await checkManageFilesPermission();
+    return await FilePathModuleTyped.verifyManageFilesPermission();
 }
@@ -0,0 +1,115 @@
+package com.yorha;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the children of a folder picked through the storage access framework. The provider is
+ * queried once with only the columns shown in the app, and the rows are handed out in pages while
+ * the cursor is still being read, so a show folder with hundreds of episodes shows up without a
+ * query per file and without copying anything to internal storage.
+ */
+final class DocumentTreeLister {
+    private static final String[] PROJECTION = {
+            DocumentsContract.Document.COLUMN_DOCUMENT_ID,
+            DocumentsContract.Document.COLUMN_DISPLAY_NAME,
+            DocumentsContract.Document.COLUMN_SIZE,
+            DocumentsContract.Document.COLUMN_LAST_MODIFIED,
+            DocumentsContract.Document.COLUMN_MIME_TYPE,
+    };
+
+    static final class Entry {
+        final String documentId;
+        // Document URI within the tree, pass it back to list a child folder.
+        final String uri;
+        final String name;
+        // -1 when the provider doesn't know.
+        final long size;
+        final long lastModified;
+        final String mimeType;
+
+        Entry(String documentId, String uri, String name, long size, long lastModified, String mimeType) {
+            this.documentId = documentId;
+            this.uri = uri;
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+        }
+
+        boolean isDirectory() {
+            return DocumentsContract.Document.MIME_TYPE_DIR.equals(mimeType);
+        }
+    }
+
+    interface PageListener {
+        void onPage(int pageIndex, List<Entry> entries, boolean last);
+    }
+
+    static final class Result {
+        final int entries;
+        final int pages;
+
+        Result(int entries, int pages) {
+            this.entries = entries;
+            this.pages = pages;
+        }
+    }
+
+    private DocumentTreeLister() {}
+
+    /**
+     * Lists {@code uri}, a tree URI from ACTION_OPEN_DOCUMENT_TREE or a folder document URI from an
+     * earlier listing, calling {@code listener} with at most {@code pageSize} entries at a time. The
+     * last call has {@code last} set, even when the folder is empty. Cancelled by interrupting the
+     * calling thread.
+     */
+    static Result list(Context context, Uri uri, int pageSize, PageListener listener)
+            throws FileNotFoundException, InterruptedException {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        String parentId = DocumentsContract.isDocumentUri(context, uri)
+                ? DocumentsContract.getDocumentId(uri)
+                : DocumentsContract.getTreeDocumentId(uri);
+        Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(uri, parentId);
+
+        ContentResolver resolver = context.getContentResolver();
+        int count = 0;
+        int pageIndex = 0;
+        List<Entry> page = new ArrayList<>(pageSize);
+        try (Cursor cursor = resolver.query(childrenUri, PROJECTION, null, null, null)) {
+            if (cursor == null) {
+                throw new FileNotFoundException("Could not list " + uri);
+            }
+            while (cursor.moveToNext()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Listing " + uri + " was cancelled");
+                }
+                String documentId = cursor.getString(0);
+                page.add(new Entry(documentId, DocumentsContract.buildDocumentUriUsingTree(uri, documentId).toString(),
+                        cursor.getString(1), cursor.isNull(2) ? -1 : cursor.getLong(2),
+                        cursor.isNull(3) ? 0 : cursor.getLong(3), cursor.getString(4)));
+                count++;
+                if (page.size() == pageSize) {
+                    // Only known to be the last once the cursor has no next row.
+                    boolean last = cursor.isLast();
+                    listener.onPage(pageIndex++, page, last);
+                    page = new ArrayList<>(pageSize);
+                    if (last) {
+                        return new Result(count, pageIndex);
+                    }
+                }
+            }
+        }
+        listener.onPage(pageIndex++, page, true);
+        return new Result(count, pageIndex);
+    }
+}
@@ -0,0 +1,239 @@
+package com.yorha;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the progress of every torrent download in the process. The node torrent client writes
+ * one line per torrent per second to a loopback socket opened here, so progress no longer crosses
+ * the nodejs-mobile channel and the JS bridge; {@link DownloadService} drains the latest state on
+ * a fixed tick to redraw its notification and send JS a single batched summary.
+ *
+ * <pre>
+ * progress \t callbackId \t downloaded \t uploaded \t downloadSpeed \t uploadSpeed \n
+ * </pre>
+ */
+final class DownloadProgressHub {
+    private static final String TAG = "DownloadProgressHub";
+    private static DownloadProgressHub instance;
+
+    static final class Download {
+        final String callbackId;
+        final String showName;
+        final String episodeNumber;
+        final long totalBytes;
+        // Files the torrent writes, kept from deletion while it downloads.
+        final List<String> filePaths;
+        long downloadedBytes;
+        long uploadedBytes;
+        long downloadSpeed;
+        long uploadSpeed;
+        // Transferred since the last summary, for the session statistics.
+        long downloadedDelta;
+        long uploadedDelta;
+        String filePath;
+
+        Download(String callbackId, String showName, String episodeNumber, long totalBytes,
+                 List<String> filePaths) {
+            this.callbackId = callbackId;
+            this.showName = showName;
+            this.episodeNumber = episodeNumber;
+            this.totalBytes = totalBytes;
+            this.filePaths = filePaths;
+        }
+
+        Download copy() {
+            Download copy = new Download(callbackId, showName, episodeNumber, totalBytes, filePaths);
+            copy.downloadedBytes = downloadedBytes;
+            copy.uploadedBytes = uploadedBytes;
+            copy.downloadSpeed = downloadSpeed;
+            copy.uploadSpeed = uploadSpeed;
+            copy.downloadedDelta = downloadedDelta;
+            copy.uploadedDelta = uploadedDelta;
+            copy.filePath = filePath;
+            return copy;
+        }
+    }
+
+    static final class Summary {
+        // Downloads still in progress, in the order they were started.
+        final List<Download> active;
+        // Downloads finished since the last summary.
+        final List<Download> completed;
+        // Whether anything was reported since the last summary.
+        final boolean changed;
+
+        Summary(List<Download> active, List<Download> completed, boolean changed) {
+            this.active = active;
+            this.completed = completed;
+            this.changed = changed;
+        }
+    }
+
+    @Nullable
+    private volatile Runnable updateListener;
+    private final Map<String, Download> active = new LinkedHashMap<>();
+    private final List<Download> completed = new ArrayList<>();
+    private boolean changed;
+    private ServerSocket serverSocket;
+
+    private DownloadProgressHub() {}
+
+    static synchronized DownloadProgressHub get() {
+        if (instance == null) {
+            instance = new DownloadProgressHub();
+        }
+        return instance;
+    }
+
+    /** Port of the loopback socket the torrent client reports to, opened on first use. */
+    synchronized int getPort() throws IOException {
+        if (serverSocket == null || serverSocket.isClosed()) {
+            serverSocket = new ServerSocket(0, 4, InetAddress.getLoopbackAddress());
+            final ServerSocket server = serverSocket;
+            Thread acceptor = new Thread(() -> accept(server), "yorha-download-progress");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    /** Called after each progress line from the socket, outside the hub's lock. */
+    void setUpdateListener(@Nullable Runnable listener) {
+        updateListener = listener;
+    }
+
+    synchronized void add(String callbackId, String showName, String episodeNumber, long totalBytes,
+                          List<String> filePaths) {
+        active.put(callbackId, new Download(callbackId, showName, episodeNumber, totalBytes, filePaths));
+        changed = true;
+    }
+
+    /** Files of every download still in progress. */
+    synchronized List<String> activeFilePaths() {
+        List<String> paths = new ArrayList<>();
+        for (Download download : active.values()) {
+            paths.addAll(download.filePaths);
+        }
+        return paths;
+    }
+
+    /** Takes cumulative byte counts, as reported by the torrent, and the current speeds. */
+    synchronized void update(String callbackId, long downloadedBytes, long uploadedBytes, long downloadSpeed,
+                             long uploadSpeed) {
+        Download download = active.get(callbackId);
+        if (download == null) {
+            // Metadata not handled by JS yet, the next line will be picked up.
+            return;
+        }
+        download.downloadedDelta += Math.max(0, downloadedBytes - download.downloadedBytes);
+        download.uploadedDelta += Math.max(0, uploadedBytes - download.uploadedBytes);
+        download.downloadedBytes = downloadedBytes;
+        download.uploadedBytes = uploadedBytes;
+        download.downloadSpeed = downloadSpeed;
+        download.uploadSpeed = uploadSpeed;
+        changed = true;
+    }
+
+    synchronized void complete(String callbackId, String filePath) {
+        Download download = active.remove(callbackId);
+        if (download != null) {
+            download.downloadedBytes = Math.max(download.downloadedBytes, download.totalBytes);
+            download.downloadSpeed = 0;
+            download.filePath = filePath;
+            completed.add(download);
+            changed = true;
+        }
+    }
+
+    synchronized void remove(String callbackId) {
+        if (active.remove(callbackId) != null) {
+            changed = true;
+        }
+    }
+
+    synchronized boolean isIdle() {
+        return active.isEmpty() && completed.isEmpty();
+    }
+
+    /** The current state, resetting the byte deltas and the completed list. */
+    synchronized Summary drain() {
+        List<Download> activeCopy = new ArrayList<>(active.size());
+        for (Download download : active.values()) {
+            activeCopy.add(download.copy());
+            download.downloadedDelta = 0;
+            download.uploadedDelta = 0;
+        }
+        Summary summary = new Summary(activeCopy, new ArrayList<>(completed), changed);
+        completed.clear();
+        changed = false;
+        return summary;
+    }
+
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                Thread reader = new Thread(() -> read(socket), "yorha-download-progress-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e) {
+                if (!server.isClosed()) {
+                    Log.w(TAG, "Could not accept a progress connection", e);
+                }
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                onLine(line);
+            }
+        }
+        catch (IOException e) {
+            Log.w(TAG, "Progress connection closed", e);
+        }
+    }
+
+    void onLine(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length < 6 || !fields[0].equals("progress")) {
+            Log.w(TAG, "Ignoring progress line " + line);
+            return;
+        }
+        try {
+            update(fields[1], parseBytes(fields[2]), parseBytes(fields[3]), parseBytes(fields[4]),
+                    parseBytes(fields[5]));
+        }
+        catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring progress line " + line, e);
+            return;
+        }
+        Runnable listener = updateListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    // Speeds are averages and arrive as fractions.
+    private static long parseBytes(String field) {
+        return Math.round(Double.parseDouble(field));
+    }
+}
@@ -0,0 +1,201 @@
+package com.yorha;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.text.format.Formatter;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Keeps the process in the foreground while torrents download and shows a single grouped
+ * notification for all of them. The notification is redrawn on a fixed tick from the state
+ * collected by {@link DownloadProgressHub}, however many downloads report in between, and the same
+ * tick hands a batched summary to JS. The service stops itself once nothing is downloading.
+ */
+public class DownloadService extends Service {
+    private static final String TAG = "DownloadService";
+    private static final String CHANNEL_ID = "Downloadnotifications";
+    private static final String FOREGROUND_CHANNEL_ID = "ForeGroundNotification";
+    private static final String GROUP_ID = "yorha-downloads";
+    private static final int FOREGROUND_NOTIFICATION_ID = 0x5950;
+    private static final long TICK_MS = 1000;
+
+    interface SummaryListener {
+        void onSummary(DownloadProgressHub.Summary summary);
+    }
+
+    @Nullable
+    private static volatile SummaryListener summaryListener;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tick = this::tick;
+    private NotificationManager notificationManager;
+
+    // Set when the system refused to start us, the module retries once the app is in the foreground.
+    private static volatile boolean startDeferred;
+
+    /**
+     * Starts the service if it isn't running, call after adding a download to the hub. Returns
+     * false if the system doesn't allow a foreground service start right now, the download stays
+     * in the hub and {@link #isStartDeferred()} reports the start as owed.
+     */
+    static boolean start(Context context) {
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, DownloadService.class));
+            startDeferred = false;
+            return true;
+        }
+        catch (IllegalStateException e) {
+            // ForegroundServiceStartNotAllowedException on Android 12+, background start limits before that.
+            Log.w(TAG, "Could not start the download service, retrying when the app is in the foreground", e);
+            startDeferred = true;
+            return false;
+        }
+    }
+
+    static boolean isStartDeferred() {
+        return startDeferred;
+    }
+
+    static void setSummaryListener(@Nullable SummaryListener listener) {
+        summaryListener = listener;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        notificationManager = getSystemService(NotificationManager.class);
+        notificationManager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                "Episode download notifications", NotificationManager.IMPORTANCE_DEFAULT));
+        notificationManager.createNotificationChannel(new NotificationChannel(FOREGROUND_CHANNEL_ID,
+                "Downloads in progress notification", NotificationManager.IMPORTANCE_LOW));
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Must be called for every startForegroundService, even when already in the foreground.
+        DownloadProgressHub.Summary summary = DownloadProgressHub.get().drain();
+        startForeground(FOREGROUND_NOTIFICATION_ID, buildProgressNotification(summary),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        publish(summary);
+        handler.removeCallbacks(tick);
+        handler.postDelayed(tick, TICK_MS);
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(tick);
+        super.onDestroy();
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void tick() {
+        DownloadProgressHub hub = DownloadProgressHub.get();
+        DownloadProgressHub.Summary summary = hub.drain();
+        if (summary.changed) {
+            publish(summary);
+            if (!summary.active.isEmpty()) {
+                notificationManager.notify(FOREGROUND_NOTIFICATION_ID, buildProgressNotification(summary));
+            }
+        }
+        if (hub.isIdle() && summary.active.isEmpty()) {
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            stopSelf();
+            return;
+        }
+        handler.postDelayed(tick, TICK_MS);
+    }
+
+    private void publish(DownloadProgressHub.Summary summary) {
+        for (DownloadProgressHub.Download download : summary.completed) {
+            notificationManager.notify(download.callbackId.hashCode(), buildCompletedNotification(download));
+        }
+        SummaryListener listener = summaryListener;
+        if (listener != null) {
+            listener.onSummary(summary);
+        }
+    }
+
+    private Notification buildProgressNotification(DownloadProgressHub.Summary summary) {
+        long downloaded = 0;
+        long total = 0;
+        long speed = 0;
+        Notification.InboxStyle style = new Notification.InboxStyle();
+        for (DownloadProgressHub.Download download : summary.active) {
+            downloaded += download.downloadedBytes;
+            total += download.totalBytes;
+            speed += download.downloadSpeed;
+            style.addLine(percent(download.downloadedBytes, download.totalBytes) + "% - " + download.showName
+                    + " ep: " + download.episodeNumber + " - " + size(download.downloadSpeed) + "/s");
+        }
+        int count = summary.active.size();
+        String title = count == 0
+                ? "Episode downloads in progress"
+                : "YoRHa downloads - " + count + (count == 1 ? " download - " : " downloads - ")
+                        + percent(downloaded, total) + "%";
+        String text = size(speed) + "/s - " + size(downloaded) + " / " + size(total);
+        style.setBigContentTitle(title);
+        return new Notification.Builder(this, FOREGROUND_CHANNEL_ID)
+                .setSmallIcon(R.drawable.subsplease_notification_icon)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setStyle(style)
+                .setProgress(100, percent(downloaded, total), total == 0)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .setGroup(GROUP_ID)
+                .setGroupSummary(true)
+                .setContentIntent(launchIntent())
+                .build();
+    }
+
+    private Notification buildCompletedNotification(DownloadProgressHub.Download download) {
+        Notification.Builder builder = new Notification.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.subsplease_notification_complete_icon)
+                .setContentTitle(download.showName + " ep: " + download.episodeNumber)
+                .setContentText("Download complete")
+                .setAutoCancel(true)
+                .setGroup(GROUP_ID);
+        if (download.filePath != null) {
+            // Same intent as FilePathModule.openVideoIntent.
+            Intent intent = new Intent(Intent.ACTION_VIEW);
+            intent.setDataAndType(Uri.parse(download.filePath), "video/*");
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            builder.setContentIntent(PendingIntent.getActivity(this, download.callbackId.hashCode(), intent,
+                    PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+        }
+        return builder.build();
+    }
+
+    @Nullable
+    private PendingIntent launchIntent() {
+        Intent intent = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        return intent == null ? null : PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private String size(long bytes) {
+        return Formatter.formatShortFileSize(this, bytes);
+    }
+
+    private static int percent(long part, long total) {
+        return total <= 0 ? 0 : (int) Math.min(100, part * 100 / total);
+    }
+}
@@ -0,0 +1,164 @@
+package com.yorha;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets JS register torrent downloads with {@link DownloadService}. Progress itself comes from the
+ * torrent client through {@link DownloadProgressHub}, JS only gets the SUMMARY_EVENT batch the
+ * service sends once per tick.
+ */
+public class DownloadServiceModule extends DownloadServiceSpec {
+    public static final String NAME = "YorhaDownloads";
+    static final String SUMMARY_EVENT = "YorhaDownloads.summary";
+
+    // Whether the app is in the foreground, the only time a refused service start can be retried.
+    private volatile boolean hostResumed;
+
+    DownloadServiceModule(ReactApplicationContext context) {
+        super(context);
+        DownloadService.setSummaryListener(this::onSummary);
+        DownloadProgressHub.get().setUpdateListener(this::retryDeferredStart);
+        context.addLifecycleEventListener(lifecycleListener);
+    }
+
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            hostResumed = true;
+            retryDeferredStart();
+        }
+
+        @Override
+        public void onHostPause() {
+            hostResumed = false;
+        }
+
+        @Override
+        public void onHostDestroy() {
+            hostResumed = false;
+        }
+    };
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void invalidate() {
+        DownloadService.setSummaryListener(null);
+        DownloadProgressHub.get().setUpdateListener(null);
+        getReactApplicationContext().removeLifecycleEventListener(lifecycleListener);
+        super.invalidate();
+    }
+
+    /** Resolves with the loopback port the torrent client should write progress lines to. */
+    @ReactMethod
+    public void getProgressPort(Promise promise) {
+        try {
+            promise.resolve(DownloadProgressHub.get().getPort());
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void addDownload(String callbackId, String showName, String episodeNumber, double totalBytes,
+                            ReadableArray filePaths) {
+        List<String> paths = new ArrayList<>(filePaths.size());
+        for (int i = 0; i < filePaths.size(); i++) {
+            paths.add(filePaths.getString(i));
+        }
+        DownloadProgressHub.get().add(callbackId, showName, episodeNumber, (long) totalBytes, paths);
+        DownloadService.start(getReactApplicationContext());
+    }
+
+    /** For progress that arrived over the node channel, when the socket could not be used. */
+    @ReactMethod
+    public void updateDownload(String callbackId, double downloadedBytes, double uploadedBytes, double downloadSpeed,
+                               double uploadSpeed) {
+        DownloadProgressHub.get().update(callbackId, (long) downloadedBytes, (long) uploadedBytes,
+                (long) downloadSpeed, (long) uploadSpeed);
+        retryDeferredStart();
+    }
+
+    @ReactMethod
+    public void completeDownload(String callbackId, String filePath) {
+        DownloadProgressHub.get().complete(callbackId, filePath);
+    }
+
+    @ReactMethod
+    public void removeDownload(String callbackId) {
+        DownloadProgressHub.get().remove(callbackId);
+    }
+
+    /** Resolves with the files of every download still in progress. */
+    @ReactMethod
+    public void getActiveFilePaths(Promise promise) {
+        WritableArray paths = Arguments.createArray();
+        for (String path : DownloadProgressHub.get().activeFilePaths()) {
+            paths.pushString(path);
+        }
+        promise.resolve(paths);
+    }
+
+    // Required by NativeEventEmitter, events are sent regardless of listener count.
+    @ReactMethod
+    public void addListener(String eventName) {}
+
+    @ReactMethod
+    public void removeListeners(double count) {}
+
+    /**
+     * The service can be refused a start when the download was added from the background, it is
+     * started again on the next resume or progress update that finds the app in the foreground.
+     */
+    private void retryDeferredStart() {
+        if (hostResumed && DownloadService.isStartDeferred() && !DownloadProgressHub.get().isIdle()) {
+            DownloadService.start(getReactApplicationContext());
+        }
+    }
+
+    private void onSummary(DownloadProgressHub.Summary summary) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (!context.hasActiveReactInstance()) {
+            return;
+        }
+        WritableMap event = Arguments.createMap();
+        event.putArray("downloads", toArray(summary.active));
+        event.putArray("completed", toArray(summary.completed));
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(SUMMARY_EVENT, event);
+    }
+
+    private static WritableArray toArray(Iterable<DownloadProgressHub.Download> downloads) {
+        WritableArray array = Arguments.createArray();
+        for (DownloadProgressHub.Download download : downloads) {
+            WritableMap map = Arguments.createMap();
+            map.putString("callbackId", download.callbackId);
+            map.putDouble("totalBytes", download.totalBytes);
+            map.putDouble("downloadedBytes", download.downloadedBytes);
+            map.putDouble("uploadedBytes", download.uploadedBytes);
+            map.putDouble("downloadSpeed", download.downloadSpeed);
+            map.putDouble("uploadSpeed", download.uploadSpeed);
+            map.putDouble("downloadedDelta", download.downloadedDelta);
+            map.putDouble("uploadedDelta", download.uploadedDelta);
+            map.putDouble("progress", download.totalBytes > 0
+                    ? Math.min(1, (double) download.downloadedBytes / download.totalBytes) : 0);
+            array.pushMap(map);
+        }
+        return array;
+    }
+}
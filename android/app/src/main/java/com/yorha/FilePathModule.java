@@ -2,13 +2,18 @@ package com.yorha; // replace com.your-app-name with your app’s name
 
 import static android.os.Build.VERSION.SDK_INT;
 
+import android.content.BroadcastReceiver;
 import android.content.ContentUris;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Environment;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
 import android.provider.DocumentsContract;
 import android.provider.MediaStore;
 import android.provider.OpenableColumns;
@@ -17,161 +22,897 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.activity.result.ActivityResultLauncher;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 
-import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.ServerSocket;
-import java.util.concurrent.CompletableFuture;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class FilePathModule extends FilePathModuleSpec {
+    public static final String NAME = "FilePathModule";
+    static final String COPY_PROGRESS_EVENT = "FilePathModule.copyProgress";
+    static final String DELETE_PROGRESS_EVENT = "FilePathModule.deleteProgress";
+    static final String FOLDER_CHANGES_EVENT = "FilePathModule.folderChanges";
+    static final String EVICTION_PROGRESS_EVENT = "FilePathModule.evictionProgress";
+    static final String TREE_PAGE_EVENT = "FilePathModule.treePage";
+    private static final long FOLDER_CHANGE_COALESCE_MS = 250;
+    private static final long THUMBNAIL_CACHE_BYTES = 32L * 1024 * 1024;
 
-public class FilePathModule extends ReactContextBaseJavaModule {
     FilePathModule(ReactApplicationContext context) {
        super(context);
+       thumbnailCache = new ThumbnailCache(new File(context.getCacheDir(), "thumbnails"), THUMBNAIL_CACHE_BYTES);
+       libraryIndex = new LibraryIndex(new File(context.getFilesDir(), "library-index.bin"));
+       context.addLifecycleEventListener(lifecycleListener);
+       IntentFilter mountFilter = new IntentFilter();
+       mountFilter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+       mountFilter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+       mountFilter.addAction(Intent.ACTION_MEDIA_EJECT);
+       mountFilter.addAction(Intent.ACTION_MEDIA_REMOVED);
+       mountFilter.addAction(Intent.ACTION_MEDIA_BAD_REMOVAL);
+       mountFilter.addDataScheme("file");
+       ContextCompat.registerReceiver(context, mountReceiver, mountFilter, ContextCompat.RECEIVER_NOT_EXPORTED);
    }
 
     private Uri contentUri = null;
+    private final FileIoExecutor ioExecutor = new FileIoExecutor("yorha-io");
+    private final FileExistsCache existsCache = new FileExistsCache();
+    private final UriPathCache pathCache = new UriPathCache();
+    private final ThumbnailCache thumbnailCache;
+    private final ScheduledExecutorService watchScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "yorha-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final FolderIndex folderIndex = new FolderIndex(watchScheduler, FOLDER_CHANGE_COALESCE_MS,
+            this::onFolderChanges);
+    private final FolderWatcher folderWatcher = new FolderWatcher(folderIndex);
+    private final LibraryIndex libraryIndex;
+    // Hashing is CPU bound, so it gets one thread per core rather than the I/O pool.
+    private final ForkJoinPool hashPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private VideoServer videoServer = null;
+    private int lastVideoServerPort = 0;
     public static ActivityResultLauncher<Intent> manageFileLauncher = null;
-    public static Callback manageFileLauncherCallback = null;
+    public static Promise manageFileLauncherPromise = null;
 
     @Override
     public String getName() {
-        return "FilePathModule";
+        return NAME;
     }
 
+    // Resolved paths can point at a different volume, or none, once storage is mounted or removed.
+    private final BroadcastReceiver mountReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            pathCache.clear();
+            existsCache.invalidate("/");
+            watchScheduler.execute(folderWatcher::rescanAll);
+        }
+    };
+
+    // Grants can be revoked while the app is in the background, recheck them when it comes back.
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            watchScheduler.execute(folderWatcher::rescanAll);
+            ioExecutor.submit(null, () -> {
+                pathCache.retain(FilePathModule.this::hasUriPermission);
+                return null;
+            }, new FileIoExecutor.Listener<Object>() {
+                @Override
+                public void onSuccess(Object result) {}
+
+                @Override
+                public void onFailure(Throwable error) {
+                    Log.w(NAME, "Could not recheck URI permissions", error);
+                }
+            });
+        }
+
+        @Override
+        public void onHostPause() {}
+
+        @Override
+        public void onHostDestroy() {}
+    };
+
+    private boolean hasUriPermission(String uriString) {
+        Uri uri = Uri.parse(uriString);
+        if (!"content".equalsIgnoreCase(uri.getScheme())) {
+            return true;
+        }
+        return getReactApplicationContext().checkUriPermission(uri, Process.myPid(), Process.myUid(),
+                Intent.FLAG_GRANT_READ_URI_PERMISSION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    @Override
+    public void invalidate() {
+        ReactApplicationContext context = getReactApplicationContext();
+        context.removeLifecycleEventListener(lifecycleListener);
+        try {
+            context.unregisterReceiver(mountReceiver);
+        }
+        catch (IllegalArgumentException e) {
+            // Already unregistered.
+        }
+        synchronized (this) {
+            if (videoServer != null) {
+                videoServer.close();
+                videoServer = null;
+            }
+        }
+        folderWatcher.stop();
+        watchScheduler.shutdownNow();
+        hashPool.shutdownNow();
+        ioExecutor.shutdown();
+        super.invalidate();
+    }
+
+    private <T> void runOnIoThread(@Nullable final String callId, final Promise promise, FileIoExecutor.Task<T> task) {
+        ioExecutor.submit(callId, task, new FileIoExecutor.Listener<T>() {
+            @Override
+            public void onSuccess(T result) {
+                promise.resolve(result);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                if (error instanceof CancellationException || error instanceof InterruptedException) {
+                    promise.reject("E_CANCELLED", error.getMessage(), error);
+                }
+                else if (error instanceof RejectedExecutionException) {
+                    promise.reject("E_IO_BUSY", "File I/O queue is full", error);
+                }
+                else if (error instanceof FilePreallocator.InsufficientSpaceException) {
+                    promise.reject("E_NO_SPACE", error.getMessage(), error);
+                }
+                else {
+                    promise.reject("E_IO", error.getMessage(), error);
+                }
+            }
+        });
+    }
+
+    private void emitEvent(String eventName, WritableMap params) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (context.hasActiveReactInstance()) {
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, params);
+        }
+    }
+
+    // Required by NativeEventEmitter, events are sent regardless of listener count.
     @ReactMethod
-    public void verifyManageFilesPermission(Callback callBack) {
+    public void addListener(String eventName) {}
+
+    @ReactMethod
+    public void removeListeners(double count) {}
+
+    @ReactMethod
+    public void cancel(final String callId, Promise promise) {
+        promise.resolve(ioExecutor.cancel(callId));
+    }
+
+    @ReactMethod
+    public void getIoStats(Promise promise) {
+        FileIoExecutor.Stats stats = ioExecutor.getStats();
+        WritableMap map = Arguments.createMap();
+        map.putInt("threads", stats.threads);
+        map.putInt("active", stats.active);
+        map.putInt("queued", stats.queued);
+        map.putDouble("completed", stats.completed);
+        map.putDouble("failed", stats.failed);
+        map.putDouble("cancelled", stats.cancelled);
+        map.putDouble("rejected", stats.rejected);
+        map.putDouble("averageLatencyMs", stats.averageLatencyMs);
+        map.putDouble("maxLatencyMs", stats.maxLatencyMs);
+        promise.resolve(map);
+    }
+
+    @ReactMethod
+    public void verifyManageFilesPermission(Promise promise) {
         if (SDK_INT >= Build.VERSION_CODES.R) {
             if (!Environment.isExternalStorageManager()) {
                 Intent intent = new Intent(Settings.ACTION_MANAGE_APP_ALL_FILES_ACCESS_PERMISSION);
                 Uri uri = Uri.fromParts("package", MainActivity.PACKAGE_NAME, null);
                 intent.setData(uri);
 
-                FilePathModule.manageFileLauncherCallback = callBack;
+                FilePathModule.manageFileLauncherPromise = promise;
                 FilePathModule.manageFileLauncher.launch(intent);
-                // Callback is handled on the activity result callback in main activity.
+                // Promise is resolved on the activity result callback in main activity.
             }
             else {
-                callBack.invoke(true);
+                promise.resolve(true);
             }
         }
         else {
-            callBack.invoke(true);
+            promise.resolve(true);
         }
     }
 
-    @ReactMethod
-    public void isCastingAvailable(Callback callBack) {
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isCastingAvailable() {
 		// Some devices may not have google play services so this allows for conditional rendering
-        callBack.invoke(MainActivity.CastingAvailable);
+        return MainActivity.CastingAvailable;
     }
 
+    /**
+     * Resolves with a file:// URI of a JPEG thumbnail of the video at most {@code maxWidth} x
+     * {@code maxHeight}, or null when no frame could be decoded.
+     */
     @ReactMethod
-    public void openVideoIntent(final String filePath, Callback callBack) {
+    public void getVideoThumbnail(final String videoPath, double maxWidth, double maxHeight, @Nullable final String callId, Promise promise) {
+        final int width = (int) maxWidth;
+        final int height = (int) maxHeight;
+        runOnIoThread(callId, promise, () -> {
+            File video = new File(videoPath);
+            if (!video.isFile()) {
+                return null;
+            }
+            String key = ThumbnailCache.key(videoPath, video.lastModified(), video.length(), width, height);
+            File thumbnail = thumbnailCache.get(key, new VideoFrameRenderer(videoPath, width, height));
+            return thumbnail == null ? null : Uri.fromFile(thumbnail).toString();
+        });
+    }
+
+    @ReactMethod
+    public void clearThumbnailCache(Promise promise) {
+        runOnIoThread(null, promise, () -> {
+            thumbnailCache.clear();
+            return true;
+        });
+    }
+
+    /**
+     * Writes the first text subtitle track of an MKV as WebVTT, see
+     * {@link MatroskaSubtitleExtractor}. Resolves null when there is no supported track.
+     */
+    @ReactMethod
+    public void extractMatroskaSubtitles(final String mkvPath, final String vttPath, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            MatroskaSubtitleExtractor.Result result = MatroskaSubtitleExtractor.extract(new File(mkvPath), new File(vttPath));
+            existsCache.invalidate(vttPath);
+            if (result == null) {
+                return null;
+            }
+            WritableMap map = Arguments.createMap();
+            map.putDouble("trackNumber", result.trackNumber);
+            map.putString("codecId", result.codecId);
+            map.putString("language", result.language);
+            map.putInt("cues", result.cues);
+            map.putBoolean("usedCueIndex", result.usedCueIndex);
+            map.putDouble("bytesRead", result.bytesRead);
+            map.putDouble("fileSize", result.fileSize);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    /** Tidies a WebVTT file extracted from ASS subtitles in place, see {@link VttTidier}. */
+    @ReactMethod
+    public void tidyVtt(final String vttPath, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            VttTidier.Result result = VttTidier.tidy(new File(vttPath));
+            WritableMap map = Arguments.createMap();
+            map.putInt("cues", result.cues);
+            map.putInt("kept", result.kept);
+            map.putInt("merged", result.merged);
+            map.putInt("backgroundsRemoved", result.backgroundsRemoved);
+            map.putInt("signsMarked", result.signsMarked);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    @ReactMethod
+    public void openVideoIntent(final String filePath, Promise promise) {
         Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(filePath));
         intent.setDataAndType(Uri.parse(filePath), "video/*");
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         getReactApplicationContext().startActivity(intent);
-        callBack.invoke(true);
+        promise.resolve(true);
     }
 
+    /**
+     * Reads the container header, the seek index and the first {@code leadBytes} of a video into
+     * the page cache before a player opens it. Cancel with {@code callId} when the user backs out.
+     */
     @ReactMethod
-    public void readTextFile(final String filePath, Callback callBack) {
-        File file = new File(filePath);
-        StringBuilder text = new StringBuilder();
+    public void prepareForPlayback(final String filePath, final double leadBytes, @Nullable final String callId,
+                                   Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            String path = filePath.startsWith("file://") ? Uri.parse(filePath).getPath() : filePath;
+            PlaybackPreparer.Result result = PlaybackPreparer.prepare(new File(path), (long) leadBytes);
+
+            WritableMap map = Arguments.createMap();
+            map.putDouble("fileSize", result.fileSize);
+            map.putDouble("bytesWarmed", result.bytesWarmed);
+            map.putBoolean("indexFound", result.indexFound);
+            WritableArray ranges = Arguments.createArray();
+            for (PlaybackPreparer.Range range : result.ranges) {
+                WritableMap rangeMap = Arguments.createMap();
+                rangeMap.putString("name", range.name);
+                rangeMap.putDouble("offset", range.offset);
+                rangeMap.putDouble("length", range.length);
+                rangeMap.putDouble("durationMs", range.durationMs);
+                ranges.pushMap(rangeMap);
+            }
+            map.putArray("ranges", ranges);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
 
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(file));
-            String line;
+    @ReactMethod
+    public void readTextFile(final String filePath, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            File file = new File(filePath);
+            StringBuilder text = new StringBuilder();
+
+            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+                String line;
+
+                while ((line = br.readLine()) != null) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException("Reading " + filePath + " was cancelled");
+                    }
+                    text.append(line);
+                    text.append('\n');
+                }
+                return text.toString();
+            }
+            catch (IOException e) {
+                return "";
+            }
+        });
+    }
+
+    /**
+     * Reads at most {@code length} bytes of a UTF-8 file starting at {@code offset}. With
+     * {@code wholeLines} a partial first line is skipped, which is what backwards paging wants.
+     */
+    @ReactMethod
+    public void readTextFilePage(final String filePath, double offset, double length, boolean wholeLines,
+                                 @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> toWritableMap(
+                TextFilePager.read(new File(filePath), (long) offset, (int) length, wholeLines)));
+    }
+
+    /** Reads the last {@code maxBytes} of a UTF-8 file, starting on a whole line. */
+    @ReactMethod
+    public void readTextFileTail(final String filePath, double maxBytes, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> toWritableMap(TextFilePager.tail(new File(filePath), (int) maxBytes)));
+    }
+
+    private static WritableMap toWritableMap(TextFilePager.Page page) {
+        WritableMap map = Arguments.createMap();
+        map.putString("text", page.text);
+        map.putDouble("offset", page.offset);
+        map.putDouble("endOffset", page.endOffset);
+        map.putDouble("fileSize", page.fileSize);
+        return map;
+    }
+
+    /**
+     * Starts the local HTTP server used for casting (/video and /vtt routes) if it isn't already
+     * running. Resolves with the port plus bind and readiness times; a restart tries to keep the
+     * previous port so URLs handed to a cast device stay valid.
+     */
+    @ReactMethod
+    public void startVideoServer(Promise promise) {
+        runOnIoThread(null, promise, () -> {
+            synchronized (this) {
+                boolean alreadyRunning = videoServer != null && videoServer.isRunning();
+                if (!alreadyRunning) {
+                    videoServer = VideoServer.start(lastVideoServerPort);
+                    lastVideoServerPort = videoServer.getPort();
+                }
+                WritableMap result = Arguments.createMap();
+                result.putInt("port", videoServer.getPort());
+                result.putDouble("bindMs", videoServer.getBindMs());
+                result.putDouble("readyMs", videoServer.getReadyMs());
+                result.putBoolean("alreadyRunning", alreadyRunning);
+                return result;
+            }
+        });
+    }
 
-            while ((line = br.readLine()) != null) {
-                text.append(line);
-                text.append('\n');
+    @ReactMethod
+    public void stopVideoServer(Promise promise) {
+        synchronized (this) {
+            if (videoServer != null) {
+                videoServer.close();
+                videoServer = null;
             }
-            br.close();
-            callBack.invoke(text.toString());
         }
-        catch (IOException e) {
-            callBack.invoke("");
+        promise.resolve(true);
+    }
+
+    private void onFolderChanges(List<FolderIndex.Change> changes) {
+        WritableArray array = Arguments.createArray();
+        for (FolderIndex.Change change : changes) {
+            existsCache.invalidate(change.stat.path);
+            WritableMap map = Arguments.createMap();
+            map.putString("type", change.type);
+            map.putString("path", change.stat.path);
+            map.putBoolean("exists", change.stat.exists);
+            map.putBoolean("isDirectory", change.stat.isDirectory);
+            map.putDouble("size", change.stat.size);
+            map.putDouble("mtime", change.stat.lastModified);
+            array.pushMap(map);
         }
+        WritableMap event = Arguments.createMap();
+        event.putArray("changes", array);
+        emitEvent(FOLDER_CHANGES_EVENT, event);
     }
 
+    /**
+     * Replaces the set of watched folders. Files directly inside them are indexed, existence
+     * checks on them are answered from memory, and changes made by anyone are sent as
+     * FOLDER_CHANGES_EVENT batches.
+     */
     @ReactMethod
-    public void getOpenPort(Callback callBack) {
-        int port = -1;
-        try {
-            ServerSocket socket = new ServerSocket(0);
-            port = socket.getLocalPort();
-            socket.close();
+    public void watchFolders(final ReadableArray folders, Promise promise) {
+        final List<String> folderList = new ArrayList<>(folders.size());
+        for (int i = 0; i < folders.size(); i++) {
+            folderList.add(folders.getString(i));
         }
-        catch (IOException ioe) {}
-        callBack.invoke(port);
+        runOnIoThread(null, promise, () -> {
+            folderWatcher.setFolders(folderList);
+            return folderIndexStatsToMap(folderIndex.getStats());
+        });
     }
 
     @ReactMethod
-    public void fileExists(final String filePath, Callback callBack) {
-        CompletableFuture.runAsync(() -> {
-            File file = new File(filePath);
-            callBack.invoke(file.exists());
-        });
+    public void getFolderIndexStats(Promise promise) {
+        promise.resolve(folderIndexStatsToMap(folderIndex.getStats()));
+    }
+
+    private static WritableMap folderIndexStatsToMap(FolderIndex.Stats stats) {
+        WritableMap map = Arguments.createMap();
+        map.putInt("folders", stats.roots);
+        map.putInt("entries", stats.entries);
+        map.putDouble("hits", stats.hits);
+        map.putDouble("negativeHits", stats.negativeHits);
+        map.putDouble("misses", stats.misses);
+        map.putDouble("changes", stats.changes);
+        return map;
     }
 
     @ReactMethod
-    public void deleteFileIfExists(final String filePath, Callback callBack) {
-        File file = new File(filePath);
-        if (file.exists()) {
-            callBack.invoke(file.delete());
+    public void fileExists(final String filePath, Promise promise) {
+        FileStat indexed = folderIndex.lookup(filePath);
+        if (indexed != null) {
+            promise.resolve(indexed.exists);
+            return;
         }
-        else {
-            callBack.invoke(true);
+        runOnIoThread(null, promise, () -> {
+            boolean exists = new File(filePath).exists();
+            existsCache.put(filePath, exists);
+            return exists;
+        });
+    }
+
+    /**
+     * Answers from the watched folder index or the results of recent fileExists/statMany calls so
+     * renders don't pay for an async hop. Returns null when the path hasn't been checked recently.
+     */
+    @Nullable
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public Boolean fileExistsCached(final String filePath) {
+        FileStat indexed = folderIndex.lookup(filePath);
+        return indexed != null ? Boolean.valueOf(indexed.exists) : existsCache.get(filePath);
+    }
+
+    /**
+     * Stats a whole list of paths in one bridge call. Resolves with an array in the same order
+     * as {@code paths}, each entry holding path, exists, isDirectory, size and mtime (ms).
+     */
+    @ReactMethod
+    public void statMany(final ReadableArray paths, Promise promise) {
+        final String[] pathArray = new String[paths.size()];
+        for (int i = 0; i < pathArray.length; i++) {
+            pathArray[i] = paths.getString(i);
         }
+        runOnIoThread(null, promise, () -> {
+            WritableArray results = Arguments.createArray();
+            for (FileStat stat : FileStat.statAll(pathArray, folderIndex, ioExecutor, ioExecutor.getParallelism())) {
+                existsCache.put(stat.path, stat.exists);
+                WritableMap map = Arguments.createMap();
+                map.putString("path", stat.path);
+                map.putBoolean("exists", stat.exists);
+                map.putBoolean("isDirectory", stat.isDirectory);
+                map.putDouble("size", stat.size);
+                map.putDouble("mtime", stat.lastModified);
+                results.pushMap(map);
+            }
+            return results;
+        });
     }
 
     @ReactMethod
-    public void openFolder(final String folderPath, Callback callBack) {
+    public void deleteFileIfExists(final String filePath, Promise promise) {
+        runOnIoThread(null, promise, () -> {
+            existsCache.invalidate(filePath);
+            File file = new File(filePath);
+            if (file.exists()) {
+                return file.delete();
+            }
+            return true;
+        });
+    }
+
+    @ReactMethod
+    public void openFolder(final String folderPath, Promise promise) {
         Intent intent = new Intent(Intent.ACTION_PICK);
 
         intent.setDataAndType(Uri.parse(folderPath), "*/*");
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
         getReactApplicationContext().startActivity(intent);
+        promise.resolve(true);
     }
 
+    /**
+     * Deletes a file or folder tree in parallel on the I/O pool. Progress is emitted as
+     * deleteProgress events and the result lists per-file failures instead of always reporting
+     * success.
+     */
     @ReactMethod
-    public void deleteFolder(final String fileOrDirectoryPath, Callback callBack) {
-        deleteRecursive(new File(fileOrDirectoryPath));
-        callBack.invoke(true);
+    public void deleteFolder(final String fileOrDirectoryPath, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            existsCache.invalidate(fileOrDirectoryPath);
+            FolderDeleter deleter = new FolderDeleter(ioExecutor, (filesDeleted, totalFiles, bytesFreed, totalBytes) -> {
+                WritableMap event = Arguments.createMap();
+                event.putString("callId", callId);
+                event.putString("path", fileOrDirectoryPath);
+                event.putDouble("filesDeleted", filesDeleted);
+                event.putDouble("totalFiles", totalFiles);
+                event.putDouble("bytesFreed", bytesFreed);
+                event.putDouble("totalBytes", totalBytes);
+                emitEvent(DELETE_PROGRESS_EVENT, event);
+            });
+            FolderDeleter.Result result = deleter.delete(new File(fileOrDirectoryPath).toPath());
+
+            WritableMap map = Arguments.createMap();
+            map.putBoolean("deleted", result.deleted);
+            map.putDouble("filesDeleted", result.filesDeleted);
+            map.putDouble("totalFiles", result.totalFiles);
+            map.putDouble("bytesFreed", result.bytesFreed);
+            map.putDouble("totalBytes", result.totalBytes);
+            map.putInt("failureCount", result.failureCount);
+            WritableArray failures = Arguments.createArray();
+            for (FolderDeleter.Failure failure : result.failures) {
+                WritableMap failureMap = Arguments.createMap();
+                failureMap.putString("path", failure.path);
+                failureMap.putString("message", failure.message);
+                failures.pushMap(failureMap);
+            }
+            map.putArray("failures", failures);
+            return map;
+        });
     }
 
-    private void deleteRecursive(File fileOrDirectory) {
-		if (fileOrDirectory.exists() && fileOrDirectory.isDirectory()) {
-			for (File child : fileOrDirectory.listFiles()) {
-				deleteRecursive(child);
-			}
-		}
-		fileOrDirectory.delete();
-	}
+    /**
+     * Deletes downloaded episodes until the show folders fit their byte budgets, see
+     * {@link DiskBudgetEvictor}. Progress is emitted as evictionProgress events.
+     */
+    @ReactMethod
+    public void evictToBudget(final ReadableMap options, @Nullable final String callId, Promise promise) {
+        final List<DiskBudgetEvictor.Root> roots = new ArrayList<>();
+        ReadableArray rootArray = options.getArray("roots");
+        for (int i = 0; rootArray != null && i < rootArray.size(); i++) {
+            ReadableMap root = rootArray.getMap(i);
+            List<String> watchedEpisodes = new ArrayList<>();
+            ReadableArray watched = root.getArray("watchedEpisodes");
+            for (int j = 0; watched != null && j < watched.size(); j++) {
+                watchedEpisodes.add(watched.getString(j));
+            }
+            roots.add(new DiskBudgetEvictor.Root(new File(root.getString("path")),
+                    (long) root.getDouble("budgetBytes"), watchedEpisodes));
+        }
+        final DiskBudgetEvictor.Policy policy = new DiskBudgetEvictor.Policy();
+        policy.globalBudgetBytes = (long) options.getDouble("globalBudgetBytes");
+        policy.evictUnwatched = options.getBoolean("evictUnwatched");
+        if (options.hasKey("reserveFolder") && !options.isNull("reserveFolder")) {
+            policy.reserveFolder = new File(options.getString("reserveFolder"));
+            policy.reserveBytes = (long) options.getDouble("reserveBytes");
+        }
+        ReadableArray protectedPaths = options.getArray("protectedPaths");
+        for (int i = 0; protectedPaths != null && i < protectedPaths.size(); i++) {
+            policy.protectedPaths.add(new File(protectedPaths.getString(i)).getPath());
+        }
 
+        runOnIoThread(callId, promise, () -> {
+            DiskBudgetEvictor evictor = new DiskBudgetEvictor((path, filesDeleted, bytesFreed, bytesToFree) -> {
+                WritableMap event = Arguments.createMap();
+                event.putString("callId", callId);
+                event.putString("path", path);
+                event.putDouble("filesDeleted", filesDeleted);
+                event.putDouble("bytesFreed", bytesFreed);
+                event.putDouble("bytesToFree", bytesToFree);
+                emitEvent(EVICTION_PROGRESS_EVENT, event);
+            });
+            DiskBudgetEvictor.Result result = evictor.evict(roots, policy);
+
+            WritableMap map = Arguments.createMap();
+            map.putDouble("filesDeleted", result.filesDeleted);
+            map.putDouble("bytesFreed", result.bytesFreed);
+            map.putDouble("bytesToFree", result.bytesToFree);
+            map.putDouble("usedBytes", result.usedBytes);
+            map.putBoolean("satisfied", result.satisfied);
+            WritableArray evicted = Arguments.createArray();
+            for (DiskBudgetEvictor.Candidate candidate : result.evicted) {
+                existsCache.invalidate(candidate.file.getPath());
+                WritableMap episode = Arguments.createMap();
+                episode.putString("path", candidate.file.getPath());
+                episode.putDouble("size", candidate.size);
+                episode.putBoolean("watched", candidate.watched);
+                evicted.pushMap(episode);
+            }
+            map.putArray("evicted", evicted);
+            map.putInt("failureCount", result.failureCount);
+            WritableArray failures = Arguments.createArray();
+            for (FolderDeleter.Failure failure : result.failures) {
+                WritableMap failureMap = Arguments.createMap();
+                failureMap.putString("path", failure.path);
+                failureMap.putString("message", failure.message);
+                failures.pushMap(failureMap);
+            }
+            map.putArray("failures", failures);
+            return map;
+        });
+    }
+
+    /**
+     * Hashes the pieces of {@code filePath} in parallel and compares them with the torrent's
+     * hex SHA-1 hashes. Resolves with a base64 BitTorrent bitfield of the good pieces and the
+     * indexes of the bad ones.
+     */
     @ReactMethod
-    public void ensureFolderExists(final String folderPath, Callback callBack) {
-        File file = new File(folderPath);
-        if (file.exists()) {
-            callBack.invoke(true);
+    public void verifyPieces(final String filePath, final double pieceLength, final ReadableArray sha1s,
+                             @Nullable final String callId, Promise promise) {
+        final byte[][] expected = new byte[sha1s.size()][];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = parseHex(sha1s.getString(i));
+            if (expected[i] == null || expected[i].length != PieceVerifier.SHA1_LENGTH) {
+                promise.reject("E_INVALID", "Piece hash " + i + " is not a hex SHA-1");
+                return;
+            }
         }
-        else {
-            callBack.invoke(file.mkdirs());
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            PieceVerifier.Result result = new PieceVerifier(hashPool).verify(new File(filePath),
+                    (long) pieceLength, expected);
+
+            WritableMap map = Arguments.createMap();
+            map.putInt("pieceCount", result.pieceCount);
+            map.putInt("goodPieces", result.goodPieces);
+            map.putString("bitfield", Base64.getEncoder().encodeToString(result.bitfield));
+            WritableArray badPieces = Arguments.createArray();
+            for (int piece = 0; piece < result.pieceCount; piece++) {
+                if (!result.isGood(piece)) {
+                    badPieces.pushInt(piece);
+                }
+            }
+            map.putArray("badPieces", badPieces);
+            map.putDouble("bytesHashed", result.bytesHashed);
+            map.putDouble("fileSize", result.fileSize);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    @Nullable
+    private static byte[] parseHex(@Nullable String hex) {
+        if (hex == null || hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((high << 4) | low);
         }
+        return bytes;
     }
 
-    // Adapted from https://github.com/saparkhid/AndroidFileNamePicker
+    /**
+     * Brings the library index up to date with the show folders in {@code roots} and resolves with
+     * {shows: {show: {episode: {resolution: file}}}} and the scan counts. Only folders whose
+     * modification time changed since the last scan are listed again.
+     */
+    @ReactMethod
+    public void scanLibrary(final ReadableArray roots, @Nullable final String callId, Promise promise) {
+        final List<String> rootPaths = new ArrayList<>(roots.size());
+        for (int i = 0; i < roots.size(); i++) {
+            rootPaths.add(roots.getString(i));
+        }
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            LibraryIndex.ScanStats stats = libraryIndex.scan(rootPaths);
+
+            WritableMap shows = Arguments.createMap();
+            for (Map.Entry<String, Map<String, Map<String, LibraryIndex.EpisodeFile>>> show
+                    : libraryIndex.getShows().entrySet()) {
+                WritableMap episodes = Arguments.createMap();
+                for (Map.Entry<String, Map<String, LibraryIndex.EpisodeFile>> episode : show.getValue().entrySet()) {
+                    WritableMap resolutions = Arguments.createMap();
+                    for (Map.Entry<String, LibraryIndex.EpisodeFile> resolution : episode.getValue().entrySet()) {
+                        LibraryIndex.EpisodeFile episodeFile = resolution.getValue();
+                        WritableMap fileMap = Arguments.createMap();
+                        fileMap.putString("path", episodeFile.path);
+                        fileMap.putString("fileName", episodeFile.name);
+                        fileMap.putDouble("size", episodeFile.size);
+                        fileMap.putDouble("lastModified", episodeFile.lastModified);
+                        fileMap.putInt("version", episodeFile.parsed.version);
+                        resolutions.putMap(resolution.getKey(), fileMap);
+                    }
+                    episodes.putMap(episode.getKey(), resolutions);
+                }
+                shows.putMap(show.getKey(), episodes);
+            }
+
+            WritableMap map = Arguments.createMap();
+            map.putMap("shows", shows);
+            map.putInt("directoriesVisited", stats.directoriesVisited);
+            map.putInt("directoriesListed", stats.directoriesListed);
+            map.putInt("files", stats.files);
+            map.putInt("episodes", stats.episodes);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    @ReactMethod
+    public void ensureFolderExists(final String folderPath, Promise promise) {
+        runOnIoThread(null, promise, () -> {
+            existsCache.invalidate(folderPath);
+            File file = new File(folderPath);
+            if (file.exists()) {
+                return true;
+            }
+            return file.mkdirs();
+        });
+    }
+
+    /**
+     * Reserves {@code size} bytes for a download at {@code filePath}, rejecting with E_NO_SPACE
+     * when the volume is too full to hold it.
+     */
+    @ReactMethod
+    public void preallocate(final String filePath, final double size, Promise promise) {
+        runOnIoThread(null, promise, () -> {
+            long startedAt = System.nanoTime();
+            FilePreallocator.Result result = FilePreallocator.preallocate(new File(filePath), (long) size);
+            existsCache.invalidate(filePath);
+            WritableMap map = Arguments.createMap();
+            map.putString("path", filePath);
+            map.putDouble("size", result.size);
+            map.putString("method", result.method);
+            map.putDouble("availableBytes", result.availableBytes);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    @ReactMethod
+    public void getFolderPathFromUri(final String uriString, @Nullable final String callId, Promise promise) {
+        runOnIoThread(callId, promise, () -> {
+            String cachedPath = pathCache.get(uriString);
+            if (cachedPath != null) {
+                return cachedPath;
+            }
+            String path = resolveFolderPathFromUri(uriString, callId);
+            if (path != null && !path.isEmpty() && !isPrivateCopy(path)) {
+                pathCache.put(uriString, path);
+            }
+            return path;
+        });
+    }
+
+    /**
+     * Lists a storage access framework folder without resolving or copying its files. Entries
+     * arrive as TREE_PAGE_EVENT events of at most {@code pageSize}, tagged with {@code callId};
+     * the promise resolves with the totals after the last page.
+     */
     @ReactMethod
-    public void getFolderPathFromUri(final String uriString, Callback callBack) {
+    public void listTree(final String uriString, final double pageSize, @Nullable final String callId,
+                         Promise promise) {
+        if (pageSize < 1) {
+            promise.reject("E_INVALID", "Page size must be at least 1");
+            return;
+        }
+        runOnIoThread(callId, promise, () -> {
+            long startedAt = System.nanoTime();
+            DocumentTreeLister.Result result = DocumentTreeLister.list(getReactApplicationContext(),
+                    Uri.parse(uriString), (int) pageSize, (pageIndex, entries, last) -> {
+                        WritableArray array = Arguments.createArray();
+                        for (DocumentTreeLister.Entry entry : entries) {
+                            WritableMap map = Arguments.createMap();
+                            map.putString("documentId", entry.documentId);
+                            map.putString("uri", entry.uri);
+                            map.putString("name", entry.name);
+                            map.putDouble("size", entry.size);
+                            map.putDouble("lastModified", entry.lastModified);
+                            map.putString("mimeType", entry.mimeType);
+                            map.putBoolean("isDirectory", entry.isDirectory());
+                            array.pushMap(map);
+                        }
+                        WritableMap event = Arguments.createMap();
+                        event.putString("callId", callId);
+                        event.putString("uri", uriString);
+                        event.putInt("pageIndex", pageIndex);
+                        event.putBoolean("last", last);
+                        event.putArray("entries", array);
+                        emitEvent(TREE_PAGE_EVENT, event);
+                    });
+            WritableMap map = Arguments.createMap();
+            map.putInt("entries", result.entries);
+            map.putInt("pages", result.pages);
+            map.putDouble("durationMs", (System.nanoTime() - startedAt) / 1_000_000d);
+            return map;
+        });
+    }
+
+    // Drive and Q+ content URIs resolve to a fresh copy of the document, those must not be cached.
+    private boolean isPrivateCopy(String path) {
+        Context context = getReactApplicationContext();
+        return path.startsWith(context.getFilesDir().getPath()) || path.startsWith(context.getCacheDir().getPath());
+    }
+
+    @ReactMethod
+    public void getFolderPathCacheStats(Promise promise) {
+        UriPathCache.Stats stats = pathCache.getStats();
+        WritableMap map = Arguments.createMap();
+        map.putInt("size", stats.size);
+        map.putDouble("hits", stats.hits);
+        map.putDouble("misses", stats.misses);
+        map.putDouble("stale", stats.stale);
+        map.putDouble("evictions", stats.evictions);
+        map.putDouble("invalidations", stats.invalidations);
+        promise.resolve(map);
+    }
+
+    @ReactMethod
+    public void clearFolderPathCache(Promise promise) {
+        pathCache.clear();
+        promise.resolve(true);
+    }
+
+    // Adapted from https://github.com/saparkhid/AndroidFileNamePicker
+    @Nullable
+    private String resolveFolderPathFromUri(final String uriString, @Nullable final String callId) throws InterruptedException, IOException {
         // check here to KITKAT or new version
         final Uri uri = uriString.contains("documents/tree") ? DocumentsContract.buildDocumentUriUsingTree(Uri.parse(uriString), DocumentsContract.getTreeDocumentId(Uri.parse(uriString))) : Uri.parse(uriString);
 
@@ -184,11 +925,9 @@ public class FilePathModule extends ReactContextBaseJavaModule {
 
             String fullPath = getPathFromExtSD(split);
             if (fullPath != "") {
-                callBack.invoke(fullPath);
-            } else {
-                callBack.invoke();
+                return fullPath;
             }
-            return;
+            return null;
         }
 
 
@@ -205,8 +944,7 @@ public class FilePathModule extends ReactContextBaseJavaModule {
                         String fileName = cursor.getString(0);
                         String path = Environment.getExternalStorageDirectory().toString() + "/Download/" + fileName;
                         if (!TextUtils.isEmpty(path)) {
-                            callBack.invoke(path);
-                            return;
+                            return path;
                         }
                     }
                 }
@@ -217,8 +955,7 @@ public class FilePathModule extends ReactContextBaseJavaModule {
                 id = DocumentsContract.getDocumentId(uri);
                 if (!TextUtils.isEmpty(id)) {
                     if (id.startsWith("raw:")) {
-                        callBack.invoke(id.replaceFirst("raw:", ""));
-                        return;
+                        return id.replaceFirst("raw:", "");
                     }
                     String[] contentUriPrefixesToTry = new String[]{
                             "content://downloads/public_downloads",
@@ -229,12 +966,10 @@ public class FilePathModule extends ReactContextBaseJavaModule {
                             final Uri contentUri = ContentUris.withAppendedId(Uri.parse(contentUriPrefix), Long.valueOf(id));
 
 
-                            callBack.invoke(getDataColumn(this.getReactApplicationContext(), contentUri, null, null));
-                            return;
+                            return getDataColumn(this.getReactApplicationContext(), contentUri, null, null);
                         } catch (NumberFormatException e) {
                             //In Android 8 and Android P the id is not a number
-                            callBack.invoke(uri.getPath().replaceFirst("^/document/raw:", "").replaceFirst("^raw:", ""));
-                            return;
+                            return uri.getPath().replaceFirst("^/document/raw:", "").replaceFirst("^raw:", "");
                         }
                     }
 
@@ -245,8 +980,7 @@ public class FilePathModule extends ReactContextBaseJavaModule {
                 final String id = DocumentsContract.getDocumentId(uri);
 
                 if (id.startsWith("raw:")) {
-                    callBack.invoke(id.replaceFirst("raw:", ""));
-                    return;
+                    return id.replaceFirst("raw:", "");
                 }
                 try {
                     contentUri = ContentUris.withAppendedId(
@@ -256,8 +990,7 @@ public class FilePathModule extends ReactContextBaseJavaModule {
                     e.printStackTrace();
                 }
                 if (contentUri != null) {
-                     callBack.invoke(getDataColumn(this.getReactApplicationContext(), contentUri, null, null));
-                     return;
+                     return getDataColumn(this.getReactApplicationContext(), contentUri, null, null);
                 }
             }
         }
@@ -282,51 +1015,43 @@ public class FilePathModule extends ReactContextBaseJavaModule {
             selectionArgs = new String[]{split[1]};
 
 
-            callBack.invoke(getDataColumn(this.getReactApplicationContext(), contentUri, selection,
-                    selectionArgs));
-            return;
+            return getDataColumn(this.getReactApplicationContext(), contentUri, selection,
+                    selectionArgs);
         }
 
         if (isGoogleDriveUri(uri)) {
-            callBack.invoke(getDriveFilePath(uri));
-            return;
+            return getDriveFilePath(uri, callId);
         }
 
         if (isWhatsAppFile(uri)){
-            callBack.invoke(getFilePathForWhatsApp(uri));
-            return;
+            return getFilePathForWhatsApp(uri, callId);
         }
 
 
         if ("content".equalsIgnoreCase(uri.getScheme())) {
 
             if (isGooglePhotosUri(uri)) {
-                callBack.invoke(uri.getLastPathSegment());
-                return;
+                return uri.getLastPathSegment();
             }
             if (isGoogleDriveUri(uri)) {
-                callBack.invoke(getDriveFilePath(uri));
-                return;
+                return getDriveFilePath(uri, callId);
             }
             if (SDK_INT >= Build.VERSION_CODES.Q)
             {
                 // return getFilePathFromURI(context,uri);
-                callBack.invoke(copyFileToInternalStorage(uri,"userfiles"));
+                return copyFileToInternalStorage(uri,"userfiles", callId);
                 // return getRealPathFromURI(context,uri);
-                return;
             }
             else
             {
-                callBack.invoke(getDataColumn(this.getReactApplicationContext(), uri, null, null));
-                return;
+                return getDataColumn(this.getReactApplicationContext(), uri, null, null);
             }
 
         }
         if ("file".equalsIgnoreCase(uri.getScheme())) {
-            callBack.invoke(uri.getPath());
-            return;
+            return uri.getPath();
         }
-        callBack.invoke();
+        return null;
     }
 
     private  boolean fileExists(String filePath) {
@@ -370,42 +1095,29 @@ public class FilePathModule extends ReactContextBaseJavaModule {
         return fullPath;
     }
 
-    private String getDriveFilePath(Uri uri) {
-        Uri returnUri = uri;
-        Cursor returnCursor = this.getReactApplicationContext().getContentResolver().query(returnUri, null, null, null, null);
-        /*
-         * Get the column indexes of the data in the Cursor,
-         *     * move to the first row in the Cursor, get the data,
-         *     * and display it.
-         * */
-        int nameIndex = returnCursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
-        int sizeIndex = returnCursor.getColumnIndex(OpenableColumns.SIZE);
-        returnCursor.moveToFirst();
-        String name = (returnCursor.getString(nameIndex));
-        String size = (Long.toString(returnCursor.getLong(sizeIndex)));
-        File file = new File(this.getReactApplicationContext().getCacheDir(), name);
+    private String getDriveFilePath(Uri uri, @Nullable String callId) throws InterruptedException, IOException {
+        Cursor returnCursor = this.getReactApplicationContext().getContentResolver().query(uri, new String[]{
+                OpenableColumns.DISPLAY_NAME,OpenableColumns.SIZE
+        }, null, null, null);
+        String name;
+        long size;
         try {
-            InputStream inputStream = this.getReactApplicationContext().getContentResolver().openInputStream(uri);
-            FileOutputStream outputStream = new FileOutputStream(file);
-            int read = 0;
-            int maxBufferSize = 1 * 1024 * 1024;
-            int bytesAvailable = inputStream.available();
-
-            //int bufferSize = 1024;
-            int bufferSize = Math.min(bytesAvailable, maxBufferSize);
-
-            final byte[] buffers = new byte[bufferSize];
-            while ((read = inputStream.read(buffers)) != -1) {
-                outputStream.write(buffers, 0, read);
-            }
-            Log.e("File Size", "Size " + file.length());
-            inputStream.close();
-            outputStream.close();
-            Log.e("File Path", "Path " + file.getPath());
-            Log.e("File Size", "Size " + file.length());
-        } catch (Exception e) {
-            Log.e("Exception", e.getMessage());
+            /*
+             * Get the column indexes of the data in the Cursor,
+             *     * move to the first row in the Cursor, get the data,
+             *     * and display it.
+             * */
+            int nameIndex = returnCursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+            int sizeIndex = returnCursor.getColumnIndex(OpenableColumns.SIZE);
+            returnCursor.moveToFirst();
+            name = returnCursor.getString(nameIndex);
+            size = returnCursor.isNull(sizeIndex) ? -1 : returnCursor.getLong(sizeIndex);
         }
+        finally {
+            returnCursor.close();
+        }
+        File file = new File(this.getReactApplicationContext().getCacheDir(), name);
+        copyFromContentUri(uri, file, size, callId);
         return file.getPath();
     }
 
@@ -415,24 +1127,27 @@ public class FilePathModule extends ReactContextBaseJavaModule {
      * @param newDirName if you want to create a directory, you can set this variable
      * @return
      */
-    private String copyFileToInternalStorage(Uri uri,String newDirName) {
-        Uri returnUri = uri;
-
-        Cursor returnCursor = this.getReactApplicationContext().getContentResolver().query(returnUri, new String[]{
+    private String copyFileToInternalStorage(Uri uri, String newDirName, @Nullable String callId) throws InterruptedException, IOException {
+        Cursor returnCursor = this.getReactApplicationContext().getContentResolver().query(uri, new String[]{
                 OpenableColumns.DISPLAY_NAME,OpenableColumns.SIZE
         }, null, null, null);
-
-
-        /*
-         * Get the column indexes of the data in the Cursor,
-         *     * move to the first row in the Cursor, get the data,
-         *     * and display it.
-         * */
-        int nameIndex = returnCursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
-        int sizeIndex = returnCursor.getColumnIndex(OpenableColumns.SIZE);
-        returnCursor.moveToFirst();
-        String name = (returnCursor.getString(nameIndex));
-        String size = (Long.toString(returnCursor.getLong(sizeIndex)));
+        String name;
+        long size;
+        try {
+            /*
+             * Get the column indexes of the data in the Cursor,
+             *     * move to the first row in the Cursor, get the data,
+             *     * and display it.
+             * */
+            int nameIndex = returnCursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+            int sizeIndex = returnCursor.getColumnIndex(OpenableColumns.SIZE);
+            returnCursor.moveToFirst();
+            name = returnCursor.getString(nameIndex);
+            size = returnCursor.isNull(sizeIndex) ? -1 : returnCursor.getLong(sizeIndex);
+        }
+        finally {
+            returnCursor.close();
+        }
 
         File output;
         if(!newDirName.equals("")) {
@@ -445,30 +1160,62 @@ public class FilePathModule extends ReactContextBaseJavaModule {
         else{
             output = new File(this.getReactApplicationContext().getFilesDir() + "/" + name);
         }
+        copyFromContentUri(uri, output, size, callId);
+        return output.getPath();
+    }
+
+    /**
+     * Copies a content URI into {@code output}. Providers that expose a real file descriptor go
+     * through {@link FileTransfer}'s channel copy, which can resume a partial {@code output};
+     * anything else is streamed through a direct buffer. Progress is emitted as copyProgress events.
+     * Copy failures are thrown so the caller rejects instead of returning a partial file, and a
+     * cancelled copy surfaces as {@link InterruptedException}.
+     */
+    private void copyFromContentUri(Uri uri, File output, long size, @Nullable final String callId) throws InterruptedException, IOException {
+        FileTransfer.ProgressListener listener = (bytesCopied, totalBytes) -> {
+            WritableMap event = Arguments.createMap();
+            event.putString("callId", callId);
+            event.putString("path", output.getPath());
+            event.putDouble("bytesCopied", bytesCopied);
+            event.putDouble("totalBytes", totalBytes);
+            emitEvent(COPY_PROGRESS_EVENT, event);
+        };
+        ParcelFileDescriptor descriptor = null;
         try {
-            InputStream inputStream = this.getReactApplicationContext().getContentResolver().openInputStream(uri);
-            FileOutputStream outputStream = new FileOutputStream(output);
-            int read = 0;
-            int bufferSize = 1024;
-            final byte[] buffers = new byte[bufferSize];
-            while ((read = inputStream.read(buffers)) != -1) {
-                outputStream.write(buffers, 0, read);
+            descriptor = this.getReactApplicationContext().getContentResolver().openFileDescriptor(uri, "r");
+        }
+        catch (IOException | SecurityException e) {
+            Log.w("FilePathModule", "No file descriptor for " + uri + ", streaming instead", e);
+        }
+        try {
+            if (descriptor != null && descriptor.getStatSize() >= 0) {
+                try (FileInputStream inputStream = new FileInputStream(descriptor.getFileDescriptor())) {
+                    FileTransfer.copy(inputStream.getChannel(), output, descriptor.getStatSize(), listener);
+                }
+                return;
+            }
+            try (InputStream inputStream = this.getReactApplicationContext().getContentResolver().openInputStream(uri)) {
+                if (inputStream == null) {
+                    throw new FileNotFoundException("Cannot open " + uri);
+                }
+                FileTransfer.copy(Channels.newChannel(inputStream), output, size, listener);
             }
-
-            inputStream.close();
-            outputStream.close();
-
         }
-        catch (Exception e) {
-
-            Log.e("Exception", e.getMessage());
+        catch (ClosedByInterruptException e) {
+            // The channel was closed under us by a cancel. Keep the partial file, the next copy resumes it.
+            InterruptedException cancelled = new InterruptedException("Copy to " + output + " was cancelled");
+            cancelled.initCause(e);
+            throw cancelled;
+        }
+        finally {
+            if (descriptor != null) {
+                descriptor.close();
+            }
         }
-
-        return output.getPath();
     }
 
-    private String getFilePathForWhatsApp(Uri uri){
-        return  copyFileToInternalStorage(uri,"whatsapp");
+    private String getFilePathForWhatsApp(Uri uri, @Nullable String callId) throws InterruptedException, IOException {
+        return  copyFileToInternalStorage(uri,"whatsapp", callId);
     }
 
     private String getDataColumn(Context context, Uri uri, String selection, String[] selectionArgs) {
@@ -0,0 +1,93 @@
+package com.yorha;
+
+import android.os.StatFs;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Reserves the full size of a download before it is written. Torrent pieces arrive in random
+ * order, and a file that grows on demand ends up fragmented on FAT/exFAT cards and FUSE backed
+ * storage, which slows down sequential playback later. Free space is checked up front so a
+ * download that can't fit fails straight away instead of near the end.
+ */
+final class FilePreallocator {
+    static final String FALLOCATE = "fallocate";
+    static final String SET_LENGTH = "setLength";
+    static final String NONE = "none";
+
+    /** Thrown when the volume does not have room for the requested size. */
+    static final class InsufficientSpaceException extends IOException {
+        final long requiredBytes;
+        final long availableBytes;
+
+        InsufficientSpaceException(File file, long requiredBytes, long availableBytes) {
+            super("Not enough space for " + file + ": " + requiredBytes + " bytes needed, "
+                    + availableBytes + " available");
+            this.requiredBytes = requiredBytes;
+            this.availableBytes = availableBytes;
+        }
+    }
+
+    static final class Result {
+        final String method;
+        final long size;
+        final long availableBytes;
+
+        Result(String method, long size, long availableBytes) {
+            this.method = method;
+            this.size = size;
+            this.availableBytes = availableBytes;
+        }
+    }
+
+    private FilePreallocator() {}
+
+    /**
+     * Makes {@code file} take up {@code size} bytes, creating it and its folders if needed.
+     * Existing contents are never overwritten, so this is safe while a download already writes
+     * to the file.
+     */
+    static Result preallocate(File file, long size) throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        long availableBytes = new StatFs(directory != null ? directory.getPath() : file.getPath()).getAvailableBytes();
+        long existingBytes = file.length();
+        if (existingBytes >= size) {
+            return new Result(NONE, existingBytes, availableBytes);
+        }
+        long requiredBytes = size - existingBytes;
+        if (requiredBytes > availableBytes) {
+            throw new InsufficientSpaceException(file, requiredBytes, availableBytes);
+        }
+
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            try {
+                // Allocates real blocks, preferably contiguous, without touching written data.
+                Os.posix_fallocate(output.getFD(), 0, size);
+                return new Result(FALLOCATE, size, availableBytes);
+            }
+            catch (ErrnoException e) {
+                if (e.errno == OsConstants.ENOSPC) {
+                    throw new InsufficientSpaceException(file, requiredBytes, availableBytes);
+                }
+                if (e.errno != OsConstants.EOPNOTSUPP && e.errno != OsConstants.ENOSYS
+                        && e.errno != OsConstants.EINVAL) {
+                    throw new IOException("fallocate failed for " + file, e);
+                }
+            }
+            // Not supported by this filesystem. Setting the length at least fixes the file size up
+            // front; it is sparse where the filesystem allows holes and zero filled on FAT.
+            if (output.length() < size) {
+                output.setLength(size);
+            }
+            return new Result(SET_LENGTH, size, availableBytes);
+        }
+    }
+}
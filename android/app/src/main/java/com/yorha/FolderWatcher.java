@@ -0,0 +1,102 @@
+package com.yorha;
+
+import android.os.FileObserver;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a {@link FolderIndex} in sync with the filesystem through one inotify based
+ * {@link FileObserver} per watched folder, so files deleted or moved in a file manager show up
+ * without polling. Watches are not recursive, only the direct children of each folder are seen.
+ */
+final class FolderWatcher {
+    private static final int MASK = FileObserver.CREATE | FileObserver.DELETE | FileObserver.MOVED_FROM
+            | FileObserver.MOVED_TO | FileObserver.MODIFY | FileObserver.CLOSE_WRITE | FileObserver.ATTRIB
+            | FileObserver.DELETE_SELF | FileObserver.MOVE_SELF;
+
+    private final FolderIndex index;
+    // Observers stop when garbage collected, so they have to be held on to.
+    private final Map<String, FileObserver> observers = new HashMap<>();
+
+    FolderWatcher(FolderIndex index) {
+        this.index = index;
+    }
+
+    /** Watches exactly {@code folders}, starting and stopping observers as needed. */
+    synchronized void setFolders(Collection<String> folders) {
+        Set<String> wanted = new HashSet<>();
+        for (String folder : folders) {
+            wanted.add(FolderIndex.normalize(folder));
+        }
+        for (String folder : index.getRoots()) {
+            if (!wanted.contains(folder)) {
+                stopObserver(folder);
+                index.removeRoot(folder);
+            }
+        }
+        for (String folder : wanted) {
+            if (index.addRoot(folder)) {
+                startObserver(folder);
+            }
+        }
+    }
+
+    /**
+     * Lists every folder again and restarts the observers of folders that were missing before.
+     * Called when events may have been missed, such as after storage was remounted.
+     */
+    synchronized void rescanAll() {
+        for (String folder : index.getRoots()) {
+            FileObserver observer = observers.get(folder);
+            if (observer == null && new File(folder).isDirectory()) {
+                startObserver(folder);
+            }
+            index.rescan(folder);
+        }
+    }
+
+    synchronized void stop() {
+        for (FileObserver observer : observers.values()) {
+            observer.stopWatching();
+        }
+        observers.clear();
+    }
+
+    private void startObserver(final String folder) {
+        if (!new File(folder).isDirectory()) {
+            // inotify can't watch a missing folder, rescanAll picks it up once it exists.
+            return;
+        }
+        FileObserver observer = new FileObserver(new File(folder), MASK) {
+            @Override
+            public void onEvent(int event, @Nullable String path) {
+                if ((event & (FileObserver.DELETE_SELF | FileObserver.MOVE_SELF)) != 0) {
+                    // The watch is gone with the folder, report its contents as deleted.
+                    synchronized (FolderWatcher.this) {
+                        stopObserver(folder);
+                    }
+                    index.onEvent(folder, null);
+                }
+                else if ((event & FileObserver.ALL_EVENTS) != 0) {
+                    index.onEvent(folder, path);
+                }
+            }
+        };
+        observer.startWatching();
+        observers.put(folder, observer);
+    }
+
+    private void stopObserver(String folder) {
+        FileObserver observer = observers.remove(folder);
+        if (observer != null) {
+            observer.stopWatching();
+        }
+    }
+}
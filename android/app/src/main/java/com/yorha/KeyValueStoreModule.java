@@ -0,0 +1,311 @@
+package com.yorha;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Exposes a {@link MappedLogStore} to JS for hot app state that is read per item, such as the
+ * downloaded episodes keyed by magnet. Reads are answered from memory and can be synchronous.
+ * Writes run in call order on the native modules thread, each one appending a single record.
+ */
+public class KeyValueStoreModule extends KeyValueStoreSpec {
+    public static final String NAME = "YorhaKeyValueStore";
+    static final String BACKUP_PROGRESS_EVENT = "YorhaKeyValueStore.backupProgress";
+
+    private MappedLogStore store = null;
+    private final FileIoExecutor backupExecutor = new FileIoExecutor("yorha-backup", 1);
+
+    KeyValueStoreModule(ReactApplicationContext context) {
+        super(context);
+        context.addLifecycleEventListener(lifecycleListener);
+    }
+
+    // Pausing is the last reliable point before the process may be killed.
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {}
+
+        @Override
+        public void onHostPause() {
+            synchronized (KeyValueStoreModule.this) {
+                if (store != null) {
+                    store.sync();
+                }
+            }
+        }
+
+        @Override
+        public void onHostDestroy() {}
+    };
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void invalidate() {
+        getReactApplicationContext().removeLifecycleEventListener(lifecycleListener);
+        synchronized (this) {
+            if (store != null) {
+                try {
+                    store.close();
+                }
+                catch (IOException e) {
+                    Log.w(NAME, "Could not close key-value store", e);
+                }
+                store = null;
+            }
+        }
+        backupExecutor.shutdown();
+        super.invalidate();
+    }
+
+    private synchronized MappedLogStore getStore() throws IOException {
+        if (store == null) {
+            store = MappedLogStore.open(new File(getReactApplicationContext().getFilesDir(), "yorha-kv/store.log"));
+        }
+        return store;
+    }
+
+    private <T> void runInBackground(@Nullable final String callId, final Promise promise,
+                                     FileIoExecutor.Task<T> task) {
+        backupExecutor.submit(callId, task, new FileIoExecutor.Listener<T>() {
+            @Override
+            public void onSuccess(T result) {
+                promise.resolve(result);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                if (error instanceof CancellationException || error instanceof InterruptedException) {
+                    promise.reject("E_CANCELLED", error.getMessage(), error);
+                }
+                else if (error instanceof RejectedExecutionException) {
+                    promise.reject("E_IO_BUSY", "Backup queue is full", error);
+                }
+                else {
+                    promise.reject("E_IO", error.getMessage(), error);
+                }
+            }
+        });
+    }
+
+    private SettingsBackup.ProgressListener backupProgressListener(@Nullable final String callId, final String path) {
+        return (entries, totalEntries, bytes) -> {
+            ReactApplicationContext context = getReactApplicationContext();
+            if (!context.hasActiveReactInstance()) {
+                return;
+            }
+            WritableMap event = Arguments.createMap();
+            event.putString("callId", callId);
+            event.putString("path", path);
+            event.putDouble("entries", entries);
+            event.putDouble("totalEntries", totalEntries);
+            event.putDouble("bytes", bytes);
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(BACKUP_PROGRESS_EVENT, event);
+        };
+    }
+
+    // Required by NativeEventEmitter, events are sent regardless of listener count.
+    @ReactMethod
+    public void addListener(String eventName) {}
+
+    @ReactMethod
+    public void removeListeners(double count) {}
+
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public String getItemSync(String key) {
+        try {
+            return getStore().get(key);
+        }
+        catch (IOException e) {
+            Log.e(NAME, "Could not open key-value store", e);
+            return null;
+        }
+    }
+
+    @ReactMethod
+    public void getItem(String key, Promise promise) {
+        try {
+            promise.resolve(getStore().get(key));
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void setItem(String key, String value, Promise promise) {
+        try {
+            getStore().put(key, value);
+            promise.resolve(true);
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void multiSet(ReadableArray keys, ReadableArray values, Promise promise) {
+        if (keys.size() != values.size()) {
+            promise.reject("E_INVALID", "Got " + keys.size() + " keys but " + values.size() + " values");
+            return;
+        }
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            entries.put(keys.getString(i), values.getString(i));
+        }
+        try {
+            getStore().putAll(entries);
+            promise.resolve(true);
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void removeItem(String key, Promise promise) {
+        try {
+            promise.resolve(getStore().remove(key));
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    /** Resolves with every {key, value} whose key starts with {@code prefix}, in insertion order. */
+    @ReactMethod
+    public void getEntries(String prefix, Promise promise) {
+        try {
+            WritableArray entries = Arguments.createArray();
+            for (Map.Entry<String, String> entry : getStore().entries(prefix)) {
+                WritableMap map = Arguments.createMap();
+                map.putString("key", entry.getKey());
+                map.putString("value", entry.getValue());
+                entries.pushMap(map);
+            }
+            promise.resolve(entries);
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void removeAll(String prefix, Promise promise) {
+        try {
+            promise.resolve(getStore().removeAll(prefix));
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void compact(Promise promise) {
+        try {
+            getStore().compact();
+            promise.resolve(true);
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        try {
+            MappedLogStore.Stats stats = getStore().getStats();
+            WritableMap map = Arguments.createMap();
+            map.putInt("entries", stats.entries);
+            map.putDouble("fileBytes", stats.fileBytes);
+            map.putDouble("usedBytes", stats.usedBytes);
+            map.putDouble("liveBytes", stats.liveBytes);
+            map.putDouble("recoveredBytes", stats.recoveredBytes);
+            map.putInt("compactions", stats.compactions);
+            promise.resolve(map);
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes a backup of the given AsyncStorage settings plus everything in this store to
+     * {@code path}, optionally gzipped. Resolves with the size of the file.
+     */
+    @ReactMethod
+    public void exportBackup(final String path, ReadableArray keys, ReadableArray values, final boolean gzip,
+                             @Nullable final String callId, Promise promise) {
+        if (keys.size() != values.size()) {
+            promise.reject("E_INVALID", "Got " + keys.size() + " keys but " + values.size() + " values");
+            return;
+        }
+        final List<Map.Entry<String, String>> settings = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (!values.isNull(i)) {
+                settings.add(new AbstractMap.SimpleImmutableEntry<>(keys.getString(i), values.getString(i)));
+            }
+        }
+        runInBackground(callId, promise, () ->
+                (double) SettingsBackup.write(new File(path), settings, getStore(), gzip,
+                        backupProgressListener(callId, path)));
+    }
+
+    /**
+     * Restores a backup made by exportBackup, or by older versions of the app. The store is
+     * replaced and the settings are resolved for JS to put back into AsyncStorage, as
+     * {settings: [{key, value}], storeEntries, legacy, bytes}.
+     */
+    @ReactMethod
+    public void importBackup(final String path, @Nullable final String callId, Promise promise) {
+        runInBackground(callId, promise, () -> {
+            SettingsBackup.Restored restored = SettingsBackup.read(new File(path), getStore(),
+                    backupProgressListener(callId, path));
+            getStore().sync();
+            WritableArray settings = Arguments.createArray();
+            for (Map.Entry<String, String> setting : restored.settings) {
+                WritableMap map = Arguments.createMap();
+                map.putString("key", setting.getKey());
+                map.putString("value", setting.getValue());
+                settings.pushMap(map);
+            }
+            WritableMap result = Arguments.createMap();
+            result.putArray("settings", settings);
+            result.putDouble("storeEntries", restored.storeEntries);
+            result.putBoolean("legacy", restored.legacy);
+            result.putDouble("bytes", restored.bytes);
+            return result;
+        });
+    }
+
+    @ReactMethod
+    public void cancelBackup(String callId, Promise promise) {
+        promise.resolve(backupExecutor.cancel(callId));
+    }
+}
@@ -0,0 +1,91 @@
+package com.yorha;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * JS side of {@link LogSink}. {@link #log} is a void method, so a console line costs JS one
+ * enqueued call and never waits for an answer; node gets the sink port and writes to it directly.
+ */
+public class LogSinkModule extends LogSinkSpec {
+    public static final String NAME = "YorhaLogSink";
+    private static final long FLUSH_TIMEOUT_MS = 2000;
+
+    LogSinkModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    private LogSink sink() {
+        return LogSink.get(getReactApplicationContext().getFilesDir());
+    }
+
+    @ReactMethod
+    public void log(String level, String source, String message) {
+        sink().log(level, source, message);
+    }
+
+    /** Resolves with the loopback port node should write "level \t source \t message" lines to. */
+    @ReactMethod
+    public void getLogPort(Promise promise) {
+        try {
+            promise.resolve(sink().getPort());
+        }
+        catch (IOException e) {
+            promise.reject("E_IO", e.getMessage(), e);
+        }
+    }
+
+    /** Resolves with the directory the log files are written to. */
+    @ReactMethod
+    public void getLogDirectory(Promise promise) {
+        promise.resolve(sink().getDirectory().getAbsolutePath());
+    }
+
+    /** Resolves with the current log file and the gzipped archives, newest first. */
+    @ReactMethod
+    public void getLogFilePaths(Promise promise) {
+        WritableArray paths = Arguments.createArray();
+        for (File file : sink().getFiles()) {
+            paths.pushString(file.getAbsolutePath());
+        }
+        promise.resolve(paths);
+    }
+
+    /** Writes out everything logged so far, resolves with false if it did not finish in time. */
+    @ReactMethod
+    public void flush(Promise promise) {
+        try {
+            promise.resolve(sink().flush(FLUSH_TIMEOUT_MS));
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            promise.reject("E_CANCELLED", e.getMessage(), e);
+        }
+    }
+
+    @ReactMethod
+    public void getStats(Promise promise) {
+        LogSink.Stats stats = sink().getStats();
+        WritableMap result = Arguments.createMap();
+        result.putDouble("linesWritten", stats.linesWritten);
+        result.putDouble("linesDropped", stats.linesDropped);
+        result.putDouble("bytesWritten", stats.bytesWritten);
+        result.putDouble("batches", stats.batches);
+        result.putInt("archives", stats.archives);
+        result.putDouble("writeFailures", stats.writeFailures);
+        result.putString("lastError", stats.lastError);
+        promise.resolve(result);
+    }
+}
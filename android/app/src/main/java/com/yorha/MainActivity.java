@@ -7,6 +7,8 @@ import android.content.res.Configuration;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.Nullable;
@@ -39,7 +41,10 @@ public class MainActivity extends ReactActivity {
 
   @Override
   protected void onCreate(@Nullable Bundle savedInstanceState) {
+    long start = StartupTrace.now();
     super.onCreate(null);
+    StartupTrace.section("activityCreate", start);
+    traceFirstFrame();
     PACKAGE_NAME = getApplicationContext().getPackageName();
     try {
       MainActivity.CastingAvailable = true;
@@ -50,10 +55,29 @@ public class MainActivity extends ReactActivity {
     if (SDK_INT >= Build.VERSION_CODES.R) {
       FilePathModule.manageFileLauncher = registerForActivityResult(
               new ActivityResultContracts.StartActivityForResult(),
-              result -> FilePathModule.manageFileLauncherCallback.invoke(Environment.isExternalStorageManager()));
+              result -> FilePathModule.manageFileLauncherPromise.resolve(Environment.isExternalStorageManager()));
     }
   }
 
+  private void traceFirstFrame() {
+    final View decorView = getWindow().getDecorView();
+    decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+      private boolean drawn = false;
+
+      @Override
+      public void onDraw() {
+        if (drawn) {
+          return;
+        }
+        drawn = true;
+        StartupTrace.mark("firstFrame");
+        StartupTrace.dump();
+        // Listeners can't be removed while the tree is being drawn.
+        decorView.post(() -> decorView.getViewTreeObserver().removeOnDrawListener(this));
+      }
+    });
+  }
+
   @Override
   protected ReactActivityDelegate createReactActivityDelegate() {
     return new MainActivityDelegate(this, getMainComponentName());
@@ -5,10 +5,12 @@ import android.content.Context;
 
 import com.facebook.react.PackageList;
 import com.facebook.react.ReactApplication;
+import com.facebook.react.ReactInstanceEventListener;
 import com.facebook.react.ReactInstanceManager;
 import com.facebook.react.ReactNativeHost;
 import com.facebook.react.ReactPackage;
 import com.facebook.react.bridge.JSIModulePackage;
+import com.facebook.react.bridge.ReactContext;
 import com.facebook.soloader.SoLoader;
 import com.horcrux.svg.SvgPackage;
 import com.yorha.newarchitecture.MainApplicationReactNativeHost;
@@ -27,9 +29,11 @@ public class MainApplication extends Application implements ReactApplication {
 
         @Override
         protected List<ReactPackage> getPackages() {
+           long start = StartupTrace.now();
            List<ReactPackage> packages = new PackageList(this).getPackages();
            packages.add(new YorhaPackage());
            packages.add(new SvgPackage());
+           StartupTrace.section("getPackages", start);
            return packages;
         }
 
@@ -53,9 +57,32 @@ public class MainApplication extends Application implements ReactApplication {
 
   @Override
   public void onCreate() {
+    long start = StartupTrace.now();
     super.onCreate();
+    StartupTrace.init(this);
+    StartupTrace.mark("applicationCreate");
+
+    long soLoaderStart = StartupTrace.now();
     SoLoader.init(this, /* native exopackage */ false);
-    initializeFlipper(this, getReactNativeHost().getReactInstanceManager());
+    StartupTrace.section("soLoaderInit", soLoaderStart);
+
+    long instanceManagerStart = StartupTrace.now();
+    ReactInstanceManager reactInstanceManager = getReactNativeHost().getReactInstanceManager();
+    StartupTrace.section("createReactInstanceManager", instanceManagerStart);
+    reactInstanceManager.addReactInstanceEventListener(new ReactInstanceEventListener() {
+      @Override
+      public void onReactContextInitialized(ReactContext context) {
+        // Fires once the JS bundle has been loaded and run.
+        StartupTrace.mark("jsBundleLoaded");
+        StartupTrace.dump();
+        reactInstanceManager.removeReactInstanceEventListener(this);
+      }
+    });
+
+    long flipperStart = StartupTrace.now();
+    initializeFlipper(this, reactInstanceManager);
+    StartupTrace.section("initializeFlipper", flipperStart);
+    StartupTrace.section("applicationOnCreate", start);
   }
 
   /**
@@ -0,0 +1,355 @@
+package com.yorha;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes and restores settings backups with streaming JSON, so memory use does not grow with the
+ * size of the key-value store. A backup is written to a temporary file that is synced and then
+ * renamed over the target, so a crash leaves either the old backup or the new one.
+ *
+ * <pre>
+ * {"format": "subsplease-backup", "version": 2,
+ *  "settings": [[key, value], ...],   AsyncStorage values, handed over by JS
+ *  "store": [[key, value], ...]}      every key-value store entry
+ * </pre>
+ *
+ * Backups made by older versions, a bare array of [key, value] settings, can still be read.
+ * Gzipped backups are recognised by their magic bytes whatever the file is called.
+ */
+final class SettingsBackup {
+    private static final String FORMAT = "subsplease-backup";
+    private static final int VERSION = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int STORE_BATCH_SIZE = 512;
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+
+    interface ProgressListener {
+        void onProgress(long entries, long totalEntries, long bytes);
+    }
+
+    static final class Restored {
+        final List<Map.Entry<String, String>> settings;
+        final long storeEntries;
+        // An old style backup, whose settings may still hold collections in their legacy format.
+        final boolean legacy;
+        final long bytes;
+
+        Restored(List<Map.Entry<String, String>> settings, long storeEntries, boolean legacy, long bytes) {
+            this.settings = settings;
+            this.storeEntries = storeEntries;
+            this.legacy = legacy;
+            this.bytes = bytes;
+        }
+    }
+
+    private SettingsBackup() {}
+
+    /** Writes {@code settings} and the whole of {@code store} to {@code target}, returning its size. */
+    static long write(File target, List<Map.Entry<String, String>> settings, MappedLogStore store, boolean gzip,
+                      ProgressListener listener) throws IOException, InterruptedException {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            List<String> storeKeys = store.keys("");
+            Progress progress = new Progress(listener, settings.size() + storeKeys.size(), true);
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                CountingOutputStream counted = new CountingOutputStream(output);
+                OutputStream stream = gzip ? new GZIPOutputStream(counted, BUFFER_SIZE) : counted;
+                JsonWriter writer = new JsonWriter(new BufferedWriter(
+                        new OutputStreamWriter(stream, StandardCharsets.UTF_8), BUFFER_SIZE));
+                writer.beginObject();
+                writer.name("format").value(FORMAT);
+                writer.name("version").value(VERSION);
+
+                writer.name("settings").beginArray();
+                for (Map.Entry<String, String> setting : settings) {
+                    writer.beginArray().value(setting.getKey()).value(setting.getValue()).endArray();
+                    progress.advance(target, counted.count);
+                }
+                writer.endArray();
+
+                // Values are read one at a time, keys removed since the listing are skipped.
+                writer.name("store").beginArray();
+                for (String key : storeKeys) {
+                    String value = store.get(key);
+                    if (value != null) {
+                        writer.beginArray().value(key).value(value).endArray();
+                    }
+                    progress.advance(target, counted.count);
+                }
+                writer.endArray();
+                writer.endObject();
+                writer.flush();
+                if (stream instanceof GZIPOutputStream) {
+                    ((GZIPOutputStream) stream).finish();
+                }
+                output.getFD().sync();
+                progress.finish(counted.count);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return target.length();
+        }
+        finally {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Restores {@code source}. The file is checked in full before anything is changed, then the
+     * store is replaced with the backed up entries and the settings are returned for JS to apply.
+     */
+    static Restored read(File source, MappedLogStore store, ProgressListener listener)
+            throws IOException, InterruptedException {
+        // First pass, validate and count without applying anything. Only this pass can be
+        // cancelled, once the store has been cleared the restore has to run to the end.
+        long totalEntries = parse(source, null, null, new Progress(null, 0, true));
+
+        Progress progress = new Progress(listener, totalEntries, false);
+        List<Map.Entry<String, String>> settings = new ArrayList<>();
+        parse(source, settings, store, progress);
+        progress.finish(source.length());
+        boolean legacy = isLegacy(source);
+        // The store was cleared first, so everything in it now came from the backup.
+        long storeEntries = legacy ? 0 : store.getStats().entries;
+        return new Restored(settings, storeEntries, legacy, source.length());
+    }
+
+    /**
+     * Reads every entry of {@code source}. Settings are collected into {@code settings} and
+     * store entries written to {@code store}, when those are non-null. Returns the entry count.
+     */
+    private static long parse(File source, List<Map.Entry<String, String>> settings, MappedLogStore store,
+                              Progress progress) throws IOException, InterruptedException {
+        try (CountingInputStream counted = new CountingInputStream(new FileInputStream(source));
+             JsonReader reader = new JsonReader(new InputStreamReader(unwrap(counted), StandardCharsets.UTF_8))) {
+            long entries = 0;
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                entries += readPairs(reader, settings, counted, progress, source);
+            }
+            else {
+                boolean storeCleared = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("format")) {
+                        if (!FORMAT.equals(reader.nextString())) {
+                            throw new IOException(source + " is not a settings backup");
+                        }
+                    }
+                    else if (name.equals("version")) {
+                        int version = reader.nextInt();
+                        if (version > VERSION) {
+                            throw new IOException("Backup version " + version + " is newer than this app supports");
+                        }
+                    }
+                    else if (name.equals("settings")) {
+                        entries += readPairs(reader, settings, counted, progress, source);
+                    }
+                    else if (name.equals("store")) {
+                        if (store != null && !storeCleared) {
+                            store.removeAll("");
+                            storeCleared = true;
+                        }
+                        entries += readStore(reader, store, counted, progress, source);
+                    }
+                    else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Unexpected data after the end of " + source);
+            }
+            return entries;
+        }
+    }
+
+    private static long readPairs(JsonReader reader, List<Map.Entry<String, String>> target,
+                                  CountingInputStream counted, Progress progress, File source)
+            throws IOException, InterruptedException {
+        long count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Map.Entry<String, String> pair = readPair(reader);
+            if (target != null && pair.getValue() != null) {
+                target.add(pair);
+            }
+            count++;
+            progress.advance(source, counted.count);
+        }
+        reader.endArray();
+        return count;
+    }
+
+    private static long readStore(JsonReader reader, MappedLogStore store, CountingInputStream counted,
+                                  Progress progress, File source) throws IOException, InterruptedException {
+        long count = 0;
+        Map<String, String> batch = new LinkedHashMap<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Map.Entry<String, String> pair = readPair(reader);
+            if (pair.getValue() == null) {
+                throw new IOException("Store entry " + pair.getKey() + " has no value");
+            }
+            if (store != null) {
+                batch.put(pair.getKey(), pair.getValue());
+                if (batch.size() >= STORE_BATCH_SIZE) {
+                    store.putAll(batch);
+                    batch.clear();
+                }
+            }
+            count++;
+            progress.advance(source, counted.count);
+        }
+        reader.endArray();
+        if (store != null && !batch.isEmpty()) {
+            store.putAll(batch);
+        }
+        return count;
+    }
+
+    private static Map.Entry<String, String> readPair(JsonReader reader) throws IOException {
+        reader.beginArray();
+        String key = reader.nextString();
+        String value;
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            value = null;
+        }
+        else {
+            value = reader.nextString();
+        }
+        reader.endArray();
+        return new AbstractMap.SimpleImmutableEntry<>(key, value);
+    }
+
+    private static boolean isLegacy(File source) throws IOException {
+        try (InputStream input = unwrap(new FileInputStream(source))) {
+            int c;
+            do {
+                c = input.read();
+            } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+            return c == '[';
+        }
+    }
+
+    /** Adds gzip decoding when the stream starts with the gzip magic bytes. */
+    private static InputStream unwrap(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            out.write(buffer, offset, length);
+            count += length;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+
+    private static final class Progress {
+        private final ProgressListener listener;
+        private final long totalEntries;
+        private final boolean cancellable;
+        private long entries;
+        private long lastReportNanos;
+
+        Progress(ProgressListener listener, long totalEntries, boolean cancellable) {
+            this.listener = listener;
+            this.totalEntries = totalEntries;
+            this.cancellable = cancellable;
+        }
+
+        void advance(File file, long bytes) throws InterruptedException {
+            entries++;
+            if (cancellable && (entries & 255) == 0 && Thread.interrupted()) {
+                throw new InterruptedException("Backup of " + file + " was cancelled");
+            }
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+                lastReportNanos = now;
+                listener.onProgress(entries, totalEntries, bytes);
+            }
+        }
+
+        void finish(long bytes) {
+            if (listener != null) {
+                listener.onProgress(entries, totalEntries, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.yorha;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.JsonReader;
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records how long the steps of a cold start take, in milliseconds since the process was forked,
+ * so startup regressions show up as numbers. The trace of each launch is written to
+ * {@code files/startup-trace.json}; the one of the launch before is kept next to it for
+ * comparison. Timestamps are taken on whatever thread reaches a step.
+ */
+public final class StartupTrace {
+    private static final String TAG = "StartupTrace";
+    private static final String FILE_NAME = "startup-trace.json";
+    private static final String PREVIOUS_FILE_NAME = "startup-trace.previous.json";
+
+    static final class Section {
+        final String name;
+        final long startMs;
+        final long durationMs;
+
+        Section(String name, long startMs, long durationMs) {
+            this.name = name;
+            this.startMs = startMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static final List<Section> sections = new ArrayList<>();
+    private static File directory = null;
+    private static ExecutorService writer = null;
+
+    private StartupTrace() {}
+
+    /** Milliseconds since the process started. */
+    public static long now() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+
+    /**
+     * Starts tracing into the app's files directory. The trace of the previous launch is moved
+     * aside first.
+     */
+    public static synchronized void init(Context context) {
+        if (directory != null) {
+            return;
+        }
+        directory = context.getFilesDir();
+        writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "yorha-startup-trace");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final File current = new File(directory, FILE_NAME);
+        final File previous = new File(directory, PREVIOUS_FILE_NAME);
+        writer.execute(() -> {
+            if (current.exists() && !current.renameTo(previous)) {
+                Log.w(TAG, "Could not keep the previous startup trace");
+            }
+        });
+    }
+
+    /** Records that {@code name} happened now. */
+    public static void mark(String name) {
+        record(new Section(name, now(), 0));
+    }
+
+    /** Records {@code name} as having run from {@code startMs}, a value of {@link #now()}, until now. */
+    public static void section(String name, long startMs) {
+        record(new Section(name, startMs, now() - startMs));
+    }
+
+    static synchronized List<Section> getSections() {
+        return new ArrayList<>(sections);
+    }
+
+    /** Sections of the previous launch, or an empty list when there was none. */
+    static List<Section> readPrevious() {
+        File previous;
+        synchronized (StartupTrace.class) {
+            if (directory == null) {
+                return new ArrayList<>();
+            }
+            previous = new File(directory, PREVIOUS_FILE_NAME);
+        }
+        return read(previous);
+    }
+
+    /** Writes the sections recorded so far, replacing the file atomically. */
+    static synchronized void dump() {
+        if (writer == null) {
+            return;
+        }
+        final List<Section> snapshot = new ArrayList<>(sections);
+        final File target = new File(directory, FILE_NAME);
+        writer.execute(() -> {
+            try {
+                write(target, snapshot);
+            }
+            catch (IOException e) {
+                Log.w(TAG, "Could not write " + target, e);
+            }
+        });
+    }
+
+    private static synchronized void record(Section section) {
+        sections.add(section);
+        Log.i(TAG, section.name + " at " + section.startMs + " ms"
+                + (section.durationMs > 0 ? ", took " + section.durationMs + " ms" : ""));
+    }
+
+    private static void write(File target, List<Section> snapshot) throws IOException {
+        File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                JsonWriter json = new JsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                json.beginArray();
+                for (Section section : snapshot) {
+                    json.beginObject();
+                    json.name("name").value(section.name);
+                    json.name("startMs").value(section.startMs);
+                    json.name("durationMs").value(section.durationMs);
+                    json.endObject();
+                }
+                json.endArray();
+                json.flush();
+                output.getFD().sync();
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            temp.delete();
+        }
+    }
+
+    private static List<Section> read(File file) {
+        List<Section> result = new ArrayList<>();
+        if (!file.exists()) {
+            return result;
+        }
+        try (JsonReader json = new JsonReader(new InputStreamReader(Files.newInputStream(file.toPath()),
+                StandardCharsets.UTF_8))) {
+            json.beginArray();
+            while (json.hasNext()) {
+                String name = null;
+                long startMs = 0;
+                long durationMs = 0;
+                json.beginObject();
+                while (json.hasNext()) {
+                    switch (json.nextName()) {
+                        case "name":
+                            name = json.nextString();
+                            break;
+                        case "startMs":
+                            startMs = json.nextLong();
+                            break;
+                        case "durationMs":
+                            durationMs = json.nextLong();
+                            break;
+                        default:
+                            json.skipValue();
+                    }
+                }
+                json.endObject();
+                if (name != null) {
+                    result.add(new Section(name, startMs, durationMs));
+                }
+            }
+            json.endArray();
+        }
+        catch (IOException | IllegalStateException e) {
+            Log.w(TAG, "Could not read " + file, e);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+package com.yorha;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.List;
+
+/**
+ * Gives JS the {@link StartupTrace} of this launch and the one before, and lets it add its own
+ * steps, such as the first render of the app.
+ */
+public class StartupTraceModule extends StartupTraceSpec {
+    public static final String NAME = "YorhaStartupTrace";
+
+    StartupTraceModule(ReactApplicationContext context) {
+        super(context);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /** Records {@code name} now and writes the trace file again. */
+    @ReactMethod
+    public void mark(String name) {
+        StartupTrace.mark(name);
+        StartupTrace.dump();
+    }
+
+    /** Resolves with {current: [{name, startMs, durationMs}], previous: [...]}. */
+    @ReactMethod
+    public void getStartupTrace(Promise promise) {
+        WritableMap result = Arguments.createMap();
+        result.putArray("current", toArray(StartupTrace.getSections()));
+        result.putArray("previous", toArray(StartupTrace.readPrevious()));
+        promise.resolve(result);
+    }
+
+    private static WritableArray toArray(List<StartupTrace.Section> sections) {
+        WritableArray array = Arguments.createArray();
+        for (StartupTrace.Section section : sections) {
+            WritableMap map = Arguments.createMap();
+            map.putString("name", section.name);
+            map.putDouble("startMs", section.startMs);
+            map.putDouble("durationMs", section.durationMs);
+            array.pushMap(map);
+        }
+        return array;
+    }
+}
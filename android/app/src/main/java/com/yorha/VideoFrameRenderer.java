@@ -0,0 +1,71 @@
+package com.yorha;
+
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Renders one downscaled JPEG frame of a video with {@link MediaMetadataRetriever}. The frame is
+ * decoded straight at the target size, so a 1080p source never exists as a full size bitmap.
+ */
+final class VideoFrameRenderer implements ThumbnailCache.Renderer {
+    // Far enough in to skip logos and black intro frames, matches the old FFmpeg -ss 30.
+    private static final long PREFERRED_FRAME_US = 30_000_000L;
+    private static final int JPEG_QUALITY = 80;
+
+    private final String videoPath;
+    private final int maxWidth;
+    private final int maxHeight;
+
+    VideoFrameRenderer(String videoPath, int maxWidth, int maxHeight) {
+        this.videoPath = videoPath;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    @Override
+    public boolean render(File target) throws IOException {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        Bitmap frame = null;
+        try {
+            retriever.setDataSource(videoPath);
+            frame = retriever.getScaledFrameAtTime(frameTimeUs(retriever), MediaMetadataRetriever.OPTION_CLOSEST_SYNC,
+                    maxWidth, maxHeight);
+            if (frame == null) {
+                return false;
+            }
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(target))) {
+                return frame.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, output);
+            }
+        }
+        catch (IllegalArgumentException | IllegalStateException e) {
+            // Unsupported container or codec.
+            throw new IOException("Could not read a frame from " + videoPath, e);
+        }
+        finally {
+            if (frame != null) {
+                frame.recycle();
+            }
+            retriever.release();
+        }
+    }
+
+    private static long frameTimeUs(MediaMetadataRetriever retriever) {
+        String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+        if (duration == null) {
+            return PREFERRED_FRAME_US;
+        }
+        try {
+            long durationUs = Long.parseLong(duration) * 1000;
+            return durationUs > PREFERRED_FRAME_US * 2 ? PREFERRED_FRAME_US : durationUs / 3;
+        }
+        catch (NumberFormatException e) {
+            return PREFERRED_FRAME_US;
+        }
+    }
+}
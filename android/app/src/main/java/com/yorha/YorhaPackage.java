@@ -1,28 +1,110 @@
 package com.yorha; // replace your-app-name with your app’s name
-import com.facebook.react.ReactPackage;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.uimanager.ViewManager;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
-public class YorhaPackage implements ReactPackage {
+public class YorhaPackage extends TurboReactPackage {
 
+   @Nullable
    @Override
-   public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-       return Collections.emptyList();
+   public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+       long start = StartupTrace.now();
+       NativeModule module = createModule(name, reactContext);
+       if (module != null) {
+           StartupTrace.section("createModule:" + name, start);
+       }
+       return module;
    }
 
-   @Override
-   public List<NativeModule> createNativeModules(
-           ReactApplicationContext reactContext) {
-       List<NativeModule> modules = new ArrayList<>();
-
-       modules.add(new FilePathModule(reactContext));
+   @Nullable
+   private static NativeModule createModule(String name, ReactApplicationContext reactContext) {
+       if (name.equals(FilePathModule.NAME)) {
+           return new FilePathModule(reactContext);
+       }
+       if (name.equals(KeyValueStoreModule.NAME)) {
+           return new KeyValueStoreModule(reactContext);
+       }
+       if (name.equals(StartupTraceModule.NAME)) {
+           return new StartupTraceModule(reactContext);
+       }
+       if (name.equals(DownloadServiceModule.NAME)) {
+           return new DownloadServiceModule(reactContext);
+       }
+       if (name.equals(LogSinkModule.NAME)) {
+           return new LogSinkModule(reactContext);
+       }
+       return null;
+   }
 
-       return modules;
+   @Override
+   public ReactModuleInfoProvider getReactModuleInfoProvider() {
+       return () -> {
+           final Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+           boolean isTurboModule = BuildConfig.IS_NEW_ARCHITECTURE_ENABLED;
+           moduleInfos.put(
+                   FilePathModule.NAME,
+                   new ReactModuleInfo(
+                           FilePathModule.NAME,
+                           FilePathModule.class.getName(),
+                           false, // canOverrideExistingModule
+                           false, // needsEagerInit
+                           false, // hasConstants
+                           false, // isCxxModule
+                           isTurboModule // isTurboModule
+                   ));
+           moduleInfos.put(
+                   KeyValueStoreModule.NAME,
+                   new ReactModuleInfo(
+                           KeyValueStoreModule.NAME,
+                           KeyValueStoreModule.class.getName(),
+                           false, // canOverrideExistingModule
+                           false, // needsEagerInit
+                           false, // hasConstants
+                           false, // isCxxModule
+                           isTurboModule // isTurboModule
+                   ));
+           moduleInfos.put(
+                   StartupTraceModule.NAME,
+                   new ReactModuleInfo(
+                           StartupTraceModule.NAME,
+                           StartupTraceModule.class.getName(),
+                           false, // canOverrideExistingModule
+                           false, // needsEagerInit
+                           false, // hasConstants
+                           false, // isCxxModule
+                           isTurboModule // isTurboModule
+                   ));
+           moduleInfos.put(
+                   DownloadServiceModule.NAME,
+                   new ReactModuleInfo(
+                           DownloadServiceModule.NAME,
+                           DownloadServiceModule.class.getName(),
+                           false, // canOverrideExistingModule
+                           false, // needsEagerInit
+                           false, // hasConstants
+                           false, // isCxxModule
+                           isTurboModule // isTurboModule
+                   ));
+           moduleInfos.put(
+                   LogSinkModule.NAME,
+                   new ReactModuleInfo(
+                           LogSinkModule.NAME,
+                           LogSinkModule.class.getName(),
+                           false, // canOverrideExistingModule
+                           false, // needsEagerInit
+                           false, // hasConstants
+                           false, // isCxxModule
+                           isTurboModule // isTurboModule
+                   ));
+           return moduleInfos;
+       };
    }
 
-}
\ No newline at end of file
+}
@@ -19,6 +19,9 @@ import com.facebook.react.fabric.CoreComponentsRegistry;
 import com.facebook.react.fabric.FabricJSIModuleProvider;
 import com.facebook.react.fabric.ReactNativeConfig;
 import com.facebook.react.uimanager.ViewManagerRegistry;
+import com.horcrux.svg.SvgPackage;
+import com.yorha.StartupTrace;
+import com.yorha.YorhaPackage;
 import com.yorha.newarchitecture.components.MainComponentsRegistry;
 import com.yorha.newarchitecture.modules.MainApplicationTurboModuleManagerDelegate;
 import java.util.ArrayList;
@@ -44,6 +47,7 @@ public class MainApplicationReactNativeHost extends ReactNativeHost {
 
   @Override
   protected List<ReactPackage> getPackages() {
+    long start = StartupTrace.now();
     List<ReactPackage> packages = new PackageList(this).getPackages();
     // Packages that cannot be autolinked yet can be added manually here, for example:
     //     packages.add(new MyReactNativePackage());
@@ -51,6 +55,9 @@ public class MainApplicationReactNativeHost extends ReactNativeHost {
     //     packages.add(new TurboReactPackage() { ... });
     // If you have custom Fabric Components, their ViewManagers should also be loaded here
     // inside a ReactPackage.
+    packages.add(new YorhaPackage());
+    packages.add(new SvgPackage());
+    StartupTrace.section("getPackages", start);
     return packages;
   }
 
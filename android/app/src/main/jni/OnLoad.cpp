@@ -3,6 +3,7 @@
 #include <fbjni/fbjni.h>
 #include <react/renderer/componentregistry/ComponentDescriptorProviderRegistry.h>
 #include <rncli.h>
+#include <YorhaSpecs.h>
 
 namespace facebook {
 namespace react {
@@ -32,6 +33,12 @@ std::shared_ptr<TurboModule> provideModules(
   // }
   // return rncore_ModuleProvider(moduleName, params);
 
+  // FilePathModule and the other com.yorha modules, generated from specs/.
+  auto module = YorhaSpecs_ModuleProvider(name, params);
+  if (module != nullptr) {
+    return module;
+  }
+
   // By default we just use the module providers autolinked by RN CLI
   return rncli_ModuleProvider(name, params);
 }
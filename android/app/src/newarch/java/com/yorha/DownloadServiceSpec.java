@@ -0,0 +1,13 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture base for {@link DownloadServiceModule}. {@code NativeDownloadServiceSpec} is
+ * generated by codegen from specs/NativeDownloadService.ts.
+ */
+abstract class DownloadServiceSpec extends NativeDownloadServiceSpec {
+    DownloadServiceSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,14 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture base for {@link FilePathModule}. {@code NativeFilePathModuleSpec} is generated
+ * by codegen from specs/NativeFilePathModule.ts, so every method there must be implemented with a
+ * matching signature in {@link FilePathModule}.
+ */
+abstract class FilePathModuleSpec extends NativeFilePathModuleSpec {
+    FilePathModuleSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,13 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture base for {@link KeyValueStoreModule}. {@code NativeKeyValueStoreSpec} is
+ * generated by codegen from specs/NativeKeyValueStore.ts.
+ */
+abstract class KeyValueStoreSpec extends NativeKeyValueStoreSpec {
+    KeyValueStoreSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,13 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture base for {@link LogSinkModule}. {@code NativeLogSinkSpec} is generated by codegen
+ * from specs/NativeLogSink.ts.
+ */
+abstract class LogSinkSpec extends NativeLogSinkSpec {
+    LogSinkSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,13 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+
+/**
+ * New architecture base for {@link StartupTraceModule}. {@code NativeStartupTraceSpec} is
+ * generated by codegen from specs/NativeStartupTrace.ts.
+ */
+abstract class StartupTraceSpec extends NativeStartupTraceSpec {
+    StartupTraceSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
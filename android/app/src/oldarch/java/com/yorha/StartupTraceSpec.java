@@ -0,0 +1,14 @@
+package com.yorha;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+
+/**
+ * Old architecture base for {@link StartupTraceModule}. The new architecture source set provides
+ * a class with the same name that extends the codegen generated TurboModule spec instead.
+ */
+abstract class StartupTraceSpec extends ReactContextBaseJavaModule {
+    StartupTraceSpec(ReactApplicationContext context) {
+        super(context);
+    }
+}
@@ -0,0 +1,115 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking which episodes of a show folder exist, the case {@code statMany} was added for: every
+ * path as its own async module call against all of them in one. A module call is modelled as a
+ * hop onto a single native modules thread, which hands the work to the I/O pool and completes a
+ * future the caller waits on, the way {@code runOnIoThread} resolves a promise. Serializing
+ * arguments on the JS side isn't modelled, so the real gap is wider. A quarter of the paths are
+ * missing.
+ *
+ * <p>The calls are awaited one at a time. Issuing all of them at once isn't measured, because
+ * 1000 calls overflow the I/O queue and most are rejected with E_IO_BUSY.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileStatBenchmark {
+    @Param({"1000"})
+    public int files;
+
+    private File folder;
+    private String[] paths;
+    private ExecutorService bridge;
+    private FileIoExecutor executor;
+    private ScheduledExecutorService scheduler;
+    private FolderIndex index;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Fixtures.createTempDirectory("stat");
+        paths = new String[files];
+        for (int i = 0; i < files; i++) {
+            File file = new File(folder, Fixtures.episodeName(Fixtures.SHOWS[i % Fixtures.SHOWS.length], i, "1080p"));
+            if (i % 4 != 0) {
+                Fixtures.writeRandomFile(file, 1024, i);
+            }
+            paths[i] = file.getPath();
+        }
+        bridge = Executors.newSingleThreadExecutor();
+        executor = new FileIoExecutor("bench-stat");
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        index = new FolderIndex(scheduler, 50, changes -> {});
+        index.addRoot(folder.getPath());
+    }
+
+    @TearDown
+    public void tearDown() {
+        bridge.shutdownNow();
+        executor.shutdown();
+        scheduler.shutdownNow();
+        Fixtures.deleteRecursively(folder);
+    }
+
+    /** One module call: hop to the modules thread, run {@code task} on the I/O pool, wait for it. */
+    private <T> T call(FileIoExecutor.Task<T> task) throws ExecutionException, InterruptedException {
+        CompletableFuture<T> promise = new CompletableFuture<>();
+        bridge.execute(() -> executor.submit(null, task, new FileIoExecutor.Listener<T>() {
+            @Override
+            public void onSuccess(T result) {
+                promise.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                promise.completeExceptionally(error);
+            }
+        }));
+        return promise.get();
+    }
+
+    @Benchmark
+    public boolean[] callPerPath() throws ExecutionException, InterruptedException {
+        boolean[] exists = new boolean[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            String path = paths[i];
+            exists[i] = call(() -> new File(path).exists());
+        }
+        return exists;
+    }
+
+    @Benchmark
+    public FileStat[] batchedCall() throws ExecutionException, InterruptedException {
+        return call(() -> FileStat.statAll(paths, executor, executor.getParallelism()));
+    }
+
+    @Benchmark
+    public FileStat[] batchedCallIndexed() throws ExecutionException, InterruptedException {
+        return call(() -> FileStat.statAll(paths, index, executor, executor.getParallelism()));
+    }
+}
@@ -0,0 +1,90 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copying an episode out of a content URI: the channel copy for seekable sources, the buffered
+ * drain for pipes, and the byte[] stream loop {@code copyFile} used before {@link FileTransfer}.
+ * Every run starts from a missing target so nothing is resumed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FileTransferBenchmark {
+    private static final int MAX_LEGACY_BUFFER = 1024 * 1024;
+
+    @Param({"64"})
+    public int sizeMb;
+
+    private File folder;
+    private File source;
+    private File target;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Fixtures.createTempDirectory("copy");
+        source = Fixtures.writeRandomFile(new File(folder, "source.mkv"), sizeMb * (1L << 20), 1);
+        target = new File(folder, "target.mkv");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public long channelCopy() throws IOException, InterruptedException {
+        target.delete();
+        try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            return FileTransfer.copy(in, target, -1, (copied, total) -> {});
+        }
+    }
+
+    @Benchmark
+    public long streamChannelCopy() throws IOException, InterruptedException {
+        target.delete();
+        try (InputStream in = new FileInputStream(source)) {
+            return FileTransfer.copy(Channels.newChannel(in), target, source.length(), (copied, total) -> {});
+        }
+    }
+
+    @Benchmark
+    public long legacyStreamCopy() throws IOException {
+        target.delete();
+        long copied = 0;
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[Math.min(in.available(), MAX_LEGACY_BUFFER)];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                copied += read;
+            }
+        }
+        return copied;
+    }
+}
@@ -0,0 +1,90 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Files the benchmarks run against, generated so results don't depend on what happens to be on
+ * the machine. Everything is seeded, the same parameters always give the same bytes.
+ */
+final class Fixtures {
+    static final String[] SHOWS = {
+            "Frieren", "Dungeon Meshi", "Kusuriya no Hitorigoto", "Sousou no Frieren - Special",
+            "Ore dake Level Up na Ken", "Boku no Kokoro no Yabai Yatsu", "Mahou Shoujo ni Akogarete",
+            "Kingdom S5", "Shangri-La Frontier", "Yuru Camp S3",
+    };
+    static final String[] RESOLUTIONS = {"480p", "720p", "1080p"};
+
+    private Fixtures() {}
+
+    static File createTempDirectory(String prefix) throws IOException {
+        return Files.createTempDirectory("yorha-bench-" + prefix).toFile();
+    }
+
+    static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    static File writeRandomFile(File file, long size, long seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] chunk = new byte[1 << 20];
+        try (OutputStream out = new FileOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                out.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return file;
+    }
+
+    static String episodeName(String show, int episode, String resolution) {
+        return String.format("[SubsPlease] %s - %02d (%s) [%08X].mkv", show, episode, resolution,
+                (show + episode + resolution).hashCode());
+    }
+
+    /**
+     * A subtitle track the way SubsPlease releases come out of the extractor: every line repeated
+     * across a few back to back cues, drawn backgrounds, and signs.
+     */
+    static String vtt(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder vtt = new StringBuilder("WEBVTT\n\n");
+        long startMs = 0;
+        for (int line = 0; line < lines; line++) {
+            String text;
+            int kind = random.nextInt(10);
+            if (kind == 0) {
+                text = "m 0 0 l 0 " + random.nextInt(1000) + " l 640 " + random.nextInt(1000) + " l 640 0";
+            }
+            else if (kind == 1) {
+                text = "{=" + random.nextInt(100) + "}Sign " + line;
+            }
+            else {
+                text = "Line " + line + " of the dialogue,\nsplit over two rows " + random.nextInt(1000);
+            }
+            int repeats = 1 + random.nextInt(3);
+            for (int repeat = 0; repeat < repeats; repeat++) {
+                long endMs = startMs + 200 + random.nextInt(800);
+                vtt.append(timestamp(startMs)).append(" --> ").append(timestamp(endMs)).append('\n')
+                        .append(text).append("\n\n");
+                startMs = endMs;
+            }
+            startMs += random.nextInt(500);
+        }
+        return vtt.toString();
+    }
+
+    private static String timestamp(long ms) {
+        return String.format("%02d:%02d:%02d.%03d", ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+}
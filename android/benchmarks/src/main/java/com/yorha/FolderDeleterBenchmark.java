@@ -0,0 +1,78 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deleting a downloaded show folder, {@code shows} subfolders of {@code episodes} files each,
+ * with the parallel {@link FolderDeleter} against deleting one file at a time. The tree is
+ * rebuilt before every run, which is why this is single shot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+public class FolderDeleterBenchmark {
+    @Param({"20"})
+    public int shows;
+
+    @Param({"100"})
+    public int episodes;
+
+    private File parent;
+    private File root;
+    private FileIoExecutor executor;
+
+    @Setup
+    public void setUp() throws IOException {
+        parent = Fixtures.createTempDirectory("delete");
+        executor = new FileIoExecutor("bench-delete");
+    }
+
+    @Setup(Level.Invocation)
+    public void createTree() throws IOException {
+        root = new File(parent, "Shows");
+        for (int show = 0; show < shows; show++) {
+            File folder = new File(root, Fixtures.SHOWS[show % Fixtures.SHOWS.length] + " " + show);
+            folder.mkdirs();
+            for (int episode = 0; episode < episodes; episode++) {
+                Fixtures.writeRandomFile(new File(folder, Fixtures.episodeName(folder.getName(), episode, "720p")),
+                        4096, episode);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+        Fixtures.deleteRecursively(parent);
+    }
+
+    @Benchmark
+    public FolderDeleter.Result folderDeleter() throws InterruptedException {
+        return new FolderDeleter(executor, (deleted, total, freed, totalBytes) -> {}).delete(root.toPath());
+    }
+
+    @Benchmark
+    public boolean sequentialDelete() {
+        Fixtures.deleteRecursively(root);
+        return !root.exists();
+    }
+}
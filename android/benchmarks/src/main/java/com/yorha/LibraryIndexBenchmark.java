@@ -0,0 +1,85 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning a library of {@code files} episodes spread over show folders of 100: from scratch the
+ * way the first launch does, and again with nothing changed, which only stats the folders.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LibraryIndexBenchmark {
+    private static final int EPISODES_PER_SHOW = 100;
+
+    @Param({"50000"})
+    public int files;
+
+    private File folder;
+    private List<String> roots;
+    private File coldFile;
+    private LibraryIndex warm;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        folder = Fixtures.createTempDirectory("library");
+        File root = new File(folder, "SubsPlease");
+        // Old enough that the scan trusts the folder times instead of relisting them every time.
+        long settled = System.currentTimeMillis() - 60_000;
+        for (int show = 0; show * EPISODES_PER_SHOW < files; show++) {
+            File showFolder = new File(root, Fixtures.SHOWS[show % Fixtures.SHOWS.length] + " " + show);
+            showFolder.mkdirs();
+            for (int episode = 0; episode < EPISODES_PER_SHOW && show * EPISODES_PER_SHOW + episode < files; episode++) {
+                new File(showFolder, Fixtures.episodeName(showFolder.getName(), episode,
+                        Fixtures.RESOLUTIONS[episode % Fixtures.RESOLUTIONS.length])).createNewFile();
+            }
+            showFolder.setLastModified(settled);
+        }
+        root.setLastModified(settled);
+        roots = Collections.singletonList(root.getPath());
+
+        coldFile = new File(folder, "cold-index.bin");
+        warm = new LibraryIndex(new File(folder, "warm-index.bin"));
+        warm.scan(roots);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public LibraryIndex.ScanStats coldScan() throws IOException, InterruptedException {
+        coldFile.delete();
+        return new LibraryIndex(coldFile).scan(roots);
+    }
+
+    @Benchmark
+    public LibraryIndex.ScanStats incrementalScan() throws IOException, InterruptedException {
+        LibraryIndex.ScanStats stats = warm.scan(roots);
+        if (stats.directoriesListed != 0) {
+            throw new IllegalStateException(stats.directoriesListed + " folders were listed again");
+        }
+        return stats;
+    }
+}
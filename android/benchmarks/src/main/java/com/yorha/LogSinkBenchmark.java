@@ -0,0 +1,76 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Four threads logging as fast as they can, the way a burst of torrent progress from node and JS
+ * lands on the sink. The {@code accepted} counter is lines per second the writer kept up with,
+ * {@code dropped} is lines per second turned away because the ring was full.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class LogSinkBenchmark {
+    private File folder;
+    private LogSink sink;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Lines {
+        public long accepted;
+        public long dropped;
+        private long line;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            accepted = 0;
+            dropped = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Fixtures.createTempDirectory("log");
+        sink = new LogSink(new File(folder, "logs"), 8192, 2L * 1024 * 1024, 5, 500);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        sink.flush(10_000);
+        sink.close();
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public boolean log(Lines lines) {
+        boolean accepted = sink.log("info", "node", "Downloaded piece " + lines.line++ + " of [SubsPlease] Frieren - 01");
+        if (accepted) {
+            lines.accepted++;
+        }
+        else {
+            lines.dropped++;
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,65 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the subtitle track of an episode to VTT, once through the Cues index and once from a
+ * file without one, where every cluster header has to be walked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatroskaSubtitleExtractorBenchmark {
+    @Param({"true", "false"})
+    public boolean withCues;
+
+    // A 24 minute episode with a cluster every 5 seconds.
+    @Param({"288"})
+    public int clusters;
+
+    @Param({"256"})
+    public int videoKbPerCluster;
+
+    private File folder;
+    private File mkv;
+    private File vtt;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Fixtures.createTempDirectory("mkv");
+        mkv = MatroskaFixture.write(new File(folder, "episode.mkv"), clusters, videoKbPerCluster * 1024, withCues, 1);
+        vtt = new File(folder, "episode.vtt");
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public MatroskaSubtitleExtractor.Result extract() throws IOException, InterruptedException {
+        MatroskaSubtitleExtractor.Result result = MatroskaSubtitleExtractor.extract(mkv, vtt);
+        if (result == null || result.cues != clusters || result.usedCueIndex != withCues) {
+            throw new IllegalStateException("Unexpected extraction result");
+        }
+        return result;
+    }
+}
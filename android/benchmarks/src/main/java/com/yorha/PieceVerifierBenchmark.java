@@ -0,0 +1,98 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rechecking a finished download against its piece hashes with a pool of {@code threads}. The
+ * {@code bytes} counter is hashed bytes per second. The file is read once before measuring, so
+ * this is hashing speed from the page cache rather than disk speed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PieceVerifierBenchmark {
+    private static final long PIECE_LENGTH = 1 << 20;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"256"})
+    public int sizeMb;
+
+    private File folder;
+    private File file;
+    private byte[][] expected;
+    private ForkJoinPool pool;
+    private PieceVerifier verifier;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Hashed {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        folder = Fixtures.createTempDirectory("verify");
+        file = Fixtures.writeRandomFile(new File(folder, "episode.mkv"), sizeMb * (1L << 20), 1);
+        int pieces = (int) ((file.length() + PIECE_LENGTH - 1) / PIECE_LENGTH);
+        expected = new byte[pieces][];
+        MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+        byte[] piece = new byte[(int) PIECE_LENGTH];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            for (int i = 0; i < pieces; i++) {
+                int read = in.readNBytes(piece, 0, piece.length);
+                sha1.update(piece, 0, read);
+                expected[i] = sha1.digest();
+            }
+        }
+        pool = new ForkJoinPool(threads);
+        verifier = new PieceVerifier(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdownNow();
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public int verify(Hashed hashed) throws IOException, InterruptedException {
+        PieceVerifier.Result result = verifier.verify(file, PIECE_LENGTH, expected);
+        if (result.goodPieces != expected.length) {
+            throw new IllegalStateException("Only " + result.goodPieces + " of " + expected.length + " pieces matched");
+        }
+        hashed.bytes += result.bytesHashed;
+        return result.goodPieces;
+    }
+}
@@ -0,0 +1,65 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing a folder's worth of release names, against a single regex pulling out the same fields.
+ * One in ten names is not a SubsPlease release.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SubsPleaseNameBenchmark {
+    private static final Pattern RELEASE = Pattern.compile(
+            "^\\[SubsPlease\\] (.+) - (\\d+(?:\\.\\d+)?)(?:v(\\d+))? \\((\\d+p)\\) \\[([0-9A-Fa-f]{8})\\]\\.\\w+$");
+
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        names = new String[1000];
+        for (int i = 0; i < names.length; i++) {
+            String show = Fixtures.SHOWS[i % Fixtures.SHOWS.length];
+            names[i] = i % 10 == 9 ? show + " OST " + i + ".flac"
+                    : Fixtures.episodeName(show, i % 50, Fixtures.RESOLUTIONS[i % Fixtures.RESOLUTIONS.length]);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String name : names) {
+            blackhole.consume(SubsPleaseName.parse(name));
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (String name : names) {
+            Matcher matcher = RELEASE.matcher(name);
+            if (matcher.matches()) {
+                blackhole.consume(matcher.group(1));
+                blackhole.consume(matcher.group(2));
+                blackhole.consume(matcher.group(3));
+                blackhole.consume(matcher.group(4));
+                blackhole.consume(matcher.group(5));
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening the log viewer on a large log: a page from the middle, the tail, and reading the whole
+ * file line by line the way {@code readTextFile} does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TextFilePagerBenchmark {
+    private static final int PAGE_BYTES = 64 * 1024;
+
+    @Param({"16"})
+    public int sizeMb;
+
+    private File folder;
+    private File log;
+    private long offset;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Fixtures.createTempDirectory("text");
+        log = new File(folder, "yorha.log");
+        long size = sizeMb * (1L << 20);
+        try (Writer writer = Files.newBufferedWriter(log.toPath(), StandardCharsets.UTF_8)) {
+            for (long line = 0, written = 0; written < size; line++) {
+                String text = "2024-01-01 12:00:00.000 [info] [js] Downloaded piece " + line + " of ソードアート\n";
+                writer.write(text);
+                written += text.getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @Benchmark
+    public TextFilePager.Page readPage() throws IOException {
+        // Walk through the file so the page doesn't always start at the same boundary.
+        offset = (offset + PAGE_BYTES + 17) % log.length();
+        return TextFilePager.read(log, offset, PAGE_BYTES, true);
+    }
+
+    @Benchmark
+    public TextFilePager.Page tail() throws IOException {
+        return TextFilePager.tail(log, PAGE_BYTES);
+    }
+
+    @Benchmark
+    public String readWholeFile() throws IOException {
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new FileReader(log))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line);
+                text.append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
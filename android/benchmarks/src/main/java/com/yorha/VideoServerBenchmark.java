@@ -0,0 +1,133 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cast receiver seeking around an episode: eight clients on keep-alive connections, each asking
+ * for random {@code rangeKb} ranges of the file. Reports time per range request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class VideoServerBenchmark {
+    @Param({"1024"})
+    public int rangeKb;
+
+    @Param({"256"})
+    public int sizeMb;
+
+    private File folder;
+    private File video;
+    private String target;
+    private VideoServer server;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        folder = Fixtures.createTempDirectory("http");
+        video = Fixtures.writeRandomFile(new File(folder, "episode.mp4"), sizeMb * (1L << 20), 1);
+        target = "/video?file=" + URLEncoder.encode(video.getPath(), "UTF-8");
+        server = VideoServer.start(0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        Fixtures.deleteRecursively(folder);
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private final Random random = new Random();
+        private final byte[] body = new byte[64 * 1024];
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        @Setup
+        public void connect(VideoServerBenchmark benchmark) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), benchmark.server.getPort());
+            socket.setTcpNoDelay(true);
+            in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+            out = socket.getOutputStream();
+        }
+
+        @TearDown
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        long get(String target, long start, long end) throws IOException {
+            out.write(("GET " + target + " HTTP/1.1\r\nHost: localhost\r\nRange: bytes=" + start + "-" + end
+                    + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            String status = readLine();
+            if (status == null || !status.startsWith("HTTP/1.1 206")) {
+                throw new IOException("Unexpected response " + status);
+            }
+            long contentLength = -1;
+            String line;
+            while ((line = readLine()) != null && !line.isEmpty()) {
+                if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+                    contentLength = Long.parseLong(line.substring(15).trim());
+                }
+            }
+            long remaining = contentLength;
+            while (remaining > 0) {
+                int read = in.read(body, 0, (int) Math.min(body.length, remaining));
+                if (read < 0) {
+                    throw new IOException("Connection closed mid-body");
+                }
+                remaining -= read;
+            }
+            return contentLength;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return b == -1 && line.length() == 0 ? null : line.toString();
+        }
+    }
+
+    @Benchmark
+    public long rangeRequest(Client client) throws IOException {
+        long length = rangeKb * 1024L;
+        long start = (long) (client.random.nextDouble() * (video.length() - length));
+        return client.get(target, start, start + length - 1);
+    }
+}
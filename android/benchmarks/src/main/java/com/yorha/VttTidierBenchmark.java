@@ -0,0 +1,94 @@
+package com.yorha;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Tidying an extracted subtitle track in memory, against a line for line port of the Node
+ * {@code VttTidier} it replaced, whose duplicate search looks through every cue kept so far.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class VttTidierBenchmark {
+    private static final Pattern BACKGROUND = Pattern.compile("m 0 0 l 0 \\d{1,3} l \\d{1,3} \\d{1,3} l \\d{1,3} 0");
+    private static final Pattern SIGN = Pattern.compile("\\{=\\d+\\}");
+
+    @Param({"2000", "8000"})
+    public int lines;
+
+    private String vtt;
+
+    @Setup
+    public void setUp() {
+        vtt = Fixtures.vtt(lines, 1);
+    }
+
+    @Benchmark
+    public String tidy() throws IOException, InterruptedException {
+        StringWriter writer = new StringWriter(vtt.length());
+        VttTidier.tidy(new BufferedReader(new StringReader(vtt)), writer);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String legacyTidy() {
+        List<String[]> entries = new ArrayList<>();
+        String[] blocks = vtt.split("\n\n");
+        for (int i = 1; i < blocks.length; i++) {
+            int newline = blocks[i].indexOf('\n');
+            String time = newline < 0 ? blocks[i] : blocks[i].substring(0, newline);
+            String text = blocks[i].substring(newline + 1);
+            if (!text.isEmpty() && !time.isEmpty()) {
+                entries.add(new String[]{time, text});
+            }
+        }
+
+        List<String[]> deduped = new ArrayList<>();
+        for (String[] entry : entries) {
+            if (BACKGROUND.matcher(entry[1]).find()) {
+                continue;
+            }
+            String[] duplicate = null;
+            for (String[] dialog : deduped) {
+                if (dialog[1].equals(entry[1]) && dialog[0].split(" --> ")[1].equals(entry[0].split(" --> ")[0])) {
+                    duplicate = dialog;
+                    break;
+                }
+            }
+            if (duplicate != null) {
+                duplicate[0] = duplicate[0].split(" --> ")[0] + " --> " + entry[0].split(" --> ")[1];
+            }
+            else {
+                deduped.add(entry);
+            }
+        }
+
+        StringBuilder text = new StringBuilder("WEBVTT\n\n");
+        for (String[] dialog : deduped) {
+            text.append(dialog[0]).append('\n').append(SIGN.matcher(dialog[1]).replaceAll("[Sign] ")).append("\n\n");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,364 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Deletes downloaded episodes until every show folder, and all of them together, fit in their
+ * byte budgets. Episodes are taken from a heap ordered so that watched episodes go before
+ * unwatched ones, then least recently accessed first, then largest first; unwatched episodes are
+ * only removed when the policy allows it. Subtitle files next to an episode, e.g. the .vtt written
+ * for casting, are removed with it.
+ *
+ * <p>Only files directly inside a show folder are considered, which is where downloads are saved.
+ */
+final class DiskBudgetEvictor {
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+    private static final int MAX_REPORTED_FAILURES = 50;
+    private static final Set<String> VIDEO_EXTENSIONS = new HashSet<>(
+            Arrays.asList("mkv", "mp4", "avi", "webm", "m4v"));
+    // "[SubsPlease] Show Name - 05 (1080p) [ABCD1234].mkv", also "- 12.5" and "- 05v2".
+    private static final Pattern EPISODE = Pattern.compile(" - (\\d+(?:\\.\\d+)?)(?:v\\d+)?(?: |\\.|\\(|\\[|$)");
+
+    interface ProgressListener {
+        void onProgress(String path, long filesDeleted, long bytesFreed, long bytesToFree);
+    }
+
+    /** A show folder, its budget (0 or less for none) and the episode numbers already watched. */
+    static final class Root {
+        final File folder;
+        final long budgetBytes;
+        final Set<String> watchedEpisodes = new HashSet<>();
+
+        Root(File folder, long budgetBytes, Collection<String> watchedEpisodes) {
+            this.folder = folder;
+            this.budgetBytes = budgetBytes;
+            for (String episode : watchedEpisodes) {
+                this.watchedEpisodes.add(normalizeEpisode(episode));
+            }
+        }
+    }
+
+    static final class Policy {
+        // 0 or less for no global budget.
+        long globalBudgetBytes;
+        // Space to make for a download about to start in reserveFolder.
+        long reserveBytes;
+        File reserveFolder;
+        boolean evictUnwatched;
+        // Never deleted, e.g. files of downloads still in progress.
+        final Set<String> protectedPaths = new HashSet<>();
+    }
+
+    static final class Candidate {
+        final File file;
+        final List<File> sidecars;
+        final long size;
+        final long lastAccessMs;
+        final boolean watched;
+        final Usage usage;
+
+        Candidate(File file, List<File> sidecars, long size, long lastAccessMs, boolean watched, Usage usage) {
+            this.file = file;
+            this.sidecars = sidecars;
+            this.size = size;
+            this.lastAccessMs = lastAccessMs;
+            this.watched = watched;
+            this.usage = usage;
+        }
+    }
+
+    static final class Result {
+        final long filesDeleted;
+        final long bytesFreed;
+        final long bytesToFree;
+        final long usedBytes;
+        // Every budget is met. False when there was not enough left that could be deleted.
+        final boolean satisfied;
+        final List<Candidate> evicted;
+        final List<FolderDeleter.Failure> failures;
+        final int failureCount;
+
+        Result(long filesDeleted, long bytesFreed, long bytesToFree, long usedBytes, boolean satisfied,
+               List<Candidate> evicted, List<FolderDeleter.Failure> failures, int failureCount) {
+            this.filesDeleted = filesDeleted;
+            this.bytesFreed = bytesFreed;
+            this.bytesToFree = bytesToFree;
+            this.usedBytes = usedBytes;
+            this.satisfied = satisfied;
+            this.evicted = evicted;
+            this.failures = failures;
+            this.failureCount = failureCount;
+        }
+    }
+
+    // Bytes used in one show folder, including space reserved for a new download.
+    static final class Usage {
+        final Root root;
+        long usedBytes;
+
+        Usage(Root root) {
+            this.root = root;
+        }
+
+        long overBudget() {
+            return root.budgetBytes > 0 ? Math.max(0, usedBytes - root.budgetBytes) : 0;
+        }
+    }
+
+    static final Comparator<Candidate> EVICTION_ORDER = (a, b) -> {
+        if (a.watched != b.watched) {
+            return a.watched ? -1 : 1;
+        }
+        if (a.lastAccessMs != b.lastAccessMs) {
+            return Long.compare(a.lastAccessMs, b.lastAccessMs);
+        }
+        if (a.size != b.size) {
+            return Long.compare(b.size, a.size);
+        }
+        return a.file.getPath().compareTo(b.file.getPath());
+    };
+
+    private final ProgressListener listener;
+    private long lastReportNanos;
+
+    DiskBudgetEvictor(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    Result evict(List<Root> roots, Policy policy) throws InterruptedException {
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(64, EVICTION_ORDER);
+        List<Usage> usages = new ArrayList<>();
+        long globalUsed = 0;
+        for (Root root : roots) {
+            Usage usage = scan(root, policy, heap);
+            if (policy.reserveFolder != null && sameFolder(root.folder, policy.reserveFolder)) {
+                usage.usedBytes += policy.reserveBytes;
+            }
+            usages.add(usage);
+            globalUsed += usage.usedBytes;
+        }
+        if (policy.reserveFolder != null && !containsFolder(roots, policy.reserveFolder)) {
+            globalUsed += policy.reserveBytes;
+        }
+
+        long bytesToFree = bytesToFree(usages, globalUsed, policy);
+
+        List<Candidate> evicted = new ArrayList<>();
+        List<FolderDeleter.Failure> failures = new ArrayList<>();
+        int failureCount = 0;
+        long bytesFreed = 0;
+        while (!heap.isEmpty() && (globalOver(globalUsed, policy) > 0 || anyOver(usages))) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Freeing disk space was cancelled");
+            }
+            Candidate candidate = heap.poll();
+            if (globalOver(globalUsed, policy) <= 0 && candidate.usage.overBudget() <= 0) {
+                // Deleting this one would not bring any budget closer.
+                continue;
+            }
+            try {
+                long freed = delete(candidate);
+                candidate.usage.usedBytes -= freed;
+                globalUsed -= freed;
+                bytesFreed += freed;
+                evicted.add(candidate);
+            }
+            catch (IOException e) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(new FolderDeleter.Failure(candidate.file.getPath(), String.valueOf(e.getMessage())));
+                }
+                failureCount++;
+            }
+            report(candidate.file.getPath(), evicted.size(), bytesFreed, bytesToFree, false);
+        }
+        report(null, evicted.size(), bytesFreed, bytesToFree, true);
+        boolean satisfied = globalOver(globalUsed, policy) <= 0 && !anyOver(usages);
+        return new Result(evicted.size(), bytesFreed, bytesToFree, globalUsed, satisfied,
+                evicted, failures, failureCount);
+    }
+
+    /** Adds the episodes of {@code root} that may be deleted to {@code heap}, returns what it uses. */
+    private static Usage scan(Root root, Policy policy, PriorityQueue<Candidate> heap) {
+        Usage usage = new Usage(root);
+        File[] children = root.folder.listFiles();
+        if (children == null) {
+            return usage;
+        }
+        Map<String, List<File>> byBaseName = new HashMap<>();
+        Map<File, BasicFileAttributes> attributes = new HashMap<>();
+        for (File child : children) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(child.toPath(), BasicFileAttributes.class);
+            }
+            catch (IOException e) {
+                continue;
+            }
+            if (!attrs.isRegularFile()) {
+                continue;
+            }
+            usage.usedBytes += attrs.size();
+            attributes.put(child, attrs);
+            List<File> group = byBaseName.get(baseName(child.getName()));
+            if (group == null) {
+                group = new ArrayList<>();
+                byBaseName.put(baseName(child.getName()), group);
+            }
+            group.add(child);
+        }
+
+        for (List<File> group : byBaseName.values()) {
+            File video = null;
+            for (File file : group) {
+                if (VIDEO_EXTENSIONS.contains(extension(file.getName()))) {
+                    video = file;
+                    break;
+                }
+            }
+            if (video == null || policy.protectedPaths.contains(video.getPath())) {
+                continue;
+            }
+            String episode = episodeOf(video.getName());
+            boolean watched = episode != null && root.watchedEpisodes.contains(episode);
+            if (!watched && !policy.evictUnwatched) {
+                continue;
+            }
+            List<File> sidecars = new ArrayList<>();
+            long size = 0;
+            long lastAccessMs = 0;
+            for (File file : group) {
+                BasicFileAttributes attrs = attributes.get(file);
+                size += attrs.size();
+                lastAccessMs = Math.max(lastAccessMs, Math.max(attrs.lastAccessTime().toMillis(),
+                        attrs.lastModifiedTime().toMillis()));
+                if (file != video) {
+                    sidecars.add(file);
+                }
+            }
+            Collections.sort(sidecars);
+            heap.add(new Candidate(video, sidecars, size, lastAccessMs, watched, usage));
+        }
+        return usage;
+    }
+
+    private static long delete(Candidate candidate) throws IOException {
+        long freed = 0;
+        if (deleteIfExists(candidate.file)) {
+            freed += candidate.size;
+        }
+        for (File sidecar : candidate.sidecars) {
+            // The sidecar size is already included, a leftover one is not worth failing over.
+            deleteIfExists(sidecar);
+        }
+        return freed;
+    }
+
+    private static boolean deleteIfExists(File file) throws IOException {
+        try {
+            Files.delete(file.toPath());
+            return true;
+        }
+        catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static long globalOver(long globalUsed, Policy policy) {
+        return policy.globalBudgetBytes > 0 ? Math.max(0, globalUsed - policy.globalBudgetBytes) : 0;
+    }
+
+    private static boolean anyOver(List<Usage> usages) {
+        for (Usage usage : usages) {
+            if (usage.overBudget() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Freeing the per folder excess also counts towards the global budget, so the larger of the
+    // two totals is what has to go.
+    private static long bytesToFree(List<Usage> usages, long globalUsed, Policy policy) {
+        long perFolder = 0;
+        for (Usage usage : usages) {
+            perFolder += usage.overBudget();
+        }
+        return Math.max(perFolder, globalOver(globalUsed, policy));
+    }
+
+    private static boolean containsFolder(List<Root> roots, File folder) {
+        for (Root root : roots) {
+            if (sameFolder(root.folder, folder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameFolder(File a, File b) {
+        return a.getAbsoluteFile().toPath().normalize().equals(b.getAbsoluteFile().toPath().normalize());
+    }
+
+    private void report(String path, long filesDeleted, long bytesFreed, long bytesToFree, boolean force) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (force || now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+            lastReportNanos = now;
+            listener.onProgress(path, filesDeleted, bytesFreed, bytesToFree);
+        }
+    }
+
+    /** The episode number in a SubsPlease file name without leading zeros, or null. */
+    static String episodeOf(String fileName) {
+        SubsPleaseName parsed = SubsPleaseName.parse(fileName);
+        if (parsed != null) {
+            return parsed.episode;
+        }
+        // Release names the parser doesn't take, such as ones with extra tags after the hash.
+        Matcher matcher = EPISODE.matcher(fileName);
+        String episode = null;
+        // The show name itself may contain " - 2 ", the episode is the last match.
+        while (matcher.find()) {
+            episode = matcher.group(1);
+        }
+        return episode == null ? null : normalizeEpisode(episode);
+    }
+
+    static String normalizeEpisode(String episode) {
+        int start = 0;
+        while (start < episode.length() - 1 && episode.charAt(start) == '0' && episode.charAt(start + 1) != '.') {
+            start++;
+        }
+        return episode.substring(start);
+    }
+
+    private static String baseName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
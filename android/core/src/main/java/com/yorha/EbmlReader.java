@@ -0,0 +1,189 @@
+package com.yorha;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Positional reader for EBML, the binary format Matroska is built on. Nothing is read
+ * sequentially: callers ask for the element header or payload at an absolute offset, so large
+ * elements such as video clusters can be skipped without touching their contents. Small index
+ * elements can be {@link #load loaded} once and then parsed from memory with the same offsets.
+ */
+final class EbmlReader {
+    static final long UNKNOWN_SIZE = -1;
+
+    /** An element header. The payload starts at {@link #dataPosition}. */
+    static final class Element {
+        final int id;
+        final long position;
+        final long dataPosition;
+        // Payload length, or UNKNOWN_SIZE for live-streamed segments and clusters.
+        final long size;
+
+        Element(int id, long position, long dataPosition, long size) {
+            this.id = id;
+            this.position = position;
+            this.dataPosition = dataPosition;
+            this.size = size;
+        }
+
+        boolean hasKnownSize() {
+            return size != UNKNOWN_SIZE;
+        }
+
+        long end() {
+            return dataPosition + size;
+        }
+    }
+
+    private final FileChannel channel;
+    // Set for readers over a loaded element, positions are still absolute file offsets.
+    private final ByteBuffer memory;
+    private final long memoryPosition;
+    private final long length;
+    private final ByteBuffer header = ByteBuffer.allocate(12);
+    private long bytesRead;
+
+    EbmlReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        this.memory = null;
+        this.memoryPosition = 0;
+        this.length = channel.size();
+    }
+
+    private EbmlReader(ByteBuffer memory, long memoryPosition) {
+        this.channel = null;
+        this.memory = memory;
+        this.memoryPosition = memoryPosition;
+        this.length = memoryPosition + memory.limit();
+    }
+
+    /** Reads the whole of {@code element} with one call and returns a reader over the copy. */
+    EbmlReader load(Element element) throws IOException {
+        if (!element.hasKnownSize()) {
+            throw new IOException("Element 0x" + Integer.toHexString(element.id) + " has no size");
+        }
+        return new EbmlReader(read(element.dataPosition, (int) Math.min(element.size, length - element.dataPosition)),
+                element.dataPosition);
+    }
+
+    long length() {
+        return length;
+    }
+
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    /** Reads the element header at {@code position}, or returns null at the end of the file. */
+    Element readElement(long position) throws IOException {
+        if (position >= length) {
+            return null;
+        }
+        header.clear();
+        header.limit((int) Math.min(header.capacity(), length - position));
+        readFully(header, position);
+        header.flip();
+
+        int first = header.get(0) & 0xFF;
+        int idLength = Integer.numberOfLeadingZeros(first) - 23;
+        if (first == 0 || idLength > 4 || idLength > header.limit()) {
+            throw new IOException("Invalid EBML element ID at " + position);
+        }
+        int id = 0;
+        for (int i = 0; i < idLength; i++) {
+            id = (id << 8) | (header.get(i) & 0xFF);
+        }
+
+        if (idLength >= header.limit()) {
+            throw new EOFException("Truncated EBML element at " + position);
+        }
+        int sizeFirst = header.get(idLength) & 0xFF;
+        int sizeLength = Integer.numberOfLeadingZeros(sizeFirst) - 23;
+        if (sizeFirst == 0 || idLength + sizeLength > header.limit()) {
+            throw new IOException("Invalid EBML element size at " + position);
+        }
+        long size = sizeFirst & (0xFF >> sizeLength);
+        boolean allOnes = size == (0xFF >> sizeLength);
+        for (int i = 1; i < sizeLength; i++) {
+            int b = header.get(idLength + i) & 0xFF;
+            size = (size << 8) | b;
+            allOnes &= b == 0xFF;
+        }
+        return new Element(id, position, position + idLength + sizeLength, allOnes ? UNKNOWN_SIZE : size);
+    }
+
+    ByteBuffer readPayload(Element element) throws IOException {
+        if (!element.hasKnownSize() || element.size > Integer.MAX_VALUE) {
+            throw new IOException("Element 0x" + Integer.toHexString(element.id) + " is too large to read");
+        }
+        return read(element.dataPosition, (int) element.size);
+    }
+
+    ByteBuffer read(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        readFully(buffer, position);
+        buffer.flip();
+        return buffer;
+    }
+
+    long readUnsigned(Element element) throws IOException {
+        if (element.size > 8) {
+            throw new IOException("Integer element 0x" + Integer.toHexString(element.id) + " is too long");
+        }
+        ByteBuffer payload = readPayload(element);
+        long value = 0;
+        while (payload.hasRemaining()) {
+            value = (value << 8) | (payload.get() & 0xFF);
+        }
+        return value;
+    }
+
+    String readString(Element element) throws IOException {
+        ByteBuffer payload = readPayload(element);
+        int end = payload.limit();
+        // Strings may be zero padded.
+        while (end > 0 && payload.get(end - 1) == 0) {
+            end--;
+        }
+        return new String(payload.array(), 0, end, StandardCharsets.UTF_8);
+    }
+
+    /** Reads a variable length unsigned integer as used in block headers, marker bit removed. */
+    static long readVint(ByteBuffer buffer) throws IOException {
+        int first = buffer.get() & 0xFF;
+        int length = Integer.numberOfLeadingZeros(first) - 23;
+        if (first == 0 || length > 8) {
+            throw new IOException("Invalid EBML variable length integer");
+        }
+        long value = first & (0xFF >> length);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (buffer.get() & 0xFF);
+        }
+        return value;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        if (memory != null) {
+            long offset = position - memoryPosition;
+            if (offset < 0 || offset + buffer.remaining() > memory.limit()) {
+                throw new EOFException("Read outside of loaded element at " + position);
+            }
+            ByteBuffer source = memory.duplicate();
+            source.position((int) offset).limit((int) offset + buffer.remaining());
+            buffer.put(source);
+            return;
+        }
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of file at " + position);
+            }
+            position += read;
+            bytesRead += read;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.yorha;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small LRU of recent existence checks so JS can ask synchronously whether a path exists
+ * without touching the filesystem on the JS thread. Entries expire after a short TTL and are
+ * dropped whenever this module deletes or creates something under them.
+ */
+final class FileExistsCache {
+    private static final int MAX_ENTRIES = 2048;
+    private static final long TTL_MS = 10_000;
+
+    private static final class Entry {
+        final boolean exists;
+        final long checkedAt;
+
+        Entry(boolean exists, long checkedAt) {
+            this.exists = exists;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    synchronized void put(String path, boolean exists) {
+        entries.put(path, new Entry(exists, System.currentTimeMillis()));
+    }
+
+    /**
+     * @return the cached answer, or null when the path is unknown or the entry has expired
+     */
+    synchronized Boolean get(String path) {
+        Entry entry = entries.get(path);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.checkedAt > TTL_MS) {
+            entries.remove(path);
+            return null;
+        }
+        return entry.exists;
+    }
+
+    /** Removes {@code path} and everything cached below it. */
+    synchronized void invalidate(String path) {
+        String childPrefix = path.endsWith(File.separator) ? path : path + File.separator;
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            String cachedPath = iterator.next();
+            if (cachedPath.equals(path) || cachedPath.startsWith(childPrefix)) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.yorha;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of named threads that runs blocking file work off the React Native
+ * native-modules thread. Calls can be tagged with an id so JS can cancel them, and
+ * queue depth / latency counters are kept for diagnostics.
+ */
+class FileIoExecutor {
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    interface Task<T> {
+        T run() throws Exception;
+    }
+
+    interface Listener<T> {
+        void onSuccess(T result);
+
+        void onFailure(Throwable error);
+    }
+
+    static final class Stats {
+        final int threads;
+        final int active;
+        final int queued;
+        final long completed;
+        final long failed;
+        final long cancelled;
+        final long rejected;
+        final double averageLatencyMs;
+        final double maxLatencyMs;
+
+        private Stats(int threads, int active, int queued, long completed, long failed, long cancelled,
+                      long rejected, double averageLatencyMs, double maxLatencyMs) {
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.averageLatencyMs = averageLatencyMs;
+            this.maxLatencyMs = maxLatencyMs;
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, IoTask<?>> pendingCalls = new ConcurrentHashMap<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    FileIoExecutor(final String name) {
+        this(name, Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    FileIoExecutor(final String name, int threads) {
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(QUEUE_CAPACITY), new ThreadFactory() {
+                    private final AtomicInteger threadCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues {@code task} and reports its outcome to {@code listener} exactly once. When
+     * {@code callId} is non-null the call can later be stopped with {@link #cancel(String)}.
+     */
+    <T> void submit(String callId, Task<T> task, Listener<T> listener) {
+        IoTask<T> ioTask = new IoTask<>(callId, task, listener);
+        if (callId != null) {
+            IoTask<?> previous = pendingCalls.put(callId, ioTask);
+            if (previous != null) {
+                previous.cancel(true);
+            }
+        }
+        try {
+            executor.execute(ioTask);
+        }
+        catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            if (callId != null) {
+                pendingCalls.remove(callId, ioTask);
+            }
+            listener.onFailure(e);
+        }
+    }
+
+    interface IndexedTask {
+        void run(int index);
+    }
+
+    /**
+     * Runs {@code task} for every index in {@code [0, count)} using up to {@code parallelism}
+     * threads. The calling thread always takes part, so this completes even when the pool is
+     * saturated and never waits on a helper that has not started. Interrupting the calling thread
+     * skips the remaining indices and throws once in-flight ones have finished.
+     */
+    void parallelFor(final int count, int parallelism, final IndexedTask task) throws InterruptedException {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch remaining = new CountDownLatch(count);
+        final AtomicBoolean stopped = new AtomicBoolean();
+
+        Runnable worker = () -> {
+            int index;
+            while ((index = nextIndex.getAndIncrement()) < count) {
+                try {
+                    if (!stopped.get()) {
+                        task.run(index);
+                    }
+                }
+                finally {
+                    remaining.countDown();
+                }
+            }
+        };
+
+        int helpers = Math.min(parallelism, count) - 1;
+        for (int i = 0; i < helpers; i++) {
+            if (!tryExecute(worker)) {
+                break;
+            }
+        }
+
+        int index;
+        while ((index = nextIndex.getAndIncrement()) < count) {
+            try {
+                if (Thread.currentThread().isInterrupted()) {
+                    stopped.set(true);
+                }
+                if (!stopped.get()) {
+                    task.run(index);
+                }
+            }
+            finally {
+                remaining.countDown();
+            }
+        }
+
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                remaining.await();
+                break;
+            }
+            catch (InterruptedException e) {
+                interrupted = true;
+                stopped.set(true);
+            }
+        }
+        if (interrupted || stopped.get()) {
+            throw new InterruptedException("Parallel file work was cancelled");
+        }
+    }
+
+    /**
+     * Runs a helper job on the pool if there is room for it. Used to fan work out from a task
+     * that is itself running on the pool, so it must never wait for the helper to start.
+     */
+    private boolean tryExecute(Runnable runnable) {
+        if (executor.getQueue().remainingCapacity() == 0) {
+            return false;
+        }
+        try {
+            executor.execute(runnable);
+            return true;
+        }
+        catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    int getParallelism() {
+        return executor.getMaximumPoolSize();
+    }
+
+    boolean cancel(String callId) {
+        IoTask<?> ioTask = pendingCalls.get(callId);
+        return ioTask != null && ioTask.cancel(true);
+    }
+
+    Stats getStats() {
+        long done = completed.get() + failed.get();
+        double averageLatencyMs = done == 0 ? 0 : totalLatencyNanos.get() / (double) done / 1_000_000d;
+        return new Stats(executor.getPoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                completed.get(), failed.get(), cancelled.get(), rejected.get(), averageLatencyMs,
+                maxLatencyNanos.get() / 1_000_000d);
+    }
+
+    void shutdown() {
+        for (IoTask<?> ioTask : pendingCalls.values()) {
+            ioTask.cancel(true);
+        }
+        executor.shutdownNow();
+    }
+
+    private final class IoTask<T> extends FutureTask<T> {
+        private final String callId;
+        private final Listener<T> listener;
+        private final long queuedAt = System.nanoTime();
+
+        IoTask(String callId, Task<T> task, Listener<T> listener) {
+            super(task::run);
+            this.callId = callId;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void done() {
+            if (callId != null) {
+                pendingCalls.remove(callId, this);
+            }
+            if (isCancelled()) {
+                cancelled.incrementAndGet();
+                listener.onFailure(new CancellationException("Call " + callId + " was cancelled"));
+                return;
+            }
+
+            long latency = System.nanoTime() - queuedAt;
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            try {
+                T result = get();
+                completed.incrementAndGet();
+                listener.onSuccess(result);
+            }
+            catch (ExecutionException e) {
+                failed.incrementAndGet();
+                listener.onFailure(e.getCause());
+            }
+            catch (InterruptedException e) {
+                failed.incrementAndGet();
+                listener.onFailure(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.yorha;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Result of a single stat call. Missing or unreadable paths are reported with
+ * {@code exists == false} rather than an exception so a batch never fails as a whole.
+ */
+final class FileStat {
+    final String path;
+    final boolean exists;
+    final boolean isDirectory;
+    final long size;
+    final long lastModified;
+
+    private FileStat(String path, boolean exists, boolean isDirectory, long size, long lastModified) {
+        this.path = path;
+        this.exists = exists;
+        this.isDirectory = isDirectory;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    static FileStat stat(String path) {
+        try {
+            // One stat syscall instead of the three File.exists/length/lastModified would cost.
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+            return new FileStat(path, true, attributes.isDirectory(), attributes.size(),
+                    attributes.lastModifiedTime().toMillis());
+        }
+        catch (IOException | InvalidPathException | SecurityException e) {
+            return missing(path);
+        }
+    }
+
+    static FileStat missing(String path) {
+        return new FileStat(path, false, false, 0, 0);
+    }
+
+    /** The same result reported under another spelling of the path. */
+    FileStat withPath(String otherPath) {
+        return otherPath.equals(path) ? this : new FileStat(otherPath, exists, isDirectory, size, lastModified);
+    }
+
+    /** Stats every path, spread over up to {@code parallelism} threads of {@code executor}. */
+    static FileStat[] statAll(final String[] paths, FileIoExecutor executor, int parallelism) throws InterruptedException {
+        return statAll(paths, null, executor, parallelism);
+    }
+
+    /** Like {@link #statAll(String[], FileIoExecutor, int)}, answering from {@code index} where it can. */
+    static FileStat[] statAll(final String[] paths, final FolderIndex index, FileIoExecutor executor, int parallelism)
+            throws InterruptedException {
+        final FileStat[] results = new FileStat[paths.length];
+        executor.parallelFor(paths.length, parallelism, i -> {
+            FileStat known = index == null ? null : index.lookup(paths[i]);
+            results[i] = known != null ? known : stat(paths[i]);
+        });
+        return results;
+    }
+}
@@ -0,0 +1,157 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Copies large files with {@link FileChannel#transferFrom} so the kernel moves the bytes, and
+ * falls back to a reusable 1 MB direct buffer when the source is not a regular file. Copies from
+ * a seekable source resume from whatever prefix of the target is already on disk.
+ */
+final class FileTransfer {
+    static final int BUFFER_SIZE = 1 << 20;
+    // Transfer in chunks so progress can be reported and cancellation noticed.
+    private static final long TRANSFER_CHUNK = 8L << 20;
+    // How much of an existing partial target is compared with the source before resuming.
+    private static final int RESUME_CHECK_BYTES = 4096;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    interface ProgressListener {
+        void onProgress(long bytesCopied, long totalBytes);
+    }
+
+    private FileTransfer() {}
+
+    /**
+     * Copies {@code source} into {@code target}. When {@code totalBytes} is negative the source
+     * size is taken from the channel.
+     *
+     * @return the number of bytes in {@code target} once the copy has finished
+     */
+    static long copy(FileChannel source, File target, long totalBytes, ProgressListener listener)
+            throws IOException, InterruptedException {
+        long size = totalBytes >= 0 ? totalBytes : source.size();
+        long position = resumeOffset(source, target, size);
+
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            out.truncate(position);
+            Progress progress = new Progress(listener, size);
+            source.position(position);
+            while (position < size) {
+                checkInterrupted(target);
+                long transferred = out.transferFrom(source, position, Math.min(TRANSFER_CHUNK, size - position));
+                if (transferred <= 0) {
+                    // Some providers hand out channels that transferFrom can't drive, finish with a buffer.
+                    out.position(position);
+                    return drain(source, out, position, size, progress, target);
+                }
+                position += transferred;
+                progress.update(position);
+            }
+            progress.finish(position);
+            return position;
+        }
+    }
+
+    /**
+     * Copies a non seekable source such as a pipe from a content provider. There is no way to skip
+     * ahead in such a source, so the target is always rewritten from the start.
+     */
+    static long copy(ReadableByteChannel source, File target, long totalBytes, ProgressListener listener)
+            throws IOException, InterruptedException {
+        try (FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return drain(source, out, 0, totalBytes, new Progress(listener, totalBytes), target);
+        }
+    }
+
+    private static long drain(ReadableByteChannel source, FileChannel out, long position, long totalBytes,
+                              Progress progress, File target) throws IOException, InterruptedException {
+        ByteBuffer buffer = BUFFERS.get();
+        buffer.clear();
+        while (source.read(buffer) != -1) {
+            checkInterrupted(target);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += out.write(buffer);
+            }
+            buffer.clear();
+            progress.update(position);
+        }
+        progress.finish(position);
+        return position;
+    }
+
+    /**
+     * Returns where a copy into {@code target} can pick up from. A partial target is only trusted
+     * when its last few KB match the source, otherwise the copy starts over.
+     */
+    static long resumeOffset(FileChannel source, File target, long size) throws IOException {
+        long existing = target.length();
+        if (existing <= 0 || existing > size) {
+            return 0;
+        }
+        int checkLength = (int) Math.min(RESUME_CHECK_BYTES, existing);
+        long checkStart = existing - checkLength;
+        ByteBuffer expected = ByteBuffer.allocate(checkLength);
+        ByteBuffer actual = ByteBuffer.allocate(checkLength);
+        try (FileChannel partial = FileChannel.open(target.toPath(), StandardOpenOption.READ)) {
+            readFully(source, expected, checkStart);
+            readFully(partial, actual, checkStart);
+        }
+        expected.flip();
+        actual.flip();
+        return expected.equals(actual) ? existing : 0;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    private static void checkInterrupted(File target) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Copy to " + target + " was cancelled");
+        }
+    }
+
+    private static final class Progress {
+        private final ProgressListener listener;
+        private final long totalBytes;
+        private long lastReportNanos;
+
+        Progress(ProgressListener listener, long totalBytes) {
+            this.listener = listener;
+            this.totalBytes = totalBytes;
+        }
+
+        void update(long bytesCopied) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (now - lastReportNanos >= PROGRESS_INTERVAL_NANOS) {
+                lastReportNanos = now;
+                listener.onProgress(bytesCopied, totalBytes);
+            }
+        }
+
+        void finish(long bytesCopied) {
+            if (listener != null) {
+                listener.onProgress(bytesCopied, totalBytes < 0 ? bytesCopied : totalBytes);
+            }
+        }
+    }
+}
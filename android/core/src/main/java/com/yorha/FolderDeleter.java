@@ -0,0 +1,182 @@
+package com.yorha;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes a file or directory tree. The tree is walked once to find every file and its size,
+ * files are then deleted in parallel on the I/O pool (unlinks over SD card FUSE are slow and
+ * independent), and finally the now empty directories are removed deepest first. Symlinks are
+ * removed, never followed.
+ */
+final class FolderDeleter {
+    // Enough failures to show the user what went wrong without building an unbounded list.
+    private static final int MAX_REPORTED_FAILURES = 50;
+    private static final long PROGRESS_INTERVAL_NANOS = 250_000_000L;
+
+    interface ProgressListener {
+        void onProgress(long filesDeleted, long totalFiles, long bytesFreed, long totalBytes);
+    }
+
+    static final class Failure {
+        final String path;
+        final String message;
+
+        Failure(String path, String message) {
+            this.path = path;
+            this.message = message;
+        }
+    }
+
+    static final class Result {
+        final boolean deleted;
+        final long filesDeleted;
+        final long totalFiles;
+        final long bytesFreed;
+        final long totalBytes;
+        final List<Failure> failures;
+        final int failureCount;
+
+        Result(boolean deleted, long filesDeleted, long totalFiles, long bytesFreed, long totalBytes,
+               List<Failure> failures, int failureCount) {
+            this.deleted = deleted;
+            this.filesDeleted = filesDeleted;
+            this.totalFiles = totalFiles;
+            this.bytesFreed = bytesFreed;
+            this.totalBytes = totalBytes;
+            this.failures = failures;
+            this.failureCount = failureCount;
+        }
+    }
+
+    private final FileIoExecutor executor;
+    private final ProgressListener listener;
+    private final List<Failure> failures = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong bytesFreed = new AtomicLong();
+    private final AtomicLong lastReportNanos = new AtomicLong();
+
+    FolderDeleter(FileIoExecutor executor, ProgressListener listener) {
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /** Deletes {@code root} and everything below it. A missing root counts as deleted. */
+    Result delete(Path root) throws InterruptedException {
+        final List<Path> files = new ArrayList<>();
+        final List<Long> sizes = new ArrayList<>();
+        final List<Path> directories = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    files.add(file);
+                    sizes.add(attrs.isRegularFile() ? attrs.size() : 0L);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (!(e instanceof NoSuchFileException)) {
+                        recordFailure(file, e);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                    if (e != null) {
+                        recordFailure(dir, e);
+                    }
+                    directories.add(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (InterruptedIOException e) {
+            throw new InterruptedException("Deleting " + root + " was cancelled");
+        }
+        catch (IOException e) {
+            recordFailure(root, e);
+        }
+
+        long totalBytes = 0;
+        for (long size : sizes) {
+            totalBytes += size;
+        }
+        final long totalFiles = files.size();
+        final long finalTotalBytes = totalBytes;
+
+        executor.parallelFor(files.size(), executor.getParallelism(), index -> {
+            Path file = files.get(index);
+            try {
+                Files.deleteIfExists(file);
+                filesDeleted.incrementAndGet();
+                bytesFreed.addAndGet(sizes.get(index));
+                reportProgress(totalFiles, finalTotalBytes, false);
+            }
+            catch (IOException | SecurityException e) {
+                recordFailure(file, e);
+            }
+        });
+
+        // postVisitDirectory order already puts children before their parents.
+        for (Path directory : directories) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Deleting " + root + " was cancelled");
+            }
+            try {
+                Files.deleteIfExists(directory);
+            }
+            catch (IOException | SecurityException e) {
+                recordFailure(directory, e);
+            }
+        }
+        reportProgress(totalFiles, finalTotalBytes, true);
+
+        List<Failure> reportedFailures;
+        synchronized (failures) {
+            reportedFailures = new ArrayList<>(failures);
+        }
+        return new Result(!Files.exists(root, LinkOption.NOFOLLOW_LINKS), filesDeleted.get(),
+                totalFiles, bytesFreed.get(), finalTotalBytes, reportedFailures, (int) failureCount.get());
+    }
+
+    private void recordFailure(Path path, Exception e) {
+        if (failureCount.incrementAndGet() <= MAX_REPORTED_FAILURES) {
+            failures.add(new Failure(path.toString(), e.getClass().getSimpleName() + ": " + e.getMessage()));
+        }
+    }
+
+    private void reportProgress(long totalFiles, long totalBytes, boolean force) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastReportNanos.get();
+        if (force || (now - last >= PROGRESS_INTERVAL_NANOS && lastReportNanos.compareAndSet(last, now))) {
+            listener.onProgress(filesDeleted.get(), totalFiles, bytesFreed.get(), totalBytes);
+        }
+    }
+}
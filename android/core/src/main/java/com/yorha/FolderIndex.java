@@ -0,0 +1,339 @@
+package com.yorha;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory listing of a set of watched folders, such as the saved show folders. Once a folder
+ * is listed, questions about its direct children are answered without touching the filesystem,
+ * and a name missing from the listing is a definite "does not exist". The index is kept current
+ * by {@link #onEvent} calls from a file watcher. Those are cheap: they only mark a path as
+ * dirty. Dirty paths are re-stat'ed together after a short delay, and the net change of each one
+ * is reported in a single batch, so a download writing thousands of blocks shows up as one
+ * "modified" change.
+ *
+ * <p>Listing and stat calls never happen while the index is locked. {@link #lookup} is called from
+ * the JS thread, so it must not wait behind a large folder being listed again.
+ */
+final class FolderIndex {
+    static final String ADDED = "added";
+    static final String DELETED = "deleted";
+    static final String MODIFIED = "modified";
+
+    static final class Change {
+        final String type;
+        final FileStat stat;
+
+        Change(String type, FileStat stat) {
+            this.type = type;
+            this.stat = stat;
+        }
+    }
+
+    static final class Stats {
+        final int roots;
+        final int entries;
+        final long hits;
+        final long negativeHits;
+        final long misses;
+        final long changes;
+
+        Stats(int roots, int entries, long hits, long negativeHits, long misses, long changes) {
+            this.roots = roots;
+            this.entries = entries;
+            this.hits = hits;
+            this.negativeHits = negativeHits;
+            this.misses = misses;
+            this.changes = changes;
+        }
+    }
+
+    interface Listener {
+        void onChanges(List<Change> changes);
+    }
+
+    private static final class Dirty {
+        // What the index said about the path when it was first marked, null if absent.
+        final FileStat before;
+        // Bumped by every event, so a flush can tell whether the path changed while it was stat'ed.
+        int marks;
+
+        Dirty(FileStat before) {
+            this.before = before;
+        }
+    }
+
+    private final ScheduledExecutorService scheduler;
+    private final long coalesceMs;
+    private final Listener listener;
+    // Watched folder -> its children by name, or null while the folder itself does not exist.
+    private final Map<String, Map<String, FileStat>> roots = new HashMap<>();
+    // Paths with events that haven't been applied yet.
+    private final Map<String, Dirty> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> flush = null;
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long changes;
+
+    FolderIndex(ScheduledExecutorService scheduler, long coalesceMs, Listener listener) {
+        this.scheduler = scheduler;
+        this.coalesceMs = coalesceMs;
+        this.listener = listener;
+    }
+
+    static String normalize(String path) {
+        return new File(path).getPath();
+    }
+
+    /** Starts indexing {@code root}, listing it right away. Returns false if it was already indexed. */
+    boolean addRoot(String root) {
+        root = normalize(root);
+        synchronized (this) {
+            if (roots.containsKey(root)) {
+                return false;
+            }
+        }
+        Map<String, FileStat> children = list(root);
+        synchronized (this) {
+            if (roots.containsKey(root)) {
+                // Added by another call while this one was listing.
+                return false;
+            }
+            roots.put(root, children);
+            return true;
+        }
+    }
+
+    synchronized void removeRoot(String root) {
+        root = normalize(root);
+        roots.remove(root);
+        String childPrefix = root + File.separator;
+        pending.keySet().removeIf(path -> path.startsWith(childPrefix));
+    }
+
+    synchronized Set<String> getRoots() {
+        return new HashSet<>(roots.keySet());
+    }
+
+    /**
+     * Lists {@code root} again and reports whatever differs from the index. Used when events may
+     * have been missed, e.g. the folder itself was deleted or the app was in the background.
+     */
+    void rescan(String root) {
+        root = normalize(root);
+        synchronized (this) {
+            if (!roots.containsKey(root)) {
+                return;
+            }
+        }
+        Map<String, FileStat> current = list(root);
+        synchronized (this) {
+            if (!roots.containsKey(root)) {
+                // Removed while it was being listed.
+                return;
+            }
+            Map<String, FileStat> previous = roots.get(root);
+            Set<String> names = new HashSet<>();
+            if (previous != null) {
+                names.addAll(previous.keySet());
+            }
+            if (current != null) {
+                names.addAll(current.keySet());
+            }
+            for (String name : names) {
+                markDirty(root + File.separator + name, previous == null ? null : previous.get(name));
+            }
+            roots.put(root, current);
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Marks a child of {@code root} as changed. {@code name} is null when the event concerns the
+     * folder itself, which is then listed again.
+     */
+    void onEvent(String root, String name) {
+        root = normalize(root);
+        if (name == null) {
+            rescan(root);
+            return;
+        }
+        synchronized (this) {
+            if (!roots.containsKey(root)) {
+                return;
+            }
+            Map<String, FileStat> children = roots.get(root);
+            markDirty(root + File.separator + name, children == null ? null : children.get(name));
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Answers for a watched folder or one of its direct children, or returns null when the path
+     * is not covered by the index or has a change that hasn't been applied yet.
+     */
+    FileStat lookup(String path) {
+        String normalized = normalize(path);
+        File file = new File(normalized);
+        String parent = file.getParent();
+        synchronized (this) {
+            if (roots.containsKey(normalized)) {
+                hits++;
+                if (roots.get(normalized) == null) {
+                    return FileStat.missing(path);
+                }
+                // Only the children are indexed, the folder's own size and time are stat'ed below.
+            }
+            else if (parent == null || !roots.containsKey(parent) || pending.containsKey(normalized)) {
+                misses++;
+                return null;
+            }
+            else {
+                Map<String, FileStat> children = roots.get(parent);
+                FileStat stat = children == null ? null : children.get(file.getName());
+                if (stat == null) {
+                    negativeHits++;
+                    return FileStat.missing(path);
+                }
+                hits++;
+                return stat.withPath(path);
+            }
+        }
+        return FileStat.stat(path);
+    }
+
+    synchronized Stats getStats() {
+        int entries = 0;
+        for (Map<String, FileStat> children : roots.values()) {
+            if (children != null) {
+                entries += children.size();
+            }
+        }
+        return new Stats(roots.size(), entries, hits, negativeHits, misses, changes);
+    }
+
+    /** Applies every pending change now and reports it, instead of waiting for the delay. */
+    void flush() {
+        List<String> paths;
+        List<Dirty> dirties;
+        int[] marks;
+        synchronized (this) {
+            flush = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            paths = new ArrayList<>(pending.keySet());
+            dirties = new ArrayList<>(pending.values());
+            marks = new int[dirties.size()];
+            for (int i = 0; i < marks.length; i++) {
+                marks[i] = dirties.get(i).marks;
+            }
+        }
+
+        FileStat[] stats = new FileStat[paths.size()];
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = FileStat.stat(paths.get(i));
+        }
+
+        List<Change> batch = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < stats.length; i++) {
+                String path = paths.get(i);
+                Dirty dirty = dirties.get(i);
+                if (pending.get(path) != dirty) {
+                    // Its root was removed, or another flush got to it first.
+                    continue;
+                }
+                FileStat after = apply(path, stats[i]);
+                if (dirty.marks == marks[i]) {
+                    pending.remove(path);
+                }
+                else {
+                    // Changed again while it was being stat'ed, check it once more from here.
+                    pending.put(path, new Dirty(after));
+                }
+                Change change = change(path, dirty.before, after);
+                if (change != null) {
+                    batch.add(change);
+                }
+            }
+            changes += batch.size();
+            scheduleFlush();
+        }
+        // Outside the lock so listeners can query the index.
+        if (!batch.isEmpty()) {
+            listener.onChanges(Collections.unmodifiableList(batch));
+        }
+    }
+
+    /** Stores {@code stat} in the listing of the path's folder and returns what the index now holds. */
+    private FileStat apply(String path, FileStat stat) {
+        File file = new File(path);
+        Map<String, FileStat> children = roots.get(file.getParent());
+        if (children == null) {
+            return null;
+        }
+        if (stat.exists) {
+            children.put(file.getName(), stat);
+            return stat;
+        }
+        children.remove(file.getName());
+        return null;
+    }
+
+    private static Change change(String path, FileStat before, FileStat after) {
+        if (before == null) {
+            return after == null ? null : new Change(ADDED, after);
+        }
+        if (after == null) {
+            return new Change(DELETED, FileStat.missing(path));
+        }
+        if (before.size != after.size || before.lastModified != after.lastModified
+                || before.isDirectory != after.isDirectory) {
+            return new Change(MODIFIED, after);
+        }
+        return null;
+    }
+
+    private void markDirty(String path, FileStat before) {
+        Dirty dirty = pending.get(path);
+        if (dirty == null) {
+            pending.put(path, new Dirty(before));
+        }
+        else {
+            dirty.marks++;
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flush == null && !pending.isEmpty()) {
+            flush = scheduler.schedule(this::flush, coalesceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static Map<String, FileStat> list(String root) {
+        String[] names = new File(root).list();
+        if (names == null) {
+            return null;
+        }
+        Map<String, FileStat> children = new HashMap<>(names.length * 2);
+        for (String name : names) {
+            FileStat stat = FileStat.stat(root + File.separator + name);
+            if (stat.exists) {
+                children.put(name, stat);
+            }
+        }
+        return children;
+    }
+}
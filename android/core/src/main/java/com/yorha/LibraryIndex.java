@@ -0,0 +1,313 @@
+package com.yorha;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the episode files under the saved show folders, so episodes that were downloaded
+ * before the app knew their magnets, or copied in by hand, are found without listing every folder
+ * each time. Each directory is stored with the modification time it had when it was listed; a
+ * rescan stats every known directory but only lists those whose time changed, plus new ones.
+ * The index is kept in a small binary file that only holds directory and file names, sizes and
+ * times. Show, episode and resolution are parsed again from the names when it is loaded.
+ *
+ * <p>Adding or removing a file changes its directory's time, writing to an existing file does
+ * not, so the size of a file that is still downloading can be stale until its folder changes.
+ */
+final class LibraryIndex {
+    private static final int MAGIC = 0x594C4931; // "YLI1"
+    private static final int VERSION = 1;
+    // Subfolders such as "Season 2" are followed, a deeper tree is not a show folder.
+    static final int MAX_DEPTH = 3;
+    // Directory times are coarse on FAT formatted SD cards, a folder changed in the same window
+    // as its listing could be missed, so it is listed again on the next scan.
+    private static final long UNSTABLE_WINDOW_MS = 2000;
+
+    static final class EpisodeFile {
+        final String path;
+        final String name;
+        final long size;
+        final long lastModified;
+        final SubsPleaseName parsed;
+
+        EpisodeFile(String path, String name, long size, long lastModified, SubsPleaseName parsed) {
+            this.path = path;
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.parsed = parsed;
+        }
+    }
+
+    private static final class Directory {
+        final long lastModified;
+        final List<EpisodeFile> files;
+        final List<String> subdirectories;
+
+        Directory(long lastModified, List<EpisodeFile> files, List<String> subdirectories) {
+            this.lastModified = lastModified;
+            this.files = files;
+            this.subdirectories = subdirectories;
+        }
+    }
+
+    static final class ScanStats {
+        final int directoriesVisited;
+        final int directoriesListed;
+        final int files;
+        final int episodes;
+
+        ScanStats(int directoriesVisited, int directoriesListed, int files, int episodes) {
+            this.directoriesVisited = directoriesVisited;
+            this.directoriesListed = directoriesListed;
+            this.files = files;
+            this.episodes = episodes;
+        }
+    }
+
+    private final File file;
+    private Map<String, Directory> directories = new HashMap<>();
+    private boolean loaded;
+
+    LibraryIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Brings the index up to date with {@code roots} and saves it if anything changed. Cancelled
+     * by interrupting the calling thread, in which case the index keeps its previous state.
+     */
+    synchronized ScanStats scan(Collection<String> roots) throws IOException, InterruptedException {
+        load();
+        long scanStartedAt = System.currentTimeMillis();
+        Map<String, Directory> scanned = new HashMap<>();
+        int visited = 0;
+        int listed = 0;
+        Deque<String> pending = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        for (String root : new HashSet<>(roots)) {
+            pending.add(FolderIndex.normalize(root));
+            depths.add(0);
+        }
+        while (!pending.isEmpty()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Scanning the library was cancelled");
+            }
+            String path = pending.poll();
+            int depth = depths.poll();
+            if (scanned.containsKey(path)) {
+                continue;
+            }
+            FileStat stat = FileStat.stat(path);
+            if (!stat.exists || !stat.isDirectory) {
+                continue;
+            }
+            visited++;
+            Directory directory = directories.get(path);
+            if (directory == null || directory.lastModified != stat.lastModified) {
+                directory = list(path, stat.lastModified, scanStartedAt);
+                listed++;
+            }
+            scanned.put(path, directory);
+            if (depth < MAX_DEPTH) {
+                for (String subdirectory : directory.subdirectories) {
+                    pending.add(subdirectory);
+                    depths.add(depth + 1);
+                }
+            }
+        }
+
+        boolean changed = listed > 0 || !scanned.keySet().equals(directories.keySet());
+        directories = scanned;
+        if (changed) {
+            save();
+        }
+        int files = 0;
+        for (Directory directory : scanned.values()) {
+            files += directory.files.size();
+        }
+        return new ScanStats(visited, listed, files, getShows().values().stream()
+                .mapToInt(Map::size).sum());
+    }
+
+    /**
+     * Show, then episode, then resolution ("" when the name has none) to the newest release of
+     * that episode. Shows and episodes are sorted by name.
+     */
+    synchronized Map<String, Map<String, Map<String, EpisodeFile>>> getShows() {
+        load();
+        Map<String, Map<String, Map<String, EpisodeFile>>> shows = new TreeMap<>();
+        for (Directory directory : directories.values()) {
+            for (EpisodeFile episodeFile : directory.files) {
+                SubsPleaseName parsed = episodeFile.parsed;
+                Map<String, EpisodeFile> resolutions = shows
+                        .computeIfAbsent(parsed.show, show -> new TreeMap<>())
+                        .computeIfAbsent(parsed.episode, episode -> new TreeMap<>());
+                String resolution = parsed.resolution == null ? "" : parsed.resolution;
+                EpisodeFile existing = resolutions.get(resolution);
+                if (existing == null || existing.parsed.version < parsed.version
+                        || (existing.parsed.version == parsed.version
+                        && existing.lastModified < episodeFile.lastModified)) {
+                    resolutions.put(resolution, episodeFile);
+                }
+            }
+        }
+        return shows;
+    }
+
+    private static Directory list(String path, long lastModified, long scanStartedAt) throws IOException {
+        List<EpisodeFile> files = new ArrayList<>();
+        List<String> subdirectories = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(path))) {
+            for (Path child : stream) {
+                String name = child.getFileName().toString();
+                if (name.startsWith(".")) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class);
+                }
+                catch (IOException e) {
+                    // Deleted while listing.
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    subdirectories.add(child.toString());
+                    continue;
+                }
+                EpisodeFile episodeFile = toEpisodeFile(child.toString(), name, attributes.size(),
+                        attributes.lastModifiedTime().toMillis());
+                if (episodeFile != null) {
+                    files.add(episodeFile);
+                }
+            }
+        }
+        boolean unstable = Math.abs(scanStartedAt - lastModified) < UNSTABLE_WINDOW_MS;
+        return new Directory(unstable ? Long.MIN_VALUE : lastModified, files, subdirectories);
+    }
+
+    private static EpisodeFile toEpisodeFile(String path, String name, long size, long lastModified) {
+        if (!isVideo(name)) {
+            return null;
+        }
+        SubsPleaseName parsed = SubsPleaseName.parse(name);
+        return parsed == null ? null : new EpisodeFile(path, name, size, lastModified, parsed);
+    }
+
+    static boolean isVideo(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return false;
+        }
+        switch (name.substring(dot + 1).toLowerCase(Locale.ROOT)) {
+            case "mkv":
+            case "mp4":
+            case "avi":
+            case "webm":
+            case "m4v":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return;
+            }
+            int directoryCount = input.readInt();
+            Map<String, Directory> read = new HashMap<>(directoryCount * 2);
+            for (int i = 0; i < directoryCount; i++) {
+                String path = input.readUTF();
+                long lastModified = input.readLong();
+                int fileCount = input.readInt();
+                List<EpisodeFile> files = new ArrayList<>(fileCount);
+                for (int j = 0; j < fileCount; j++) {
+                    String name = input.readUTF();
+                    long size = input.readLong();
+                    long fileModified = input.readLong();
+                    EpisodeFile episodeFile = toEpisodeFile(path + "/" + name, name, size, fileModified);
+                    if (episodeFile != null) {
+                        files.add(episodeFile);
+                    }
+                }
+                int subdirectoryCount = input.readInt();
+                List<String> subdirectories = new ArrayList<>(subdirectoryCount);
+                for (int j = 0; j < subdirectoryCount; j++) {
+                    subdirectories.add(path + "/" + input.readUTF());
+                }
+                read.put(path, new Directory(lastModified, files, subdirectories));
+            }
+            directories = read;
+        }
+        catch (FileNotFoundException e) {
+            // First scan.
+        }
+        catch (IOException e) {
+            // Damaged index, the next scan lists everything again.
+            directories = new HashMap<>();
+        }
+    }
+
+    private void save() throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(directories.size());
+                for (Map.Entry<String, Directory> entry : directories.entrySet()) {
+                    Directory directory = entry.getValue();
+                    data.writeUTF(entry.getKey());
+                    data.writeLong(directory.lastModified);
+                    data.writeInt(directory.files.size());
+                    for (EpisodeFile episodeFile : directory.files) {
+                        data.writeUTF(episodeFile.name);
+                        data.writeLong(episodeFile.size);
+                        data.writeLong(episodeFile.lastModified);
+                    }
+                    data.writeInt(directory.subdirectories.size());
+                    for (String subdirectory : directory.subdirectories) {
+                        data.writeUTF(subdirectory.substring(subdirectory.lastIndexOf('/') + 1));
+                    }
+                }
+                data.flush();
+                output.getFD().sync();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            temp.delete();
+        }
+    }
+}
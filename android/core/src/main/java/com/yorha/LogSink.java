@@ -0,0 +1,398 @@
+package com.yorha;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file writer shared by the JS and node runtimes. Producers only put lines into a bounded
+ * lock-free ring, so logging never blocks on the disk; a single background thread drains the ring
+ * every {@code flushIntervalMs}, writes the batch with one write call and rotates the file once
+ * it passes {@code maxSegmentBytes}. Rotated segments are gzipped and only the newest
+ * {@code maxArchives} are kept. When producers outpace the disk the newest lines are dropped and
+ * counted rather than growing memory.
+ *
+ * <p>The node torrent client has no JNI access, it writes "level \t source \t message" lines to a
+ * loopback socket instead, see {@link #getPort()}.
+ */
+final class LogSink {
+    static final String CURRENT_FILE_NAME = "yorha.log";
+    private static final String ARCHIVE_PREFIX = "yorha-";
+    private static final String ARCHIVE_SUFFIX = ".log.gz";
+    private static LogSink instance;
+
+    static final class Stats {
+        final long linesWritten;
+        final long linesDropped;
+        final long bytesWritten;
+        final long batches;
+        final int archives;
+        // Batches lost to write errors and the last of those errors, the sink can't log its own.
+        final long writeFailures;
+        final String lastError;
+
+        Stats(long linesWritten, long linesDropped, long bytesWritten, long batches, int archives,
+              long writeFailures, String lastError) {
+            this.linesWritten = linesWritten;
+            this.linesDropped = linesDropped;
+            this.bytesWritten = bytesWritten;
+            this.batches = batches;
+            this.archives = archives;
+            this.writeFailures = writeFailures;
+            this.lastError = lastError;
+        }
+    }
+
+    private static final class Entry {
+        final long timeMs;
+        final String level;
+        final String source;
+        final String message;
+
+        Entry(long timeMs, String level, String source, String message) {
+            this.timeMs = timeMs;
+            this.level = level;
+            this.source = source;
+            this.message = message;
+        }
+    }
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private final int maxArchives;
+    private final long flushIntervalMs;
+
+    // Bounded multi-producer single-consumer ring. A slot is free for the producer claiming
+    // position p when its sequence is p, and holds a line for the consumer at head h when it is h + 1.
+    private final int mask;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final AtomicLong linesWritten = new AtomicLong();
+    private final AtomicLong linesDropped = new AtomicLong();
+    private final AtomicLong writeFailures = new AtomicLong();
+    private volatile String lastError;
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong flushRequests = new AtomicLong();
+    private final AtomicLong flushedRequests = new AtomicLong();
+
+    private final Thread writer;
+    private volatile boolean closed;
+    private ServerSocket serverSocket;
+    private long segmentBytes;
+    private final SimpleDateFormat lineTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+    private final SimpleDateFormat archiveTime = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US);
+
+    LogSink(File directory, int capacity, long maxSegmentBytes, int maxArchives, long flushIntervalMs) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxArchives = maxArchives;
+        this.flushIntervalMs = flushIntervalMs;
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        writer = new Thread(this::drainLoop, "yorha-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** The process wide sink writing to {@code files/logs}. */
+    static synchronized LogSink get(File filesDir) {
+        if (instance == null) {
+            instance = new LogSink(new File(filesDir, "logs"), 8192, 2L * 1024 * 1024, 5, 500);
+        }
+        return instance;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /** Queues a line without blocking. Returns false when the ring was full and the line dropped. */
+    boolean log(String level, String source, String message) {
+        Entry entry = new Entry(System.currentTimeMillis(), level, source, message);
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, entry);
+                    sequences.set(index, position + 1);
+                    if ((position & (mask >>> 1)) == 0) {
+                        // Half a ring since the last wakeup, drain before the interval ends.
+                        LockSupport.unpark(writer);
+                    }
+                    return true;
+                }
+            }
+            else if (sequence < position) {
+                // The consumer has not freed this slot yet, the ring is full.
+                linesDropped.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed the position first, try the next one.
+        }
+    }
+
+    /** Writes everything queued so far, waiting up to {@code timeoutMs}. */
+    boolean flush(long timeoutMs) throws InterruptedException {
+        long request = flushRequests.incrementAndGet();
+        LockSupport.unpark(writer);
+        long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (flushedRequests.get() < request) {
+            if (System.nanoTime() > deadline || closed) {
+                return false;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Flushing logs was cancelled");
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /** The current log file followed by the archives, newest first. */
+    List<File> getFiles() {
+        List<File> files = new ArrayList<>();
+        File current = new File(directory, CURRENT_FILE_NAME);
+        if (current.exists()) {
+            files.add(current);
+        }
+        files.addAll(getArchives());
+        return files;
+    }
+
+    Stats getStats() {
+        return new Stats(linesWritten.get(), linesDropped.get(), bytesWritten.get(), batches.get(),
+                getArchives().size(), writeFailures.get(), lastError);
+    }
+
+    /** Port of the loopback socket node writes its log lines to, opened on first use. */
+    synchronized int getPort() throws IOException {
+        if (serverSocket == null || serverSocket.isClosed()) {
+            serverSocket = new ServerSocket(0, 2, InetAddress.getLoopbackAddress());
+            final ServerSocket server = serverSocket;
+            Thread acceptor = new Thread(() -> accept(server), "yorha-log-socket");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+        return serverSocket.getLocalPort();
+    }
+
+    void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                }
+                catch (IOException e) {
+                    // Closing anyway.
+                }
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder(64 * 1024);
+        while (true) {
+            long requested = flushRequests.get();
+            Entry entry;
+            while ((entry = poll()) != null) {
+                batch.add(entry);
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    write(batch, text);
+                }
+                catch (IOException e) {
+                    // write already counted the lines it could not write as dropped.
+                    writeFailures.incrementAndGet();
+                    lastError = e.toString();
+                }
+                batch.clear();
+            }
+            flushedRequests.set(requested);
+            if (closed) {
+                return;
+            }
+            LockSupport.parkNanos(this, flushIntervalMs * 1_000_000L);
+        }
+    }
+
+    private Entry poll() {
+        int index = (int) (head & mask);
+        if (sequences.get(index) != head + 1) {
+            return null;
+        }
+        Entry entry = slots.get(index);
+        slots.set(index, null);
+        sequences.set(index, head + mask + 1);
+        head++;
+        return entry;
+    }
+
+    /**
+     * Appends the batch to the current segment. On failure the lines not yet written are counted
+     * as dropped, the ones already appended stay counted as written.
+     */
+    private void write(List<Entry> batch, StringBuilder text) throws IOException {
+        int start = 0;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            File current = new File(directory, CURRENT_FILE_NAME);
+            if (segmentBytes == 0) {
+                segmentBytes = current.length();
+            }
+            while (start < batch.size()) {
+                // Fill the current segment, rotating as soon as it is full.
+                text.setLength(0);
+                int end = start;
+                while (end < batch.size() && segmentBytes + text.length() < maxSegmentBytes) {
+                    format(batch.get(end++), text);
+                }
+                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                try (OutputStream output = new FileOutputStream(current, true)) {
+                    output.write(bytes);
+                }
+                segmentBytes += bytes.length;
+                bytesWritten.addAndGet(bytes.length);
+                linesWritten.addAndGet(end - start);
+                batches.incrementAndGet();
+                start = end;
+                if (segmentBytes >= maxSegmentBytes) {
+                    rotate(current);
+                }
+            }
+        }
+        catch (IOException e) {
+            linesDropped.addAndGet(batch.size() - start);
+            throw e;
+        }
+    }
+
+    private void format(Entry entry, StringBuilder text) {
+        String time = lineTime.format(new Date(entry.timeMs));
+        int lineStart = 0;
+        String message = entry.message;
+        // Continuation lines keep the prefix so every line can be grepped by source and level.
+        do {
+            int lineEnd = message.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = message.length();
+            }
+            text.append(time).append(" [").append(entry.level).append("] [").append(entry.source).append("] ")
+                    .append(message, lineStart, lineEnd).append('\n');
+            lineStart = lineEnd + 1;
+        } while (lineStart < message.length());
+    }
+
+    private void rotate(File current) throws IOException {
+        File archive = new File(directory, ARCHIVE_PREFIX + archiveTime.format(new Date()) + ARCHIVE_SUFFIX);
+        File temp = new File(directory, archive.getName() + ".tmp");
+        try {
+            try (InputStream input = new FileInputStream(current);
+                 GZIPOutputStream output = new GZIPOutputStream(new FileOutputStream(temp), 64 * 1024)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = input.read(buffer)) > 0) {
+                    output.write(buffer, 0, read);
+                }
+            }
+            if (!temp.renameTo(archive)) {
+                throw new IOException("Could not rename " + temp);
+            }
+        }
+        finally {
+            temp.delete();
+        }
+        if (!current.delete()) {
+            throw new IOException("Could not delete " + current);
+        }
+        segmentBytes = 0;
+        List<File> archives = getArchives();
+        for (int i = maxArchives; i < archives.size(); i++) {
+            archives.get(i).delete();
+        }
+    }
+
+    // Newest first, the timestamp in the name sorts lexically.
+    private List<File> getArchives() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(ARCHIVE_PREFIX)
+                && name.endsWith(ARCHIVE_SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, (a, b) -> b.getName().compareTo(a.getName()));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    private void accept(ServerSocket server) {
+        while (!server.isClosed()) {
+            try {
+                final Socket socket = server.accept();
+                Thread reader = new Thread(() -> read(socket), "yorha-log-socket-reader");
+                reader.setDaemon(true);
+                reader.start();
+            }
+            catch (IOException e) {
+                // Closed, or only this connection failed and node reconnects.
+            }
+        }
+    }
+
+    private void read(Socket socket) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int levelEnd = line.indexOf('\t');
+                int sourceEnd = levelEnd < 0 ? -1 : line.indexOf('\t', levelEnd + 1);
+                if (sourceEnd < 0) {
+                    log("info", "node", line);
+                }
+                else {
+                    log(line.substring(0, levelEnd), line.substring(levelEnd + 1, sourceEnd),
+                            line.substring(sourceEnd + 1));
+                }
+            }
+        }
+        catch (IOException e) {
+            // Node went away, it connects again after a restart.
+        }
+    }
+}
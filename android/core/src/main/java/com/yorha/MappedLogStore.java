@@ -0,0 +1,336 @@
+package com.yorha;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * String key-value store kept as an append-only log in a memory-mapped file. Every put or remove
+ * appends one checksummed record, an in-memory index maps each key to its latest record, and
+ * reads decode straight from the mapping. Writes land in the page cache as soon as they are
+ * appended, so they survive the app being killed; {@link #sync()} forces them to storage.
+ * On open the log is replayed up to the first torn or corrupt record and everything after it is
+ * discarded. The log is rewritten with only live records once dead records dominate it.
+ */
+final class MappedLogStore implements Closeable {
+    private static final int MAGIC = 0x594B5631; // "YKV1"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 16;
+    // CRC (4), type (1), key length (4), value length (4).
+    private static final int RECORD_HEADER_SIZE = 13;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_REMOVE = 2;
+    private static final int INITIAL_CAPACITY = 256 * 1024;
+    private static final int MIN_COMPACTION_BYTES = 512 * 1024;
+
+    static final class Stats {
+        final int entries;
+        final long fileBytes;
+        final long usedBytes;
+        final long liveBytes;
+        final long recoveredBytes;
+        final int compactions;
+
+        Stats(int entries, long fileBytes, long usedBytes, long liveBytes, long recoveredBytes, int compactions) {
+            this.entries = entries;
+            this.fileBytes = fileBytes;
+            this.usedBytes = usedBytes;
+            this.liveBytes = liveBytes;
+            this.recoveredBytes = recoveredBytes;
+            this.compactions = compactions;
+        }
+    }
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    // Insertion ordered so listings keep the order entries were first added in.
+    private final LinkedHashMap<String, Integer> index = new LinkedHashMap<>();
+    private long liveBytes;
+    // Bytes discarded by the last recovery, reported for diagnostics.
+    private long recoveredBytes;
+    private int compactions;
+    private final CRC32 crc = new CRC32();
+
+    private MappedLogStore(File file) {
+        this.file = file;
+    }
+
+    static MappedLogStore open(File file) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        // Left over from a compaction interrupted before its rename, the log itself is intact.
+        compactionFile(file).delete();
+
+        MappedLogStore store = new MappedLogStore(file);
+        store.map(Math.max(INITIAL_CAPACITY, file.length()));
+        store.replay();
+        return store;
+    }
+
+    synchronized String get(String key) {
+        Integer position = index.get(key);
+        return position == null ? null : readValue(position);
+    }
+
+    synchronized boolean containsKey(String key) {
+        return index.containsKey(key);
+    }
+
+    synchronized void put(String key, String value) throws IOException {
+        Integer position = index.get(key);
+        if (position != null && value.equals(readValue(position))) {
+            return;
+        }
+        append(TYPE_PUT, key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    synchronized void putAll(Map<String, String> entries) throws IOException {
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized boolean remove(String key) throws IOException {
+        if (!index.containsKey(key)) {
+            return false;
+        }
+        append(TYPE_REMOVE, key, new byte[0]);
+        return true;
+    }
+
+    /** Removes every key starting with {@code prefix}, or every key for an empty prefix. */
+    synchronized int removeAll(String prefix) throws IOException {
+        List<String> keys = keys(prefix);
+        for (String key : keys) {
+            append(TYPE_REMOVE, key, new byte[0]);
+        }
+        return keys.size();
+    }
+
+    synchronized List<String> keys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        for (String key : index.keySet()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    /** Entries whose key starts with {@code prefix}, in insertion order. */
+    synchronized List<Map.Entry<String, String>> entries(String prefix) {
+        List<Map.Entry<String, String>> entries = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : index.entrySet()) {
+            if (entry.getKey().startsWith(prefix)) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), readValue(entry.getValue())));
+            }
+        }
+        return entries;
+    }
+
+    synchronized void sync() {
+        buffer.force();
+    }
+
+    synchronized Stats getStats() {
+        return new Stats(index.size(), buffer.capacity(), writePosition, liveBytes, recoveredBytes, compactions);
+    }
+
+    /** Rewrites the log with only the live records. */
+    synchronized void compact() throws IOException {
+        File compacted = compactionFile(file);
+        int size = FILE_HEADER_SIZE + (int) liveBytes;
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, size - 1)) << 1);
+        LinkedHashMap<String, Integer> newIndex = new LinkedHashMap<>();
+        try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = target.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            writeFileHeader(out);
+            int position = FILE_HEADER_SIZE;
+            for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                int length = recordLength(entry.getValue());
+                ByteBuffer record = buffer.duplicate();
+                record.position(entry.getValue()).limit(entry.getValue() + length);
+                out.position(position);
+                out.put(record);
+                newIndex.put(entry.getKey(), position);
+                position += length;
+            }
+            out.force();
+        }
+        Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel.close();
+        map(capacity);
+        index.clear();
+        index.putAll(newIndex);
+        writePosition = size;
+        compactions++;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void append(byte type, String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = RECORD_HEADER_SIZE + keyBytes.length + value.length;
+        if (writePosition + length > buffer.capacity()) {
+            long dead = writePosition - FILE_HEADER_SIZE - liveBytes;
+            if (dead > liveBytes && writePosition >= MIN_COMPACTION_BYTES) {
+                compact();
+            }
+            if (writePosition + length > buffer.capacity()) {
+                long capacity = buffer.capacity();
+                while (writePosition + length > capacity) {
+                    capacity *= 2;
+                }
+                if (capacity > Integer.MAX_VALUE) {
+                    throw new IOException("Key-value store is full");
+                }
+                map(capacity);
+            }
+        }
+
+        int position = writePosition;
+        buffer.position(position + 4);
+        buffer.put(type);
+        buffer.putInt(keyBytes.length);
+        buffer.putInt(value.length);
+        buffer.put(keyBytes);
+        buffer.put(value);
+        // Checksum last, a record is only valid once its CRC matches.
+        buffer.putInt(position, checksum(position, length));
+        writePosition += length;
+
+        // Updating an existing key keeps its place in the insertion order.
+        Integer previous = type == TYPE_PUT ? index.put(key, position) : index.remove(key);
+        if (previous != null) {
+            liveBytes -= recordLength(previous);
+        }
+        if (type == TYPE_PUT) {
+            liveBytes += length;
+        }
+    }
+
+    private void replay() throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            // New or unrecognisable file, start over.
+            writeFileHeader(buffer);
+            zero(FILE_HEADER_SIZE, buffer.capacity());
+            writePosition = FILE_HEADER_SIZE;
+            return;
+        }
+        int position = FILE_HEADER_SIZE;
+        int capacity = buffer.capacity();
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            byte type = buffer.get(position + 4);
+            int keyLength = buffer.getInt(position + 5);
+            int valueLength = buffer.getInt(position + 9);
+            if ((type != TYPE_PUT && type != TYPE_REMOVE) || keyLength < 0 || valueLength < 0
+                    || (long) position + RECORD_HEADER_SIZE + keyLength + valueLength > capacity) {
+                break;
+            }
+            int length = RECORD_HEADER_SIZE + keyLength + valueLength;
+            if (buffer.getInt(position) != checksum(position, length)) {
+                break;
+            }
+            String key = decode(position + RECORD_HEADER_SIZE, keyLength);
+            Integer previous = type == TYPE_PUT ? index.put(key, position) : index.remove(key);
+            if (previous != null) {
+                liveBytes -= recordLength(previous);
+            }
+            if (type == TYPE_PUT) {
+                liveBytes += length;
+            }
+            position += length;
+        }
+        writePosition = position;
+        recoveredBytes = tailLength(position);
+        if (recoveredBytes > 0) {
+            // Clear the torn tail so stale bytes can never be read as records after new appends.
+            zero(position, position + (int) recoveredBytes);
+        }
+    }
+
+    private void map(long capacity) throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private int recordLength(int position) {
+        return RECORD_HEADER_SIZE + buffer.getInt(position + 5) + buffer.getInt(position + 9);
+    }
+
+    private String readValue(int position) {
+        int keyLength = buffer.getInt(position + 5);
+        int valueLength = buffer.getInt(position + 9);
+        return decode(position + RECORD_HEADER_SIZE + keyLength, valueLength);
+    }
+
+    private String decode(int position, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int checksum(int position, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4).limit(position + length);
+        crc.reset();
+        crc.update(view);
+        return (int) crc.getValue();
+    }
+
+    /** Length of the range after {@code from} that still holds non-zero bytes. */
+    private long tailLength(int from) {
+        for (int i = buffer.capacity() - 1; i >= from; i--) {
+            if (buffer.get(i) != 0) {
+                return i - from + 1;
+            }
+        }
+        return 0;
+    }
+
+    private void zero(int from, int to) {
+        byte[] zeros = new byte[8192];
+        ByteBuffer view = buffer.duplicate();
+        view.position(from).limit(to);
+        while (view.hasRemaining()) {
+            view.put(zeros, 0, Math.min(zeros.length, view.remaining()));
+        }
+    }
+
+    private static void writeFileHeader(ByteBuffer target) {
+        target.putInt(0, MAGIC);
+        target.putInt(4, VERSION);
+        target.putLong(8, 0);
+    }
+
+    private static File compactionFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".compact");
+    }
+}
@@ -0,0 +1,773 @@
+package com.yorha;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Extracts the first text subtitle track of a Matroska file to WebVTT without demuxing the
+ * video. The segment's Cues index points at every subtitle block (mkvmerge indexes all subtitle
+ * frames), so only those blocks and their cluster timecodes are read with positional reads. Files
+ * without usable cues fall back to walking the clusters, which still only reads element headers
+ * and the first bytes of each block to find its track.
+ */
+final class MatroskaSubtitleExtractor {
+    private static final int EBML = 0x1A45DFA3;
+    private static final int SEGMENT = 0x18538067;
+    private static final int SEEK_HEAD = 0x114D9B74;
+    private static final int SEEK = 0x4DBB;
+    private static final int SEEK_ID = 0x53AB;
+    private static final int SEEK_POSITION = 0x53AC;
+    private static final int INFO = 0x1549A966;
+    private static final int TIMECODE_SCALE = 0x2AD7B1;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_NUMBER = 0xD7;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int LANGUAGE = 0x22B59C;
+    private static final int CONTENT_ENCODINGS = 0x6D80;
+    private static final int CONTENT_ENCODING = 0x6240;
+    private static final int CONTENT_COMPRESSION = 0x5034;
+    private static final int CONTENT_COMP_ALGO = 0x4254;
+    private static final int CONTENT_COMP_SETTINGS = 0x4255;
+    private static final int CUES = 0x1C53BB6B;
+    private static final int CUE_POINT = 0xBB;
+    private static final int CUE_TRACK_POSITIONS = 0xB7;
+    private static final int CUE_TRACK = 0xF7;
+    private static final int CUE_CLUSTER_POSITION = 0xF1;
+    private static final int CUE_RELATIVE_POSITION = 0xF0;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int CLUSTER_TIMECODE = 0xE7;
+    private static final int SIMPLE_BLOCK = 0xA3;
+    private static final int BLOCK_GROUP = 0xA0;
+    private static final int BLOCK = 0xA1;
+    private static final int BLOCK_DURATION = 0x9B;
+
+    private static final int TRACK_TYPE_SUBTITLE = 0x11;
+    private static final int COMPRESSION_ZLIB = 0;
+    private static final int COMPRESSION_HEADER_STRIPPING = 3;
+    // Track number (up to 8), timecode (2) and flags (1).
+    private static final int BLOCK_HEADER_PEEK = 11;
+    private static final long MISSING_DURATION_MS = 5000;
+
+    static final class Result {
+        final long trackNumber;
+        final String codecId;
+        final String language;
+        final int cues;
+        final boolean usedCueIndex;
+        final long bytesRead;
+        final long fileSize;
+
+        Result(long trackNumber, String codecId, String language, int cues, boolean usedCueIndex, long bytesRead,
+               long fileSize) {
+            this.trackNumber = trackNumber;
+            this.codecId = codecId;
+            this.language = language;
+            this.cues = cues;
+            this.usedCueIndex = usedCueIndex;
+            this.bytesRead = bytesRead;
+            this.fileSize = fileSize;
+        }
+    }
+
+    private static final class Track {
+        long number;
+        long type;
+        String codecId = "";
+        String language = "eng";
+        long compressionAlgorithm = -1;
+        byte[] compressionSettings = new byte[0];
+
+        boolean isSupportedText() {
+            return codecId.equals("S_TEXT/ASS") || codecId.equals("S_TEXT/SSA")
+                    || codecId.equals("S_TEXT/UTF8") || codecId.equals("S_TEXT/WEBVTT");
+        }
+    }
+
+    private static final class Cue {
+        final long startMs;
+        long endMs;
+        final String text;
+
+        Cue(long startMs, long endMs, String text) {
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.text = text;
+        }
+    }
+
+    private final EbmlReader reader;
+    private long segmentDataPosition;
+    private long segmentEnd;
+    private long timecodeScale = 1_000_000;
+    private final List<Track> tracks = new ArrayList<>();
+    private final Map<Long, Long> clusterTimecodes = new HashMap<>();
+    private EbmlReader.Element cuesElement;
+    private long firstClusterPosition = -1;
+
+    private MatroskaSubtitleExtractor(EbmlReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Writes the first subtitle track of {@code mkv} to {@code vtt}, replacing it atomically.
+     * Returns null when the file has no text subtitle track this extractor understands.
+     */
+    static Result extract(File mkv, File vtt) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(mkv.toPath(), StandardOpenOption.READ)) {
+            MatroskaSubtitleExtractor extractor = new MatroskaSubtitleExtractor(new EbmlReader(channel));
+            extractor.readSegmentHeaders(true);
+            Track track = extractor.firstSubtitleTrack();
+            if (track == null || !track.isSupportedText()) {
+                return null;
+            }
+
+            List<Cue> cues = new ArrayList<>();
+            boolean usedCueIndex = extractor.readBlocksFromCues(track, cues);
+            if (!usedCueIndex) {
+                extractor.readBlocksFromClusters(track, cues);
+            }
+
+            File temp = new File(vtt.getParentFile(), vtt.getName() + ".tmp");
+            try {
+                try (FileOutputStream output = new FileOutputStream(temp)) {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+                    writeVtt(cues, writer);
+                    writer.flush();
+                    output.getFD().sync();
+                }
+                Files.move(temp.toPath(), vtt.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                temp.delete();
+            }
+            return new Result(track.number, track.codecId, track.language, cues.size(), usedCueIndex,
+                    extractor.reader.getBytesRead(), extractor.reader.length());
+        }
+    }
+
+    /**
+     * The Cues element of a Matroska file as found from the headers before the first cluster and
+     * the seek head, or null when neither has it. Unlike extraction this never walks the clusters.
+     */
+    static EbmlReader.Element findCues(FileChannel channel) throws IOException, InterruptedException {
+        MatroskaSubtitleExtractor extractor = new MatroskaSubtitleExtractor(new EbmlReader(channel));
+        extractor.readSegmentHeaders(false);
+        return extractor.cuesElement;
+    }
+
+    private void readSegmentHeaders(boolean searchClusters) throws IOException, InterruptedException {
+        EbmlReader.Element ebml = reader.readElement(0);
+        if (ebml == null || ebml.id != EBML || !ebml.hasKnownSize()) {
+            throw new IOException("Not a Matroska file");
+        }
+        EbmlReader.Element segment = reader.readElement(ebml.end());
+        if (segment == null || segment.id != SEGMENT) {
+            throw new IOException("Matroska segment not found");
+        }
+        segmentDataPosition = segment.dataPosition;
+        segmentEnd = segment.hasKnownSize() ? Math.min(segment.end(), reader.length()) : reader.length();
+
+        // Level 1 elements before the first cluster, plus whatever the seek head points past it.
+        Map<Integer, Long> seekPositions = new HashMap<>();
+        boolean infoRead = false;
+        boolean tracksRead = false;
+        long position = segmentDataPosition;
+        while (position < segmentEnd) {
+            EbmlReader.Element element = reader.readElement(position);
+            if (element == null) {
+                break;
+            }
+            if (element.id == CLUSTER) {
+                firstClusterPosition = element.position;
+                break;
+            }
+            switch (element.id) {
+                case SEEK_HEAD:
+                    readSeekHead(element, seekPositions);
+                    break;
+                case INFO:
+                    readInfo(element);
+                    infoRead = true;
+                    break;
+                case TRACKS:
+                    readTracks(element);
+                    tracksRead = true;
+                    break;
+                case CUES:
+                    cuesElement = element;
+                    break;
+                default:
+                    break;
+            }
+            if (!element.hasKnownSize()) {
+                break;
+            }
+            position = element.end();
+        }
+
+        if (!infoRead && seekPositions.containsKey(INFO)) {
+            readInfo(expect(seekPositions.get(INFO), INFO));
+        }
+        if (!tracksRead && seekPositions.containsKey(TRACKS)) {
+            readTracks(expect(seekPositions.get(TRACKS), TRACKS));
+        }
+        if (cuesElement == null && seekPositions.containsKey(CUES)) {
+            cuesElement = expect(seekPositions.get(CUES), CUES);
+        }
+        if (cuesElement == null && searchClusters && firstClusterPosition >= 0) {
+            cuesElement = findAfterClusters(CUES);
+        }
+    }
+
+    private EbmlReader.Element expect(long position, int id) throws IOException {
+        EbmlReader.Element element = reader.readElement(position);
+        return element != null && element.id == id && element.hasKnownSize() ? element : null;
+    }
+
+    /** Hops over the clusters header to header looking for a level 1 element. */
+    private EbmlReader.Element findAfterClusters(int id) throws IOException, InterruptedException {
+        long position = firstClusterPosition;
+        while (position < segmentEnd) {
+            checkInterrupted();
+            EbmlReader.Element element = reader.readElement(position);
+            if (element == null || !element.hasKnownSize()) {
+                return null;
+            }
+            if (element.id == id) {
+                return element;
+            }
+            position = element.end();
+        }
+        return null;
+    }
+
+    private void readSeekHead(EbmlReader.Element seekHead, Map<Integer, Long> seekPositions) throws IOException {
+        EbmlReader index = reader.load(seekHead);
+        for (EbmlReader.Element seek : children(index, seekHead)) {
+            if (seek.id != SEEK) {
+                continue;
+            }
+            int id = 0;
+            long seekPosition = -1;
+            for (EbmlReader.Element field : children(index, seek)) {
+                if (field.id == SEEK_ID) {
+                    ByteBuffer payload = index.readPayload(field);
+                    while (payload.hasRemaining()) {
+                        id = (id << 8) | (payload.get() & 0xFF);
+                    }
+                }
+                else if (field.id == SEEK_POSITION) {
+                    seekPosition = index.readUnsigned(field);
+                }
+            }
+            if (id != 0 && seekPosition >= 0) {
+                seekPositions.put(id, segmentDataPosition + seekPosition);
+            }
+        }
+    }
+
+    private void readInfo(EbmlReader.Element info) throws IOException {
+        if (info == null) {
+            return;
+        }
+        EbmlReader source = reader.load(info);
+        for (EbmlReader.Element field : children(source, info)) {
+            if (field.id == TIMECODE_SCALE) {
+                timecodeScale = source.readUnsigned(field);
+            }
+        }
+    }
+
+    private void readTracks(EbmlReader.Element tracksElement) throws IOException {
+        if (tracksElement == null) {
+            return;
+        }
+        EbmlReader source = reader.load(tracksElement);
+        for (EbmlReader.Element entry : children(source, tracksElement)) {
+            if (entry.id != TRACK_ENTRY) {
+                continue;
+            }
+            Track track = new Track();
+            for (EbmlReader.Element field : children(source, entry)) {
+                switch (field.id) {
+                    case TRACK_NUMBER:
+                        track.number = source.readUnsigned(field);
+                        break;
+                    case TRACK_TYPE:
+                        track.type = source.readUnsigned(field);
+                        break;
+                    case CODEC_ID:
+                        track.codecId = source.readString(field);
+                        break;
+                    case LANGUAGE:
+                        track.language = source.readString(field);
+                        break;
+                    case CONTENT_ENCODINGS:
+                        readContentEncodings(source, field, track);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            tracks.add(track);
+        }
+    }
+
+    private static void readContentEncodings(EbmlReader source, EbmlReader.Element encodings, Track track)
+            throws IOException {
+        for (EbmlReader.Element encoding : children(source, encodings)) {
+            if (encoding.id != CONTENT_ENCODING) {
+                continue;
+            }
+            for (EbmlReader.Element compression : children(source, encoding)) {
+                if (compression.id != CONTENT_COMPRESSION) {
+                    continue;
+                }
+                track.compressionAlgorithm = COMPRESSION_ZLIB;
+                for (EbmlReader.Element field : children(source, compression)) {
+                    if (field.id == CONTENT_COMP_ALGO) {
+                        track.compressionAlgorithm = source.readUnsigned(field);
+                    }
+                    else if (field.id == CONTENT_COMP_SETTINGS) {
+                        track.compressionSettings = source.readPayload(field).array();
+                    }
+                }
+            }
+        }
+    }
+
+    private Track firstSubtitleTrack() {
+        for (Track track : tracks) {
+            if (track.type == TRACK_TYPE_SUBTITLE) {
+                return track;
+            }
+        }
+        return null;
+    }
+
+    /** Returns false when the cues do not index the track and the clusters have to be walked. */
+    private boolean readBlocksFromCues(Track track, List<Cue> cues) throws IOException, InterruptedException {
+        if (cuesElement == null) {
+            return false;
+        }
+        EbmlReader index = reader.load(cuesElement);
+        List<long[]> positions = new ArrayList<>();
+        for (EbmlReader.Element point : children(index, cuesElement)) {
+            if (point.id != CUE_POINT) {
+                continue;
+            }
+            for (EbmlReader.Element trackPositions : children(index, point)) {
+                if (trackPositions.id != CUE_TRACK_POSITIONS) {
+                    continue;
+                }
+                long cueTrack = -1;
+                long clusterPosition = -1;
+                long relativePosition = -1;
+                for (EbmlReader.Element field : children(index, trackPositions)) {
+                    if (field.id == CUE_TRACK) {
+                        cueTrack = index.readUnsigned(field);
+                    }
+                    else if (field.id == CUE_CLUSTER_POSITION) {
+                        clusterPosition = index.readUnsigned(field);
+                    }
+                    else if (field.id == CUE_RELATIVE_POSITION) {
+                        relativePosition = index.readUnsigned(field);
+                    }
+                }
+                if (cueTrack == track.number && clusterPosition >= 0) {
+                    positions.add(new long[]{segmentDataPosition + clusterPosition, relativePosition});
+                }
+            }
+        }
+        if (positions.isEmpty()) {
+            return false;
+        }
+
+        Set<Long> visitedBlocks = new HashSet<>();
+        Set<Long> scannedClusters = new HashSet<>();
+        for (long[] position : positions) {
+            checkInterrupted();
+            EbmlReader.Element cluster = reader.readElement(position[0]);
+            if (cluster == null || cluster.id != CLUSTER) {
+                continue;
+            }
+            if (position[1] >= 0) {
+                long blockPosition = cluster.dataPosition + position[1];
+                EbmlReader.Element block = reader.readElement(blockPosition);
+                if (block != null && (block.id == BLOCK_GROUP || block.id == SIMPLE_BLOCK)) {
+                    if (visitedBlocks.add(blockPosition)) {
+                        readBlock(block, clusterTimecode(cluster), track, cues);
+                    }
+                    continue;
+                }
+            }
+            // No usable relative position, pick the track's blocks out of the whole cluster.
+            if (scannedClusters.add(cluster.position)) {
+                readCluster(cluster, track, cues, visitedBlocks);
+            }
+        }
+        return true;
+    }
+
+    private void readBlocksFromClusters(Track track, List<Cue> cues) throws IOException, InterruptedException {
+        if (firstClusterPosition < 0) {
+            return;
+        }
+        long position = firstClusterPosition;
+        while (position < segmentEnd) {
+            checkInterrupted();
+            EbmlReader.Element element = reader.readElement(position);
+            if (element == null) {
+                break;
+            }
+            if (element.id == CLUSTER) {
+                position = readCluster(element, track, cues, null);
+            }
+            else if (element.hasKnownSize()) {
+                position = element.end();
+            }
+            else {
+                break;
+            }
+        }
+    }
+
+    /** Reads the track's blocks from a cluster and returns the position just past the cluster. */
+    private long readCluster(EbmlReader.Element cluster, Track track, List<Cue> cues, Set<Long> visitedBlocks)
+            throws IOException, InterruptedException {
+        long end = cluster.hasKnownSize() ? Math.min(cluster.end(), segmentEnd) : segmentEnd;
+        long timecode = 0;
+        long position = cluster.dataPosition;
+        while (position < end) {
+            EbmlReader.Element element = reader.readElement(position);
+            if (element == null) {
+                return end;
+            }
+            if (isLevelOne(element.id)) {
+                // End of a cluster of unknown size.
+                return element.position;
+            }
+            if (!element.hasKnownSize()) {
+                return end;
+            }
+            if (element.id == CLUSTER_TIMECODE) {
+                timecode = reader.readUnsigned(element);
+                clusterTimecodes.put(cluster.position, timecode);
+            }
+            else if ((element.id == SIMPLE_BLOCK || element.id == BLOCK_GROUP)
+                    && (visitedBlocks == null || visitedBlocks.add(element.position))) {
+                readBlock(element, timecode, track, cues);
+            }
+            position = element.end();
+        }
+        return end;
+    }
+
+    private long clusterTimecode(EbmlReader.Element cluster) throws IOException {
+        Long cached = clusterTimecodes.get(cluster.position);
+        if (cached != null) {
+            return cached;
+        }
+        long timecode = 0;
+        long end = cluster.hasKnownSize() ? cluster.end() : segmentEnd;
+        long position = cluster.dataPosition;
+        // The timecode is the first child in practice, stop at the first block regardless.
+        while (position < end) {
+            EbmlReader.Element element = reader.readElement(position);
+            if (element == null || !element.hasKnownSize() || element.id == SIMPLE_BLOCK || element.id == BLOCK_GROUP) {
+                break;
+            }
+            if (element.id == CLUSTER_TIMECODE) {
+                timecode = reader.readUnsigned(element);
+                break;
+            }
+            position = element.end();
+        }
+        clusterTimecodes.put(cluster.position, timecode);
+        return timecode;
+    }
+
+    private void readBlock(EbmlReader.Element element, long clusterTimecode, Track track, List<Cue> cues)
+            throws IOException {
+        EbmlReader.Element block = element;
+        long duration = -1;
+        if (element.id == BLOCK_GROUP) {
+            block = null;
+            for (EbmlReader.Element child : children(reader, element)) {
+                if (child.id == BLOCK) {
+                    block = child;
+                }
+                else if (child.id == BLOCK_DURATION) {
+                    duration = reader.readUnsigned(child);
+                }
+            }
+            if (block == null) {
+                return;
+            }
+        }
+
+        // Peek at the header first so other tracks' frames are never read.
+        ByteBuffer header = reader.read(block.dataPosition, (int) Math.min(BLOCK_HEADER_PEEK, block.size));
+        long trackNumber = EbmlReader.readVint(header);
+        if (trackNumber != track.number || header.remaining() < 3) {
+            return;
+        }
+        short relativeTimecode = header.getShort();
+        int flags = header.get() & 0xFF;
+        if ((flags & 0x06) != 0) {
+            // Laced frames do not occur for text subtitles.
+            return;
+        }
+        int headerLength = header.position();
+        byte[] frame = reader.read(block.dataPosition + headerLength, (int) (block.size - headerLength)).array();
+        String text = decodeText(track, decode(track, frame));
+        if (text.isEmpty()) {
+            return;
+        }
+
+        long startMs = (clusterTimecode + relativeTimecode) * timecodeScale / 1_000_000;
+        long endMs = duration >= 0 ? startMs + duration * timecodeScale / 1_000_000 : -1;
+        cues.add(new Cue(startMs, endMs, text));
+    }
+
+    private static byte[] decode(Track track, byte[] frame) throws IOException {
+        if (track.compressionAlgorithm == COMPRESSION_HEADER_STRIPPING) {
+            byte[] restored = new byte[track.compressionSettings.length + frame.length];
+            System.arraycopy(track.compressionSettings, 0, restored, 0, track.compressionSettings.length);
+            System.arraycopy(frame, 0, restored, track.compressionSettings.length, frame.length);
+            return restored;
+        }
+        if (track.compressionAlgorithm == COMPRESSION_ZLIB) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(frame);
+                byte[] buffer = new byte[Math.max(256, frame.length * 4)];
+                int length = 0;
+                while (!inflater.finished()) {
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    int inflated = inflater.inflate(buffer, length, buffer.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                return Arrays.copyOf(buffer, length);
+            }
+            catch (DataFormatException e) {
+                throw new IOException("Corrupt compressed subtitle block", e);
+            }
+            finally {
+                inflater.end();
+            }
+        }
+        return frame;
+    }
+
+    private static String decodeText(Track track, byte[] frame) {
+        String text = new String(frame, StandardCharsets.UTF_8);
+        if (track.codecId.equals("S_TEXT/ASS") || track.codecId.equals("S_TEXT/SSA")) {
+            // ReadOrder, Layer, Style, Name, MarginL, MarginR, MarginV, Effect, Text
+            int index = 0;
+            for (int commas = 0; commas < 8 && index >= 0; commas++) {
+                index = text.indexOf(',', index);
+                if (index >= 0) {
+                    index++;
+                }
+            }
+            return index < 0 ? "" : assToVtt(text.substring(index));
+        }
+        return text.replace("\r\n", "\n").trim();
+    }
+
+    /**
+     * Converts ASS dialogue text to WebVTT cue text the way FFmpeg's webvtt encoder does: line
+     * breaks are kept, italic, bold and underline become tags, other override tags are dropped and
+     * comment blocks such as sign markers are kept as written. Vector drawings are removed.
+     */
+    static String assToVtt(String ass) {
+        StringBuilder out = new StringBuilder(ass.length());
+        boolean italic = false;
+        boolean bold = false;
+        boolean underline = false;
+        boolean drawing = false;
+        int i = 0;
+        int length = ass.length();
+        while (i < length) {
+            char c = ass.charAt(i);
+            if (c == '{') {
+                int close = ass.indexOf('}', i + 1);
+                if (close > 0) {
+                    String block = ass.substring(i + 1, close);
+                    if (block.indexOf('\\') < 0) {
+                        if (!drawing) {
+                            out.append('{').append(block).append('}');
+                        }
+                    }
+                    else {
+                        for (String tag : block.split("\\\\")) {
+                            if (tag.isEmpty()) {
+                                continue;
+                            }
+                            if (tag.charAt(0) == 'p' && tag.length() > 1 && Character.isDigit(tag.charAt(1))) {
+                                drawing = !tag.substring(1).trim().equals("0");
+                            }
+                            else if (tag.charAt(0) == 'i' && isToggle(tag)) {
+                                italic = toggleTag(out, italic, toggleValue(tag), "i");
+                            }
+                            else if (tag.charAt(0) == 'b' && isToggle(tag)) {
+                                bold = toggleTag(out, bold, toggleValue(tag), "b");
+                            }
+                            else if (tag.charAt(0) == 'u' && isToggle(tag)) {
+                                underline = toggleTag(out, underline, toggleValue(tag), "u");
+                            }
+                        }
+                    }
+                    i = close + 1;
+                    continue;
+                }
+            }
+            if (c == '\\' && i + 1 < length) {
+                char next = ass.charAt(i + 1);
+                if (next == 'N' || next == 'n') {
+                    if (!drawing) {
+                        out.append('\n');
+                    }
+                    i += 2;
+                    continue;
+                }
+                if (next == 'h') {
+                    if (!drawing) {
+                        out.append(' ');
+                    }
+                    i += 2;
+                    continue;
+                }
+            }
+            if (!drawing) {
+                if (c == '&') {
+                    out.append("&amp;");
+                }
+                else if (c == '<') {
+                    out.append("&lt;");
+                }
+                else if (c == '>') {
+                    out.append("&gt;");
+                }
+                else {
+                    out.append(c);
+                }
+            }
+            i++;
+        }
+        if (underline) {
+            out.append("</u>");
+        }
+        if (bold) {
+            out.append("</b>");
+        }
+        if (italic) {
+            out.append("</i>");
+        }
+        return out.toString().trim();
+    }
+
+    /** True for {@code \i}, {@code \i1}, {@code \b700} and the like, not for {@code \blur} or {@code \bord}. */
+    private static boolean isToggle(String tag) {
+        for (int i = 1; i < tag.length(); i++) {
+            if (!Character.isDigit(tag.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** {@code \b700} and {@code \i1} switch on, {@code \i0} and a bare {@code \i} (style default) switch off. */
+    private static boolean toggleValue(String tag) {
+        for (int i = 1; i < tag.length(); i++) {
+            if (tag.charAt(i) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean toggleTag(StringBuilder out, boolean open, boolean enable, String name) {
+        if (enable && !open) {
+            out.append('<').append(name).append('>');
+        }
+        else if (!enable && open) {
+            out.append("</").append(name).append('>');
+        }
+        return enable;
+    }
+
+    private static void writeVtt(List<Cue> cues, Writer writer) throws IOException {
+        // Blocks come in file order, which is almost but not strictly start time order.
+        cues.sort((a, b) -> Long.compare(a.startMs, b.startMs));
+        writer.write("WEBVTT\n\n");
+        for (int i = 0; i < cues.size(); i++) {
+            Cue cue = cues.get(i);
+            if (cue.endMs < 0) {
+                cue.endMs = i + 1 < cues.size() ? cues.get(i + 1).startMs : cue.startMs + MISSING_DURATION_MS;
+            }
+            VttTidier.writeTimestamp(writer, cue.startMs);
+            writer.write(" --> ");
+            VttTidier.writeTimestamp(writer, cue.endMs);
+            writer.write('\n');
+            writer.write(cue.text);
+            writer.write("\n\n");
+        }
+    }
+
+    private static List<EbmlReader.Element> children(EbmlReader source, EbmlReader.Element parent) throws IOException {
+        List<EbmlReader.Element> children = new ArrayList<>();
+        if (parent == null || !parent.hasKnownSize()) {
+            return children;
+        }
+        long position = parent.dataPosition;
+        long end = Math.min(parent.end(), source.length());
+        while (position < end) {
+            EbmlReader.Element child = source.readElement(position);
+            if (child == null || !child.hasKnownSize()) {
+                break;
+            }
+            children.add(child);
+            position = child.end();
+        }
+        return children;
+    }
+
+    private static boolean isLevelOne(int id) {
+        return id == CLUSTER || id == CUES || id == SEEK_HEAD || id == INFO || id == TRACKS
+                || id == 0x1254C367 /* Tags */ || id == 0x1043A770 /* Chapters */ || id == 0x1941A469 /* Attachments */;
+    }
+
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Subtitle extraction was cancelled");
+        }
+    }
+}
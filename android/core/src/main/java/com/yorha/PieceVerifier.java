@@ -0,0 +1,197 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks the pieces of a downloaded file against their torrent SHA-1 hashes. The file is memory
+ * mapped a window at a time and the windows are hashed in parallel on a fork/join pool, so a
+ * whole episode is verified at close to storage speed instead of WebTorrent re-hashing it on the
+ * single node thread. Pieces that lie past the end of the file count as bad without being read.
+ *
+ * <p>The result is a BitTorrent style bitfield: piece 0 is the high bit of the first byte.
+ */
+final class PieceVerifier {
+    // Each leaf task maps at most this much, which bounds address space use per thread.
+    static final long WINDOW_BYTES = 32L * 1024 * 1024;
+    static final int SHA1_LENGTH = 20;
+
+    static final class Result {
+        final byte[] bitfield;
+        final int pieceCount;
+        final int goodPieces;
+        final long bytesHashed;
+        final long fileSize;
+
+        Result(byte[] bitfield, int pieceCount, int goodPieces, long bytesHashed, long fileSize) {
+            this.bitfield = bitfield;
+            this.pieceCount = pieceCount;
+            this.goodPieces = goodPieces;
+            this.bytesHashed = bytesHashed;
+            this.fileSize = fileSize;
+        }
+
+        boolean isGood(int piece) {
+            return (bitfield[piece >>> 3] & (0x80 >>> (piece & 7))) != 0;
+        }
+    }
+
+    private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ForkJoinPool pool;
+
+    PieceVerifier(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Verifies {@code file}, whose piece {@code i} must hash to {@code expected[i]}. Cancelled by
+     * interrupting the calling thread.
+     */
+    Result verify(File file, long pieceLength, byte[][] expected) throws IOException, InterruptedException {
+        if (pieceLength <= 0 || pieceLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid piece length " + pieceLength);
+        }
+        for (byte[] hash : expected) {
+            if (hash.length != SHA1_LENGTH) {
+                throw new IllegalArgumentException("Piece hashes must be " + SHA1_LENGTH + " bytes");
+            }
+        }
+        boolean[] good = new boolean[expected.length];
+        long fileSize = 0;
+        long bytesHashed = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            // Pieces starting past the end of the file stay bad, the last one hashed may be short.
+            int hashable = (int) Math.min(expected.length, (fileSize + pieceLength - 1) / pieceLength);
+            if (hashable > 0) {
+                HashTask task = new HashTask(channel, fileSize, pieceLength, expected, good,
+                        new AtomicBoolean(), new AtomicLong(), 0, hashable);
+                run(task);
+                bytesHashed = task.bytesHashed.get();
+            }
+        }
+        catch (NoSuchFileException e) {
+            // Nothing downloaded yet, every piece is missing.
+        }
+
+        byte[] bitfield = new byte[(expected.length + 7) / 8];
+        int goodPieces = 0;
+        for (int piece = 0; piece < good.length; piece++) {
+            if (good[piece]) {
+                bitfield[piece >>> 3] |= (byte) (0x80 >>> (piece & 7));
+                goodPieces++;
+            }
+        }
+        return new Result(bitfield, expected.length, goodPieces, bytesHashed, fileSize);
+    }
+
+    private void run(HashTask task) throws IOException, InterruptedException {
+        ForkJoinTask<Void> submitted = pool.submit(task);
+        try {
+            submitted.get();
+        }
+        catch (InterruptedException e) {
+            task.cancelled.set(true);
+            submitted.cancel(true);
+            throw new InterruptedException("Verifying pieces was cancelled");
+        }
+        catch (CancellationException e) {
+            throw new InterruptedException("Verifying pieces was cancelled");
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    // Hashes pieces [from, to), splitting in halves until a range fits in one mapped window.
+    private static final class HashTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long pieceLength;
+        private final byte[][] expected;
+        private final boolean[] good;
+        final AtomicBoolean cancelled;
+        final AtomicLong bytesHashed;
+        private final int from;
+        private final int to;
+
+        HashTask(FileChannel channel, long fileSize, long pieceLength, byte[][] expected, boolean[] good,
+                 AtomicBoolean cancelled, AtomicLong bytesHashed, int from, int to) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.pieceLength = pieceLength;
+            this.expected = expected;
+            this.good = good;
+            this.cancelled = cancelled;
+            this.bytesHashed = bytesHashed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.get()) {
+                return;
+            }
+            if (to - from > 1 && (to - from) * pieceLength > WINDOW_BYTES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new HashTask(channel, fileSize, pieceLength, expected, good, cancelled, bytesHashed,
+                                from, middle),
+                        new HashTask(channel, fileSize, pieceLength, expected, good, cancelled, bytesHashed,
+                                middle, to));
+                return;
+            }
+            long start = from * pieceLength;
+            long end = Math.min(fileSize, to * pieceLength);
+            MappedByteBuffer window;
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            MessageDigest sha1 = SHA1.get();
+            for (int piece = from; piece < to && !cancelled.get(); piece++) {
+                int offset = (int) (piece * pieceLength - start);
+                int length = (int) Math.min(pieceLength, end - start - offset);
+                window.limit(offset + length).position(offset);
+                sha1.reset();
+                sha1.update(window);
+                good[piece] = Arrays.equals(sha1.digest(), expected[piece]);
+                bytesHashed.addAndGet(length);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pulls the parts of a video a player reads before its first frame into the page cache, so an
+ * external player or the cast server doesn't cold-read them from slow storage one seek at a time.
+ * That is the container header, the seek index (Matroska Cues or the MP4 moov box, which are
+ * usually at the end of the file) and the first clusters. Ranges are read in that order with large
+ * positional reads, the data itself is thrown away.
+ *
+ * <p>When the index can't be located from the header the tail of the file is warmed instead,
+ * which is where muxers put it.
+ */
+final class PlaybackPreparer {
+    static final long HEADER_BYTES = 1024 * 1024;
+    static final long TAIL_BYTES = 4L * 1024 * 1024;
+    // An index larger than this is only partly warmed, players read it lazily anyway.
+    static final long MAX_INDEX_BYTES = 16L * 1024 * 1024;
+    private static final int CHUNK_BYTES = 512 * 1024;
+    private static final int MAX_MP4_BOXES = 64;
+
+    static final String RANGE_HEADER = "header";
+    static final String RANGE_INDEX = "index";
+    static final String RANGE_TAIL = "tail";
+    static final String RANGE_LEAD = "lead";
+
+    static final class Range {
+        final String name;
+        final long offset;
+        final long length;
+        double durationMs;
+
+        Range(String name, long offset, long length) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    static final class Result {
+        final long fileSize;
+        final List<Range> ranges;
+        final long bytesWarmed;
+        // Whether the index position came from the container rather than the tail guess.
+        final boolean indexFound;
+
+        Result(long fileSize, List<Range> ranges, long bytesWarmed, boolean indexFound) {
+            this.fileSize = fileSize;
+            this.ranges = ranges;
+            this.bytesWarmed = bytesWarmed;
+            this.indexFound = indexFound;
+        }
+    }
+
+    private PlaybackPreparer() {}
+
+    /**
+     * Warms the header, the index and the first {@code leadBytes} of {@code file}. Cancelled by
+     * interrupting the calling thread.
+     */
+    static Result prepare(File file, long leadBytes) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            List<Range> ranges = new ArrayList<>();
+            ranges.add(new Range(RANGE_HEADER, 0, Math.min(HEADER_BYTES, fileSize)));
+
+            long leadEnd = Math.max(HEADER_BYTES, Math.min(leadBytes, fileSize));
+            long[] index = findIndex(channel, file.getName());
+            boolean indexFound = index != null;
+            if (indexFound) {
+                ranges.add(new Range(RANGE_INDEX, index[0], Math.min(index[1], MAX_INDEX_BYTES)));
+            }
+            else if (fileSize > leadEnd) {
+                long tailStart = Math.max(leadEnd, fileSize - TAIL_BYTES);
+                ranges.add(new Range(RANGE_TAIL, tailStart, fileSize - tailStart));
+            }
+            if (fileSize > HEADER_BYTES && leadEnd > HEADER_BYTES) {
+                ranges.add(new Range(RANGE_LEAD, HEADER_BYTES, leadEnd - HEADER_BYTES));
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+            long bytesWarmed = 0;
+            for (Range range : ranges) {
+                long startedAt = System.nanoTime();
+                bytesWarmed += read(channel, buffer, range.offset, range.offset + range.length);
+                range.durationMs = (System.nanoTime() - startedAt) / 1_000_000d;
+            }
+            return new Result(fileSize, ranges, bytesWarmed, indexFound);
+        }
+    }
+
+    private static long read(FileChannel channel, ByteBuffer buffer, long start, long end)
+            throws IOException, InterruptedException {
+        long position = start;
+        while (position < end) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Preparing playback was cancelled");
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        return position - start;
+    }
+
+    /** {offset, length} of the seek index, or null when the header doesn't say where it is. */
+    private static long[] findIndex(FileChannel channel, String fileName) throws IOException, InterruptedException {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        try {
+            if (name.endsWith(".mkv") || name.endsWith(".webm")) {
+                EbmlReader.Element cues = MatroskaSubtitleExtractor.findCues(channel);
+                return cues == null ? null : new long[] {cues.position, cues.end() - cues.position};
+            }
+            if (name.endsWith(".mp4") || name.endsWith(".m4v")) {
+                return findMp4Box(channel, "moov");
+            }
+        }
+        catch (IOException e) {
+            // Damaged or unusual header, the tail guess still helps.
+        }
+        return null;
+    }
+
+    // Hops over the top level boxes, each starts with a 32 bit size, or 1 and a 64 bit size after the type.
+    private static long[] findMp4Box(FileChannel channel, String type) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(16);
+        long fileSize = channel.size();
+        long position = 0;
+        for (int box = 0; box < MAX_MP4_BOXES && position + 8 <= fileSize; box++) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) <= 0) {
+                    break;
+                }
+            }
+            header.flip();
+            if (header.remaining() < 8) {
+                return null;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            String boxType = new String(header.array(), 4, 4, StandardCharsets.US_ASCII);
+            if (size == 1) {
+                if (header.remaining() < 16) {
+                    return null;
+                }
+                size = header.getLong(8);
+            }
+            else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < 8) {
+                return null;
+            }
+            if (boxType.equals(type)) {
+                return new long[] {position, Math.min(size, fileSize - position)};
+            }
+            position += size;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package com.yorha;
+
+import java.util.Locale;
+
+/**
+ * Parses release file names of the form {@code [SubsPlease] Show Name - 05v2 (1080p) [ABCDEF12].mkv}.
+ * The name is scanned once from both ends with index arithmetic, so the only allocations are the
+ * strings of a name that matched; library scans run this on every file in every show folder.
+ * The group tag, version, resolution and hash are optional, the " - episode" part is not, which
+ * leaves out batches and movies.
+ */
+final class SubsPleaseName {
+    final String show;
+    // Without leading zeros: "5", "12.5".
+    final String episode;
+    // 0 for the first release, 2 for "v2".
+    final int version;
+    // "1080p", or null when the name has none.
+    final String resolution;
+    // Upper case CRC32 hex, or null.
+    final String hash;
+
+    private SubsPleaseName(String show, String episode, int version, String resolution, String hash) {
+        this.show = show;
+        this.episode = episode;
+        this.version = version;
+        this.resolution = resolution;
+        this.hash = hash;
+    }
+
+    /** Returns null when {@code fileName} isn't an episode release name. */
+    static SubsPleaseName parse(String fileName) {
+        int start = 0;
+        int end = fileName.lastIndexOf('.');
+        if (end < 0) {
+            end = fileName.length();
+        }
+
+        // Leading "[Group] ".
+        if (start < end && fileName.charAt(start) == '[') {
+            int close = fileName.indexOf(']', start);
+            if (close < 0 || close >= end) {
+                return null;
+            }
+            start = skipSpaces(fileName, close + 1, end);
+        }
+
+        // Trailing "[HASH]" and "(1080p)", either may be missing.
+        String hash = null;
+        String resolution = null;
+        end = trimSpaces(fileName, start, end);
+        if (end > start && fileName.charAt(end - 1) == ']') {
+            int open = fileName.lastIndexOf('[', end - 1);
+            if (open < start) {
+                return null;
+            }
+            if (isHex(fileName, open + 1, end - 1)) {
+                hash = fileName.substring(open + 1, end - 1).toUpperCase(Locale.ROOT);
+            }
+            end = trimSpaces(fileName, start, open);
+        }
+        if (end > start && fileName.charAt(end - 1) == ')') {
+            int open = fileName.lastIndexOf('(', end - 1);
+            if (open < start) {
+                return null;
+            }
+            if (end - 2 > open + 1 && fileName.charAt(end - 2) == 'p' && isDigits(fileName, open + 1, end - 2)) {
+                resolution = fileName.substring(open + 1, end - 1);
+            }
+            end = trimSpaces(fileName, start, open);
+        }
+
+        // "Show Name - 05v2", the show itself may contain " - " so the last one counts.
+        int separator = fileName.lastIndexOf(" - ", end - 3);
+        if (separator <= start) {
+            return null;
+        }
+        int position = separator + 3;
+        int integerEnd = digitsEnd(fileName, position, end);
+        if (integerEnd == position) {
+            return null;
+        }
+        int episodeEnd = integerEnd;
+        if (episodeEnd < end && fileName.charAt(episodeEnd) == '.') {
+            int fractionEnd = digitsEnd(fileName, episodeEnd + 1, end);
+            if (fractionEnd == episodeEnd + 1) {
+                return null;
+            }
+            episodeEnd = fractionEnd;
+        }
+        int version = 0;
+        if (episodeEnd < end && (fileName.charAt(episodeEnd) == 'v' || fileName.charAt(episodeEnd) == 'V')) {
+            int versionEnd = digitsEnd(fileName, episodeEnd + 1, end);
+            if (versionEnd == episodeEnd + 1 || versionEnd - episodeEnd > 4) {
+                return null;
+            }
+            for (int i = episodeEnd + 1; i < versionEnd; i++) {
+                version = version * 10 + fileName.charAt(i) - '0';
+            }
+            if (versionEnd != end) {
+                return null;
+            }
+        }
+        else if (episodeEnd != end) {
+            return null;
+        }
+
+        // Drop leading zeros, keeping one before a fraction: "05" -> "5", "00.5" -> "0.5".
+        int episodeStart = position;
+        while (episodeStart < integerEnd - 1 && fileName.charAt(episodeStart) == '0') {
+            episodeStart++;
+        }
+        int showEnd = trimSpaces(fileName, start, separator);
+        if (showEnd == start) {
+            return null;
+        }
+        return new SubsPleaseName(fileName.substring(start, showEnd), fileName.substring(episodeStart, episodeEnd),
+                version, resolution, hash);
+    }
+
+    private static int skipSpaces(String text, int from, int end) {
+        while (from < end && text.charAt(from) == ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimSpaces(String text, int start, int end) {
+        while (end > start && text.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int digitsEnd(String text, int from, int end) {
+        while (from < end && text.charAt(from) >= '0' && text.charAt(from) <= '9') {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isDigits(String text, int from, int end) {
+        return from < end && digitsEnd(text, from, end) == end;
+    }
+
+    private static boolean isHex(String text, int from, int end) {
+        if (end - from != 8) {
+            return false;
+        }
+        for (int i = from; i < end; i++) {
+            if (Character.digit(text.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,135 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads byte ranges of a UTF-8 text file with positional {@link FileChannel} reads, so a log
+ * viewer can page through files far larger than it could hold as one string. Page edges are
+ * moved onto character and (optionally) line boundaries, and the buffers and decoder are reused
+ * per thread.
+ */
+final class TextFilePager {
+    static final int MAX_PAGE_BYTES = 1 << 20;
+
+    private static final ThreadLocal<ByteBuffer> BYTE_BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAX_PAGE_BYTES));
+    private static final ThreadLocal<CharBuffer> CHAR_BUFFERS =
+            ThreadLocal.withInitial(() -> CharBuffer.allocate(MAX_PAGE_BYTES));
+    private static final ThreadLocal<CharsetDecoder> DECODERS =
+            ThreadLocal.withInitial(() -> StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE));
+
+    static final class Page {
+        final String text;
+        // Byte range of the file that text was decoded from.
+        final long offset;
+        final long endOffset;
+        final long fileSize;
+
+        Page(String text, long offset, long endOffset, long fileSize) {
+            this.text = text;
+            this.offset = offset;
+            this.endOffset = endOffset;
+            this.fileSize = fileSize;
+        }
+    }
+
+    private TextFilePager() {}
+
+    /**
+     * Reads up to {@code length} bytes starting at {@code offset}. With {@code wholeLines} the
+     * partial line at the start of the range (when not at the start of the file) is skipped,
+     * so reading the previous page up to the returned {@link Page#offset} loses nothing.
+     */
+    static Page read(File file, long offset, int length, boolean wholeLines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long start = Math.max(0, Math.min(offset, fileSize));
+            int count = (int) Math.min(Math.min(length, MAX_PAGE_BYTES), fileSize - start);
+
+            ByteBuffer bytes = BYTE_BUFFERS.get();
+            bytes.clear().limit(Math.max(count, 0));
+            long position = start;
+            while (bytes.hasRemaining()) {
+                int read = channel.read(bytes, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            bytes.flip();
+
+            int first = 0;
+            if (start > 0) {
+                first = wholeLines ? indexAfterNewline(bytes) : skipContinuationBytes(bytes);
+            }
+            int end = start + bytes.limit() < fileSize ? trimIncompleteSequence(bytes) : bytes.limit();
+            if (first >= end && start > 0) {
+                // A single line longer than the page, fall back to splitting it mid-line.
+                first = skipContinuationBytes(bytes);
+            }
+
+            bytes.position(first).limit(end);
+            return new Page(decode(bytes), start + first, start + end, fileSize);
+        }
+    }
+
+    /** Reads the last {@code maxBytes} of the file, starting on a whole line. */
+    static Page tail(File file, int maxBytes) throws IOException {
+        long fileSize = file.length();
+        int count = Math.min(maxBytes, MAX_PAGE_BYTES);
+        return read(file, Math.max(0, fileSize - count), count, true);
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        CharsetDecoder decoder = DECODERS.get();
+        CharBuffer chars = CHAR_BUFFERS.get();
+        chars.clear();
+        decoder.reset();
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars.toString();
+    }
+
+    private static int indexAfterNewline(ByteBuffer bytes) {
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return bytes.limit();
+    }
+
+    private static int skipContinuationBytes(ByteBuffer bytes) {
+        int i = 0;
+        while (i < bytes.limit() && (bytes.get(i) & 0xC0) == 0x80) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Returns the limit with any multi-byte sequence cut off by the end of the page removed. */
+    private static int trimIncompleteSequence(ByteBuffer bytes) {
+        int limit = bytes.limit();
+        // A UTF-8 sequence is at most 4 bytes, so only the last 3 can belong to a cut sequence.
+        for (int back = 1; back <= Math.min(3, limit); back++) {
+            int b = bytes.get(limit - back) & 0xFF;
+            if ((b & 0xC0) == 0x80) {
+                continue;
+            }
+            int sequenceLength = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+            return sequenceLength > back ? limit - back : limit;
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,174 @@
+package com.yorha;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Size bounded on-disk LRU of rendered thumbnails. Entries are keyed by the source path, its
+ * modification time and the requested size, so an edited or replaced video gets a new thumbnail
+ * and the stale one simply ages out. Files are written to a temp name and renamed into place, so
+ * a reader never sees a half written JPEG.
+ */
+final class ThumbnailCache {
+    interface Renderer {
+        /** Writes the thumbnail to {@code target}, returns false when no frame could be produced. */
+        boolean render(File target) throws IOException;
+    }
+
+    private final File directory;
+    private final long maxBytes;
+    private final Map<String, Object> renderLocks = new ConcurrentHashMap<>();
+    // Access ordered, values are file sizes. Loaded from the directory on first use.
+    private LinkedHashMap<String, Long> entries;
+    private long totalBytes;
+
+    ThumbnailCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    static String key(String sourcePath, long lastModified, long sourceSize, int width, int height) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((sourcePath + '\0' + lastModified + '\0' + sourceSize + '\0' + width + 'x' + height)
+                    .getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached thumbnail for {@code key}, rendering it first if needed. Concurrent
+     * requests for the same key render once. Returns null when the renderer produced nothing.
+     */
+    File get(String key, Renderer renderer) throws IOException {
+        File cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Object lock = renderLocks.computeIfAbsent(key, k -> new Object());
+        try {
+            synchronized (lock) {
+                cached = lookup(key);
+                if (cached != null) {
+                    return cached;
+                }
+                if (!directory.isDirectory() && !directory.mkdirs()) {
+                    throw new IOException("Could not create " + directory);
+                }
+                File target = fileFor(key);
+                File temp = new File(directory, key + ".tmp");
+                try {
+                    if (!renderer.render(temp) || temp.length() == 0) {
+                        return null;
+                    }
+                    Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+                finally {
+                    temp.delete();
+                }
+                add(key, target.length());
+                return target;
+            }
+        }
+        finally {
+            renderLocks.remove(key, lock);
+        }
+    }
+
+    synchronized long getTotalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    synchronized int size() {
+        ensureLoaded();
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        ensureLoaded();
+        for (String key : entries.keySet()) {
+            fileFor(key).delete();
+        }
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private synchronized File lookup(String key) {
+        ensureLoaded();
+        if (entries.get(key) == null) {
+            return null;
+        }
+        File file = fileFor(key);
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            // Gone behind our back, e.g. the system trimmed the cache directory.
+            totalBytes -= entries.remove(key);
+            return null;
+        }
+        return file;
+    }
+
+    private synchronized void add(String key, long bytes) {
+        ensureLoaded();
+        Long previous = entries.put(key, bytes);
+        totalBytes += bytes - (previous == null ? 0 : previous);
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            fileFor(eldest.getKey()).delete();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (entries != null) {
+            return;
+        }
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+        totalBytes = 0;
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Last modified is the best recency signal left from the previous process.
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                file.delete();
+            }
+            else if (name.endsWith(".jpg")) {
+                entries.put(name.substring(0, name.length() - 4), file.length());
+                totalBytes += file.length();
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + ".jpg");
+    }
+}
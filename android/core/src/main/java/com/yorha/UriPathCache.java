@@ -0,0 +1,114 @@
+package com.yorha;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU of content URI to filesystem path resolutions. Resolving a SAF URI costs several
+ * ContentResolver queries (each a Binder round trip) plus storage probes, while the answer for a
+ * saved show folder almost never changes. Hits are re-checked with a single stat so a path that
+ * disappeared is resolved again instead of being handed back to JS.
+ */
+final class UriPathCache {
+    private static final int MAX_ENTRIES = 256;
+
+    interface UriFilter {
+        boolean keep(String uri);
+    }
+
+    static final class Stats {
+        final int size;
+        final long hits;
+        final long misses;
+        final long stale;
+        final long evictions;
+        final long invalidations;
+
+        private Stats(int size, long hits, long misses, long stale, long evictions, long invalidations) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.stale = stale;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+    }
+
+    private long hits;
+    private long misses;
+    private long stale;
+    private long evictions;
+    private long invalidations;
+
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > MAX_ENTRIES) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * @return the cached path, or null when the URI is unknown or its path no longer exists
+     */
+    String get(String uri) {
+        String path;
+        synchronized (this) {
+            path = entries.get(uri);
+            if (path == null) {
+                misses++;
+                return null;
+            }
+        }
+        // Stat outside the lock, a slow SD card must not block other lookups.
+        if (new File(path).exists()) {
+            synchronized (this) {
+                hits++;
+            }
+            return path;
+        }
+        synchronized (this) {
+            entries.remove(uri, path);
+            stale++;
+            misses++;
+        }
+        return null;
+    }
+
+    synchronized void put(String uri, String path) {
+        entries.put(uri, path);
+    }
+
+    /** Drops every entry, used when a volume is mounted, ejected or removed. */
+    synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    /** Drops the entries {@code filter} rejects, e.g. URIs whose grant has been revoked. */
+    void retain(UriFilter filter) {
+        List<String> uris;
+        synchronized (this) {
+            uris = new ArrayList<>(entries.keySet());
+        }
+        for (String uri : uris) {
+            if (!filter.keep(uri)) {
+                synchronized (this) {
+                    if (entries.remove(uri) != null) {
+                        invalidations++;
+                    }
+                }
+            }
+        }
+    }
+
+    synchronized Stats getStats() {
+        return new Stats(entries.size(), hits, misses, stale, evictions, invalidations);
+    }
+}
@@ -0,0 +1,413 @@
+package com.yorha;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal HTTP/1.1 server for casting local episodes. Serves {@code /video?file=<path>} and
+ * {@code /vtt?file=<path>} (the .vtt next to the video) with Range/206 support and keep-alive.
+ * File bodies go straight from the file to the socket with {@link FileChannel#transferTo}, and
+ * each connection is handled by one thread from a small bounded pool, which is plenty for a
+ * Chromecast opening a few connections to seek.
+ */
+final class VideoServer implements Closeable {
+    private static final int MAX_CONNECTIONS = 8;
+    private static final int IDLE_TIMEOUT_MS = 15_000;
+    private static final int MAX_HEADER_LINE = 8 * 1024;
+    private static final int MAX_HEADERS = 64;
+    private static final long TRANSFER_CHUNK = 4L << 20;
+
+    private final ServerSocketChannel serverChannel;
+    private final ThreadPoolExecutor connectionPool;
+    private final Thread acceptThread;
+    private final CountDownLatch accepting = new CountDownLatch(1);
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private long bindNanos;
+    private long readyNanos;
+
+    private VideoServer(ServerSocketChannel serverChannel) {
+        this.serverChannel = serverChannel;
+        AtomicInteger threadCount = new AtomicInteger();
+        connectionPool = new ThreadPoolExecutor(0, MAX_CONNECTIONS, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "yorha-http-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        acceptThread = new Thread(this::acceptLoop, "yorha-http-accept");
+        acceptThread.setDaemon(true);
+    }
+
+    /**
+     * Binds to {@code preferredPort} on all interfaces and starts accepting. The socket stays bound
+     * for the lifetime of the server, so there is no window where another process can take the
+     * port. If the preferred port is taken a free one is picked instead, 0 always picks a free one.
+     * Returns once the accept loop is running.
+     */
+    static VideoServer start(int preferredPort) throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            // Lets a quick restart rebind the previous port while old connections sit in TIME_WAIT.
+            channel.socket().setReuseAddress(true);
+            try {
+                channel.bind(new InetSocketAddress(preferredPort));
+            }
+            catch (IOException e) {
+                if (preferredPort == 0) {
+                    throw e;
+                }
+                channel.bind(new InetSocketAddress(0));
+            }
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        VideoServer server = new VideoServer(channel);
+        server.bindNanos = System.nanoTime() - startedAt;
+        server.acceptThread.start();
+        server.accepting.await();
+        server.readyNanos = System.nanoTime() - startedAt;
+        return server;
+    }
+
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /** Time taken to open and bind the listening socket. */
+    double getBindMs() {
+        return bindNanos / 1_000_000d;
+    }
+
+    /** Time from {@link #start} being called until the server was accepting connections. */
+    double getReadyMs() {
+        return readyNanos / 1_000_000d;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        closeQuietly(serverChannel);
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+        connectionPool.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        accepting.countDown();
+        while (running) {
+            final SocketChannel connection;
+            try {
+                connection = serverChannel.accept();
+            }
+            catch (ClosedChannelException e) {
+                return;
+            }
+            catch (IOException e) {
+                continue;
+            }
+            connections.add(connection);
+            try {
+                connectionPool.execute(() -> serve(connection));
+            }
+            catch (RejectedExecutionException e) {
+                try {
+                    writeHead(connection, 503, "Service Unavailable", 0, "text/plain", null, false);
+                }
+                catch (IOException ignored) {}
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        try {
+            connection.socket().setSoTimeout(IDLE_TIMEOUT_MS);
+            connection.socket().setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(connection.socket().getInputStream());
+            boolean keepAlive = true;
+            while (running && keepAlive) {
+                Request request = Request.read(in);
+                if (request == null) {
+                    break;
+                }
+                keepAlive = request.keepAlive();
+                handle(request, connection, keepAlive);
+            }
+        }
+        catch (IOException e) {
+            // Client went away or timed out, nothing to report.
+        }
+        finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    private void handle(Request request, SocketChannel connection, boolean keepAlive) throws IOException {
+        boolean isHead = "HEAD".equals(request.method);
+        if (!isHead && !"GET".equals(request.method)) {
+            writeHead(connection, 405, "Method Not Allowed", 0, "text/plain", null, keepAlive);
+            return;
+        }
+
+        String filePath = request.queryParameter("file");
+        File file;
+        String contentType;
+        if ("/video".equals(request.path) && filePath != null) {
+            file = new File(filePath);
+            contentType = "video/mp4";
+        }
+        else if ("/vtt".equals(request.path) && filePath != null) {
+            int extensionStart = filePath.lastIndexOf('.');
+            String withoutExtension = extensionStart > filePath.lastIndexOf('/') && extensionStart >= 0
+                    ? filePath.substring(0, extensionStart) : filePath;
+            file = new File(withoutExtension + ".vtt");
+            contentType = "text/vtt";
+        }
+        else {
+            writeHead(connection, 404, "Not Found", 0, "text/plain", null, keepAlive);
+            return;
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long fileSize = fileChannel.size();
+            String range = request.headers.get("range");
+            long start = 0;
+            long end = fileSize - 1;
+            if (range != null) {
+                long[] bounds = parseRange(range, fileSize);
+                if (bounds == null) {
+                    writeHead(connection, 416, "Range Not Satisfiable", 0, contentType,
+                            "Content-Range: bytes */" + fileSize + "\r\n", keepAlive);
+                    return;
+                }
+                start = bounds[0];
+                end = bounds[1];
+                writeHead(connection, 206, "Partial Content", end - start + 1, contentType,
+                        "Content-Range: bytes " + start + "-" + end + "/" + fileSize + "\r\n", keepAlive);
+            }
+            else {
+                writeHead(connection, 200, "OK", fileSize, contentType, null, keepAlive);
+            }
+            if (!isHead) {
+                transfer(fileChannel, start, end - start + 1, connection);
+            }
+        }
+        catch (IOException e) {
+            if (!file.exists()) {
+                writeHead(connection, 404, "Not Found", 0, "text/plain", null, keepAlive);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    private static void transfer(FileChannel fileChannel, long position, long count, SocketChannel connection) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long sent = fileChannel.transferTo(position, Math.min(TRANSFER_CHUNK, end - position), connection);
+            if (sent <= 0) {
+                throw new IOException("Connection stopped accepting data");
+            }
+            position += sent;
+        }
+    }
+
+    /**
+     * Parses a single {@code bytes=} range, returning inclusive bounds or null when it can't be
+     * satisfied. Multi-range requests are answered with their first range.
+     */
+    static long[] parseRange(String header, long fileSize) {
+        String value = header.trim();
+        if (!value.startsWith("bytes=") || fileSize == 0) {
+            return null;
+        }
+        String spec = value.substring("bytes=".length());
+        int comma = spec.indexOf(',');
+        if (comma >= 0) {
+            spec = spec.substring(0, comma);
+        }
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // Suffix range, the last N bytes.
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, fileSize - suffix);
+                end = fileSize - 1;
+            }
+            else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? fileSize - 1 : Math.min(Long.parseLong(last), fileSize - 1);
+            }
+            if (start >= fileSize || start > end) {
+                return null;
+            }
+            return new long[]{start, end};
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void writeHead(SocketChannel connection, int status, String reason, long contentLength,
+                                  String contentType, String extraHeaders, boolean keepAlive) throws IOException {
+        StringBuilder head = new StringBuilder(256)
+                .append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n")
+                .append("Content-Length: ").append(contentLength).append("\r\n")
+                .append("Accept-Ranges: bytes\r\n")
+                .append("Access-Control-Allow-Origin: *\r\n")
+                .append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n");
+        if (extraHeaders != null) {
+            head.append(extraHeaders);
+        }
+        head.append("\r\n");
+        ByteBuffer buffer = ByteBuffer.wrap(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        while (buffer.hasRemaining()) {
+            connection.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        }
+        catch (IOException ignored) {}
+    }
+
+    private static final class Request {
+        final String method;
+        final String path;
+        final String query;
+        final String version;
+        final Map<String, String> headers;
+
+        private Request(String method, String path, String query, String version, Map<String, String> headers) {
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.version = version;
+            this.headers = headers;
+        }
+
+        /** Returns null once the client closes the connection between requests. */
+        static Request read(InputStream in) throws IOException {
+            String requestLine = readLine(in);
+            while (requestLine != null && requestLine.isEmpty()) {
+                requestLine = readLine(in);
+            }
+            if (requestLine == null) {
+                return null;
+            }
+            String[] parts = requestLine.split(" ");
+            if (parts.length != 3) {
+                throw new IOException("Malformed request line");
+            }
+
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while ((line = readLine(in)) != null && !line.isEmpty()) {
+                if (headers.size() >= MAX_HEADERS) {
+                    throw new IOException("Too many headers");
+                }
+                int colon = line.indexOf(':');
+                if (colon > 0) {
+                    headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+                }
+            }
+
+            String target = parts[1];
+            int queryStart = target.indexOf('?');
+            String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+            String query = queryStart >= 0 ? target.substring(queryStart + 1) : "";
+            return new Request(parts[0], path, query, parts[2], headers);
+        }
+
+        boolean keepAlive() {
+            String connection = headers.get("connection");
+            if ("HTTP/1.0".equals(version)) {
+                return "keep-alive".equalsIgnoreCase(connection);
+            }
+            return !"close".equalsIgnoreCase(connection);
+        }
+
+        String queryParameter(String name) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                String key = equals >= 0 ? pair.substring(0, equals) : pair;
+                if (key.equals(name)) {
+                    try {
+                        return URLDecoder.decode(equals >= 0 ? pair.substring(equals + 1) : "", "UTF-8");
+                    }
+                    catch (UnsupportedEncodingException | IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    int length = line.length();
+                    if (length > 0 && line.charAt(length - 1) == '\r') {
+                        line.setLength(length - 1);
+                    }
+                    return line.toString();
+                }
+                if (line.length() >= MAX_HEADER_LINE) {
+                    throw new IOException("Header line too long");
+                }
+                line.append((char) b);
+            }
+            return line.length() == 0 ? null : line.toString();
+        }
+    }
+}
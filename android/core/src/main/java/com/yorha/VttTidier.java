@@ -0,0 +1,327 @@
+package com.yorha;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Cleans up WebVTT tracks converted from fansub ASS subtitles. Cues that only draw a background
+ * box are dropped, a cue that repeats the text of a cue ending exactly when it starts is folded
+ * into that earlier cue, and ASS sign markers are replaced with "[Sign] ". The file is parsed in
+ * one streaming pass with integer timestamps, duplicates are found through a hash index instead of
+ * a scan of every kept cue, and the result replaces the original with an atomic rename.
+ */
+final class VttTidier {
+    private static final Pattern BACKGROUND_DRAWING =
+            Pattern.compile("m 0 0 l 0 \\d{1,3} l \\d{1,3} \\d{1,3} l \\d{1,3} 0");
+    private static final Pattern SIGN_MARKER = Pattern.compile("\\{=\\d+\\}");
+    private static final String ARROW = " --> ";
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    static final class Result {
+        final int cues;
+        final int kept;
+        final int merged;
+        final int backgroundsRemoved;
+        final int signsMarked;
+
+        Result(int cues, int kept, int merged, int backgroundsRemoved, int signsMarked) {
+            this.cues = cues;
+            this.kept = kept;
+            this.merged = merged;
+            this.backgroundsRemoved = backgroundsRemoved;
+            this.signsMarked = signsMarked;
+        }
+    }
+
+    private static final class Cue {
+        final int index;
+        // Timing line as written, used for cues whose timing could not be parsed.
+        final String timing;
+        final long startMs;
+        long endMs;
+        // Everything after the end timestamp, e.g. " position:50%".
+        String settings;
+        final String text;
+
+        Cue(int index, String timing, long startMs, long endMs, String settings, String text) {
+            this.index = index;
+            this.timing = timing;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.settings = settings;
+            this.text = text;
+        }
+
+        boolean isTimed() {
+            return startMs >= 0;
+        }
+    }
+
+    /** Kept cues waiting for a continuation, keyed by text and end time. */
+    private static final class CueKey {
+        final String text;
+        final long endMs;
+
+        CueKey(String text, long endMs) {
+            this.text = text;
+            this.endMs = endMs;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof CueKey)) {
+                return false;
+            }
+            CueKey key = (CueKey) other;
+            return endMs == key.endMs && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return text.hashCode() * 31 + Long.hashCode(endMs);
+        }
+    }
+
+    private VttTidier() {}
+
+    /** Tidies {@code file} in place. */
+    static Result tidy(File file) throws IOException, InterruptedException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tidy.tmp");
+        try {
+            Result result;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8), 64 * 1024);
+                 FileOutputStream output = new FileOutputStream(temp)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+                result = tidy(reader, writer);
+                writer.flush();
+                output.getFD().sync();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return result;
+        }
+        finally {
+            temp.delete();
+        }
+    }
+
+    static Result tidy(BufferedReader reader, Writer writer) throws IOException, InterruptedException {
+        List<Cue> kept = new ArrayList<>();
+        Map<CueKey, List<Cue>> openCues = new HashMap<>();
+        int cues = 0;
+        int merged = 0;
+        int backgroundsRemoved = 0;
+
+        // The first block is the WEBVTT header (and any header metadata), it is rewritten below.
+        boolean inHeader = true;
+        String timing = null;
+        StringBuilder text = new StringBuilder();
+        String line;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            line = reader.readLine();
+            endOfInput = line == null;
+            if (line != null && line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            if (line != null && !line.isEmpty()) {
+                if (inHeader) {
+                    continue;
+                }
+                if (timing == null) {
+                    timing = line;
+                }
+                else {
+                    if (text.length() > 0) {
+                        text.append('\n');
+                    }
+                    text.append(line);
+                }
+                continue;
+            }
+
+            // Blank line or end of input closes the current block.
+            if (inHeader) {
+                inHeader = false;
+                continue;
+            }
+            if (timing == null) {
+                continue;
+            }
+            cues++;
+            if ((cues % CANCEL_CHECK_INTERVAL) == 0 && Thread.interrupted()) {
+                throw new InterruptedException("Tidying subtitles was cancelled");
+            }
+            String cueText = text.toString();
+            String cueTiming = timing;
+            timing = null;
+            text.setLength(0);
+            if (cueText.isEmpty()) {
+                continue;
+            }
+            if (cueText.contains("m 0 0 l 0 ") && BACKGROUND_DRAWING.matcher(cueText).find()) {
+                backgroundsRemoved++;
+                continue;
+            }
+
+            Cue cue = parseCue(kept.size(), cueTiming, cueText);
+            if (cue.isTimed()) {
+                List<Cue> candidates = openCues.get(new CueKey(cueText, cue.startMs));
+                if (candidates != null) {
+                    // The earliest kept cue wins, matching a front to back search.
+                    Cue previous = candidates.remove(0);
+                    if (candidates.isEmpty()) {
+                        openCues.remove(new CueKey(cueText, cue.startMs));
+                    }
+                    previous.endMs = cue.endMs;
+                    previous.settings = cue.settings;
+                    index(openCues, previous);
+                    merged++;
+                    continue;
+                }
+                index(openCues, cue);
+            }
+            kept.add(cue);
+        }
+
+        int signsMarked = 0;
+        writer.write("WEBVTT\n\n");
+        for (Cue cue : kept) {
+            if (cue.isTimed()) {
+                writeTimestamp(writer, cue.startMs);
+                writer.write(ARROW);
+                writeTimestamp(writer, cue.endMs);
+                writer.write(cue.settings);
+            }
+            else {
+                writer.write(cue.timing);
+            }
+            writer.write('\n');
+            String cueText = cue.text;
+            if (cueText.contains("{=")) {
+                String marked = SIGN_MARKER.matcher(cueText).replaceAll("[Sign] ");
+                if (!marked.equals(cueText)) {
+                    signsMarked++;
+                    cueText = marked;
+                }
+            }
+            writer.write(cueText);
+            writer.write("\n\n");
+        }
+        return new Result(cues, kept.size(), merged, backgroundsRemoved, signsMarked);
+    }
+
+    private static void index(Map<CueKey, List<Cue>> openCues, Cue cue) {
+        List<Cue> list = openCues.computeIfAbsent(new CueKey(cue.text, cue.endMs), key -> new ArrayList<>(1));
+        int position = list.size();
+        // Almost always one entry, keep the list in kept order so the earliest match stays first.
+        while (position > 0 && list.get(position - 1).index > cue.index) {
+            position--;
+        }
+        list.add(position, cue);
+    }
+
+    private static Cue parseCue(int index, String timing, String text) {
+        int arrow = timing.indexOf(ARROW);
+        if (arrow > 0) {
+            long start = parseTimestamp(timing, 0, arrow);
+            int endStart = arrow + ARROW.length();
+            int endEnd = timing.indexOf(' ', endStart);
+            if (endEnd < 0) {
+                endEnd = timing.length();
+            }
+            long end = parseTimestamp(timing, endStart, endEnd);
+            if (start >= 0 && end >= 0) {
+                return new Cue(index, timing, start, end, timing.substring(endEnd), text);
+            }
+        }
+        return new Cue(index, timing, -1, -1, "", text);
+    }
+
+    /** Parses {@code [hh:]mm:ss.ttt}, returns -1 when the text is not a timestamp. */
+    static long parseTimestamp(String value, int from, int to) {
+        long total = 0;
+        long field = 0;
+        int digits = 0;
+        int colons = 0;
+        int i = from;
+        for (; i < to; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                field = field * 10 + (c - '0');
+                digits++;
+            }
+            else if (c == ':' && digits > 0 && colons < 2) {
+                total = total * 60 + field;
+                field = 0;
+                digits = 0;
+                colons++;
+            }
+            else if (c == '.') {
+                break;
+            }
+            else {
+                return -1;
+            }
+        }
+        if (colons == 0 || digits == 0 || i >= to) {
+            return -1;
+        }
+        total = total * 60 + field;
+
+        int millis = 0;
+        int fractionDigits = 0;
+        for (i++; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9' || fractionDigits == 3) {
+                return -1;
+            }
+            millis = millis * 10 + (c - '0');
+            fractionDigits++;
+        }
+        if (fractionDigits != 3) {
+            return -1;
+        }
+        return total * 1000 + millis;
+    }
+
+    /** Writes {@code [hh:]mm:ss.ttt}, leaving out the hours when zero as FFmpeg does. */
+    static void writeTimestamp(Writer writer, long ms) throws IOException {
+        long hours = ms / 3_600_000;
+        if (hours > 0) {
+            if (hours < 10) {
+                writer.write('0');
+            }
+            writer.write(Long.toString(hours));
+            writer.write(':');
+        }
+        long minutes = (ms / 60_000) % 60;
+        long seconds = (ms / 1000) % 60;
+        long millis = ms % 1000;
+        char[] out = new char[9];
+        out[0] = (char) ('0' + minutes / 10);
+        out[1] = (char) ('0' + minutes % 10);
+        out[2] = ':';
+        out[3] = (char) ('0' + seconds / 10);
+        out[4] = (char) ('0' + seconds % 10);
+        out[5] = '.';
+        out[6] = (char) ('0' + millis / 100);
+        out[7] = (char) ('0' + (millis / 10) % 10);
+        out[8] = (char) ('0' + millis % 10);
+        writer.write(out);
+    }
+}
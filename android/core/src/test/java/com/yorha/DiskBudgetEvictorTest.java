@@ -0,0 +1,244 @@
+package com.yorha;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskBudgetEvictorTest {
+    // Fixed times so the order never depends on when the test runs.
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long OLD = 1_600_000_000_000L;
+    private static final long NEWER = OLD + DAY_MS;
+    private static final long NEWEST = OLD + 2 * DAY_MS;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static String name(int episode) {
+        return String.format("[SubsPlease] Show - %02d (1080p) [ABCD1234].mkv", episode);
+    }
+
+    private static File write(File folder, String name, int size, long accessedMs) throws IOException {
+        File file = new File(folder, name);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        FileTime time = FileTime.fromMillis(accessedMs);
+        Files.getFileAttributeView(file.toPath(), BasicFileAttributeView.class).setTimes(time, time, null);
+        return file;
+    }
+
+    private static DiskBudgetEvictor.Root root(File folder, long budgetBytes, String... watched) {
+        return new DiskBudgetEvictor.Root(folder, budgetBytes, Arrays.asList(watched));
+    }
+
+    private static DiskBudgetEvictor.Policy policy(long globalBudgetBytes, boolean evictUnwatched) {
+        DiskBudgetEvictor.Policy policy = new DiskBudgetEvictor.Policy();
+        policy.globalBudgetBytes = globalBudgetBytes;
+        policy.evictUnwatched = evictUnwatched;
+        return policy;
+    }
+
+    private static List<String> evictedNames(DiskBudgetEvictor.Result result) {
+        List<String> names = new ArrayList<>();
+        for (DiskBudgetEvictor.Candidate candidate : result.evicted) {
+            names.add(candidate.file.getName());
+        }
+        return names;
+    }
+
+    private static DiskBudgetEvictor.Result evict(List<DiskBudgetEvictor.Root> roots, DiskBudgetEvictor.Policy policy)
+            throws InterruptedException {
+        return new DiskBudgetEvictor(null).evict(roots, policy);
+    }
+
+    @Test
+    public void evictsWatchedFirstThenLeastRecentlyAccessedThenLargest() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        write(show, name(1), 100, OLD);
+        write(show, name(2), 100, NEWEST);
+        write(show, name(3), 50, NEWER);
+        write(show, name(4), 200, NEWER);
+        write(show, name(5), 300, NEWEST);
+
+        // A one byte budget leaves nothing, so the result lists the whole order.
+        DiskBudgetEvictor.Result result = evict(
+                Collections.singletonList(root(show, 0, "2", "3", "4")), policy(1, true));
+
+        assertEquals(Arrays.asList(name(4), name(3), name(2), name(1), name(5)), evictedNames(result));
+        assertEquals(750, result.bytesFreed);
+        assertEquals(749, result.bytesToFree);
+        assertEquals(0, result.usedBytes);
+        assertTrue(result.satisfied);
+    }
+
+    @Test
+    public void stopsOnceTheFolderBudgetIsMet() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        File other = temp.newFolder("Other");
+        write(show, name(1), 100, OLD);
+        write(show, name(2), 100, NEWER);
+        write(show, name(3), 100, NEWEST);
+        // No budget of its own and no global one, so it is left alone.
+        write(other, name(1), 500, OLD);
+
+        DiskBudgetEvictor.Result result = evict(
+                Arrays.asList(root(show, 150), root(other, 0)), policy(0, true));
+
+        assertEquals(Arrays.asList(name(1), name(2)), evictedNames(result));
+        assertEquals(150, result.bytesToFree);
+        assertTrue(result.satisfied);
+        assertTrue(new File(show, name(3)).exists());
+        assertTrue(new File(other, name(1)).exists());
+    }
+
+    @Test
+    public void globalBudgetEvictsAcrossFolders() throws IOException, InterruptedException {
+        File first = temp.newFolder("First");
+        File second = temp.newFolder("Second");
+        write(first, name(1), 100, NEWER);
+        write(first, name(2), 100, NEWEST);
+        write(second, name(1), 100, OLD);
+        write(second, name(2), 100, NEWEST);
+
+        DiskBudgetEvictor.Result result = evict(
+                Arrays.asList(root(first, 0), root(second, 0)), policy(250, true));
+
+        assertEquals(2, result.evicted.size());
+        assertEquals(second, result.evicted.get(0).file.getParentFile());
+        assertEquals(first, result.evicted.get(1).file.getParentFile());
+        assertEquals(200, result.usedBytes);
+        assertTrue(result.satisfied);
+    }
+
+    @Test
+    public void protectedPathsAreNeverDeleted() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        File downloading = write(show, name(1), 100, OLD);
+        write(show, name(2), 100, NEWEST);
+
+        DiskBudgetEvictor.Policy policy = policy(1, true);
+        policy.protectedPaths.add(downloading.getPath());
+        DiskBudgetEvictor.Result result = evict(Collections.singletonList(root(show, 0, "1", "2")), policy);
+
+        assertEquals(Collections.singletonList(name(2)), evictedNames(result));
+        assertTrue(downloading.exists());
+        assertFalse(result.satisfied);
+        assertEquals(100, result.usedBytes);
+    }
+
+    @Test
+    public void makesRoomForANewDownload() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        write(show, name(1), 100, OLD);
+        write(show, name(2), 100, NEWER);
+        write(show, name(3), 100, NEWEST);
+
+        DiskBudgetEvictor.Policy policy = policy(0, true);
+        policy.reserveFolder = show;
+        policy.reserveBytes = 150;
+        DiskBudgetEvictor.Result result = evict(Collections.singletonList(root(show, 350)), policy);
+
+        // 300 on disk plus 150 reserved is 100 over.
+        assertEquals(Collections.singletonList(name(1)), evictedNames(result));
+        assertEquals(100, result.bytesToFree);
+        assertEquals(350, result.usedBytes);
+        assertTrue(result.satisfied);
+    }
+
+    @Test
+    public void reserveOutsideTheRootsCountsTowardsTheGlobalBudget() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        File newShow = new File(temp.getRoot(), "New Show");
+        write(show, name(1), 100, OLD);
+        write(show, name(2), 100, NEWEST);
+
+        DiskBudgetEvictor.Policy policy = policy(250, true);
+        policy.reserveFolder = newShow;
+        policy.reserveBytes = 100;
+        DiskBudgetEvictor.Result result = evict(Collections.singletonList(root(show, 0)), policy);
+
+        assertEquals(Collections.singletonList(name(1)), evictedNames(result));
+        assertEquals(200, result.usedBytes);
+        assertTrue(result.satisfied);
+    }
+
+    @Test
+    public void removesSidecarsWithTheEpisode() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        File episode = write(show, name(1), 100, OLD);
+        String baseName = name(1).substring(0, name(1).length() - ".mkv".length());
+        File vtt = write(show, baseName + ".vtt", 10, OLD);
+        File ass = write(show, baseName + ".ass", 20, OLD);
+        File kept = write(show, name(2), 100, NEWEST);
+
+        DiskBudgetEvictor.Result result = evict(Collections.singletonList(root(show, 150)), policy(0, true));
+
+        assertEquals(1, result.evicted.size());
+        assertEquals(Arrays.asList(ass, vtt), result.evicted.get(0).sidecars);
+        assertEquals(130, result.bytesFreed);
+        assertFalse(episode.exists());
+        assertFalse(vtt.exists());
+        assertFalse(ass.exists());
+        assertTrue(kept.exists());
+    }
+
+    @Test
+    public void keepsUnwatchedEpisodesUnlessAllowed() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        write(show, name(1), 100, OLD);
+        File unwatched = write(show, name(2), 100, OLD);
+
+        DiskBudgetEvictor.Result result = evict(Collections.singletonList(root(show, 50, "01")), policy(0, false));
+
+        assertEquals(Collections.singletonList(name(1)), evictedNames(result));
+        assertTrue(unwatched.exists());
+        assertFalse(result.satisfied);
+        assertEquals(100, result.usedBytes);
+    }
+
+    @Test
+    public void matchesEpisodeNumbers() {
+        assertEquals("5", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 05 (1080p) [ABCD1234].mkv"));
+        assertEquals("12.5", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 12.5 (1080p) [ABCD1234].mkv"));
+        assertEquals("5", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 05v2 (720p) [ABCD1234].mkv"));
+        assertEquals("0", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 00 (720p) [ABCD1234].mkv"));
+        assertEquals("0.5", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 00.5 (720p) [ABCD1234].mkv"));
+        // The show name can contain " - 2 ", the episode is the last number.
+        assertEquals("7", DiskBudgetEvictor.episodeOf("[SubsPlease] Show - 2 Season - 07 (1080p) [ABCD1234].mkv"));
+        // Names the parser rejects fall back to the pattern.
+        assertEquals("12.5", DiskBudgetEvictor.episodeOf("[Group] Show - 12.5v3 [1080p][HEVC].mkv"));
+        assertEquals("3", DiskBudgetEvictor.episodeOf("Show - 03.mkv"));
+        assertNull(DiskBudgetEvictor.episodeOf("Show OST.flac"));
+    }
+
+    @Test
+    public void watchedEpisodesMatchWithoutLeadingZeros() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        write(show, "[SubsPlease] Show - 12.5 (1080p) [ABCD1234].mkv", 100, OLD);
+        write(show, "[SubsPlease] Show - 05v2 (1080p) [ABCD1234].mkv", 100, OLD);
+        File unwatched = write(show, "[SubsPlease] Show - 06 (1080p) [ABCD1234].mkv", 100, OLD);
+
+        DiskBudgetEvictor.Result result = evict(
+                Collections.singletonList(root(show, 1, "012.5", "5")), policy(0, false));
+
+        assertEquals(2, result.evicted.size());
+        assertTrue(unwatched.exists());
+    }
+}
@@ -0,0 +1,243 @@
+package com.yorha;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FolderIndexTest {
+    // Long enough that only the tests calling flush() apply changes.
+    private static final long MANUAL_FLUSH_MS = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ScheduledExecutorService scheduler;
+    private final List<List<FolderIndex.Change>> batches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private FolderIndex newIndex(long coalesceMs) {
+        return new FolderIndex(scheduler, coalesceMs, changes -> {
+            synchronized (batches) {
+                batches.add(changes);
+            }
+        });
+    }
+
+    private static File write(File file, int size) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[size]);
+        }
+        return file;
+    }
+
+    @Test
+    public void addRootListsChildrenOnce() throws IOException {
+        File show = temp.newFolder("Show");
+        write(new File(show, "01.mkv"), 10);
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+
+        assertTrue(index.addRoot(show.getPath()));
+        assertFalse(index.addRoot(show.getPath() + File.separator));
+        assertEquals(1, index.getRoots().size());
+
+        FolderIndex.Stats stats = index.getStats();
+        assertEquals(1, stats.roots);
+        assertEquals(1, stats.entries);
+    }
+
+    @Test
+    public void lookupAnswersForRootAndChildren() throws IOException {
+        File show = temp.newFolder("Show");
+        File episode = write(new File(show, "01.mkv"), 10);
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+
+        FileStat hit = index.lookup(episode.getPath());
+        assertNotNull(hit);
+        assertTrue(hit.exists);
+        assertEquals(10, hit.size);
+        assertEquals(episode.getPath(), hit.path);
+
+        FileStat root = index.lookup(show.getPath());
+        assertNotNull(root);
+        assertTrue(root.exists);
+        assertTrue(root.isDirectory);
+
+        FileStat negative = index.lookup(new File(show, "02.mkv").getPath());
+        assertNotNull(negative);
+        assertFalse(negative.exists);
+
+        // Neither a watched folder nor a direct child of one.
+        assertNull(index.lookup(temp.getRoot().getPath() + File.separator + "elsewhere.mkv"));
+        assertNull(index.lookup(new File(new File(show, "Extras"), "01.mkv").getPath()));
+
+        FolderIndex.Stats stats = index.getStats();
+        assertEquals(2, stats.hits);
+        assertEquals(1, stats.negativeHits);
+        assertEquals(2, stats.misses);
+    }
+
+    @Test
+    public void missingRootReportsEverythingMissingUntilRescanned() throws IOException {
+        File show = new File(temp.getRoot(), "Show");
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+
+        assertFalse(index.lookup(show.getPath()).exists);
+        assertFalse(index.lookup(new File(show, "01.mkv").getPath()).exists);
+
+        show.mkdir();
+        write(new File(show, "01.mkv"), 5);
+        index.rescan(show.getPath());
+        index.flush();
+
+        assertTrue(index.lookup(show.getPath()).exists);
+        assertEquals(5, index.lookup(new File(show, "01.mkv").getPath()).size);
+        assertEquals(1, batches.size());
+        assertEquals(FolderIndex.ADDED, batches.get(0).get(0).type);
+    }
+
+    @Test
+    public void removeRootStopsAnsweringAndDropsPendingChanges() throws IOException {
+        File show = temp.newFolder("Show");
+        File episode = write(new File(show, "01.mkv"), 10);
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+        index.onEvent(show.getPath(), episode.getName());
+
+        index.removeRoot(show.getPath());
+        index.flush();
+
+        assertTrue(index.getRoots().isEmpty());
+        assertNull(index.lookup(episode.getPath()));
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void rescanReportsAddedDeletedAndModified() throws IOException {
+        File show = temp.newFolder("Show");
+        File kept = write(new File(show, "01.mkv"), 10);
+        File deleted = write(new File(show, "02.mkv"), 10);
+        File unchanged = write(new File(show, "03.mkv"), 10);
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+
+        write(kept, 20);
+        assertTrue(deleted.delete());
+        File added = write(new File(show, "04.mkv"), 30);
+        index.rescan(show.getPath());
+
+        // Everything the rescan touched waits for the flush.
+        assertNull(index.lookup(added.getPath()));
+        index.flush();
+
+        assertEquals(1, batches.size());
+        List<FolderIndex.Change> changes = batches.get(0);
+        assertEquals(3, changes.size());
+        for (FolderIndex.Change change : changes) {
+            if (change.stat.path.equals(kept.getPath())) {
+                assertEquals(FolderIndex.MODIFIED, change.type);
+                assertEquals(20, change.stat.size);
+            }
+            else if (change.stat.path.equals(deleted.getPath())) {
+                assertEquals(FolderIndex.DELETED, change.type);
+            }
+            else {
+                assertEquals(added.getPath(), change.stat.path);
+                assertEquals(FolderIndex.ADDED, change.type);
+            }
+        }
+        assertTrue(index.lookup(unchanged.getPath()).exists);
+        assertFalse(index.lookup(deleted.getPath()).exists);
+        assertEquals(30, index.lookup(added.getPath()).size);
+        assertEquals(3, index.getStats().changes);
+    }
+
+    @Test
+    public void eventsForOnePathAreCoalesced() throws IOException {
+        File show = temp.newFolder("Show");
+        File episode = write(new File(show, "01.mkv"), 10);
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+
+        for (int size = 11; size <= 100; size++) {
+            write(episode, size);
+            index.onEvent(show.getPath(), episode.getName());
+        }
+        // A pending path is not trusted until the change is applied.
+        assertNull(index.lookup(episode.getPath()));
+        index.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(FolderIndex.MODIFIED, batches.get(0).get(0).type);
+        assertEquals(100, index.lookup(episode.getPath()).size);
+    }
+
+    @Test
+    public void createdThenDeletedPathReportsNothing() throws IOException {
+        File show = temp.newFolder("Show");
+        FolderIndex index = newIndex(MANUAL_FLUSH_MS);
+        index.addRoot(show.getPath());
+
+        File part = write(new File(show, "01.mkv.part"), 10);
+        index.onEvent(show.getPath(), part.getName());
+        assertTrue(part.delete());
+        index.onEvent(show.getPath(), part.getName());
+        index.flush();
+
+        assertTrue(batches.isEmpty());
+        assertFalse(index.lookup(part.getPath()).exists);
+    }
+
+    @Test
+    public void changesAreFlushedTogetherAfterTheDelay() throws IOException, InterruptedException {
+        File show = temp.newFolder("Show");
+        final CountDownLatch flushed = new CountDownLatch(1);
+        final List<List<FolderIndex.Change>> received = Collections.synchronizedList(new ArrayList<>());
+        FolderIndex index = new FolderIndex(scheduler, 100, changes -> {
+            received.add(changes);
+            flushed.countDown();
+        });
+        index.addRoot(show.getPath());
+
+        for (int i = 1; i <= 5; i++) {
+            File episode = write(new File(show, "0" + i + ".mkv"), i);
+            index.onEvent(show.getPath(), episode.getName());
+        }
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+        // Give a second flush, which there shouldn't be, a chance to run.
+        Thread.sleep(300);
+        assertEquals(1, received.size());
+        assertEquals(5, received.get(0).size());
+    }
+}
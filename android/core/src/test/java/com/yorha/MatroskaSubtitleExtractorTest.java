@@ -0,0 +1,105 @@
+package com.yorha;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MatroskaSubtitleExtractorTest {
+    // Each fixture cluster starts 5 s after the previous one and holds a 2 s cue 1 s in.
+    private static final String EXPECTED_VTT = "WEBVTT\n\n"
+            + "00:01.000 --> 00:03.000\n" + MatroskaFixture.line(0) + "\n\n"
+            + "00:06.000 --> 00:08.000\n" + MatroskaFixture.line(1) + "\n\n"
+            + "00:11.000 --> 00:13.000\n" + MatroskaFixture.line(2) + "\n\n";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void extractsCuesThroughTheCuesIndex() throws IOException, InterruptedException {
+        File mkv = MatroskaFixture.write(temp.newFile("episode.mkv"), 3, 4096, true, 1);
+        File vtt = new File(temp.getRoot(), "episode.vtt");
+
+        MatroskaSubtitleExtractor.Result result = MatroskaSubtitleExtractor.extract(mkv, vtt);
+
+        assertNotNull(result);
+        assertTrue(result.usedCueIndex);
+        assertEquals(2, result.trackNumber);
+        assertEquals("S_TEXT/UTF8", result.codecId);
+        assertEquals(3, result.cues);
+        assertEquals(mkv.length(), result.fileSize);
+        assertEquals(EXPECTED_VTT, read(vtt));
+    }
+
+    @Test
+    public void extractsCuesFromClustersWithoutCues() throws IOException, InterruptedException {
+        File mkv = MatroskaFixture.write(temp.newFile("episode.mkv"), 3, 4096, false, 1);
+        File vtt = new File(temp.getRoot(), "episode.vtt");
+
+        MatroskaSubtitleExtractor.Result result = MatroskaSubtitleExtractor.extract(mkv, vtt);
+
+        assertNotNull(result);
+        assertFalse(result.usedCueIndex);
+        assertEquals(3, result.cues);
+        assertEquals(EXPECTED_VTT, read(vtt));
+    }
+
+    @Test
+    public void skipsVideoFrames() throws IOException, InterruptedException {
+        int videoBytes = 256 * 1024;
+        File mkv = MatroskaFixture.write(temp.newFile("episode.mkv"), 20, videoBytes, true, 1);
+
+        MatroskaSubtitleExtractor.Result result =
+                MatroskaSubtitleExtractor.extract(mkv, new File(temp.getRoot(), "episode.vtt"));
+
+        assertEquals(20, result.cues);
+        assertTrue(result.bytesRead + " bytes read", result.bytesRead < videoBytes);
+    }
+
+    @Test
+    public void bothLayoutsGiveTheSameSubtitles() throws IOException, InterruptedException {
+        File indexed = MatroskaFixture.write(temp.newFile("indexed.mkv"), 50, 1024, true, 2);
+        File walked = MatroskaFixture.write(temp.newFile("walked.mkv"), 50, 1024, false, 2);
+        File indexedVtt = new File(temp.getRoot(), "indexed.vtt");
+        File walkedVtt = new File(temp.getRoot(), "walked.vtt");
+
+        MatroskaSubtitleExtractor.extract(indexed, indexedVtt);
+        MatroskaSubtitleExtractor.extract(walked, walkedVtt);
+
+        assertEquals(read(indexedVtt), read(walkedVtt));
+        assertTrue(read(walkedVtt).contains(MatroskaFixture.line(49)));
+    }
+
+    @Test
+    public void findCuesDoesNotWalkTheClusters() throws IOException, InterruptedException {
+        // The fixture has no seek head, so its Cues can only be found by hopping over every cluster.
+        File mkv = MatroskaFixture.write(temp.newFile("episode.mkv"), 5, 1024, true, 1);
+
+        try (FileChannel channel = FileChannel.open(mkv.toPath(), StandardOpenOption.READ)) {
+            assertNull(MatroskaSubtitleExtractor.findCues(channel));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsFilesThatAreNotMatroska() throws IOException, InterruptedException {
+        File notMkv = temp.newFile("episode.mkv");
+        Files.write(notMkv.toPath(), "not a video".getBytes(StandardCharsets.UTF_8));
+        MatroskaSubtitleExtractor.extract(notMkv, new File(temp.getRoot(), "episode.vtt"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.yorha;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic Matroska files for the extractor tests and benchmarks. Every element size is
+ * written in the eight byte form, which any EBML reader has to accept.
+ */
+final class MatroskaFixture {
+    private static final int EBML = 0x1A45DFA3;
+    private static final int SEGMENT = 0x18538067;
+    private static final int INFO = 0x1549A966;
+    private static final int TIMECODE_SCALE = 0x2AD7B1;
+    private static final int TRACKS = 0x1654AE6B;
+    private static final int TRACK_ENTRY = 0xAE;
+    private static final int TRACK_NUMBER = 0xD7;
+    private static final int TRACK_TYPE = 0x83;
+    private static final int CODEC_ID = 0x86;
+    private static final int CUES = 0x1C53BB6B;
+    private static final int CUE_POINT = 0xBB;
+    private static final int CUE_TIME = 0xB3;
+    private static final int CUE_TRACK_POSITIONS = 0xB7;
+    private static final int CUE_TRACK = 0xF7;
+    private static final int CUE_CLUSTER_POSITION = 0xF1;
+    private static final int CUE_RELATIVE_POSITION = 0xF0;
+    private static final int CLUSTER = 0x1F43B675;
+    private static final int CLUSTER_TIMECODE = 0xE7;
+    private static final int SIMPLE_BLOCK = 0xA3;
+    private static final int BLOCK_GROUP = 0xA0;
+    private static final int BLOCK = 0xA1;
+    private static final int BLOCK_DURATION = 0x9B;
+
+    private MatroskaFixture() {}
+
+    /** Text of the subtitle block in {@code cluster}. */
+    static String line(int cluster) {
+        return "Line " + cluster + " of the dialogue";
+    }
+
+    /**
+     * Writes a Matroska file with a video track and a UTF-8 subtitle track, one subtitle block per
+     * cluster after {@code videoBytesPerCluster} of video. With {@code withCues} the Cues element
+     * follows the clusters the way mkvmerge lays files out, otherwise the extractor has to walk
+     * every cluster.
+     */
+    static File write(File file, int clusters, int videoBytesPerCluster, boolean withCues, long seed)
+            throws IOException {
+        Random random = new Random(seed);
+        byte[] video = new byte[videoBytesPerCluster];
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        element(header, INFO, uint(TIMECODE_SCALE, 1_000_000));
+        element(header, TRACKS, concat(
+                element(TRACK_ENTRY, concat(uint(TRACK_NUMBER, 1), uint(TRACK_TYPE, 1),
+                        string(CODEC_ID, "V_MPEG4/ISO/AVC"))),
+                element(TRACK_ENTRY, concat(uint(TRACK_NUMBER, 2), uint(TRACK_TYPE, 0x11),
+                        string(CODEC_ID, "S_TEXT/UTF8")))));
+
+        // Cluster positions are relative to the segment data, which starts with the header above.
+        List<long[]> cuePoints = new ArrayList<>();
+        long segmentSize = header.size();
+        List<byte[]> clusterBodies = new ArrayList<>(clusters);
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            long timecode = cluster * 5000L;
+            random.nextBytes(video);
+            byte[] videoBlock = element(SIMPLE_BLOCK, concat(new byte[]{(byte) 0x81, 0, 0, (byte) 0x80}, video));
+            byte[] text = line(cluster).getBytes(StandardCharsets.UTF_8);
+            byte[] subtitleBlock = element(BLOCK_GROUP, concat(
+                    element(BLOCK, concat(new byte[]{(byte) 0x82, 0x03, (byte) 0xE8, 0}, text)),
+                    uint(BLOCK_DURATION, 2000)));
+            byte[] timecodeElement = uint(CLUSTER_TIMECODE, timecode);
+            byte[] body = concat(timecodeElement, videoBlock, subtitleBlock);
+            cuePoints.add(new long[]{timecode + 1000, segmentSize, timecodeElement.length + videoBlock.length});
+            clusterBodies.add(body);
+            segmentSize += element(CLUSTER, body).length;
+        }
+
+        ByteArrayOutputStream cues = new ByteArrayOutputStream();
+        if (withCues) {
+            ByteArrayOutputStream points = new ByteArrayOutputStream();
+            for (long[] point : cuePoints) {
+                element(points, CUE_POINT, concat(uint(CUE_TIME, point[0]), element(CUE_TRACK_POSITIONS,
+                        concat(uint(CUE_TRACK, 2), uint(CUE_CLUSTER_POSITION, point[1]),
+                                uint(CUE_RELATIVE_POSITION, point[2])))));
+            }
+            element(cues, CUES, points.toByteArray());
+            segmentSize += cues.size();
+        }
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 20)) {
+            out.write(element(EBML, string(0x4282, "matroska")));
+            out.write(id(SEGMENT));
+            out.write(size(segmentSize));
+            header.writeTo(out);
+            for (byte[] body : clusterBodies) {
+                out.write(element(CLUSTER, body));
+            }
+            cues.writeTo(out);
+        }
+        return file;
+    }
+
+    private static void element(ByteArrayOutputStream out, int id, byte[] payload) {
+        out.writeBytes(element(id, payload));
+    }
+
+    private static byte[] element(int id, byte[] payload) {
+        return concat(id(id), size(payload.length), payload);
+    }
+
+    private static byte[] uint(int id, long value) {
+        byte[] payload = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            payload[i] = (byte) value;
+            value >>>= 8;
+        }
+        return element(id, payload);
+    }
+
+    private static byte[] string(int id, String value) {
+        return element(id, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] id(int id) {
+        int length = id > 0xFFFFFF ? 4 : id > 0xFFFF ? 3 : id > 0xFF ? 2 : 1;
+        byte[] bytes = new byte[length];
+        for (int i = length - 1; i >= 0; i--) {
+            bytes[i] = (byte) id;
+            id >>>= 8;
+        }
+        return bytes;
+    }
+
+    /** Always the eight byte form, so sizes can be written before the payload is known. */
+    private static byte[] size(long size) {
+        byte[] bytes = new byte[8];
+        bytes[0] = 0x01;
+        for (int i = 7; i >= 1; i--) {
+            bytes[i] = (byte) size;
+            size >>>= 8;
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,4 +1,4 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
+import { Storage } from '../services/Storage';
 import { useNavigation, useRoute } from '@react-navigation/native';
 import * as React from 'react';
 import {
@@ -25,9 +25,7 @@ import {
 export const EditSettingsModal = () => {
     const navigation = useNavigation();
     const { colors } = useTheme();
-    const [allSettings, setAllSettings] = React.useState<
-        [string, string | null][]
-    >([]);
+    const [allSettingKeys, setAllSettingKeys] = React.useState<string[]>([]);
     const styles = StyleSheet.create({
         centeredView: {
             paddingTop: 20,
@@ -54,9 +52,7 @@ export const EditSettingsModal = () => {
 
     React.useEffect(() => {
         (async () => {
-            const keys = await AsyncStorage.getAllKeys();
-            const keyValues = await AsyncStorage.multiGet(keys);
-            setAllSettings(keyValues);
+            setAllSettingKeys(await Storage.getAllKeys());
         })();
     }, []);
 
@@ -109,10 +105,10 @@ export const EditSettingsModal = () => {
                         padding: 10,
                     }}
                 >
-                    {allSettings.map((setting) => {
+                    {allSettingKeys.map((key) => {
                         return (
-                            <View key={setting[0]}>
-                                <Text>{setting[0]}</Text>
+                            <View key={key}>
+                                <Text>{key}</Text>
                             </View>
                         );
                     })}
@@ -17,7 +17,10 @@ import {
 } from './releasePageComponents/ReleaseHeader';
 import { SubsPleaseApi } from '../ExternalApis/SubsPleaseApi';
 import { downloadedShows } from '../services/DownloadedShows';
-import { asyncFilter, isCastingAvailable } from '../HelperFunctions';
+import {
+    addFolderChangeListener,
+    isCastingAvailable,
+} from '../HelperFunctions';
 import { ReleaseList } from './releasePageComponents/ReleaseList';
 import { logger } from '../services/Logger';
 import uniqBy from 'lodash.uniqby';
@@ -133,6 +136,16 @@ export const ReleasesTab = () => {
         setShowList(uniqueShows);
     }, []);
 
+    // Files added or removed outside the app change what counts as downloaded.
+    const [folderChangeCount, setFolderChangeCount] = React.useState(0);
+    React.useEffect(() => {
+        downloadedShows.watchShowFolders();
+        const subscription = addFolderChangeListener(() =>
+            setFolderChangeCount((count) => count + 1),
+        );
+        return () => subscription.remove();
+    }, []);
+
     // Load initial page data
     React.useEffect(() => {
         (async () => {
@@ -155,19 +168,28 @@ export const ReleasesTab = () => {
     React.useEffect(() => {
         const getFilteredList = async () => {
             if (showFilter === ShowFilter.Downloaded) {
-                return asyncFilter(showList, async (show) => {
-                    const downloadedEpisodesForSeries = await asyncFilter(
-                        show.downloads,
-                        async (download) =>
-                            (download.res === '720' ||
-                                download.res === '1080') &&
-                            (await downloadedShows.isShowDownloaded(
-                                show.show,
-                                download.magnet,
-                            )),
+                const downloadedMagnets =
+                    await downloadedShows.getDownloadedMagnets(
+                        showList.flatMap((show) =>
+                            show.downloads
+                                .filter(
+                                    (download) =>
+                                        download.res === '720' ||
+                                        download.res === '1080',
+                                )
+                                .map((download) => ({
+                                    showName: show.show,
+                                    magnet: download.magnet,
+                                    episode: show.episode,
+                                    res: download.res,
+                                })),
+                        ),
                     );
-                    return downloadedEpisodesForSeries.length > 0;
-                });
+                return showList.filter((show) =>
+                    show.downloads.some((download) =>
+                        downloadedMagnets.has(download.magnet),
+                    ),
+                );
             } else if (showFilter === ShowFilter.Watching) {
                 return showList.filter((show) =>
                     watchListStore.isShowOnWatchList(show),
@@ -188,6 +210,7 @@ export const ReleasesTab = () => {
         });
     }, [
         filteredShowList.length,
+        folderChangeCount,
         showFilter,
         showList,
         watchListStore,
@@ -1,4 +1,3 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
 import * as React from 'react';
 import {
     Button,
@@ -7,7 +6,7 @@ import {
     TouchableRipple,
     useTheme,
 } from 'react-native-paper';
-import { readTextFile } from '../HelperFunctions';
+import { readTextFilePage, readTextFileTail } from '../HelperFunctions';
 import {
     Alert,
     Modal,
@@ -30,14 +29,27 @@ import { getVersion } from 'react-native-device-info';
 import { CheckBoxSettingsBox } from './settingsPageComponents/CheckBoxSettingBox';
 import { TextSettingsBox } from './settingsPageComponents/TextSettingsBox';
 import { Storage } from '../services/Storage';
+import { logger } from '../services/Logger';
 import { useNavigation } from '@react-navigation/native';
 import { DownloadStatistics } from './settingsPageComponents/DownloadStatistics';
+import {
+    DiskBudgetSettings,
+    defaultDiskBudget,
+    freeDiskSpace,
+    getDiskBudget,
+    setDiskBudget,
+} from '../services/DiskBudget';
+import { styledToast } from '../services/ToastService';
+
+// How much of the log file is read per page in the log viewer.
+const logPageBytes = 64 * 1024;
 
 export const SettingsTab = () => {
     const { colors } = useTheme();
     const navigation = useNavigation<any>();
     const [logViewOpen, setLogViewOpen] = React.useState(false);
     const [logText, setLogText] = React.useState('');
+    const [logStartOffset, setLogStartOffset] = React.useState(0);
     const [logFileName, setFileName] = React.useState('');
     const { height } = useWindowDimensions();
     const [analyticsEnabled, setAnalyticsEnabled] = React.useState(false);
@@ -48,6 +60,8 @@ export const SettingsTab = () => {
     const [useInbuildTorrentClient, setUseInbuildTorrentClient] =
         React.useState(true);
     const [cacheLength, setCacheLength] = React.useState(100);
+    const [diskBudget, setDiskBudgetState] =
+        React.useState<DiskBudgetSettings>(defaultDiskBudget);
     const [crashReportingEnabled, setCrashReportingEnabled] = React.useState(
         crashlytics().isCrashlyticsCollectionEnabled,
     );
@@ -91,18 +105,73 @@ export const SettingsTab = () => {
                 setCacheLength(length);
             },
         );
+        getDiskBudget().then(setDiskBudgetState);
     }, []);
 
+    const updateDiskBudget = (changes: Partial<DiskBudgetSettings>) => {
+        const newDiskBudget = { ...diskBudget, ...changes };
+        setDiskBudgetState(newDiskBudget);
+        setDiskBudget(newDiskBudget);
+    };
+
+    const freeUpSpace = async () => {
+        try {
+            const result = await freeDiskSpace();
+            if (!result) {
+                styledToast.showToast(
+                    'error',
+                    'No storage budget set',
+                    'Set a storage budget to free up space',
+                );
+                return;
+            }
+            const megabytesFreed = Math.round(result.bytesFreed / 1024 / 1024);
+            styledToast.showToast(
+                'success',
+                `Deleted ${result.filesDeleted} episodes, ${megabytesFreed} MB freed`,
+                result.satisfied
+                    ? undefined
+                    : 'Not enough watched episodes to get under budget',
+            );
+        } catch (error: any) {
+            styledToast.showToast(
+                'error',
+                'Could not free up space',
+                error?.message,
+            );
+        }
+    };
+
     const displayLogs = async () => {
-        const latestLogPath = (await FileLogger.getLogFilePaths())[0];
-        setFileName(latestLogPath);
+        await logger.flush();
+        // Older segments are gzipped, only the current file can be paged.
+        const latestLogPath = (await logger.getLogFilePaths()).find(
+            (path) => !path.endsWith('.gz'),
+        );
         if (latestLogPath) {
-            const latestLogText = await readTextFile(latestLogPath);
-            setLogText(latestLogText);
+            setFileName(latestLogPath);
+            const latestLogPage = await readTextFileTail(
+                latestLogPath,
+                logPageBytes,
+            );
+            setLogText(latestLogPage.text);
+            setLogStartOffset(latestLogPage.offset);
             setLogViewOpen(true);
         }
     };
 
+    const loadEarlierLogs = async () => {
+        const pageStart = Math.max(0, logStartOffset - logPageBytes);
+        const earlierLogPage = await readTextFilePage(
+            logFileName,
+            pageStart,
+            logStartOffset - pageStart,
+            true,
+        );
+        setLogText((currentText) => earlierLogPage.text + currentText);
+        setLogStartOffset(earlierLogPage.offset);
+    };
+
     const toggleAnalytics = async (newValue: boolean) => {
         setAnalyticsEnabled(newValue);
         try {
@@ -231,6 +300,44 @@ export const SettingsTab = () => {
                     }}
                 />
                 <SettingsDivider />
+                <TextSettingsBox
+                    value={diskBudget.globalGigabytes}
+                    text="Storage budget (GB)"
+                    modalText="Watched episodes are deleted to stay under this size (0 for unlimited)"
+                    keyboardType="numeric"
+                    onChange={(newValue) => {
+                        updateDiskBudget({
+                            globalGigabytes: parseFloat(newValue) || 0,
+                        });
+                    }}
+                />
+                <TextSettingsBox
+                    value={diskBudget.showGigabytes}
+                    text="Storage budget per show (GB)"
+                    modalText="Watched episodes are deleted to keep each show folder under this size (0 for unlimited)"
+                    keyboardType="numeric"
+                    onChange={(newValue) => {
+                        updateDiskBudget({
+                            showGigabytes: parseFloat(newValue) || 0,
+                        });
+                    }}
+                />
+                <CheckBoxSettingsBox
+                    value={diskBudget.evictUnwatched}
+                    text="Also delete unwatched episodes"
+                    onChange={(newValue) => {
+                        updateDiskBudget({ evictUnwatched: newValue });
+                    }}
+                />
+                <TouchableRipple
+                    onPress={() => freeUpSpace()}
+                    style={styles.touchableStyle}
+                >
+                    <View>
+                        <Title style={textStyle}>Free up space now</Title>
+                    </View>
+                </TouchableRipple>
+                <SettingsDivider />
                 <ImportExportListItem type="Import" />
                 <ImportExportListItem type="Export" />
                 <SettingsDivider />
@@ -248,7 +355,7 @@ export const SettingsTab = () => {
                                     text: 'OK',
                                     onPress: async () => {
                                         console.log('Going to clear all data');
-                                        await AsyncStorage.clear();
+                                        await Storage.clearAll();
                                     },
                                 },
                             ],
@@ -292,11 +399,12 @@ export const SettingsTab = () => {
                     </View>
                 </TouchableRipple>
                 <TouchableRipple
-                    onPress={() =>
+                    onPress={async () => {
+                        await logger.flush();
                         FileLogger.sendLogFilesByEmail({
                             subject: 'SubsPlease logs',
-                        })
-                    }
+                        });
+                    }}
                     style={styles.touchableStyle}
                 >
                     <View>
@@ -331,6 +439,11 @@ export const SettingsTab = () => {
                 <View style={styles.centeredView}>
                     <Text>{logFileName}</Text>
                     <ScrollView>
+                        {logStartOffset > 0 && (
+                            <Button onPress={loadEarlierLogs}>
+                                Load earlier logs
+                            </Button>
+                        )}
                         <Text style={styles.modalText}>{logText}</Text>
                     </ScrollView>
                     <Button
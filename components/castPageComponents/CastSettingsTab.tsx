@@ -120,12 +120,12 @@ export const CastSettingsTab = () => {
                             (status?.mediaInfo?.customData as any)?.filePath
                         ) {
                             // From extracted thumbnail in video
-                            const b64Thumnail =
-                                await convert.getB64VideoThumbnail(
+                            const thumbnailUri =
+                                await convert.getVideoThumbnail(
                                     (status!.mediaInfo!.customData as any)!
                                         .filePath,
                                 );
-                            setBackgroundImageUrl(b64Thumnail);
+                            setBackgroundImageUrl(thumbnailUri);
                         }
                     }
                     if ((status?.mediaInfo?.customData as any)?.filePath) {
@@ -22,6 +22,7 @@ import {
     getExtensionlessFilepath,
     getFileNameFromFilePath,
     tryParseInt,
+    warmBeforePlayback,
 } from '../../HelperFunctions';
 import { convert } from '../../services/converter';
 import { localWebServerManager } from '../../services/LocalWebServerManager';
@@ -43,7 +44,7 @@ export const CastShow = ({
     isCurrentlyPlayingMedia,
     onRemove,
 }: CastShowType) => {
-    const [b64Image, setB64Image] = React.useState('');
+    const [thumbnailUri, setThumbnailUri] = React.useState('');
     const [itemTryingToPlay, setItemTryingToPlay] = React.useState(false);
     const { colors } = useTheme();
     const client = useRemoteMediaClient();
@@ -52,8 +53,8 @@ export const CastShow = ({
 
     React.useEffect(() => {
         (async () => {
-            const image = await convert.getB64VideoThumbnail(filePath);
-            setB64Image(image);
+            const image = await convert.getVideoThumbnail(filePath);
+            setThumbnailUri(image);
         })();
     }, [filePath]);
     const textColour =
@@ -121,13 +122,13 @@ export const CastShow = ({
     };
 
     const getImage = () => {
-        if (b64Image) {
+        if (thumbnailUri) {
             return (
                 <>
                     <Image
                         style={styles.stretch}
                         source={{
-                            uri: b64Image,
+                            uri: thumbnailUri,
                         }}
                     />
                     {getPlayingAnimation()}
@@ -176,6 +177,8 @@ export const CastShow = ({
             return;
         }
         console.log('Found cast client client');
+        // Runs alongside subtitle extraction, the cast server reads warm pages.
+        warmBeforePlayback(filePath, `playback-${Date.now()}`);
         console.log('Extracting subtitles for cast playback', filePath);
         setItemTryingToPlay(true);
         const result = await convert.extractSubtitles(
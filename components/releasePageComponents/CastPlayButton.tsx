@@ -14,11 +14,13 @@ import { localWebServerManager } from '../../services/LocalWebServerManager';
 import { convert } from '../../services/converter';
 import Toast from 'react-native-toast-message';
 import {
+    cancelFileOperation,
     deleteFileIfExists,
     getExtensionlessFilepath,
     isCastingAvailable,
     openVideoIntent,
     tryParseInt,
+    warmBeforePlayback,
 } from '../../HelperFunctions';
 import { NetworkInfo } from 'react-native-network-info';
 import GoogleCast from 'react-native-google-cast';
@@ -44,6 +46,16 @@ export const CastPlayButton = ({
     const castState = useCastState();
     const sessionManager = GoogleCast.getSessionManager();
     const [isCastingFile, setIsCastingFile] = React.useState(false);
+    const warmCallId = React.useRef<string>();
+
+    // Stop warming the page cache if the user leaves before it's done.
+    React.useEffect(() => {
+        return () => {
+            if (warmCallId.current) {
+                cancelFileOperation(warmCallId.current);
+            }
+        };
+    }, []);
 
     React.useEffect(() => {
         let sessionStartingEmitterSubscription: EmitterSubscription;
@@ -132,15 +144,19 @@ export const CastPlayButton = ({
             console.log('No filename, cannot cast.', fileName);
             return;
         }
+        warmCallId.current = `playback-${Date.now()}`;
         if (
             !client ||
             castState === CastState.NOT_CONNECTED ||
             castState === CastState.NO_DEVICES_AVAILABLE
         ) {
+            await warmBeforePlayback(fileName, warmCallId.current);
             console.log('Starting video in intent');
             openVideoIntent(fileName);
             return;
         }
+        // Runs alongside subtitle extraction, the cast server reads warm pages.
+        warmBeforePlayback(fileName, warmCallId.current);
         console.log('Found cast client client');
         console.log('Extracting subtitles for cast playback', fileName);
         setConverting(true);
@@ -8,13 +8,18 @@ import AsyncStorage from '@react-native-async-storage/async-storage';
 import {
     ensureFolderExists,
     getRealPathFromContentUri,
+    preallocate,
     requestStoragePermission,
 } from '../../HelperFunctions';
 import { StorageKeys } from '../../enums/enum';
 import { SavedShowPaths } from '../settingsPageComponents/SavedShowLocationSettings';
 import { convert } from '../../services/converter';
 import { downloadedShows } from '../../services/DownloadedShows';
-import { downloadNotificationManger } from '../../services/DownloadNotificationManager';
+import { freeDiskSpace } from '../../services/DiskBudget';
+import {
+    DownloadSummaryItem,
+    downloadNotificationManger,
+} from '../../services/DownloadNotificationManager';
 import { logger } from '../../services/Logger';
 import { styledToast } from '../../services/ToastService';
 import { useInterpolateConfig } from 'react-native-reanimated';
@@ -90,6 +95,42 @@ export const DownloadTorrentButton = ({
         });
     };
 
+    // Reserves every file of the torrent before any piece arrives, so a
+    // download that can't fit fails now rather than when it is nearly done.
+    const reserveSpace = async (msg: {
+        path: string;
+        files: { path: string; length: number }[];
+    }) => {
+        try {
+            for (const file of msg.files ?? []) {
+                await preallocate(`${msg.path}/${file.path}`, file.length);
+            }
+            return true;
+        } catch (error: any) {
+            if (error?.code === 'E_NO_SPACE') {
+                return false;
+            }
+            // Preallocation is only an optimisation, let the download go on.
+            console.warn('Could not preallocate download', error?.message);
+            return true;
+        }
+    };
+
+    const onDownloadSummary = (item: DownloadSummaryItem) => {
+        onDownloadProgress?.(item.progress);
+        onDownloaded?.(item.downloadedBytes);
+        onDownloadSpeed(item.downloadSpeed);
+        onUploadSpeed(item.uploadSpeed);
+        if (item.downloadedDelta > 0) {
+            downloadStatisticsStore.addToTotalDownloadedBytes(
+                item.downloadedDelta,
+            );
+        }
+        if (item.uploadedDelta > 0) {
+            downloadStatisticsStore.addToTotalUploadedBytes(item.uploadedDelta);
+        }
+    };
+
     const downloadTorrent = async () => {
         // get stored location else
         let path: string | null | undefined = '';
@@ -130,6 +171,7 @@ export const DownloadTorrentButton = ({
                 storedShowPaths.shows.push({ showName, showPath: path });
 
                 await Storage.setItem(StorageKeys.ShowPaths, storedShowPaths);
+                downloadedShows.watchShowFolders();
             } else {
                 styledToast.showToast(
                     'error',
@@ -154,6 +196,7 @@ export const DownloadTorrentButton = ({
                 storedShowPaths.shows.push({ showName, showPath: path });
 
                 await Storage.setItem(StorageKeys.ShowPaths, storedShowPaths);
+                downloadedShows.watchShowFolders();
             }
         } else {
             path = currentShow.showPath;
@@ -164,14 +207,46 @@ export const DownloadTorrentButton = ({
         nodejs.channel.addListener('message', async (msg) => {
             if (msg.callbackId === callbackId) {
                 if (msg.name === 'torrent-metadata') {
-                    onDownloadStatusChange(DownloadingStatus.Downloading);
-                    onFileSizeObtained?.(msg.size);
+                    // Registered first so freeing space keeps its files.
                     downloadNotificationManger.addDownload(
+                        callbackId,
                         showName,
                         episodeNumber,
                         msg.size,
+                        (msg.files ?? []).map(
+                            (file: { path: string }) =>
+                                `${msg.path}/${file.path}`,
+                        ),
+                        onDownloadSummary,
                     );
+                    try {
+                        await freeDiskSpace({
+                            reserveFolder: msg.path,
+                            reserveBytes: msg.size,
+                        });
+                    } catch (error: any) {
+                        console.warn(
+                            'Could not free disk space',
+                            error?.message,
+                        );
+                    }
+                    if (!(await reserveSpace(msg))) {
+                        downloadNotificationManger.removeDownload(callbackId);
+                        nodejs.channel.send({ name: 'destroy', callbackId });
+                        onDownloadStatusChange(
+                            DownloadingStatus.NotDownloading,
+                        );
+                        styledToast.showToast(
+                            'error',
+                            'Cannot start download',
+                            `Not enough free space for ${showName} episode ${episodeNumber}`,
+                        );
+                        return;
+                    }
+                    onDownloadStatusChange(DownloadingStatus.Downloading);
+                    onFileSizeObtained?.(msg.size);
                 } else if (msg.name === 'torrent-progress') {
+                    // Only sent when the progress socket is unavailable.
                     const bytesDownloadSpeed = Math.round(msg.downloadSpeed);
                     const bytesUploadSpeed = Math.round(msg.uploadSpeed);
                     onDownloadProgress?.(msg.progress);
@@ -180,10 +255,11 @@ export const DownloadTorrentButton = ({
                     onUploadSpeed(bytesUploadSpeed);
                     if (msg.progress !== 1) {
                         downloadNotificationManger.onDataDownloaded(
-                            showName,
-                            episodeNumber,
+                            callbackId,
                             msg.downloaded,
+                            msg.uploaded,
                             bytesDownloadSpeed,
+                            bytesUploadSpeed,
                         );
                     }
                 } else if (msg.name === 'torrent-download-bytes') {
@@ -200,9 +276,8 @@ export const DownloadTorrentButton = ({
                     );
                     onDownloadStatusChange(DownloadingStatus.Seeding);
                     downloadNotificationManger.completeDownload(
-                        showName,
-                        episodeNumber,
-                        msg.sourceFilePath,
+                        callbackId,
+                        `${path}/${msg.sourceFilePath}`,
                     );
                 }
             }
@@ -212,6 +287,7 @@ export const DownloadTorrentButton = ({
             callbackId,
             magnetUri: desiredResoltion.magnet,
             location: path,
+            progressPort: await downloadNotificationManger.getProgressPort(),
         });
     };
 
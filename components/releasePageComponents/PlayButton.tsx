@@ -2,7 +2,11 @@ import * as React from 'react';
 import { Button } from 'react-native-paper';
 import { downloadedShows } from '../../services/DownloadedShows';
 import { View } from 'react-native';
-import { openVideoIntent } from '../../HelperFunctions';
+import {
+    cancelFileOperation,
+    openVideoIntent,
+    warmBeforePlayback,
+} from '../../HelperFunctions';
 
 export type PlayButtonType = {
     showName: string;
@@ -11,6 +15,16 @@ export type PlayButtonType = {
 
 export const PlayButton = ({ showName, fileMagnet }: PlayButtonType) => {
     const [fileName, setFileName] = React.useState('');
+    const warmCallId = React.useRef<string>();
+
+    // Stop warming the page cache if the user leaves before it's done.
+    React.useEffect(() => {
+        return () => {
+            if (warmCallId.current) {
+                cancelFileOperation(warmCallId.current);
+            }
+        };
+    }, []);
 
     React.useEffect(() => {
         (async () => {
@@ -32,6 +46,8 @@ export const PlayButton = ({ showName, fileMagnet }: PlayButtonType) => {
             return;
         }
 
+        warmCallId.current = `playback-${Date.now()}`;
+        await warmBeforePlayback(fileName, warmCallId.current);
         console.log('Starting video in intent');
         openVideoIntent(fileName);
         return;
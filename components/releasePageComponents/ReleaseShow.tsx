@@ -17,6 +17,7 @@ import {
 } from 'react-native-paper';
 import Icon from 'react-native-vector-icons/FontAwesome';
 import {
+    addFolderChangeListener,
     getDayOfWeek,
     humanFileSize,
     isCastingAvailable,
@@ -59,7 +60,7 @@ export const ReleaseShow = observer(
         const [downloadSpeed, setDownloadSpeed] = React.useState(0);
         const [uploadSpeed, setUploadSpeed] = React.useState(0);
         const [torrentPaused, setTorrentPaused] = React.useState(false);
-        const [castingAvailable, setCastingAvailable] = React.useState(false);
+        const [castingAvailable] = React.useState(isCastingAvailable);
         const [showDownloaded, setShowDownloaded] = React.useState(''); // Contains the magnet (key) of the downloaded show.
         const [callbackId] = React.useState(
             showInfo.show + showInfo.release_date + showInfo.episode,
@@ -69,13 +70,7 @@ export const ReleaseShow = observer(
         const navigation = useNavigation<StackNavigationProp<any>>();
 
         React.useEffect(() => {
-            (async () => {
-                setCastingAvailable(await isCastingAvailable());
-            })();
-        }, []);
-
-        React.useEffect(() => {
-            (async () => {
+            const checkDownloaded = async () => {
                 // See what episodes are already downloaded.
                 const show720p = showInfo.downloads.find(
                     (download) => download.res === '720',
@@ -88,18 +83,28 @@ export const ReleaseShow = observer(
                     await downloadedShows.isShowDownloaded(
                         showInfo.show,
                         show720p?.magnet || '',
+                        showInfo.episode,
+                        show720p?.res,
                     );
                 const showDownloaded1080 =
                     await downloadedShows.isShowDownloaded(
                         showInfo.show,
                         show1080p?.magnet || '',
+                        showInfo.episode,
+                        show1080p?.res,
                     );
                 if (showDownloaded720) {
                     setShowDownloaded(show720p!.magnet);
                 } else if (showDownloaded1080) {
                     setShowDownloaded(show1080p!.magnet);
+                } else {
+                    setShowDownloaded('');
                 }
-            })();
+            };
+            checkDownloaded();
+            // Answered from the native folder index, so rechecking is cheap.
+            const subscription = addFolderChangeListener(checkDownloaded);
+            return () => subscription.remove();
         }, [showInfo.downloads, showInfo.show]);
 
         const styles = StyleSheet.create({
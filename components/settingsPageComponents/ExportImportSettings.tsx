@@ -1,4 +1,3 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
 import uniqBy from 'lodash.uniqby';
 import * as React from 'react';
 import {
@@ -10,6 +9,7 @@ import {
 } from 'react-native-paper';
 import { createMaterialBottomTabNavigator } from '@react-navigation/material-bottom-tabs';
 import {
+    fileExists,
     getRealPathFromContentUri,
     promiseEach,
     requestStoragePermission,
@@ -29,10 +29,11 @@ import {
 } from 'react-native';
 import { Appbar } from 'react-native-paper';
 import { pickDirectory } from 'react-native-document-picker';
-import nodejs from 'nodejs-mobile-react-native';
 import { logger } from '../../services/Logger';
 import RNRestart from 'react-native-restart'; // Import package from node modules
 import { styledToast } from '../../services/ToastService';
+import { Storage } from '../../services/Storage';
+import { exportBackup, importBackup } from '../../services/KeyValueStore';
 
 type ImportExportListItemProps = {
     type: 'Import' | 'Export';
@@ -40,7 +41,8 @@ type ImportExportListItemProps = {
 
 export const ImportExportListItem = ({ type }: ImportExportListItemProps) => {
     const { colors } = useTheme();
-    const backupFileName = 'subsPleaseBackup.json';
+    const backupFileName = 'subsPleaseBackup.json.gz';
+    const legacyBackupFileName = 'subsPleaseBackup.json';
     const touchableStyle = {
         height: 60,
         backgroundColor:
@@ -65,88 +67,61 @@ export const ImportExportListItem = ({ type }: ImportExportListItemProps) => {
     const importData = async () => {
         await requestStoragePermission();
         const fileLocation = await pickDirectory();
-        let path = '';
         if (!fileLocation) {
             console.warn('No file location selected');
             return;
-        } else {
-            path =
-                (await getRealPathFromContentUri(fileLocation.uri)) +
-                '/' +
-                backupFileName;
         }
+        const folder = await getRealPathFromContentUri(fileLocation.uri);
+        // Prefer the compressed backup, fall back to ones made by older versions.
+        const path = (await fileExists(`${folder}/${backupFileName}`))
+            ? `${folder}/${backupFileName}`
+            : `${folder}/${legacyBackupFileName}`;
 
-        const callbackId = (Math.random() + 1).toString(36).substring(7);
-        nodejs.channel.addListener('message', async (msg) => {
-            if (msg.callbackId === callbackId) {
-                if (msg.error) {
-                    logger.error(msg.error);
-                    styledToast.showToast('error', 'Failed to import settings');
-                } else {
-                    const importedSettings = JSON.parse(msg.payload) as [
-                        string,
-                        string | null,
-                    ][];
-                    const nonNullSettings = importedSettings.filter(
-                        (setting) => setting && setting[1] !== null,
-                    ) as [string, string][];
-                    await AsyncStorage.multiSet(nonNullSettings);
-                    console.log('Successfully restored settings');
-                    styledToast.showToast(
-                        'success',
-                        'Successfully imported up settings',
-                        'Restarting app...',
-                    );
-                    setTimeout(() => {
-                        RNRestart.restart();
-                    }, 2000);
-                }
-            }
-        });
-        nodejs.channel.send({
-            name: 'read-json',
-            callbackId,
-            fileName: path,
-        });
+        try {
+            const restored = await importBackup(path);
+            await Storage.restoreEntries(
+                restored.settings.map((setting) => [setting.key, setting.value]),
+            );
+            console.log(
+                'Successfully restored settings',
+                restored.settings.length,
+                restored.storeEntries,
+            );
+            styledToast.showToast(
+                'success',
+                'Successfully imported up settings',
+                'Restarting app...',
+            );
+            setTimeout(() => {
+                RNRestart.restart();
+            }, 2000);
+        } catch (error) {
+            logger.error(error);
+            styledToast.showToast('error', 'Failed to import settings');
+        }
     };
 
     const exportData = async () => {
         await requestStoragePermission();
-        const keys = await AsyncStorage.getAllKeys();
-        const keyValues = await AsyncStorage.multiGet(keys);
+        const settings = await Storage.getSettingsEntries();
         const fileLocation = await pickDirectory();
-        let path = '';
         if (!fileLocation) {
             console.warn('No file location selected');
             return;
-        } else {
-            path =
-                (await getRealPathFromContentUri(fileLocation.uri)) +
-                '/' +
-                backupFileName;
         }
+        const path =
+            (await getRealPathFromContentUri(fileLocation.uri)) +
+            '/' +
+            backupFileName;
 
-        const callbackId = (Math.random() + 1).toString(36).substring(7);
-        nodejs.channel.addListener('message', async (msg) => {
-            if (msg.callbackId === callbackId) {
-                if (msg.error) {
-                    console.error(msg.error);
-                    styledToast.showToast('error', 'Error backing up settings');
-                } else {
-                    styledToast.showToast(
-                        'success',
-                        'Successfully backed up settings',
-                    );
-                    console.log('Successfully backed up settings');
-                }
-            }
-        });
-        nodejs.channel.send({
-            name: 'write-json',
-            callbackId,
-            fileName: path,
-            payload: JSON.stringify(keyValues),
-        });
+        try {
+            const bytes = await exportBackup(path, settings, true);
+            styledToast.showToast('success', 'Successfully backed up settings');
+            console.log('Successfully backed up settings', bytes);
+        } catch (error) {
+            console.error(error);
+            styledToast.showToast('error', 'Error backing up settings');
+        }
     };
 
     return (
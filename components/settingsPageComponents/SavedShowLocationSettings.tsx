@@ -29,6 +29,7 @@ import { Appbar } from 'react-native-paper';
 import { ImportExportListItem } from './ExportImportSettings';
 import { StorageKeys } from '../../enums/enum';
 import { Storage } from '../../services/Storage';
+import { downloadedShows } from '../../services/DownloadedShows';
 
 export interface SavedShowPaths {
     shows: {
@@ -103,6 +104,7 @@ export const SavedShowLocationSettings = () => {
         );
         setSavedShowPaths({ shows: filteredShows });
         await Storage.setItem(StorageKeys.ShowPaths, { shows: filteredShows });
+        downloadedShows.watchShowFolders();
     };
 
     const onShowRemovePress = async (show: {
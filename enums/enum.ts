@@ -13,4 +13,5 @@ export enum StorageKeys {
     JikanShowInfo = 'JikanShowInfo',
     TotalBytesDownloaded = 'totalBytesDownloaded',
     TotalBytesUploaded = 'totalBytesUploaded',
+    DiskBudget = 'diskBudget',
 }
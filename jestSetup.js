@@ -1,3 +1,81 @@
 import mockAsyncStorage from '@react-native-async-storage/async-storage/jest/async-storage-mock';
 
 jest.mock('@react-native-async-storage/async-storage', () => mockAsyncStorage);
+
+jest.mock('./specs/NativeKeyValueStore', () => {
+    const store = new Map();
+    const keysWithPrefix = (prefix) =>
+        [...store.keys()].filter((key) => key.startsWith(prefix));
+    return {
+        getItemSync: (key) => (store.has(key) ? store.get(key) : null),
+        getItem: async (key) => (store.has(key) ? store.get(key) : null),
+        setItem: async (key, value) => store.set(key, value) && true,
+        multiSet: async (keys, values) => {
+            keys.forEach((key, index) => store.set(key, values[index]));
+            return true;
+        },
+        removeItem: async (key) => store.delete(key),
+        getEntries: async (prefix) =>
+            keysWithPrefix(prefix).map((key) => ({
+                key,
+                value: store.get(key),
+            })),
+        removeAll: async (prefix) => {
+            const keys = keysWithPrefix(prefix);
+            keys.forEach((key) => store.delete(key));
+            return keys.length;
+        },
+        compact: async () => true,
+        getStats: async () => ({
+            entries: store.size,
+            fileBytes: 0,
+            usedBytes: 0,
+            liveBytes: 0,
+            recoveredBytes: 0,
+            compactions: 0,
+        }),
+        exportBackup: async () => 0,
+        importBackup: async () => ({
+            settings: [],
+            storeEntries: 0,
+            legacy: false,
+            bytes: 0,
+        }),
+        cancelBackup: async () => false,
+        addListener: () => {},
+        removeListeners: () => {},
+    };
+});
+
+jest.mock('./specs/NativeStartupTrace', () => ({
+    mark: () => {},
+    getStartupTrace: async () => ({ current: [], previous: [] }),
+}));
+
+jest.mock('./specs/NativeDownloadService', () => ({
+    getProgressPort: async () => 0,
+    addDownload: () => {},
+    updateDownload: () => {},
+    completeDownload: () => {},
+    removeDownload: () => {},
+    getActiveFilePaths: async () => [],
+    addListener: () => {},
+    removeListeners: () => {},
+}));
+
+jest.mock('./specs/NativeLogSink', () => ({
+    log: () => {},
+    getLogPort: async () => 0,
+    getLogDirectory: async () => '',
+    getLogFilePaths: async () => [],
+    flush: async () => true,
+    getStats: async () => ({
+        linesWritten: 0,
+        linesDropped: 0,
+        bytesWritten: 0,
+        batches: 0,
+        archives: 0,
+        writeFailures: 0,
+        lastError: null,
+    }),
+}));
@@ -1,23 +1,91 @@
 const rn_bridge = require('rn-bridge');
 import WebTorrent from 'webtorrent';
-import fs from 'fs';
-import cors from 'cors';
 import throttle from 'lodash.throttle';
-import jsonfile from 'jsonfile';
-import express, { Express, Request, Response } from 'express';
+import net from 'net';
 
-function log(...args: any[]) {
+// Loopback connection to the native log sink. Lines written here never wake
+// the JS thread; until it is connected they go over the channel instead.
+let logSocket: net.Socket | undefined;
+
+function connectLogSocket(port: number | undefined) {
+    if (!port || logSocket) {
+        return;
+    }
+    const socket = net.connect(port, '127.0.0.1');
+    socket.on('error', (error) => {
+        socket.destroy();
+        if (logSocket === socket) {
+            logSocket = undefined;
+        }
+        log('Log socket error:', error.message);
+    });
+    logSocket = socket;
+}
+
+function writeLog(level: string, args: any[]) {
+    const text = args.join(' ');
+    if (logSocket && !logSocket.destroyed) {
+        // One record per line, the sink splits on newlines and tabs.
+        logSocket.write(
+            `${level}\tnode\t${text.replace(/[\t\r\n]+/g, ' ')}\n`,
+        );
+        return;
+    }
     rn_bridge.channel.send({
         name: 'log',
-        text: args.join(' '),
+        text,
     });
 }
 
+function log(...args: any[]) {
+    writeLog('info', args);
+}
+
 console.log = log;
-console.error = log;
+console.error = (...args: any[]) => writeLog('error', args);
 
 const torrentObjects: { [key: string]: TorrentClient } = {};
-let localServer: LocalWebServer | null = null;
+
+// Loopback connection to the native download service, progress written here
+// skips the react-native bridge. Falls back to channel messages when unset.
+let progressSocket: net.Socket | undefined;
+let progressSocketPort: number | undefined;
+
+function connectProgressSocket(port: number | undefined) {
+    if (!port || (progressSocket && progressSocketPort === port)) {
+        return;
+    }
+    progressSocket?.destroy();
+    const socket = net.connect(port, '127.0.0.1');
+    socket.setNoDelay(true);
+    socket.on('error', (error) => {
+        console.log('Progress socket error:', error.message);
+        socket.destroy();
+        if (progressSocket === socket) {
+            progressSocket = undefined;
+            progressSocketPort = undefined;
+        }
+    });
+    progressSocket = socket;
+    progressSocketPort = port;
+}
+
+function writeProgress(callbackId: string, torrent: WebTorrent.Torrent) {
+    if (!progressSocket || progressSocket.destroyed) {
+        return false;
+    }
+    progressSocket.write(
+        [
+            'progress',
+            callbackId,
+            torrent.downloaded,
+            torrent.uploaded,
+            torrent.downloadSpeed,
+            torrent.uploadSpeed,
+        ].join('\t') + '\n',
+    );
+    return true;
+}
 
 class TorrentClient {
     client;
@@ -36,6 +104,11 @@ class TorrentClient {
                 callbackId: this.callbackId,
                 name: 'torrent-metadata',
                 size: torrent.length,
+                path: torrent.path,
+                files: torrent.files.map((file) => ({
+                    path: file.path,
+                    length: file.length,
+                })),
             });
             this.torrent = torrent;
             let chunkedDownloadedBytes = 0;
@@ -48,6 +121,11 @@ class TorrentClient {
                 torrent.files[0].name,
             );
             const throttledDownloadHandler = throttle(() => {
+                // Seeding torrents have no notification, their upload speed
+                // still goes to the UI over the channel.
+                if (!torrent.done && writeProgress(this.callbackId, torrent)) {
+                    return;
+                }
                 rn_bridge.channel.send({
                     callbackId: this.callbackId,
                     name: 'torrent-progress',
@@ -60,6 +138,12 @@ class TorrentClient {
                 });
             }, 1000);
             const throttledDownloadBytesHandler = throttle(() => {
+                // The download service counts bytes from the progress lines
+                // until the torrent is done, seeding is reported from here.
+                if (progressSocket && !torrent.done) {
+                    chunkedDownloadedBytes = 0;
+                    return;
+                }
                 rn_bridge.channel.send({
                     callbackId: this.callbackId,
                     name: 'torrent-download-bytes',
@@ -68,6 +152,10 @@ class TorrentClient {
                 chunkedDownloadedBytes = 0;
             }, 1000);
             const throttledUploadBytesHandler = throttle(() => {
+                if (progressSocket && !torrent.done) {
+                    chunkedUploadedBytes = 0;
+                    return;
+                }
                 rn_bridge.channel.send({
                     callbackId: this.callbackId,
                     name: 'torrent-upload-bytes',
@@ -110,218 +198,20 @@ class TorrentClient {
             this.torrent.resume();
         }
     }
-}
 
-class LocalWebServer {
-    port;
-    app: Express | undefined;
-    constructor(port) {
-        this.port = port;
-    }
-
-    startServer(callback: Function) {
-        console.log('Starting local webserver on port', this.port);
-        this.app = express();
-        this.app.use(cors());
-        this.app.listen(this.port, () => {
-            console.log(`Local webserver listening on port ${this.port}`);
-            callback();
-        });
-
-        this.app.get('/video', function (req, res) {
-            const localFilePathToPlay = decodeURIComponent(
-                req.query.file as any,
-            );
-            console.log('Handling video route', localFilePathToPlay);
-            if (!localFilePathToPlay) {
-                console.error('No local file to play setup!');
-                return;
-            }
-            const stat = fs.statSync(localFilePathToPlay);
-            const fileSize = stat.size;
-            const range = req.headers.range;
-            if (range) {
-                const parts = range.replace(/bytes=/, '').split('-');
-                const start = parseInt(parts[0], 10);
-                const end = parts[1] ? parseInt(parts[1], 10) : fileSize - 1;
-                const chunksize = end - start + 1;
-                const file = fs.createReadStream(localFilePathToPlay, {
-                    start,
-                    end,
-                });
-                const head = {
-                    'Content-Range': `bytes ${start}-${end}/${fileSize}`,
-                    'Accept-Ranges': 'bytes',
-                    'Content-Length': chunksize,
-                    'Content-Type': 'video/mp4',
-                };
-                res.writeHead(206, head);
-                file.pipe(res);
-            } else {
-                const head = {
-                    'Content-Length': fileSize,
-                    'Content-Type': 'video/mp4',
-                };
-                res.writeHead(200, head);
-                fs.createReadStream(localFilePathToPlay).pipe(res);
-            }
-        });
-
-        this.app.get('/vtt', function (req, res) {
-            const localFilePathToPlay = decodeURIComponent(
-                req.query.file as any,
-            );
-            console.log('Handling vtt subtitle route');
-            const filePathWithoutExtension = localFilePathToPlay
-                .split('.')
-                .slice(0, -1)
-                .join('.');
-
-            res.sendFile(`${filePathWithoutExtension}.vtt`);
-        });
-    }
-
-    stopServer() {
-        if (this.app) {
-            (this.app as any).close();
-        }
-    }
-}
-
-class VttTidier {
-    callbackId;
-    constructor(callbackId: string) {
-        console.log('Creating VTT Tidier with', callbackId);
-        this.callbackId = callbackId;
-    }
-    splitEntries(subtitles: string) {
-        const dialogEntries = subtitles.split(/\n\n/);
-        dialogEntries.shift(); // Remove the WEBTTV line.
-        const keyedDialogEntries = dialogEntries
-            .map((entry) => {
-                return {
-                    time: entry.slice(0, entry.indexOf('\n')),
-                    text: entry.slice(entry.indexOf('\n') + 1),
-                };
-            })
-            .filter((entry) => entry.text && entry.time);
-        console.log(
-            'Created keyed dialog entries with',
-            keyedDialogEntries.length,
-            'entries',
-        );
-        return keyedDialogEntries;
-    }
-    removeBackgrounds(
-        keyedDialogEntries: {
-            time: string;
-            text: string;
-        }[],
-    ) {
-        console.log('Removing backgrounds');
-        return keyedDialogEntries.filter((keyedDialogEntry) => {
-            return !keyedDialogEntry.text.match(
-                /m 0 0 l 0 \d{1,3} l \d{1,3} \d{1,3} l \d{1,3} 0/gm,
-            );
-        });
-    }
-
-    removeDuplicateText(
-        keyedDialogEntries: {
-            time: string;
-            text: string;
-        }[],
-    ) {
-        const dedupedDialogs: {
-            time: string;
-            text: string;
-        }[] = [];
-        keyedDialogEntries.forEach((keyedDialogEntry) => {
-            const duplicatedItem = dedupedDialogs.find((dialog) => {
-                const sameDialog = dialog.text === keyedDialogEntry.text;
-                const dialogEndTime = dialog.time.split(' --> ')[1];
-                const currentDialogStartTime =
-                    keyedDialogEntry.time.split(' --> ')[0];
-                return sameDialog && dialogEndTime === currentDialogStartTime;
-            });
-            if (duplicatedItem) {
-                // Update display duration of duplicatedItem
-                const firstInstanceStartTime =
-                    duplicatedItem.time.split(' --> ')[0];
-                const currentInstanceEndTime =
-                    keyedDialogEntry.time.split(' --> ')[1];
-                duplicatedItem.time = `${firstInstanceStartTime} --> ${currentInstanceEndTime}`;
-            } else {
-                dedupedDialogs.push(keyedDialogEntry);
-            }
-        });
-        console.log(
-            'Removed duplicate dialog pieces',
-            keyedDialogEntries.length,
-            '->',
-            dedupedDialogs.length,
-        );
-        return dedupedDialogs;
-    }
-
-    markSignText(keyedDialogEntries: { time: string; text: string }[]) {
-        keyedDialogEntries.forEach((entry) => {
-            entry.text = entry.text.replace(/{=\d+}/gm, '[Sign] ');
-        });
-        console.log('Marked sign text');
-        return keyedDialogEntries;
-    }
-
-    serializeDialogEntries(
-        keyedDialogEntries: { time: string; text: string }[],
-    ) {
-        const dialogEntries = keyedDialogEntries.map((keyedEntry) => {
-            return `${keyedEntry.time}\n${keyedEntry.text}`;
-        });
-        let vttText = 'WEBVTT\n\n';
-        dialogEntries.forEach((dialogEntry) => {
-            vttText += dialogEntry;
-            vttText += '\n\n';
-        });
-        return vttText;
-    }
-
-    tidyVttFile(path: string) {
-        fs.readFile(path, 'utf8', (err, data) => {
-            if (err) {
-                console.error('Failed to read text file', err);
-                rn_bridge.channel.send({
-                    callbackId: this.callbackId,
-                });
-                return;
-            }
-            console.log('Read data file with', data.length, 'lines');
-            const processDialogEntries = this.markSignText(
-                this.removeDuplicateText(
-                    this.removeBackgrounds(this.splitEntries(data)),
-                ),
-            );
-            console.log('Finished processing subtitles, serializing...');
-            const vttText = this.serializeDialogEntries(processDialogEntries);
-            console.log('Writing text length', vttText.length, 'to', path);
-            fs.writeFile(path, vttText, (writeerr) => {
-                if (writeerr) {
-                    console.error(writeerr);
-                } else {
-                    console.log('Successfully processed VTT');
-                }
-                rn_bridge.channel.send({
-                    callbackId: this.callbackId,
-                });
-            });
-        });
+    destroy() {
+        console.log('Destroying', this.callbackId);
+        this.client.destroy();
     }
 }
 
 // Echo every message received from react-native.
 rn_bridge.channel.on('message', (msg) => {
     try {
-        if (msg.name === 'download-torrent') {
+        if (msg.name === 'log-port') {
+            connectLogSocket(msg.port);
+        } else if (msg.name === 'download-torrent') {
+            connectProgressSocket(msg.progressPort);
             const torrentClient = new TorrentClient(msg.callbackId);
             torrentClient.downloadTorrent(msg.magnetUri, msg.location);
             torrentObjects[msg.callbackId] = torrentClient;
@@ -334,77 +224,11 @@ rn_bridge.channel.on('message', (msg) => {
             if (torrentObjects[msg.callbackId]) {
                 torrentObjects[msg.callbackId].resume();
             }
-        } else if (msg.name === 'write-json') {
-            console.log('Writing backup for', JSON.stringify(msg));
-            jsonfile.writeFile(msg.fileName, JSON.parse(msg.payload), (err) => {
-                rn_bridge.channel.send({
-                    name: 'write-json-callback',
-                    callbackId: msg.callbackId,
-                    error: err,
-                });
-            });
-        } else if (msg.name === 'read-json') {
-            console.log('Reading backup for', JSON.stringify(msg));
-            jsonfile.readFile(msg.fileName, (err, object) => {
-                rn_bridge.channel.send({
-                    name: 'read-json-callback',
-                    callbackId: msg.callbackId,
-                    error: err,
-                    payload: JSON.stringify(object),
-                });
-            });
-        } else if (msg.name === 'start-server') {
-            console.log('Starting local webserver', JSON.stringify(msg));
-            if (localServer) {
-                console.log(
-                    'Already created a webserver, not creating a second one.',
-                );
-                rn_bridge.channel.send({
-                    name: 'local-webserver-callback',
-                    callbackId: msg.callbackId,
-                });
-                return;
-            }
-            localServer = new LocalWebServer(msg.port);
-            localServer.startServer(() => {
-                rn_bridge.channel.send({
-                    name: 'local-webserver-callback',
-                    callbackId: msg.callbackId,
-                });
-            });
-        } else if (msg.name === 'stop-server') {
-            console.log('Stopping local webserver', JSON.stringify(msg));
-            if (!localServer) {
-                console.log('No webserver, cant stop!');
-                return;
+        } else if (msg.name === 'destroy') {
+            if (torrentObjects[msg.callbackId]) {
+                torrentObjects[msg.callbackId].destroy();
+                delete torrentObjects[msg.callbackId];
             }
-            localServer.stopServer();
-        } else if (msg.name === 'tidy-vtt') {
-            const vttTider = new VttTidier(msg.callbackId);
-            console.log('Going to tidy VTT file', msg.filePath);
-            vttTider.tidyVttFile(msg.filePath);
-        } else if (msg.name === 'base64-image') {
-            fs.readFile(msg.outputFilePath, 'base64', (err, data) => {
-                if (err) {
-                    console.error(
-                        'Error reading file to convert to B64',
-                        JSON.stringify(err),
-                    );
-                    rn_bridge.channel.send({
-                        callbackId: msg.callbackId,
-                        b64String: '',
-                    });
-                    return;
-                }
-                console.log(
-                    'Successfully created b64 strin, length: ',
-                    data.length,
-                );
-                rn_bridge.channel.send({
-                    callbackId: msg.callbackId,
-                    b64String: 'data:image/jpeg;base64,' + data,
-                });
-            });
         }
     } catch (ex) {
         console.log('ERROR in node process:', JSON.stringify(ex));
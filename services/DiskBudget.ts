@@ -0,0 +1,119 @@
+import { SavedShowPaths } from '../components/settingsPageComponents/SavedShowLocationSettings';
+import { StorageKeys } from '../enums/enum';
+import { evictToBudget } from '../HelperFunctions';
+import { downloadNotificationManger } from './DownloadNotificationManager';
+import { watchedEpisodesCollection } from './KeyValueStore';
+import { Storage } from './Storage';
+
+const bytesPerGigabyte = 1024 * 1024 * 1024;
+
+export type DiskBudgetSettings = {
+    // 0 for no limit.
+    globalGigabytes: number;
+    // Applies to every show folder without an override, 0 for no limit.
+    showGigabytes: number;
+    // Per show folder budgets, keyed by show path.
+    showOverrides: { [showPath: string]: number };
+    // Also delete episodes that have not been marked as watched.
+    evictUnwatched: boolean;
+};
+
+export const defaultDiskBudget: DiskBudgetSettings = {
+    globalGigabytes: 0,
+    showGigabytes: 0,
+    showOverrides: {},
+    evictUnwatched: false,
+};
+
+export const getDiskBudget = async () => {
+    return {
+        ...defaultDiskBudget,
+        ...(await Storage.getItem<DiskBudgetSettings>(
+            StorageKeys.DiskBudget,
+            defaultDiskBudget,
+        )),
+    };
+};
+
+export const setDiskBudget = (settings: DiskBudgetSettings) => {
+    return Storage.setItem(StorageKeys.DiskBudget, settings);
+};
+
+// Watched episode keys are `${show}|${release_date}|${episode}`.
+const getWatchedEpisodesByShow = async () => {
+    const watchedEpisodesByShow = new Map<string, string[]>();
+    const entries = await watchedEpisodesCollection.entries();
+    entries.forEach(([episodeKey]) => {
+        const episodeSeparator = episodeKey.lastIndexOf('|');
+        const dateSeparator = episodeKey.lastIndexOf('|', episodeSeparator - 1);
+        if (dateSeparator < 0) {
+            return;
+        }
+        const showName = episodeKey.substring(0, dateSeparator);
+        const episodes = watchedEpisodesByShow.get(showName) ?? [];
+        episodes.push(episodeKey.substring(episodeSeparator + 1));
+        watchedEpisodesByShow.set(showName, episodes);
+    });
+    return watchedEpisodesByShow;
+};
+
+/**
+ * Deletes downloaded episodes until the show folders fit the configured
+ * budgets. Pass reserveFolder and reserveBytes to make room for a download
+ * that is about to start there. Files of downloads still in progress are
+ * never deleted. Resolves with null when no budget is set.
+ */
+export const freeDiskSpace = async (
+    reserve: {
+        reserveFolder?: string;
+        reserveBytes?: number;
+    } = {},
+    callId?: string,
+) => {
+    const budget = await getDiskBudget();
+    const hasShowBudget =
+        budget.showGigabytes > 0 ||
+        Object.values(budget.showOverrides).some((gigabytes) => gigabytes > 0);
+    if (budget.globalGigabytes <= 0 && !hasShowBudget) {
+        return null;
+    }
+
+    const savedShowPaths = await Storage.getItem<SavedShowPaths>(
+        StorageKeys.ShowPaths,
+        {
+            shows: [],
+        },
+    );
+    const watchedEpisodesByShow = await getWatchedEpisodesByShow();
+    const protectedPaths =
+        await downloadNotificationManger.getActiveFilePaths();
+    const roots = savedShowPaths.shows.map((show) => ({
+        path: show.showPath,
+        budgetBytes:
+            (budget.showOverrides[show.showPath] ?? budget.showGigabytes) *
+            bytesPerGigabyte,
+        watchedEpisodes: watchedEpisodesByShow.get(show.showName) ?? [],
+    }));
+
+    const result = await evictToBudget(
+        {
+            roots,
+            globalBudgetBytes: budget.globalGigabytes * bytesPerGigabyte,
+            evictUnwatched: budget.evictUnwatched,
+            reserveFolder: reserve.reserveFolder ?? null,
+            reserveBytes: reserve.reserveBytes ?? 0,
+            protectedPaths,
+        },
+        callId,
+    );
+    if (result.filesDeleted > 0) {
+        console.log(
+            'Freed',
+            result.bytesFreed,
+            'bytes by deleting',
+            result.filesDeleted,
+            'episodes',
+        );
+    }
+    return result;
+};
@@ -1,252 +1,140 @@
-import { humanFileSize, openVideoIntent } from '../HelperFunctions';
-import notifee, { AndroidColor, EventType } from '@notifee/react-native';
+import { NativeEventEmitter } from 'react-native';
+import NativeDownloadService from '../specs/NativeDownloadService';
+import type {
+    DownloadSummary,
+    DownloadSummaryItem,
+} from '../specs/NativeDownloadService';
 import { logger } from './Logger';
 
-export interface EpisodeDownloadProgress {
-    episodeNumber: string;
-    showName: string;
-    totalSize: number;
-    downloaded: number;
-    notificationId: string;
-    notificationSortValue: string;
-    currentSpeed: number; // Bytes per second
-}
+export type {
+    DownloadSummary,
+    DownloadSummaryItem,
+} from '../specs/NativeDownloadService';
+
+const downloadServiceEvents = new NativeEventEmitter(NativeDownloadService);
 
+/**
+ * Front for the native download service, which keeps the app in the
+ * foreground and draws one grouped notification for every download. Progress
+ * goes from the torrent client straight to the service; JS gets a single
+ * summary per tick and hands each download its own entry.
+ */
 class DownloadNotificationManger {
-    private downloads: EpisodeDownloadProgress[] = [];
-    private notificationIndex = 0;
-    private foregroundNotificationId = '';
-    private groupId = 'group-id';
-    private summaryNotificationId = 'summary-notification-id';
-    private channelId: string | undefined;
+    private listeners = new Map<string, (item: DownloadSummaryItem) => void>();
+    private lastSummary: DownloadSummary = { downloads: [], completed: [] };
+    private progressPort: Promise<number | undefined> | undefined;
+
     constructor() {
-        notifee.onBackgroundEvent(async ({ type, detail }) => {
-            if (
-                type === EventType.PRESS &&
-                detail.notification?.data?.filePath
-            ) {
-                await openVideoIntent(detail.notification.data.filePath);
-            }
-        });
-        notifee.onForegroundEvent(({ type, detail }) => {
-            if (
-                type === EventType.PRESS &&
-                detail.notification?.data?.filePath
-            ) {
-                openVideoIntent(detail.notification.data.filePath);
-            }
-        });
+        downloadServiceEvents.addListener(
+            'YorhaDownloads.summary',
+            (summary: DownloadSummary) => {
+                this.lastSummary = summary;
+                [...summary.downloads, ...summary.completed].forEach(
+                    (item) => {
+                        this.listeners.get(item.callbackId)?.(item);
+                    },
+                );
+            },
+        );
+    }
+
+    /**
+     * Loopback port the torrent client should report progress to, or
+     * undefined when the service can't take it and the node channel is used.
+     */
+    public getProgressPort() {
+        if (!this.progressPort) {
+            this.progressPort = NativeDownloadService.getProgressPort().catch(
+                (ex) => {
+                    logger.error('No download progress port', ex?.message);
+                    this.progressPort = undefined;
+                    return undefined;
+                },
+            );
+        }
+        return this.progressPort;
     }
 
     public getInprogressDownloads() {
-        const totalDownloaded = this.downloads.reduce(
-            (previousValue, currentValue) =>
-                previousValue + currentValue.downloaded,
-            0,
-        );
-        const totalToDownloaded = this.downloads.reduce(
-            (previousValue, currentValue) =>
-                previousValue + currentValue.totalSize,
-            0,
-        );
-        const totalSpeed = this.downloads.reduce(
-            (previousValue, currentValue) =>
-                previousValue + currentValue.currentSpeed,
-            0,
-        );
+        const downloads = this.lastSummary.downloads;
         return {
-            totalDownloaded,
-            totalToDownloaded,
-            totalSpeed,
-            currentDownloadCount: this.downloads.length,
+            totalDownloaded: downloads.reduce(
+                (total, download) => total + download.downloadedBytes,
+                0,
+            ),
+            totalToDownloaded: downloads.reduce(
+                (total, download) => total + download.totalBytes,
+                0,
+            ),
+            totalSpeed: downloads.reduce(
+                (total, download) => total + download.downloadSpeed,
+                0,
+            ),
+            currentDownloadCount: downloads.length,
         };
     }
 
-    public async addDownload(
+    /**
+     * Shows the download in the notification. Summary entries for it are
+     * passed to onSummary until it completes or is removed, and its files
+     * are reported by getActiveFilePaths until then.
+     */
+    public addDownload(
+        callbackId: string,
         showName: string,
         episodeNumber: string,
         totalSize: number,
+        filePaths: string[],
+        onSummary: (item: DownloadSummaryItem) => void,
     ) {
-        try {
-            console.log('Showing notification for', showName, episodeNumber);
-            if (this.downloads.length === 0) {
-                this.channelId = await notifee.createChannel({
-                    id: 'Downloadnotifications',
-                    name: 'Episode download notifications',
-                });
-            }
+        console.log('Showing notification for', showName, episodeNumber);
+        this.listeners.set(callbackId, onSummary);
+        NativeDownloadService.addDownload(
+            callbackId,
+            showName,
+            episodeNumber,
+            totalSize,
+            filePaths,
+        );
+    }
 
-            const foreGroundServiceChannelId = await notifee.createChannel({
-                id: 'ForeGroundNotification',
-                name: 'Downloads in progress notification',
-            });
-            console.log('Created or acquired a channel for notification');
-            const notificationSortValue = (this.notificationIndex++).toString();
-            const notificationId = await notifee.displayNotification({
-                id: showName + episodeNumber,
-                title: `${showName} ep: ${episodeNumber}`,
-                android: {
-                    channelId: this.channelId,
-                    onlyAlertOnce: true,
-                    ongoing: true,
-                    colorized: true,
-                    autoCancel: false,
-                    smallIcon: 'subsplease_notification_icon',
-                    progress: {
-                        max: totalSize,
-                        current: 0,
-                    },
-                    sortKey: notificationSortValue,
-                    groupId: this.groupId,
-                },
-            });
-            this.downloads.push({
-                showName,
-                episodeNumber,
-                totalSize,
-                downloaded: 0,
-                notificationId,
-                notificationSortValue,
-                currentSpeed: 0,
-            });
-            if (this.downloads.length === 1) {
-                console.log('Showing foreground notification');
-                await notifee.displayNotification({
-                    title: 'Episode downloads in progress',
-                    android: {
-                        onlyAlertOnce: true,
-                        channelId: foreGroundServiceChannelId,
-                        asForegroundService: true,
-                        color: AndroidColor.RED,
-                        colorized: true,
-                    },
-                });
-            }
-        } catch (ex) {
-            logger.error(
-                'Failed to create notification for',
-                showName,
-                episodeNumber,
-                'error:',
-                JSON.stringify(ex),
-            );
-        }
+    /** Files of every download that has not completed or been removed. */
+    public getActiveFilePaths() {
+        return NativeDownloadService.getActiveFilePaths();
     }
 
-    public async onDataDownloaded(
-        showName: string,
-        episodeNumber: string,
+    /** Progress that came over the node channel instead of the socket. */
+    public onDataDownloaded(
+        callbackId: string,
         totalDownloaded: number,
-        currentSpeed: number,
+        totalUploaded: number,
+        currentDownloadSpeed: number,
+        currentUploadSpeed: number,
     ) {
-        const downloadingEpisode = this.downloads.find(
-            (download) =>
-                download.showName === showName &&
-                download.episodeNumber === episodeNumber,
+        NativeDownloadService.updateDownload(
+            callbackId,
+            totalDownloaded,
+            totalUploaded,
+            currentDownloadSpeed,
+            currentUploadSpeed,
         );
-        if (!downloadingEpisode) {
-            // Might not've been added yet.
-            return;
-        }
-        downloadingEpisode.downloaded = totalDownloaded;
-        downloadingEpisode.currentSpeed = currentSpeed;
-
-        await notifee.displayNotification({
-            id: downloadingEpisode.notificationId,
-            title: `${Math.round(
-                (downloadingEpisode.downloaded / downloadingEpisode.totalSize) *
-                    100,
-            )}% - ${showName} ep: ${episodeNumber}`,
-            body: `${humanFileSize(
-                downloadingEpisode.downloaded,
-            )} / ${humanFileSize(
-                downloadingEpisode.totalSize,
-            )}. ${humanFileSize(currentSpeed)}/s`,
-            android: {
-                channelId: this.channelId,
-                onlyAlertOnce: true,
-                ongoing: true,
-                autoCancel: false,
-                smallIcon: 'subsplease_notification_icon',
-                progress: {
-                    max: downloadingEpisode.totalSize,
-                    current: downloadingEpisode.downloaded,
-                },
-                sortKey: downloadingEpisode.notificationSortValue,
-                groupId: this.groupId,
-            },
-        });
-        await this.updateSummaryNotification(this.channelId!);
     }
 
-    public async completeDownload(
-        showName: string,
-        episodeNumber: string,
+    public completeDownload(
+        callbackId: string,
         destinationFileLocation: string,
     ) {
-        console.log(
-            'Sending completed notification for',
-            showName,
-            episodeNumber,
+        console.log('Sending completed notification for', callbackId);
+        this.listeners.delete(callbackId);
+        NativeDownloadService.completeDownload(
+            callbackId,
+            destinationFileLocation,
         );
-        this.downloads = this.downloads.filter((download) => {
-            if (download.showName === showName) {
-                return download.episodeNumber !== episodeNumber;
-            }
-            return true;
-        });
-        // Show complete notification
-        await notifee.displayNotification({
-            id: showName + episodeNumber,
-            title: `${showName} ep: ${episodeNumber}`,
-            body: 'Download complete',
-            data: {
-                filePath: destinationFileLocation,
-            },
-            android: {
-                smallIcon: 'subsplease_notification_complete_icon',
-                channelId: this.channelId,
-                groupId: this.groupId,
-            },
-        });
-        await this.updateSummaryNotification(this.channelId!);
-        if (this.getInprogressDownloads().currentDownloadCount === 0) {
-            await new Promise((resolve) => setTimeout(resolve, 1000));
-            console.log('Stopping foreground service');
-            await notifee.cancelNotification(this.foregroundNotificationId);
-            await notifee.stopForegroundService();
-            console.log('Stopped foreground service');
-        }
     }
 
-    private async updateSummaryNotification(channelId: string) {
-        // Summary notification
-        const inProgressDownloads = this.getInprogressDownloads();
-        const subtitle =
-            inProgressDownloads.currentDownloadCount === 0
-                ? 'All downloads complete'
-                : `${humanFileSize(
-                      inProgressDownloads.totalSpeed,
-                  )}/S - ${humanFileSize(
-                      inProgressDownloads.totalDownloaded,
-                  )}/${humanFileSize(inProgressDownloads.totalToDownloaded)}`;
-        await notifee.displayNotification({
-            id: this.summaryNotificationId,
-            title: `YoRHa downloads - ${
-                inProgressDownloads.currentDownloadCount
-            } downloads - ${Math.round(
-                (inProgressDownloads.totalDownloaded /
-                    inProgressDownloads.totalToDownloaded) *
-                    100,
-            )}`,
-            subtitle: subtitle, // speed and size here
-            android: {
-                channelId,
-                smallIcon: 'subsplease_notification_icon',
-                groupSummary: true,
-                groupId: this.groupId,
-            },
-        });
+    public removeDownload(callbackId: string) {
+        this.listeners.delete(callbackId);
+        NativeDownloadService.removeDownload(callbackId);
     }
 }
 
@@ -1,10 +1,31 @@
-import AsyncStorage from '@react-native-async-storage/async-storage';
 import { SavedShowPaths } from '../components/settingsPageComponents/SavedShowLocationSettings';
 import { StorageKeys } from '../enums/enum';
-import { fileExists } from '../HelperFunctions';
+import {
+    addFolderChangeListener,
+    fileExists,
+    LibraryShows,
+    scanLibrary,
+    statFiles,
+    watchFolders,
+} from '../HelperFunctions';
+import { downloadedShowsCollection } from './KeyValueStore';
+import { logger } from './Logger';
 import { Storage } from './Storage';
 
+// Same form as the native parser: no leading zeros and no "v2" suffix.
+const normalizeEpisode = (episode: string) =>
+    episode.replace(/v\d+$/i, '').replace(/^0+(?=\d)/, '');
+
 class DownloadedShows {
+    private library: Promise<LibraryShows> | undefined;
+
+    constructor() {
+        // A file added or removed in a show folder needs a rescan.
+        addFolderChangeListener(() => {
+            this.library = undefined;
+        });
+    }
+
     public async getShowDownloadPath(showName: string) {
         const savedShowPaths = await Storage.getItem<SavedShowPaths>(
             StorageKeys.ShowPaths,
@@ -22,61 +43,193 @@ class DownloadedShows {
         return '';
     }
 
-    private getDownloadedShowsStorage = async () => {
-        return Storage.getItem<{ key: string; fileName: string }[]>(
-            StorageKeys.DownloadedShows,
-            [],
-        );
-    };
-
-    public async getShowFileName(magnet: string) {
-        const downloadedShowsStorage = await this.getDownloadedShowsStorage();
-        return (
-            downloadedShowsStorage.find(
-                (downloadedShow) => downloadedShow.key === magnet,
-            )?.fileName || ''
+    /**
+     * Keeps the native folder index in line with the saved show paths so
+     * download checks don't hit the filesystem and files removed outside the
+     * app are noticed. Call again whenever the show paths change.
+     */
+    public async watchShowFolders() {
+        const savedShowPaths = await Storage.getItem<SavedShowPaths>(
+            StorageKeys.ShowPaths,
+            {
+                shows: [],
+            },
         );
+        await watchFolders(savedShowPaths.shows.map((show) => show.showPath));
+        this.library = undefined;
     }
 
-    public async isShowDownloaded(showName: string, magnet: string) {
-        const downloadedShowsStorage = await this.getDownloadedShowsStorage();
+    /**
+     * Episode files found in the show folders, including ones the app didn't
+     * download itself. Scanned again after the folders change.
+     */
+    public getLibrary() {
+        if (!this.library) {
+            this.library = (async () => {
+                const savedShowPaths = await Storage.getItem<SavedShowPaths>(
+                    StorageKeys.ShowPaths,
+                    {
+                        shows: [],
+                    },
+                );
+                const result = await scanLibrary(
+                    savedShowPaths.shows.map((show) => show.showPath),
+                );
+                console.log(
+                    'Scanned library,',
+                    result.files,
+                    'episode files,',
+                    result.directoriesListed,
+                    'of',
+                    result.directoriesVisited,
+                    'folders listed in',
+                    Math.round(result.durationMs),
+                    'ms',
+                );
+                return result.shows;
+            })().catch((ex) => {
+                logger.error('Could not scan library', ex?.message);
+                this.library = undefined;
+                return {};
+            });
+        }
+        return this.library;
+    }
 
-        if (
-            !downloadedShowsStorage.find(
-                (downloadedShow) => downloadedShow.key === magnet,
-            )
-        ) {
+    /**
+     * Looks for the episode in the show's own folder and, when found,
+     * remembers the file under the magnet so the rest of the app treats it
+     * as downloaded. Returns whether a file was found.
+     */
+    private async adoptLibraryFile(
+        showName: string,
+        showPath: string,
+        magnet: string,
+        episode: string | undefined,
+        res: string | undefined,
+    ) {
+        if (!episode || !res) {
             return false;
         }
+        const library = await this.getLibrary();
+        const file =
+            library[showName]?.[normalizeEpisode(episode)]?.[`${res}p`];
+        if (!file || file.path !== `${showPath}/${file.fileName}`) {
+            return false;
+        }
+        await this.addDownloadedShow(magnet, file.fileName);
+        return true;
+    }
+
+    public async getShowFileName(magnet: string) {
+        await downloadedShowsCollection.ready();
+        return downloadedShowsCollection.get(magnet) || '';
+    }
 
+    /**
+     * Pass the episode and resolution to also find files the app didn't
+     * download, see getLibrary.
+     */
+    public async isShowDownloaded(
+        showName: string,
+        magnet: string,
+        episode?: string,
+        res?: string,
+    ) {
+        await downloadedShowsCollection.ready();
+        const fileName = downloadedShowsCollection.get(magnet);
         const showPath = await this.getShowDownloadPath(showName);
+        if (!fileName) {
+            return (
+                !!showPath &&
+                !!magnet &&
+                (await this.adoptLibraryFile(
+                    showName,
+                    showPath,
+                    magnet,
+                    episode,
+                    res,
+                ))
+            );
+        }
+
         if (!showPath) {
             console.warn('Show doesnt have entry in show paths');
             return false;
         }
 
-        const filePath = `${showPath}/${
-            downloadedShowsStorage.find(
-                (downloadedShow) => downloadedShow.key === magnet,
-            )?.fileName
-        }`;
-        return await fileExists(filePath);
+        return await fileExists(`${showPath}/${fileName}`);
+    }
+
+    /**
+     * Batched version of isShowDownloaded. Looks file names up in memory and
+     * checks every candidate file with a single native stat call.
+     * Returns the magnets whose files are still on disk.
+     */
+    public async getDownloadedMagnets(
+        episodes: {
+            showName: string;
+            magnet: string;
+            episode?: string;
+            res?: string;
+        }[],
+    ) {
+        await downloadedShowsCollection.ready();
+        const savedShowPaths = await Storage.getItem<SavedShowPaths>(
+            StorageKeys.ShowPaths,
+            {
+                shows: [],
+            },
+        );
+        const showPathsByName = new Map(
+            savedShowPaths.shows.map((show) => [show.showName, show.showPath]),
+        );
+
+        const candidates: { magnet: string; filePath: string }[] = [];
+        const unknownEpisodes: typeof episodes = [];
+        episodes.forEach((episode) => {
+            const { showName, magnet } = episode;
+            const fileName = downloadedShowsCollection.get(magnet);
+            const showPath = showPathsByName.get(showName);
+            if (fileName && showPath) {
+                candidates.push({ magnet, filePath: `${showPath}/${fileName}` });
+            } else if (showPath) {
+                unknownEpisodes.push(episode);
+            }
+        });
+
+        const adoptedMagnets: string[] = [];
+        for (const { showName, magnet, episode, res } of unknownEpisodes) {
+            if (
+                await this.adoptLibraryFile(
+                    showName,
+                    showPathsByName.get(showName)!,
+                    magnet,
+                    episode,
+                    res,
+                )
+            ) {
+                adoptedMagnets.push(magnet);
+            }
+        }
+
+        const stats = await statFiles(
+            candidates.map((candidate) => candidate.filePath),
+        );
+        return new Set([
+            ...adoptedMagnets,
+            ...candidates
+                .filter((_candidate, index) => stats[index].exists)
+                .map((candidate) => candidate.magnet),
+        ]);
     }
 
     public async addDownloadedShow(magnet: string, fileName: string) {
         // Magnet acts as key,
         console.log('Adding downloaded show', magnet, fileName);
-        const downloadedShowsStorage = await this.getDownloadedShowsStorage();
-        if (
-            !downloadedShowsStorage.find(
-                (storedFile) => storedFile.key === magnet,
-            )
-        ) {
-            downloadedShowsStorage.push({ key: magnet, fileName });
-            await Storage.setItem(
-                StorageKeys.DownloadedShows,
-                downloadedShowsStorage,
-            );
+        await downloadedShowsCollection.ready();
+        if (!downloadedShowsCollection.has(magnet)) {
+            await downloadedShowsCollection.set(magnet, fileName);
         }
     }
 }
@@ -0,0 +1,189 @@
+import AsyncStorage from '@react-native-async-storage/async-storage';
+import { NativeEventEmitter } from 'react-native';
+import { StorageKeys } from '../enums/enum';
+import { WatchList, WatchListItem } from '../models/models';
+import NativeKeyValueStore from '../specs/NativeKeyValueStore';
+
+import type { BackupProgress } from '../specs/NativeKeyValueStore';
+
+export type {
+    BackupProgress,
+    KeyValueStoreStats,
+    RestoredBackup,
+} from '../specs/NativeKeyValueStore';
+
+const keyValueStoreEvents = new NativeEventEmitter(NativeKeyValueStore);
+
+const migratedMarkerKey = (name: StorageKeys) => `__migrated/${name}`;
+
+/**
+ * A collection stored one record per item in the native key-value store,
+ * e.g. downloaded episodes keyed by magnet. Looking up or changing one item
+ * no longer parses or rewrites the whole collection. The first time it is used
+ * the legacy AsyncStorage JSON value with the same name is moved over.
+ */
+export class KeyedCollection<T> {
+    private readonly prefix: string;
+    private migration: Promise<void> | undefined;
+
+    constructor(
+        public readonly name: StorageKeys,
+        private readonly fromLegacy: (legacyValue: any) => [string, T][],
+        private readonly toLegacy: (entries: [string, T][]) => any,
+    ) {
+        this.prefix = `${name}/`;
+    }
+
+    /** Resolves once legacy data has been migrated. Safe to call repeatedly. */
+    public ready() {
+        if (!this.migration) {
+            this.migration = this.migrate();
+        }
+        return this.migration;
+    }
+
+    /** Synchronous lookup, only valid after ready() has resolved. */
+    public get(id: string): T | undefined {
+        const value = NativeKeyValueStore.getItemSync(this.prefix + id);
+        return value === null ? undefined : (JSON.parse(value) as T);
+    }
+
+    public has(id: string) {
+        return NativeKeyValueStore.getItemSync(this.prefix + id) !== null;
+    }
+
+    public async set(id: string, value: T) {
+        await this.ready();
+        await NativeKeyValueStore.setItem(this.prefix + id, JSON.stringify(value));
+    }
+
+    public async remove(id: string) {
+        await this.ready();
+        await NativeKeyValueStore.removeItem(this.prefix + id);
+    }
+
+    public async entries(): Promise<[string, T][]> {
+        await this.ready();
+        const entries = await NativeKeyValueStore.getEntries(this.prefix);
+        return entries.map((entry) => [
+            entry.key.substring(this.prefix.length),
+            JSON.parse(entry.value) as T,
+        ]);
+    }
+
+    /** The collection in its old single JSON value shape. */
+    public async exportLegacy() {
+        return this.toLegacy(await this.entries());
+    }
+
+    /** Replaces the collection with the items of an old style JSON value. */
+    public async importLegacy(legacyValue: any) {
+        await this.ready();
+        await NativeKeyValueStore.removeAll(this.prefix);
+        await this.setAll(this.fromLegacy(legacyValue));
+    }
+
+    public async clear() {
+        await this.ready();
+        await NativeKeyValueStore.removeAll(this.prefix);
+    }
+
+    private async setAll(entries: [string, T][]) {
+        await NativeKeyValueStore.multiSet(
+            entries.map(([id]) => this.prefix + id),
+            entries.map(([, value]) => JSON.stringify(value)),
+        );
+    }
+
+    private async migrate() {
+        if (NativeKeyValueStore.getItemSync(migratedMarkerKey(this.name))) {
+            return;
+        }
+        const legacyValue = await AsyncStorage.getItem(this.name);
+        if (legacyValue !== null) {
+            await this.setAll(this.fromLegacy(JSON.parse(legacyValue)));
+        }
+        await NativeKeyValueStore.setItem(migratedMarkerKey(this.name), 'true');
+        await AsyncStorage.removeItem(this.name);
+        console.log('Migrated', this.name, 'to the native key-value store');
+    }
+}
+
+export const getKeyValueStoreStats = () => {
+    return NativeKeyValueStore.getStats();
+};
+
+export const compactKeyValueStore = () => {
+    return NativeKeyValueStore.compact();
+};
+
+/**
+ * Streams the given AsyncStorage settings and the whole key-value store into
+ * a backup file natively. The file is replaced atomically once complete.
+ * Resolves with its size in bytes.
+ */
+export const exportBackup = (
+    path: string,
+    settings: [string, string | null][],
+    gzip: boolean,
+    callId?: string,
+) => {
+    return NativeKeyValueStore.exportBackup(
+        path,
+        settings.map(([key]) => key),
+        settings.map(([, value]) => value),
+        gzip,
+        callId ?? null,
+    );
+};
+
+/**
+ * Restores a backup file into the key-value store and resolves with the
+ * AsyncStorage settings it holds, which the caller has to put back.
+ */
+export const importBackup = (path: string, callId?: string) => {
+    return NativeKeyValueStore.importBackup(path, callId ?? null);
+};
+
+export const cancelBackup = (callId: string) => {
+    return NativeKeyValueStore.cancelBackup(callId);
+};
+
+export const addBackupProgressListener = (
+    listener: (progress: BackupProgress) => void,
+) => {
+    return keyValueStoreEvents.addListener(
+        'YorhaKeyValueStore.backupProgress',
+        listener,
+    );
+};
+
+/** File name of each downloaded episode, keyed by magnet. */
+export const downloadedShowsCollection = new KeyedCollection<string>(
+    StorageKeys.DownloadedShows,
+    (legacy: { key: string; fileName: string }[]) =>
+        legacy.map((downloadedShow) => [
+            downloadedShow.key,
+            downloadedShow.fileName,
+        ]),
+    (entries) => entries.map(([key, fileName]) => ({ key, fileName })),
+);
+
+/** Watched episodes keyed by `show|release_date|episode`. */
+export const watchedEpisodesCollection = new KeyedCollection<boolean>(
+    StorageKeys.WatchedEpisodes,
+    (legacy: string[]) => legacy.map((episodeKey) => [episodeKey, true]),
+    (entries): string[] => entries.map(([episodeKey]) => episodeKey),
+);
+
+export const watchListCollection = new KeyedCollection<WatchListItem>(
+    StorageKeys.WatchList,
+    (legacy: WatchList) => legacy.shows.map((show) => [show.showName, show]),
+    (entries): WatchList => ({ shows: entries.map(([, show]) => show) }),
+);
+
+export const keyedCollections = [
+    downloadedShowsCollection,
+    watchedEpisodesCollection,
+    watchListCollection,
+];
@@ -1,46 +1,24 @@
-import nodejs from 'nodejs-mobile-react-native';
-import { getOpenPort } from '../HelperFunctions';
+import { startVideoServer, stopVideoServer } from '../HelperFunctions';
+import type { VideoServerStartup } from '../HelperFunctions';
 class LocalWebServerManager {
-    private callbacks: {
-        [callbackId: string]: { resolve: Function; reject: Function };
-    } = {};
     openPort: number = -1;
+    startupMetrics: VideoServerStartup | undefined;
     private serverStarted = false;
-    constructor() {
-        nodejs.channel.addListener('message', async (msg) => {
-            const registeredCallback = this.callbacks[msg.callbackId];
-            if (registeredCallback) {
-                registeredCallback.resolve();
-                delete this.callbacks[msg.callbackId];
-            }
-            if (msg.name === 'local-webserver-callback') {
-                this.serverStarted = true;
-            }
-        });
-    }
-
-    private generateCallbackId() {
-        return (Math.random() + 1).toString(36).substring(2);
-    }
 
     public async startServer() {
         if (!this.serverStarted) {
-            console.log('Getting free port to start server on.');
-            const port = await getOpenPort();
-            this.openPort = port;
+            console.log('Going to start local web server');
+            const requestedAt = Date.now();
+            this.startupMetrics = await startVideoServer();
+            this.openPort = this.startupMetrics.port;
+            this.serverStarted = true;
             console.log(
-                'Going to start local web server on port',
+                'Local web server listening on port',
                 this.openPort,
+                `bind ${this.startupMetrics.bindMs.toFixed(1)}ms,`,
+                `ready ${this.startupMetrics.readyMs.toFixed(1)}ms,`,
+                `total from JS ${Date.now() - requestedAt}ms`,
             );
-            const callbackId = this.generateCallbackId();
-            return await new Promise<void>((resolve, reject) => {
-                this.callbacks[callbackId] = { resolve, reject };
-                nodejs.channel.send({
-                    name: 'start-server',
-                    callbackId,
-                    port: this.openPort,
-                });
-            });
         } else {
             console.log('Server already started, not starting a new one');
         }
@@ -48,9 +26,8 @@ class LocalWebServerManager {
 
     public stopServer() {
         console.log('Going to stop local web server');
-        nodejs.channel.send({
-            name: 'stop-server',
-        });
+        this.serverStarted = false;
+        stopVideoServer();
     }
 }
 const localWebServerManager = new LocalWebServerManager();
@@ -1,10 +1,77 @@
 import crashlytics from '@react-native-firebase/crashlytics';
+import NativeLogSink from '../specs/NativeLogSink';
+
+export type { LogSinkStats } from '../specs/NativeLogSink';
+
+const consoleLevels = ['log', 'info', 'warn', 'error', 'debug'] as const;
+
+const formatPart = (part: any) => {
+    if (typeof part === 'string') {
+        return part;
+    }
+    if (part instanceof Error) {
+        return part.stack ?? part.message;
+    }
+    try {
+        return JSON.stringify(part);
+    } catch {
+        return String(part);
+    }
+};
 
 class Logger {
+    private sinkInstalled = false;
+
     error(...parts: any[]) {
         crashlytics().log(parts.join(' '));
         console.error(parts.join(' '));
     }
+
+    /**
+     * Copies every console line to the native log sink. The call is a void
+     * native method, JS never waits for the write.
+     */
+    installLogSink() {
+        if (this.sinkInstalled) {
+            return;
+        }
+        this.sinkInstalled = true;
+        consoleLevels.forEach((level) => {
+            const original = console[level];
+            console[level] = (...parts: any[]) => {
+                NativeLogSink.log(level, 'js', parts.map(formatPart).join(' '));
+                original.apply(console, parts);
+            };
+        });
+    }
+
+    /** Lines node sent over its channel before it connected to the sink. */
+    logNode(text: string) {
+        NativeLogSink.log('info', 'node', text);
+    }
+
+    getLogPort() {
+        return NativeLogSink.getLogPort().catch((ex) => {
+            this.error('No log sink port', ex?.message);
+            return undefined;
+        });
+    }
+
+    getLogDirectory() {
+        return NativeLogSink.getLogDirectory();
+    }
+
+    getLogFilePaths() {
+        return NativeLogSink.getLogFilePaths();
+    }
+
+    flush() {
+        return NativeLogSink.flush();
+    }
+
+    getStats() {
+        return NativeLogSink.getStats();
+    }
 }
 
 const logger = new Logger();
@@ -0,0 +1,20 @@
+import NativeStartupTrace from '../specs/NativeStartupTrace';
+
+export type {
+    StartupSection,
+    StartupTraces,
+} from '../specs/NativeStartupTrace';
+
+/**
+ * Adds a step to the native cold start trace, timed from process start.
+ */
+export const markStartup = (name: string) => {
+    NativeStartupTrace.mark(name);
+};
+
+/**
+ * The cold start trace of this launch and of the launch before it.
+ */
+export const getStartupTrace = () => {
+    return NativeStartupTrace.getStartupTrace();
+};
@@ -1,6 +1,7 @@
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { ToastAndroid } from 'react-native';
 import { StorageKeys } from '../enums/enum';
+import { keyedCollections } from './KeyValueStore';
 
 export class Storage {
     public static async getItem<T>(
@@ -18,6 +19,51 @@ export class Storage {
         return AsyncStorage.setItem(key, JSON.stringify(value));
     }
 
+    /** The values kept in AsyncStorage as [key, JSON value] pairs. */
+    public static async getSettingsEntries() {
+        const keys = await AsyncStorage.getAllKeys();
+        return (await AsyncStorage.multiGet(keys)) as [string, string | null][];
+    }
+
+    /**
+     * Names of everything stored: the AsyncStorage keys and the collections
+     * kept in the native key-value store.
+     */
+    public static async getAllKeys(): Promise<string[]> {
+        const keys = [...(await AsyncStorage.getAllKeys())];
+        for (const collection of keyedCollections) {
+            keys.push(collection.name);
+        }
+        return keys;
+    }
+
+    /**
+     * Restores [key, JSON value] pairs from a backup. Pairs named after a
+     * keyed collection, the way older backups stored them, are imported into
+     * that collection instead of AsyncStorage.
+     */
+    public static async restoreEntries(entries: [string, string][]) {
+        const remaining: [string, string][] = [];
+        for (const [key, value] of entries) {
+            const collection = keyedCollections.find(
+                (keyedCollection) => keyedCollection.name === key,
+            );
+            if (collection) {
+                await collection.importLegacy(JSON.parse(value));
+            } else {
+                remaining.push([key, value]);
+            }
+        }
+        await AsyncStorage.multiSet(remaining);
+    }
+
+    public static async clearAll() {
+        await AsyncStorage.clear();
+        for (const collection of keyedCollections) {
+            await collection.clear();
+        }
+    }
+
     public static async clearCache() {
         const keys = await AsyncStorage.getAllKeys();
         const cacheKeys = keys.filter((key) => {
@@ -3,17 +3,14 @@ import {
     FFmpegKitConfig,
     ReturnCode,
 } from 'ffmpeg-kit-react-native';
-import nodejs from 'nodejs-mobile-react-native';
 import {
-    deleteFileIfExists,
+    extractMatroskaSubtitles,
     fileExists,
-    getExtensionlessFilepath,
-    getFileNameFromFilePath,
+    getVideoThumbnail,
+    tidyVtt,
 } from '../HelperFunctions';
-import { TemporaryDirectoryPath } from 'react-native-fs';
 
 class Converter {
-    private imageCache: { [filePath: string]: string } = {};
     public async extractSubtitles(
         sourceFilePath: string,
         sourceFileName: string,
@@ -41,6 +38,34 @@ class Converter {
                 return;
             }
 
+            if (sourceFileName.toLowerCase().endsWith('.mkv')) {
+                try {
+                    const extracted = await extractMatroskaSubtitles(
+                        `${sourcePath}/${sourceFileName}`,
+                        subtitleFilePath,
+                    );
+                    if (extracted) {
+                        console.log(
+                            'Extracted',
+                            extracted.cues,
+                            'subtitles natively, read',
+                            extracted.bytesRead,
+                            'of',
+                            extracted.fileSize,
+                            'bytes',
+                        );
+                        resolve({
+                            message: 'Success converting',
+                            fileName: sourceFileName,
+                            subtitleFile: subtitleFilePath,
+                        });
+                        return;
+                    }
+                } catch (ex) {
+                    console.log('Native subtitle extraction failed', ex);
+                }
+            }
+
             console.log(sourcePath, sourceFileName);
             const convertArguments = `-i "${sourcePath}/${sourceFileName}" -map 0:s:0 "${subtitleFilePath}"`;
             console.log('Convert arguments', convertArguments);
@@ -72,68 +97,30 @@ class Converter {
         });
     }
 
-    private async readB64FromFile(filePath: string) {
-        return new Promise<string>((resolve) => {
-            const callbackId = filePath + 'thumbnail';
-            nodejs.channel.addListener('message', async (msg) => {
-                if (msg.callbackId === callbackId) {
-                    this.imageCache[filePath] = msg.b64String;
-                    resolve(msg.b64String);
-                }
-            });
-            nodejs.channel.send({
-                name: 'base64-image',
-                callbackId,
-                outputFilePath: filePath,
-            });
-        });
+    public async getVideoThumbnail(videoPath: string) {
+        try {
+            return (await getVideoThumbnail(videoPath)) ?? '';
+        } catch (ex) {
+            console.log('Error getting thumbnail for', videoPath, ex);
+            return '';
+        }
     }
 
-    public async getB64VideoThumbnail(videoPath: string) {
-        const fileName = getFileNameFromFilePath(videoPath);
-        const outputFileName = `${getExtensionlessFilepath(fileName)}.jpg`;
-        const outputFilePath = `${TemporaryDirectoryPath}/${outputFileName}`;
-        const convertArguments = `-ss 30 -i "${videoPath}" -qscale:v 4 -frames:v 1 "${outputFilePath}"`;
-
-        if (this.imageCache[outputFilePath]) {
-            console.log('Found image in cache for', videoPath);
-            return this.imageCache[outputFilePath];
-        } else if (await fileExists(outputFilePath)) {
-            console.log('Reading image from file', outputFilePath);
-            return this.readB64FromFile(outputFilePath);
-        } else {
+    public async tidySubtitles(filePath: string) {
+        try {
+            const result = await tidyVtt(filePath);
             console.log(
-                'Going to extract thumbnail with arguments:',
-                convertArguments,
+                'Tidied subtitles',
+                result.cues,
+                '->',
+                result.kept,
+                'cues in',
+                result.durationMs,
+                'ms',
             );
-            const session = await FFmpegKit.execute(convertArguments);
-            const returnCode = await session.getReturnCode();
-            if (ReturnCode.isSuccess(returnCode)) {
-                console.log('Success getting thumbnail');
-                return this.readB64FromFile(outputFilePath);
-            } else if (ReturnCode.isCancel(returnCode)) {
-                console.log('Error getting thumbnail');
-            } else {
-                console.log('Unknown error getting thumbnail');
-            }
+        } catch (ex) {
+            console.log('Error tidying subtitles', filePath, ex);
         }
-        return '';
-    }
-
-    public async tidySubtitles(filePath: string) {
-        const callbackId = `${filePath}-tidyVtt`;
-        return new Promise<void>((resolve) => {
-            nodejs.channel.addListener('message', async (msg) => {
-                if (msg.callbackId === callbackId) {
-                    resolve();
-                }
-            });
-            nodejs.channel.send({
-                name: 'tidy-vtt',
-                callbackId,
-                filePath,
-            });
-        });
     }
 }
 
@@ -0,0 +1,54 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type DownloadSummaryItem = {
+    callbackId: string;
+    totalBytes: number;
+    downloadedBytes: number;
+    uploadedBytes: number;
+    // Bytes per second.
+    downloadSpeed: number;
+    uploadSpeed: number;
+    // Transferred since the previous summary.
+    downloadedDelta: number;
+    uploadedDelta: number;
+    // 0 -> 1
+    progress: number;
+};
+
+export type DownloadSummary = {
+    downloads: DownloadSummaryItem[];
+    completed: DownloadSummaryItem[];
+};
+
+/**
+ * Codegen spec for com.yorha.DownloadServiceModule, the foreground service
+ * that shows download progress. The torrent client reports progress to it
+ * directly, JS receives one summary event per tick.
+ */
+export interface Spec extends TurboModule {
+    getProgressPort(): Promise<number>;
+    addDownload(
+        callbackId: string,
+        showName: string,
+        episodeNumber: string,
+        totalBytes: number,
+        filePaths: ReadonlyArray<string>,
+    ): void;
+    updateDownload(
+        callbackId: string,
+        downloadedBytes: number,
+        uploadedBytes: number,
+        downloadSpeed: number,
+        uploadSpeed: number,
+    ): void;
+    completeDownload(callbackId: string, filePath: string): void;
+    removeDownload(callbackId: string): void;
+    getActiveFilePaths(): Promise<string[]>;
+
+    // NativeEventEmitter support.
+    addListener(eventName: string): void;
+    removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('YorhaDownloads');
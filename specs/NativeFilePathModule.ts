@@ -0,0 +1,322 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type FileStat = {
+    path: string;
+    exists: boolean;
+    isDirectory: boolean;
+    size: number;
+    mtime: number;
+};
+
+export type CopyProgress = {
+    callId: string | null;
+    path: string;
+    bytesCopied: number;
+    totalBytes: number;
+};
+
+export type DeleteProgress = {
+    callId: string | null;
+    path: string;
+    filesDeleted: number;
+    totalFiles: number;
+    bytesFreed: number;
+    totalBytes: number;
+};
+
+export type DeleteResult = {
+    deleted: boolean;
+    filesDeleted: number;
+    totalFiles: number;
+    bytesFreed: number;
+    totalBytes: number;
+    failureCount: number;
+    failures: { path: string; message: string }[];
+};
+
+export type TextPage = {
+    text: string;
+    offset: number;
+    endOffset: number;
+    fileSize: number;
+};
+
+export type VideoServerStartup = {
+    port: number;
+    bindMs: number;
+    readyMs: number;
+    alreadyRunning: boolean;
+};
+
+export type FileIoStats = {
+    threads: number;
+    active: number;
+    queued: number;
+    completed: number;
+    failed: number;
+    cancelled: number;
+    rejected: number;
+    averageLatencyMs: number;
+    maxLatencyMs: number;
+};
+
+export type SubtitleExtraction = {
+    trackNumber: number;
+    codecId: string;
+    language: string;
+    cues: number;
+    usedCueIndex: boolean;
+    bytesRead: number;
+    fileSize: number;
+    durationMs: number;
+};
+
+export type VttTidyResult = {
+    cues: number;
+    kept: number;
+    merged: number;
+    backgroundsRemoved: number;
+    signsMarked: number;
+    durationMs: number;
+};
+
+export type FolderPathCacheStats = {
+    size: number;
+    hits: number;
+    misses: number;
+    stale: number;
+    evictions: number;
+    invalidations: number;
+};
+
+export type FolderChange = {
+    type: 'added' | 'deleted' | 'modified';
+    path: string;
+    exists: boolean;
+    isDirectory: boolean;
+    size: number;
+    mtime: number;
+};
+
+export type FolderChanges = {
+    changes: FolderChange[];
+};
+
+export type FolderIndexStats = {
+    folders: number;
+    entries: number;
+    hits: number;
+    negativeHits: number;
+    misses: number;
+    changes: number;
+};
+
+export type Preallocation = {
+    path: string;
+    size: number;
+    method: 'fallocate' | 'setLength' | 'none';
+    availableBytes: number;
+    durationMs: number;
+};
+
+export type EvictionRoot = {
+    path: string;
+    budgetBytes: number;
+    watchedEpisodes: ReadonlyArray<string>;
+};
+
+export type EvictionOptions = {
+    roots: ReadonlyArray<EvictionRoot>;
+    globalBudgetBytes: number;
+    evictUnwatched: boolean;
+    reserveFolder: string | null;
+    reserveBytes: number;
+    protectedPaths: ReadonlyArray<string>;
+};
+
+export type EvictionProgress = {
+    callId: string | null;
+    path: string | null;
+    filesDeleted: number;
+    bytesFreed: number;
+    bytesToFree: number;
+};
+
+export type EvictionResult = {
+    filesDeleted: number;
+    bytesFreed: number;
+    bytesToFree: number;
+    usedBytes: number;
+    satisfied: boolean;
+    evicted: { path: string; size: number; watched: boolean }[];
+    failureCount: number;
+    failures: { path: string; message: string }[];
+};
+
+export type PieceVerification = {
+    pieceCount: number;
+    goodPieces: number;
+    // Base64 BitTorrent bitfield, piece 0 is the high bit of the first byte.
+    bitfield: string;
+    badPieces: number[];
+    bytesHashed: number;
+    fileSize: number;
+    durationMs: number;
+};
+
+export type TreeEntry = {
+    documentId: string;
+    // Document URI within the picked tree, list it again to open a folder.
+    uri: string;
+    name: string;
+    // -1 when the provider doesn't report a size.
+    size: number;
+    // Epoch milliseconds, 0 when unknown.
+    lastModified: number;
+    mimeType: string;
+    isDirectory: boolean;
+};
+
+export type TreePage = {
+    callId: string | null;
+    uri: string;
+    pageIndex: number;
+    last: boolean;
+    entries: TreeEntry[];
+};
+
+export type TreeListing = {
+    entries: number;
+    pages: number;
+    durationMs: number;
+};
+
+export type LibraryFile = {
+    path: string;
+    fileName: string;
+    size: number;
+    lastModified: number;
+    // 2 for a "v2" re-release, 0 for the first one.
+    version: number;
+};
+
+export type LibraryScan = {
+    // show -> episode -> resolution -> LibraryFile, typed in HelperFunctions.
+    shows: Object;
+    directoriesVisited: number;
+    // Folders whose modification time changed and were read again.
+    directoriesListed: number;
+    files: number;
+    episodes: number;
+    durationMs: number;
+};
+
+export type PlaybackWarmRange = {
+    // header, index, tail (index guess) or lead (first clusters).
+    name: string;
+    offset: number;
+    length: number;
+    durationMs: number;
+};
+
+export type PlaybackPreparation = {
+    fileSize: number;
+    bytesWarmed: number;
+    // False when the index wasn't in the header and the tail was warmed.
+    indexFound: boolean;
+    ranges: PlaybackWarmRange[];
+    durationMs: number;
+};
+
+/**
+ * Codegen spec for com.yorha.FilePathModule. Under the new architecture this
+ * is a TurboModule and the synchronous methods are plain JSI calls; on the old
+ * bridge TurboModuleRegistry falls back to NativeModules.FilePathModule.
+ */
+export interface Spec extends TurboModule {
+    // Synchronous, cheap queries.
+    isCastingAvailable(): boolean;
+    fileExistsCached(filePath: string): boolean | null;
+
+    listTree(
+        uri: string,
+        pageSize: number,
+        callId: string | null,
+    ): Promise<TreeListing>;
+    getFolderPathFromUri(
+        contentUri: string,
+        callId: string | null,
+    ): Promise<string | null>;
+    getFolderPathCacheStats(): Promise<FolderPathCacheStats>;
+    clearFolderPathCache(): Promise<boolean>;
+    verifyManageFilesPermission(): Promise<boolean>;
+    fileExists(filePath: string): Promise<boolean>;
+    statMany(filePaths: ReadonlyArray<string>): Promise<FileStat[]>;
+    watchFolders(folderPaths: ReadonlyArray<string>): Promise<FolderIndexStats>;
+    getFolderIndexStats(): Promise<FolderIndexStats>;
+    deleteFileIfExists(filePath: string): Promise<boolean>;
+    deleteFolder(
+        folderPath: string,
+        callId: string | null,
+    ): Promise<DeleteResult>;
+    scanLibrary(
+        showFolders: ReadonlyArray<string>,
+        callId: string | null,
+    ): Promise<LibraryScan>;
+    evictToBudget(
+        options: EvictionOptions,
+        callId: string | null,
+    ): Promise<EvictionResult>;
+    openFolder(folderPath: string): Promise<boolean>;
+    ensureFolderExists(folderPath: string): Promise<boolean>;
+    preallocate(filePath: string, size: number): Promise<Preallocation>;
+    readTextFile(filePath: string, callId: string | null): Promise<string>;
+    readTextFilePage(
+        filePath: string,
+        offset: number,
+        length: number,
+        wholeLines: boolean,
+        callId: string | null,
+    ): Promise<TextPage>;
+    readTextFileTail(
+        filePath: string,
+        maxBytes: number,
+        callId: string | null,
+    ): Promise<TextPage>;
+    getVideoThumbnail(
+        videoPath: string,
+        maxWidth: number,
+        maxHeight: number,
+        callId: string | null,
+    ): Promise<string | null>;
+    clearThumbnailCache(): Promise<boolean>;
+    extractMatroskaSubtitles(
+        mkvPath: string,
+        vttPath: string,
+        callId: string | null,
+    ): Promise<SubtitleExtraction | null>;
+    tidyVtt(vttPath: string, callId: string | null): Promise<VttTidyResult>;
+    verifyPieces(
+        filePath: string,
+        pieceLength: number,
+        sha1s: ReadonlyArray<string>,
+        callId: string | null,
+    ): Promise<PieceVerification>;
+    prepareForPlayback(
+        filePath: string,
+        leadBytes: number,
+        callId: string | null,
+    ): Promise<PlaybackPreparation>;
+    openVideoIntent(filePath: string): Promise<boolean>;
+    startVideoServer(): Promise<VideoServerStartup>;
+    stopVideoServer(): Promise<boolean>;
+    cancel(callId: string): Promise<boolean>;
+    getIoStats(): Promise<FileIoStats>;
+
+    // NativeEventEmitter support.
+    addListener(eventName: string): void;
+    removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('FilePathModule');
@@ -0,0 +1,67 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type KeyValueEntry = {
+    key: string;
+    value: string;
+};
+
+export type KeyValueStoreStats = {
+    entries: number;
+    fileBytes: number;
+    usedBytes: number;
+    liveBytes: number;
+    recoveredBytes: number;
+    compactions: number;
+};
+
+export type BackupProgress = {
+    callId: string | null;
+    path: string;
+    entries: number;
+    totalEntries: number;
+    bytes: number;
+};
+
+export type RestoredBackup = {
+    settings: KeyValueEntry[];
+    storeEntries: number;
+    legacy: boolean;
+    bytes: number;
+};
+
+/**
+ * Codegen spec for com.yorha.KeyValueStoreModule, a memory-mapped
+ * append-only string store for state that is read and written per item.
+ */
+export interface Spec extends TurboModule {
+    getItemSync(key: string): string | null;
+
+    getItem(key: string): Promise<string | null>;
+    setItem(key: string, value: string): Promise<boolean>;
+    multiSet(
+        keys: ReadonlyArray<string>,
+        values: ReadonlyArray<string>,
+    ): Promise<boolean>;
+    removeItem(key: string): Promise<boolean>;
+    getEntries(prefix: string): Promise<KeyValueEntry[]>;
+    removeAll(prefix: string): Promise<number>;
+    compact(): Promise<boolean>;
+    getStats(): Promise<KeyValueStoreStats>;
+
+    exportBackup(
+        path: string,
+        settingKeys: ReadonlyArray<string>,
+        settingValues: ReadonlyArray<string | null>,
+        gzip: boolean,
+        callId: string | null,
+    ): Promise<number>;
+    importBackup(path: string, callId: string | null): Promise<RestoredBackup>;
+    cancelBackup(callId: string): Promise<boolean>;
+
+    // NativeEventEmitter support.
+    addListener(eventName: string): void;
+    removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('YorhaKeyValueStore');
@@ -0,0 +1,31 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type LogSinkStats = {
+    linesWritten: number;
+    // Lines lost because the ring buffer was full or a write failed.
+    linesDropped: number;
+    bytesWritten: number;
+    batches: number;
+    // Gzipped segments kept next to the current log file.
+    archives: number;
+    // Batches that could not be written, and the last error.
+    writeFailures: number;
+    lastError: string | null;
+};
+
+/**
+ * Codegen spec for com.yorha.LogSinkModule, the batched, rotating log file
+ * shared with the node torrent client. log() returns nothing so logging never
+ * waits on the bridge; node writes to getLogPort() directly.
+ */
+export interface Spec extends TurboModule {
+    log(level: string, source: string, message: string): void;
+    getLogPort(): Promise<number>;
+    getLogDirectory(): Promise<string>;
+    getLogFilePaths(): Promise<string[]>;
+    flush(): Promise<boolean>;
+    getStats(): Promise<LogSinkStats>;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('YorhaLogSink');
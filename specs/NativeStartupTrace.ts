@@ -0,0 +1,25 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+export type StartupSection = {
+    name: string;
+    // Milliseconds since the process was started.
+    startMs: number;
+    durationMs: number;
+};
+
+export type StartupTraces = {
+    current: StartupSection[];
+    previous: StartupSection[];
+};
+
+/**
+ * Codegen spec for com.yorha.StartupTraceModule, the cold start trace of this
+ * launch and the one before.
+ */
+export interface Spec extends TurboModule {
+    mark(name: string): void;
+    getStartupTrace(): Promise<StartupTraces>;
+}
+
+export default TurboModuleRegistry.getEnforcing<Spec>('YorhaStartupTrace');
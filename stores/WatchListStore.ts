@@ -1,8 +1,7 @@
-import { StorageKeys } from '../enums/enum';
 import { ShowInfo, WatchList } from '../models/models';
 import { makeObservable, observable, computed, action } from 'mobx';
 import { getDayOfWeek } from '../HelperFunctions';
-import { Storage } from '../services/Storage';
+import { watchListCollection } from '../services/KeyValueStore';
 import { RootStore } from './RootStore';
 
 export class WatchListStore {
@@ -16,8 +15,8 @@ export class WatchListStore {
             addShowToWatchList: action,
             removeShowFromWatchList: action,
         });
-        Storage.getItem<WatchList>(StorageKeys.WatchList, { shows: [] }).then(
-            action((savedWatchList) => {
+        watchListCollection.exportLegacy().then(
+            action((savedWatchList: WatchList) => {
                 this.watchList = savedWatchList;
             }),
         );
@@ -37,12 +36,13 @@ export class WatchListStore {
                 (show) => show.showName === showToAdd.show,
             )
         ) {
-            this.watchList.shows.push({
+            const show = {
                 showName: showToAdd.show,
                 showImage: showToAdd.image_url,
                 releaseTime: getDayOfWeek(showToAdd.release_date),
-            });
-            await Storage.setItem(StorageKeys.WatchList, this.watchList);
+            };
+            this.watchList.shows.push(show);
+            await watchListCollection.set(show.showName, show);
         }
     }
 
@@ -50,7 +50,7 @@ export class WatchListStore {
         this.watchList.shows = this.watchList.shows.filter(
             (show) => show.showName !== showName,
         );
-        await Storage.setItem(StorageKeys.WatchList, this.watchList);
+        await watchListCollection.remove(showName);
     }
 
     public getShowsOnday(dayName: string) {
@@ -1,6 +1,5 @@
-import { StorageKeys } from '../enums/enum';
 import { ShowInfo } from '../models/models';
-import { Storage } from '../services/Storage';
+import { watchedEpisodesCollection } from '../services/KeyValueStore';
 import { makeObservable, observable, computed, action } from 'mobx';
 import { RootStore } from './RootStore';
 
@@ -17,9 +16,11 @@ export class WatchedEpisodeStore {
             watchedEpisodes: observable,
             setShowWatched: action,
         });
-        Storage.getItem<string[]>(StorageKeys.WatchedEpisodes, []).then(
+        watchedEpisodesCollection.entries().then(
             action((savedWatchedEpisodes) => {
-                this.watchedEpisodes = savedWatchedEpisodes;
+                this.watchedEpisodes = savedWatchedEpisodes.map(
+                    ([episodeKey]) => episodeKey,
+                );
             }),
         );
     }
@@ -37,20 +38,14 @@ export class WatchedEpisodeStore {
         if (watched) {
             if (!this.watchedEpisodes.includes(showKey)) {
                 this.watchedEpisodes.push(showKey);
-                await Storage.setItem(
-                    StorageKeys.WatchedEpisodes,
-                    this.watchedEpisodes,
-                );
+                await watchedEpisodesCollection.set(showKey, true);
             }
         } else {
             if (this.watchedEpisodes.includes(showKey)) {
                 this.watchedEpisodes = this.watchedEpisodes.filter(
                     (watchedEpisodeKey) => watchedEpisodeKey !== showKey,
                 );
-                await Storage.setItem(
-                    StorageKeys.WatchedEpisodes,
-                    this.watchedEpisodes,
-                );
+                await watchedEpisodesCollection.remove(showKey);
             }
         }
     }